@@ -0,0 +1,63 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.benchmarks;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.tools.HeadlessCommandLineApplication;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.graphics.GL20;
+
+/**
+ * Sets up a headless libGDX environment, so that benchmarks can load assets and maps.
+ *
+ * <p>Like the tools, benchmarks must be run from the android/assets directory, after the assets
+ * have been generated.
+ */
+public class BenchmarkEnvironment {
+    private static Assets sAssets;
+
+    public static synchronized void init() {
+        if (Gdx.app != null) {
+            return;
+        }
+        new HeadlessApplication(new ApplicationAdapter() {});
+        GL20 gl = HeadlessCommandLineApplication.createNoOpGL20();
+        Gdx.gl = gl;
+        Gdx.gl20 = gl;
+    }
+
+    public static synchronized Assets getAssets() {
+        init();
+        if (sAssets == null) {
+            sAssets = new Assets();
+        }
+        return sAssets;
+    }
+
+    /** Returns a new, initialized, instance of the track @p trackId */
+    public static Track loadTrack(String trackId) {
+        init();
+        Track track = new Track(trackId, trackId);
+        track.init();
+        return track;
+    }
+}
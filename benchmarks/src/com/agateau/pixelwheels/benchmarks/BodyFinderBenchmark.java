@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.benchmarks;
+
+import com.agateau.pixelwheels.racer.ObstaclePerception;
+import com.agateau.pixelwheels.utils.ArcClosestBodyFinder;
+import com.agateau.pixelwheels.utils.ClosestBodyFinder;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ray casts done by guns (single ray ArcClosestBodyFinder) and missiles (120° ArcClosestBodyFinder,
+ * as a fan of rays and as a box query), in a world filled with boxes. Also compares the
+ * ObstaclePerception queries done by AI pilots with the ClosestBodyFinder ray casts they replace.
+ * Does not need any asset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BodyFinderBenchmark {
+    private static final int POSITION_COUNT = 1024;
+    private static final float WORLD_SIZE = 200;
+    private static final float BOX_SIZE = 1;
+
+    // Same values as in AIPilot, GunBonus and Missile
+    private static final float AI_RAY_LENGTH = 20;
+    private static final float GUN_DEPTH = 20;
+    private static final float MISSILE_DEPTH = 40;
+    private static final float MISSILE_ARC = 120;
+
+    @Param({"100", "1000"})
+    public int bodyCount;
+
+    private World mWorld;
+    private final ClosestBodyFinder mClosestBodyFinder = new ClosestBodyFinder();
+    private final ArcClosestBodyFinder mGunFinder = new ArcClosestBodyFinder(GUN_DEPTH);
+    private final ArcClosestBodyFinder mMissileFinder =
+            new ArcClosestBodyFinder(MISSILE_DEPTH, MISSILE_ARC);
+    private final ArcClosestBodyFinder mMissileQueryFinder =
+            new ArcClosestBodyFinder(MISSILE_DEPTH, MISSILE_ARC);
+    private ObstaclePerception mObstaclePerception;
+    private final ObstaclePerception.Hit mObstacleHit = new ObstaclePerception.Hit();
+
+    private final Vector2[] mOrigins = new Vector2[POSITION_COUNT];
+    private final Vector2[] mTargets = new Vector2[POSITION_COUNT];
+    private final float[] mAngles = new float[POSITION_COUNT];
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        Box2D.init();
+        mWorld = new World(new Vector2(0, 0), true);
+        mMissileQueryFinder.setMode(ArcClosestBodyFinder.Mode.QUERY);
+        RandomXS128 random = new RandomXS128(12);
+
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        PolygonShape shape = new PolygonShape();
+        shape.setAsBox(BOX_SIZE / 2, BOX_SIZE / 2);
+        for (int idx = 0; idx < bodyCount; ++idx) {
+            bodyDef.position.set(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE);
+            Body body = mWorld.createBody(bodyDef);
+            body.createFixture(shape, 1);
+        }
+        shape.dispose();
+        mObstaclePerception = new ObstaclePerception(mWorld);
+
+        for (int idx = 0; idx < POSITION_COUNT; ++idx) {
+            mOrigins[idx] =
+                    new Vector2(random.nextFloat() * WORLD_SIZE, random.nextFloat() * WORLD_SIZE);
+            mAngles[idx] = random.nextFloat() * 360;
+            mTargets[idx] = new Vector2(AI_RAY_LENGTH, 0).rotate(mAngles[idx]).add(mOrigins[idx]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        mWorld.dispose();
+    }
+
+    private int nextIndex() {
+        mIndex = (mIndex + 1) & (POSITION_COUNT - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public Body closestBodyFinder() {
+        int idx = nextIndex();
+        return mClosestBodyFinder.find(mWorld, mOrigins[idx], mTargets[idx]);
+    }
+
+    @Benchmark
+    public boolean obstaclePerception() {
+        int idx = nextIndex();
+        return mObstaclePerception.findClosestObstacle(mOrigins[idx], mTargets[idx], mObstacleHit);
+    }
+
+    @Benchmark
+    public Body arcClosestBodyFinderSingleRay() {
+        int idx = nextIndex();
+        return mGunFinder.find(mWorld, mOrigins[idx], mAngles[idx]);
+    }
+
+    @Benchmark
+    public Body arcClosestBodyFinderArc() {
+        int idx = nextIndex();
+        return mMissileFinder.find(mWorld, mOrigins[idx], mAngles[idx]);
+    }
+
+    @Benchmark
+    public Body arcClosestBodyFinderQuery() {
+        int idx = nextIndex();
+        return mMissileQueryFinder.find(mWorld, mOrigins[idx], mAngles[idx]);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.benchmarks;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.gamesetup.SimulationGameInfo;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.pixelwheels.simulation.RaceSimulator;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.PerformanceCounters;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a full simulation step, and the racer sort done at the end of each step, on AI-only
+ * races, with both vehicle physics models.
+ *
+ * <p>Each iteration starts from a new race, which has already been running for WARMUP_DURATION
+ * seconds, so that racers are spread over the track. Iterations are kept short so that races do not
+ * finish while being measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class GameWorldBenchmark {
+    private static final float WARMUP_DURATION = 20;
+    private static final long SEED = 12;
+
+    @Param({"country", "race", "snow2", "be", "tiny-sur-mer"})
+    public String trackId;
+
+    @Param({"6", "12", "24"})
+    public int racerCount;
+
+    @Param({"JOINTED_WHEELS", "SINGLE_BODY"})
+    public Vehicle.PhysicsModel physicsModel;
+
+    private RaceSimulator mSimulator;
+    private Track mTrack;
+    private GameWorldImpl mWorld;
+    private Racer[] mShuffledRacers;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        Assets assets = BenchmarkEnvironment.getAssets();
+        mSimulator = new RaceSimulator(assets);
+        mTrack = BenchmarkEnvironment.loadTrack(trackId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        mTrack.dispose();
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpIteration() {
+        Assets assets = BenchmarkEnvironment.getAssets();
+        Array<String> vehicleIds = new Array<>();
+        for (int idx = 0; idx < racerCount; ++idx) {
+            vehicleIds.add(assets.vehicleDefs.get(idx % assets.vehicleDefs.size).id);
+        }
+        SimulationGameInfo gameInfo = new SimulationGameInfo(mTrack, vehicleIds);
+        gameInfo.setPhysicsModel(physicsModel);
+        mWorld = mSimulator.createWorld(gameInfo, SEED, new PerformanceCounters());
+        for (float time = 0; time < WARMUP_DURATION; time += GameWorld.BOX2D_TIME_STEP) {
+            mWorld.act(GameWorld.BOX2D_TIME_STEP);
+        }
+
+        Array<Racer> racers = mWorld.getRacers();
+        mShuffledRacers = new Racer[racers.size];
+        System.arraycopy(racers.items, 0, mShuffledRacers, 0, racers.size);
+        // Do not use Array.shuffle(), it relies on the global random generator
+        RandomXS128 random = new RandomXS128(SEED);
+        for (int idx = mShuffledRacers.length - 1; idx > 0; --idx) {
+            int other = random.nextInt(idx + 1);
+            Racer tmp = mShuffledRacers[idx];
+            mShuffledRacers[idx] = mShuffledRacers[other];
+            mShuffledRacers[other] = tmp;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDownIteration() {
+        mWorld.forgetTrack();
+        mWorld.dispose();
+    }
+
+    @Benchmark
+    public void step() {
+        mWorld.act(GameWorld.BOX2D_TIME_STEP);
+    }
+
+    /** The common case: racers are already sorted by the previous step */
+    @Benchmark
+    public void sortSortedRacers() {
+        mWorld.sortRacers();
+    }
+
+    /** The worst case: racers are in random order. Includes the cost of restoring that order */
+    @Benchmark
+    public void sortShuffledRacers() {
+        System.arraycopy(mShuffledRacers, 0, mWorld.getRacers().items, 0, mShuffledRacers.length);
+        mWorld.sortRacers();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.benchmarks;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.map.BakedLapPositionTable;
+import com.agateau.pixelwheels.map.LapPosition;
+import com.agateau.pixelwheels.map.LapPositionTable;
+import com.agateau.pixelwheels.map.LapPositionTableIO;
+import com.agateau.pixelwheels.map.Material;
+import com.agateau.pixelwheels.map.WaypointStore;
+import com.agateau.pixelwheels.utils.OrientedPoint;
+import com.badlogic.gdx.math.Vector2;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Track queries done by each racer, at each simulation step */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TrackBenchmark {
+    private LapPositionTable mPolygonTable;
+    private LapPositionTable mBakedTable;
+    private WaypointStore mWaypointStore;
+    private final Vector2 mPosition = new Vector2();
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp(TrackState state) {
+        mPolygonTable = LapPositionTableIO.load(state.track.getMap());
+        int width = (int) (state.track.getMapWidth() / Constants.UNIT_FOR_PIXEL);
+        int height = (int) (state.track.getMapHeight() / Constants.UNIT_FOR_PIXEL);
+        mBakedTable = BakedLapPositionTable.bake(mPolygonTable, width, height, 0);
+        mWaypointStore = state.track.getWaypointStore();
+    }
+
+    private int nextIndex() {
+        mIndex = (mIndex + 1) & (TrackState.POSITION_COUNT - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public LapPosition polygonLapPositionTableGet(TrackState state) {
+        int idx = nextIndex();
+        return mPolygonTable.get(state.pixelX[idx], state.pixelY[idx]);
+    }
+
+    @Benchmark
+    public LapPosition bakedLapPositionTableGet(TrackState state) {
+        int idx = nextIndex();
+        return mBakedTable.get(state.pixelX[idx], state.pixelY[idx]);
+    }
+
+    @Benchmark
+    public Material getMaterialAt(TrackState state) {
+        int idx = nextIndex();
+        return state.track.getMaterialAt(state.x[idx], state.y[idx]);
+    }
+
+    @Benchmark
+    public OrientedPoint waypointStoreGetValidPosition(TrackState state) {
+        int idx = nextIndex();
+        mPosition.set(state.x[idx], state.y[idx]);
+        return mWaypointStore.getValidPosition(mPosition, state.lapDistance[idx]);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.benchmarks;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.map.LapPosition;
+import com.agateau.pixelwheels.map.LapPositionTable;
+import com.agateau.pixelwheels.map.Track;
+import com.badlogic.gdx.math.RandomXS128;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A loaded track, and a fixed set of random positions on it.
+ *
+ * <p>Benchmarks iterate over the positions, so that they do not always query the same cells.
+ */
+@State(Scope.Benchmark)
+public class TrackState {
+    public static final int POSITION_COUNT = 4096;
+    private static final long SEED = 12;
+
+    @Param({"country", "race", "snow2", "be", "tiny-sur-mer"})
+    public String trackId;
+
+    public Track track;
+
+    /** Positions, in tile pixels */
+    public final int[] pixelX = new int[POSITION_COUNT];
+
+    public final int[] pixelY = new int[POSITION_COUNT];
+
+    /** Positions, in world units */
+    public final float[] x = new float[POSITION_COUNT];
+
+    public final float[] y = new float[POSITION_COUNT];
+
+    /** Lap distance of each position */
+    public final float[] lapDistance = new float[POSITION_COUNT];
+
+    @Setup
+    public void setUp() {
+        track = BenchmarkEnvironment.loadTrack(trackId);
+        LapPositionTable table = track.getLapPositionTable();
+        int width = (int) (track.getMapWidth() / Constants.UNIT_FOR_PIXEL);
+        int height = (int) (track.getMapHeight() / Constants.UNIT_FOR_PIXEL);
+        RandomXS128 random = new RandomXS128(SEED);
+        for (int idx = 0; idx < POSITION_COUNT; ) {
+            int px = random.nextInt(width);
+            int py = random.nextInt(height);
+            LapPosition position = table.get(px, py);
+            if (position == null) {
+                continue;
+            }
+            pixelX[idx] = px;
+            pixelY[idx] = py;
+            x[idx] = px * Constants.UNIT_FOR_PIXEL;
+            y[idx] = py * Constants.UNIT_FOR_PIXEL;
+            lapDistance[idx] = position.getLapDistance();
+            ++idx;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        track.dispose();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Warper is package-private, hence this benchmark lives in the map package. It does not need any
+ * asset.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WarperBenchmark {
+    private static final int POSITION_COUNT = 1024;
+
+    private final Warper mWarper = new Warper();
+    private final float[] mX = new float[POSITION_COUNT];
+    private final float[] mY = new float[POSITION_COUNT];
+    private int mIndex = 0;
+
+    @Setup
+    public void setUp() {
+        // A section-like quad, wider at the end than at the start
+        mWarper.setSource(0, 0, 100, 0, -20, 80, 120, 80);
+        mWarper.setDestination(0, 0, 1, 0, 0, 1, 1, 1);
+        mWarper.computeWarp();
+        RandomXS128 random = new RandomXS128(12);
+        for (int idx = 0; idx < POSITION_COUNT; ++idx) {
+            mX[idx] = random.nextFloat() * 100;
+            mY[idx] = random.nextFloat() * 80;
+        }
+    }
+
+    private int nextIndex() {
+        mIndex = (mIndex + 1) & (POSITION_COUNT - 1);
+        return mIndex;
+    }
+
+    @Benchmark
+    public Vector2 warp() {
+        int idx = nextIndex();
+        return mWarper.warp(mX[idx], mY[idx]);
+    }
+
+    @Benchmark
+    public float warpX() {
+        int idx = nextIndex();
+        return mWarper.warpX(mX[idx], mY[idx]);
+    }
+}
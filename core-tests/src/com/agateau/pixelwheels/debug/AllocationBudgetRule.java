@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.debug;
+
+import org.junit.AssumptionViolatedException;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * Fails a test if the code run between start() and stop() allocates more than a given number of
+ * bytes.
+ *
+ * <p>If stop() is not called, the measure ends with the test. Tests are skipped on JVMs where
+ * AllocationCounter is not supported.
+ */
+public class AllocationBudgetRule implements TestRule {
+    private final long mMaxBytes;
+    private long mStartBytes = -1;
+    private long mAllocatedBytes = -1;
+
+    public AllocationBudgetRule(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    public void start() {
+        mAllocatedBytes = -1;
+        mStartBytes = AllocationCounter.getThreadAllocatedBytes();
+    }
+
+    public void stop() {
+        long bytes = AllocationCounter.getThreadAllocatedBytes();
+        if (mStartBytes < 0) {
+            throw new IllegalStateException("stop() called without start()");
+        }
+        mAllocatedBytes = bytes - mStartBytes;
+        mStartBytes = -1;
+    }
+
+    /** Returns the number of bytes allocated between start() and stop(), or -1 if not measured */
+    public long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                if (!AllocationCounter.isSupported()) {
+                    throw new AssumptionViolatedException("Allocation counting is not supported");
+                }
+                mStartBytes = -1;
+                mAllocatedBytes = -1;
+                base.evaluate();
+                if (mStartBytes >= 0) {
+                    stop();
+                }
+                if (mAllocatedBytes < 0) {
+                    throw new AssertionError("start() has not been called");
+                }
+                if (mAllocatedBytes > mMaxBytes) {
+                    throw new AssertionError(
+                            String.format(
+                                    "%s allocated %d bytes, budget is %d bytes",
+                                    description.getMethodName(), mAllocatedBytes, mMaxBytes));
+                }
+            }
+        };
+    }
+}
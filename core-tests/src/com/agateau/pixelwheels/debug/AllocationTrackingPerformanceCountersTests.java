@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.debug;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import com.badlogic.gdx.utils.PerformanceCounter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class AllocationTrackingPerformanceCountersTests {
+    private static final int ARRAY_SIZE = 10_000;
+
+    // Keeps allocated arrays alive so that the JIT cannot remove the allocations
+    private Object mSink;
+
+    @Before
+    public void setUp() {
+        assumeTrue(AllocationCounter.isSupported());
+    }
+
+    @Test
+    public void testCountsAllocatedBytesPerFrame() {
+        // GIVEN a counter
+        AllocationTrackingPerformanceCounters counters =
+                new AllocationTrackingPerformanceCounters();
+        PerformanceCounter performanceCounter = counters.add("test");
+        AllocationTrackingPerformanceCounters.Counter counter =
+                (AllocationTrackingPerformanceCounters.Counter) performanceCounter;
+
+        // WHEN a frame allocates an array
+        counter.start();
+        mSink = new byte[ARRAY_SIZE];
+        counter.stop();
+        counters.tick(1);
+
+        // AND the next frame allocates nothing
+        counter.start();
+        counter.stop();
+        counters.tick(1);
+
+        // THEN the last frame did not allocate
+        assertThat(counter.lastFrameBytes, is(0L));
+
+        // AND the first frame is recorded
+        assertThat(counter.maxFrameBytes >= ARRAY_SIZE, is(true));
+        assertThat(counter.totalBytes, is(counter.maxFrameBytes));
+        assertThat(counter.frameCount, is(2));
+        assertThat(counter.allocatingFrameCount, is(1));
+    }
+
+    @Test
+    public void testReset() {
+        // GIVEN a counter which recorded an allocating frame
+        AllocationTrackingPerformanceCounters counters =
+                new AllocationTrackingPerformanceCounters();
+        AllocationTrackingPerformanceCounters.Counter counter =
+                (AllocationTrackingPerformanceCounters.Counter) counters.add("test");
+        counter.start();
+        mSink = new byte[ARRAY_SIZE];
+        counter.stop();
+        counters.tick(1);
+
+        // WHEN counters are reset
+        counters.reset();
+
+        // THEN nothing is recorded anymore
+        assertThat(counter.totalBytes, is(0L));
+        assertThat(counter.maxFrameBytes, is(0L));
+        assertThat(counter.frameCount, is(0));
+        assertThat(counter.allocatingFrameCount, is(0));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.gameobjet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.agateau.pixelwheels.ZLevel;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class RenderQueueTests {
+    private static class FakeObject extends GameObjectAdapter {
+        int mask;
+        final Array<ZLevel> drawnLevels = new Array<>();
+
+        FakeObject(int mask) {
+            this.mask = mask;
+        }
+
+        @Override
+        public int getZLevelMask() {
+            return mask;
+        }
+
+        @Override
+        public void act(float delta) {}
+
+        @Override
+        public void draw(Batch batch, ZLevel zLevel) {
+            drawnLevels.add(zLevel);
+        }
+
+        @Override
+        public float getX() {
+            return 0;
+        }
+
+        @Override
+        public float getY() {
+            return 0;
+        }
+    }
+
+    @Test
+    public void testDrawOnlyOnOccupiedLevels() {
+        // GIVEN an object drawing on shadows and obstacles, and one drawing nowhere
+        FakeObject obstacle = new FakeObject(ZLevel.SHADOWS.mask() | ZLevel.OBSTACLES.mask());
+        FakeObject invisible = new FakeObject(0);
+        Array<GameObject> objects = new Array<>();
+        objects.add(obstacle);
+        objects.add(invisible);
+        RenderQueue queue = new RenderQueue();
+
+        // WHEN drawing all levels
+        queue.update(objects, new Array<>());
+        for (ZLevel zLevel : ZLevel.values()) {
+            queue.draw(null, zLevel);
+        }
+
+        // THEN draw() is only called for the levels of each object, in order
+        assertThat(obstacle.drawnLevels.size, is(2));
+        assertThat(obstacle.drawnLevels.get(0), is(ZLevel.SHADOWS));
+        assertThat(obstacle.drawnLevels.get(1), is(ZLevel.OBSTACLES));
+        assertThat(invisible.drawnLevels.size, is(0));
+
+        // AND the counters match
+        assertThat(queue.getObjectCount(), is(2));
+        assertThat(queue.getDrawCallCount(), is(2));
+        assertThat(queue.getObjectCount(ZLevel.SHADOWS), is(1));
+        assertThat(queue.getObjectCount(ZLevel.GROUND), is(0));
+    }
+
+    @Test
+    public void testMaskChanges() {
+        // GIVEN a vehicle on the ground, then flying
+        FakeObject vehicle = new FakeObject(ZLevel.GROUND.mask() | ZLevel.VEHICLES.mask());
+        Array<GameObject> objects = new Array<>();
+        objects.add(vehicle);
+        RenderQueue queue = new RenderQueue();
+        queue.update(objects, new Array<>());
+        vehicle.mask = ZLevel.GROUND.mask() | ZLevel.FLYING.mask();
+
+        // WHEN the queue is updated for the next frame
+        queue.update(objects, new Array<>());
+
+        // THEN the vehicle has moved from the vehicles level to the flying one
+        assertThat(queue.getObjectCount(ZLevel.VEHICLES), is(0));
+        assertThat(queue.getObjectCount(ZLevel.FLYING), is(1));
+        assertThat(queue.getObjectCount(ZLevel.GROUND), is(1));
+    }
+
+    @Test
+    public void testPassiveObjects() {
+        // GIVEN a passive obstacle and an active mine
+        FakeObject obstacle = new FakeObject(ZLevel.OBSTACLES.mask());
+        FakeObject mine = new FakeObject(ZLevel.OBSTACLES.mask());
+        Array<GameObject> passiveObjects = new Array<>();
+        passiveObjects.add(obstacle);
+        Array<GameObject> objects = new Array<>();
+        objects.add(mine);
+        RenderQueue queue = new RenderQueue();
+        queue.update(objects, passiveObjects);
+
+        // WHEN the passive object mask changes
+        obstacle.mask = ZLevel.GROUND.mask();
+        queue.update(objects, passiveObjects);
+
+        // THEN it is not taken into account, since passive objects are only bucketed when added
+        assertThat(queue.getObjectCount(ZLevel.OBSTACLES), is(2));
+        assertThat(queue.getObjectCount(ZLevel.GROUND), is(0));
+        assertThat(queue.getObjectCount(), is(2));
+        assertThat(queue.getDrawCallCount(), is(2));
+
+        // AND both are drawn
+        queue.draw(null, ZLevel.OBSTACLES);
+        assertThat(obstacle.drawnLevels.size, is(1));
+        assertThat(mine.drawnLevels.size, is(1));
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Polygon;
+import java.io.File;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class BakedLapPositionTableTests {
+    private static final int WIDTH = 400;
+    private static final int HEIGHT = 300;
+    private static final int CHECKSUM = 1234;
+
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testBakedTableMatchesSource() {
+        // GIVEN a table computed from sections
+        PolygonLapPositionTable source = createSourceTable();
+
+        // WHEN it is baked
+        BakedLapPositionTable table = BakedLapPositionTable.bake(source, WIDTH, HEIGHT, CHECKSUM);
+
+        // THEN the baked table matches its source
+        assertThat(table.getSectionCount(), is(source.getSectionCount()));
+        assertThat(table.getSourceChecksum(), is(CHECKSUM));
+        LapPositionTableValidator.Result result =
+                new LapPositionTableValidator(0.1f).validate(source, table, WIDTH, HEIGHT);
+        assertThat(result.toString(), result.isValid(0.02f), is(true));
+
+        // AND positions outside the baked area are not on the track
+        assertThat(table.get(-1, 10), is(nullValue()));
+        assertThat(table.get(10, HEIGHT + 10), is(nullValue()));
+    }
+
+    @Test
+    public void testSampleCentersOnlyDifferByQuantization() {
+        // GIVEN a table computed from sections
+        PolygonLapPositionTable source = createSourceTable();
+
+        // WHEN it is baked
+        BakedLapPositionTable table = BakedLapPositionTable.bake(source, WIDTH, HEIGHT, CHECKSUM);
+
+        // THEN at the center of each sample, positions only differ by one quantization step
+        LapPositionTableValidator validator =
+                new LapPositionTableValidator(
+                        2 * BakedLapPositionTable.getSectionDistanceError(),
+                        2 * BakedLapPositionTable.getCenterDistanceError());
+        validator.setStride(BakedLapPositionTable.SAMPLE_SIZE);
+        validator.setOffset(BakedLapPositionTable.SAMPLE_SIZE / 2);
+        LapPositionTableValidator.Result result = validator.validate(source, table, WIDTH, HEIGHT);
+        assertThat(result.toString(), result.isValid(0), is(true));
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        // GIVEN a baked table
+        BakedLapPositionTable table =
+                BakedLapPositionTable.bake(createSourceTable(), WIDTH, HEIGHT, CHECKSUM);
+
+        // WHEN it is written and read back
+        File file = mTemporaryFolder.newFile("test.lpt");
+        table.write(new FileHandle(file));
+        BakedLapPositionTable loadedTable = BakedLapPositionTable.read(new FileHandle(file));
+
+        // THEN the loaded table is identical
+        assertThat(loadedTable.getSectionCount(), is(table.getSectionCount()));
+        assertThat(loadedTable.getSourceChecksum(), is(CHECKSUM));
+        LapPositionTableValidator.Result result =
+                new LapPositionTableValidator(0).validate(table, loadedTable, WIDTH, HEIGHT);
+        assertThat(result.edgeMismatchCount, is(0));
+        assertThat(result.valueMismatchCount, is(0));
+    }
+
+    /** Creates a table made of a ring of 8 sections, going around the (WIDTH, HEIGHT) area */
+    private static PolygonLapPositionTable createSourceTable() {
+        PolygonLapPositionTable table = new PolygonLapPositionTable();
+        float cx = WIDTH / 2f;
+        float cy = HEIGHT / 2f;
+        int count = 8;
+        for (int idx = 0; idx < count; ++idx) {
+            double a1 = 2 * Math.PI * idx / count;
+            double a2 = 2 * Math.PI * (idx + 1) / count;
+            float outerX = cx - 10;
+            float outerY = cy - 10;
+            float innerX = outerX - 80;
+            float innerY = outerY - 80;
+            float[] vertices = {
+                cx + innerX * (float) Math.cos(a1), cy + innerY * (float) Math.sin(a1),
+                cx + innerX * (float) Math.cos(a2), cy + innerY * (float) Math.sin(a2),
+                cx + outerX * (float) Math.cos(a2), cy + outerY * (float) Math.sin(a2),
+                cx + outerX * (float) Math.cos(a1), cy + outerY * (float) Math.sin(a1),
+            };
+            table.addSection(idx, new Polygon(vertices));
+        }
+        table.buildIndex();
+        return table;
+    }
+}
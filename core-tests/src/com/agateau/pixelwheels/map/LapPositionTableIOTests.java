@@ -0,0 +1,80 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.objects.PolylineMapObject;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LapPositionTableIOTests {
+    private static final float[][] SECTIONS = {
+        {0, 0, 0, 100}, {100, 0, 100, 100}, {200, 0, 200, 100},
+    };
+
+    @Test
+    public void testSectionChecksumIgnoresObjectOrder() {
+        // GIVEN two maps with the same sections, stored in a different order
+        TiledMap map1 = createMap(SECTIONS, new int[] {0, 1, 2});
+        TiledMap map2 = createMap(SECTIONS, new int[] {2, 0, 1});
+
+        // THEN their checksums are the same
+        assertThat(
+                LapPositionTableIO.computeSectionChecksum(map1),
+                is(LapPositionTableIO.computeSectionChecksum(map2)));
+    }
+
+    @Test
+    public void testSectionChecksumChangesWithGeometry() {
+        // GIVEN a map
+        TiledMap map1 = createMap(SECTIONS, new int[] {0, 1, 2});
+
+        // AND the same map, with one section line slightly moved
+        float[][] sections = {
+            SECTIONS[0], {100, 0, 101, 100}, SECTIONS[2],
+        };
+        TiledMap map2 = createMap(sections, new int[] {0, 1, 2});
+
+        // THEN their checksums are different, even if they have the same section count
+        assertThat(
+                LapPositionTableIO.computeSectionChecksum(map1),
+                is(not(LapPositionTableIO.computeSectionChecksum(map2))));
+    }
+
+    /** Creates a map whose "Sections" layer contains @p sections, added in @p order */
+    private static TiledMap createMap(float[][] sections, int[] order) {
+        TiledMap map = new TiledMap();
+        MapLayer layer = new MapLayer();
+        layer.setName("Sections");
+        for (int idx : order) {
+            PolylineMapObject object = new PolylineMapObject(sections[idx].clone());
+            object.setName(String.valueOf(idx));
+            layer.getObjects().add(object);
+        }
+        map.getLayers().add(layer);
+        return map;
+    }
+}
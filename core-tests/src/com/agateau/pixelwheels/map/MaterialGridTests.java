@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.tiles.StaticTiledMapTile;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class MaterialGridTests {
+    private static final int WIDTH = 5;
+    private static final int HEIGHT = 4;
+    private static final float TILE_WIDTH = 2;
+    private static final float TILE_HEIGHT = 3;
+
+    // Indexed by tile id
+    private static final Material[] MATERIAL_FOR_TILE_ID = {
+        Material.ROAD, Material.SAND, Material.TURBO, Material.DEEP_WATER, Material.ICE,
+    };
+
+    @Test
+    public void testMatchesPerTileLookup() {
+        // GIVEN two background layers: a full bottom one, and a sparse top one
+        Array<TiledMapTile> tiles = createTiles();
+        TiledMapTileLayer bottom = createLayer();
+        TiledMapTileLayer top = createLayer();
+        for (int ty = 0; ty < HEIGHT; ++ty) {
+            for (int tx = 0; tx < WIDTH; ++tx) {
+                // Leave the bottom-right cell empty in both layers
+                if (tx != WIDTH - 1 || ty != 0) {
+                    setTile(bottom, tx, ty, tiles.get(1 + (tx + ty) % 2));
+                }
+                if ((tx + 2 * ty) % 3 == 0) {
+                    setTile(top, tx, ty, tiles.get(3 + tx % 2));
+                }
+            }
+        }
+        Array<TiledMapTileLayer> layers = new Array<>();
+        layers.add(bottom);
+        layers.add(top);
+
+        // WHEN a material grid is created from them
+        MaterialGrid grid = new MaterialGrid(layers, MATERIAL_FOR_TILE_ID, TILE_WIDTH, TILE_HEIGHT);
+
+        // THEN it returns the same materials as looking up the tiles of the layers, everywhere,
+        // including on cell edges, on the map edges and outside the map
+        float step = 0.5f;
+        for (float y = -2 * TILE_HEIGHT; y <= (HEIGHT + 2) * TILE_HEIGHT; y += step) {
+            for (float x = -2 * TILE_WIDTH; x <= (WIDTH + 2) * TILE_WIDTH; x += step) {
+                assertThat(
+                        "(" + x + ", " + y + ")",
+                        grid.getMaterialAt(x, y),
+                        is(getMaterialFromLayers(layers, x, y)));
+            }
+        }
+        // Just inside and just outside the map edges
+        float epsilon = 0.001f;
+        float[] xs = {-epsilon, 0, WIDTH * TILE_WIDTH - epsilon, WIDTH * TILE_WIDTH};
+        float[] ys = {-epsilon, 0, HEIGHT * TILE_HEIGHT - epsilon, HEIGHT * TILE_HEIGHT};
+        for (float y : ys) {
+            for (float x : xs) {
+                assertThat(
+                        "(" + x + ", " + y + ")",
+                        grid.getMaterialAt(x, y),
+                        is(getMaterialFromLayers(layers, x, y)));
+            }
+        }
+
+        // AND the empty cell is ROAD
+        assertThat(grid.getMaterialAt((WIDTH - 0.5f) * TILE_WIDTH, 0.5f), is(Material.ROAD));
+    }
+
+    /** The lookup done by Track.getMaterialAt() before the grid was introduced */
+    private static Material getMaterialFromLayers(
+            Array<TiledMapTileLayer> layers, float x, float y) {
+        int tx = MathUtils.floor(x / TILE_WIDTH);
+        int ty = MathUtils.floor(y / TILE_HEIGHT);
+        for (int idx = layers.size - 1; idx >= 0; idx--) {
+            TiledMapTileLayer.Cell cell = layers.get(idx).getCell(tx, ty);
+            if (cell != null) {
+                return MATERIAL_FOR_TILE_ID[cell.getTile().getId()];
+            }
+        }
+        return Material.ROAD;
+    }
+
+    private static Array<TiledMapTile> createTiles() {
+        Array<TiledMapTile> tiles = new Array<>();
+        for (int id = 0; id < MATERIAL_FOR_TILE_ID.length; ++id) {
+            TiledMapTile tile = new StaticTiledMapTile(new TextureRegion());
+            tile.setId(id);
+            tiles.add(tile);
+        }
+        return tiles;
+    }
+
+    private static TiledMapTileLayer createLayer() {
+        return new TiledMapTileLayer(WIDTH, HEIGHT, 16, 16);
+    }
+
+    private static void setTile(TiledMapTileLayer layer, int tx, int ty, TiledMapTile tile) {
+        TiledMapTileLayer.Cell cell = new TiledMapTileLayer.Cell();
+        cell.setTile(tile);
+        layer.setCell(tx, ty, cell);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PolygonLapPositionTableTests {
+    @Test
+    public void testGetMatchesLinearScan() {
+        // GIVEN a ring of sections, some of them in negative coordinates
+        Array<Polygon> polygons = createRing(-100, -50, 400, 300, 120, 12);
+        PolygonLapPositionTable table = new PolygonLapPositionTable();
+        for (int idx = 0; idx < polygons.size; ++idx) {
+            table.addSection(idx, polygons.get(idx));
+        }
+
+        // WHEN looking up positions all over the area
+        for (int y = -200; y < 400; y += 7) {
+            for (int x = -300; x < 500; x += 7) {
+                LapPosition pos = table.get(x, y);
+
+                // THEN the result is the first section containing the point
+                int expected = findFirstSection(polygons, x, y);
+                if (expected == -1) {
+                    assertThat(pos, is(nullValue()));
+                } else {
+                    assertThat(pos.getSectionId(), is(expected));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSectionsAddedAfterLookup() {
+        // GIVEN a table with one section
+        PolygonLapPositionTable table = new PolygonLapPositionTable();
+        table.addSection(0, new Polygon(new float[] {0, 0, 100, 0, 100, 100, 0, 100}));
+        assertThat(table.get(150, 50), is(nullValue()));
+
+        // WHEN a section is added after a lookup
+        table.addSection(1, new Polygon(new float[] {100, 0, 200, 0, 200, 100, 100, 100}));
+
+        // THEN it can be found
+        assertThat(table.get(150, 50).getSectionId(), is(1));
+    }
+
+    @Test
+    public void testGetWithOut() {
+        // GIVEN a table with two sections
+        PolygonLapPositionTable table = new PolygonLapPositionTable();
+        table.addSection(0, new Polygon(new float[] {0, 0, 100, 0, 100, 100, 0, 100}));
+        table.addSection(1, new Polygon(new float[] {100, 0, 200, 0, 200, 100, 100, 100}));
+
+        // WHEN positions are looked up with caller-provided instances
+        LapPosition out1 = new LapPosition();
+        LapPosition out2 = new LapPosition();
+        LapPosition pos1 = table.get(25, 50, out1);
+        LapPosition pos2 = table.get(150, 50, out2);
+
+        // THEN the positions are stored in these instances
+        assertThat(pos1 == out1, is(true));
+        assertThat(pos2 == out2, is(true));
+
+        // AND a lookup does not overwrite the result of another one
+        assertThat(pos1.getSectionId(), is(0));
+        assertThat(pos1.getSectionDistance(), is(0.25f));
+        assertThat(pos2.getSectionId(), is(1));
+        assertThat(pos2.getSectionDistance(), is(0.5f));
+    }
+
+    /** Creates sections between an inner and an outer rectangle */
+    private static Array<Polygon> createRing(
+            float x, float y, float width, float height, float roadWidth, int count) {
+        Array<Polygon> polygons = new Array<>();
+        float cx = x + width / 2;
+        float cy = y + height / 2;
+        for (int idx = 0; idx < count; ++idx) {
+            double a1 = 2 * Math.PI * idx / count;
+            double a2 = 2 * Math.PI * (idx + 1) / count;
+            float outerX = width / 2;
+            float outerY = height / 2;
+            float innerX = outerX - roadWidth;
+            float innerY = outerY - roadWidth;
+            float[] vertices = {
+                cx + innerX * (float) Math.cos(a1), cy + innerY * (float) Math.sin(a1),
+                cx + innerX * (float) Math.cos(a2), cy + innerY * (float) Math.sin(a2),
+                cx + outerX * (float) Math.cos(a2), cy + outerY * (float) Math.sin(a2),
+                cx + outerX * (float) Math.cos(a1), cy + outerY * (float) Math.sin(a1),
+            };
+            polygons.add(new Polygon(vertices));
+        }
+        return polygons;
+    }
+
+    private static int findFirstSection(Array<Polygon> polygons, int x, int y) {
+        for (int idx = 0; idx < polygons.size; ++idx) {
+            if (polygons.get(idx).contains(x, y)) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.badlogic.gdx.maps.MapLayer;
+import com.badlogic.gdx.maps.objects.EllipseMapObject;
+import com.badlogic.gdx.math.Polygon;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class WaypointStoreTests {
+    private static final int SECTION_COUNT = 4;
+    private static final int SECTION_LENGTH = 100;
+
+    @Test
+    public void testGetWaypointIndex() {
+        // GIVEN a store with waypoints at lap distances 0.5, 1.5, 2.5 and 3.5
+        WaypointStore store = createStore();
+
+        // WHEN looking up the index of various lap distances
+        // THEN the index of the next waypoint is returned, wrapping after the last one
+        assertThat(store.getWaypointIndex(0.2f), is(0));
+        assertThat(store.getWaypointIndex(0.5f), is(1));
+        assertThat(store.getWaypointIndex(1f), is(1));
+        assertThat(store.getWaypointIndex(3.4f), is(3));
+        assertThat(store.getWaypointIndex(3.6f), is(0));
+    }
+
+    @Test
+    public void testCursor() {
+        // GIVEN a store
+        WaypointStore store = createStore();
+
+        // AND a cursor
+        WaypointStore.Cursor cursor = store.createCursor();
+
+        // WHEN the lap distance goes around the track twice, then goes backward
+        float[] lapDistances = new float[200];
+        for (int idx = 0; idx < lapDistances.length; ++idx) {
+            float lapDistance = idx < 160 ? idx * 0.05f : (160 - (idx - 160) * 0.5f) * 0.05f;
+            lapDistances[idx] = lapDistance % SECTION_COUNT;
+        }
+
+        // THEN the cursor returns the same indexes as the store
+        for (float lapDistance : lapDistances) {
+            assertThat(
+                    cursor.getWaypointIndex(lapDistance), is(store.getWaypointIndex(lapDistance)));
+        }
+    }
+
+    /** Creates a straight track made of SECTION_COUNT sections, with a waypoint in each section */
+    private static WaypointStore createStore() {
+        PolygonLapPositionTable table = new PolygonLapPositionTable();
+        MapLayer layer = new MapLayer();
+        for (int idx = 0; idx < SECTION_COUNT; ++idx) {
+            float x1 = idx * SECTION_LENGTH;
+            float x2 = x1 + SECTION_LENGTH;
+            table.addSection(idx, new Polygon(new float[] {x1, 0, x2, 0, x2, 100, x1, 100}));
+            // Add waypoints in reverse order to check they get sorted
+            int waypointIdx = SECTION_COUNT - 1 - idx;
+            float x = (waypointIdx + 0.5f) * SECTION_LENGTH;
+            layer.getObjects().add(new EllipseMapObject(x, 50, 1, 1));
+        }
+        WaypointStore store = new WaypointStore();
+        store.read(layer, table);
+        return store;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.obstacles;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.TextureRegionProvider;
+import com.agateau.pixelwheels.ZLevel;
+import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
+import com.agateau.pixelwheels.map.MapUtils;
+import com.agateau.pixelwheels.racescreen.Collidable;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.objects.RectangleMapObject;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public class ObstacleActivityManagerTests {
+    private static final int OBSTACLE_SIZE = 12;
+
+    @Mock private GameWorld mGameWorld;
+    @Mock private TextureRegionProvider mTextureRegionProvider;
+    @Mock private TextureRegion mTextureRegion;
+
+    @Rule public MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    private final Array<GameObject> mActiveGameObjects = new Array<>();
+    private Obstacle mObstacle;
+
+    private static class FakeProjectile extends GameObjectAdapter implements Collidable {
+        private final float mX;
+        private final float mY;
+
+        FakeProjectile(float x, float y) {
+            mX = x;
+            mY = y;
+        }
+
+        @Override
+        public void act(float delta) {}
+
+        @Override
+        public void draw(Batch batch, ZLevel zLevel) {}
+
+        @Override
+        public float getX() {
+            return mX;
+        }
+
+        @Override
+        public float getY() {
+            return mY;
+        }
+
+        @Override
+        public void beginContact(Contact contact, Fixture otherFixture) {}
+
+        @Override
+        public void endContact(Contact contact, Fixture otherFixture) {}
+
+        @Override
+        public void preSolve(Contact contact, Fixture otherFixture, Manifold oldManifold) {}
+
+        @Override
+        public void postSolve(Contact contact, Fixture otherFixture, ContactImpulse impulse) {}
+    }
+
+    @Test
+    public void testDistantObstaclesSleep() {
+        // GIVEN a dynamic obstacle and a projectile far from it
+        ObstacleActivityManager manager = createManagerWithOneObstacle();
+        float distance = GamePlay.instance.viewportWidth * 2;
+        mActiveGameObjects.add(new FakeProjectile(distance, 0));
+
+        // WHEN the sleep check runs
+        manager.act(ObstacleActivityManager.SLEEP_CHECK_INTERVAL);
+
+        // THEN the obstacle has been put to sleep and does not act anymore
+        assertThat(manager.getActingCount(), is(0));
+    }
+
+    @Test
+    public void testDistantMovingObstaclesKeepMoving() {
+        // GIVEN a moving dynamic obstacle and a projectile far from it
+        ObstacleActivityManager manager = createManagerWithOneObstacle();
+        Body body = mObstacle.getBody();
+        body.setLinearVelocity(5, 0);
+        float distance = GamePlay.instance.viewportWidth * 2;
+        mActiveGameObjects.add(new FakeProjectile(distance, 0));
+
+        // WHEN the sleep check runs
+        manager.act(ObstacleActivityManager.SLEEP_CHECK_INTERVAL);
+
+        // THEN the obstacle has not been put to sleep and still moves
+        assertThat(manager.getActingCount(), is(1));
+        assertThat(body.isAwake(), is(true));
+        assertThat(body.getLinearVelocity().x, is(5f));
+    }
+
+    @Test
+    public void testNearObstaclesAct() {
+        // GIVEN a dynamic obstacle and a projectile close to it
+        ObstacleActivityManager manager = createManagerWithOneObstacle();
+        mActiveGameObjects.add(new FakeProjectile(1, 1));
+
+        // WHEN the sleep check runs
+        manager.act(ObstacleActivityManager.SLEEP_CHECK_INTERVAL);
+
+        // THEN the obstacle still acts
+        assertThat(manager.getActingCount(), is(1));
+    }
+
+    private ObstacleActivityManager createManagerWithOneObstacle() {
+        World box2DWorld = new World(new Vector2(0, 0), true);
+        when(mGameWorld.getBox2DWorld()).thenReturn(box2DWorld);
+        when(mGameWorld.getActiveGameObjects()).thenReturn(mActiveGameObjects);
+
+        when(mTextureRegionProvider.findRegion("obstacle-barrel")).thenReturn(mTextureRegion);
+        when(mTextureRegion.getRegionWidth()).thenReturn(OBSTACLE_SIZE);
+        when(mTextureRegion.getRegionHeight()).thenReturn(OBSTACLE_SIZE);
+        ObstacleDef def = ObstacleDef.createCircle(mTextureRegionProvider, "barrel", 1);
+        def.dynamic = true;
+
+        ObstacleCreator creator = new ObstacleCreator();
+        creator.addObstacleDef(def);
+        RectangleMapObject mapObject = new RectangleMapObject(0, 0, OBSTACLE_SIZE, OBSTACLE_SIZE);
+        MapUtils.setObstacleId(mapObject, def.id);
+        creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+
+        // The obstacle is passive, the manager makes it act
+        ArgumentCaptor<GameObject> obstacleCaptor = ArgumentCaptor.forClass(GameObject.class);
+        verify(mGameWorld).addPassiveGameObject(obstacleCaptor.capture());
+        mObstacle = (Obstacle) obstacleCaptor.getValue();
+        ArgumentCaptor<GameObject> captor = ArgumentCaptor.forClass(GameObject.class);
+        verify(mGameWorld).addGameObject(captor.capture());
+        return (ObstacleActivityManager) captor.getValue();
+    }
+}
@@ -20,7 +20,10 @@ package com.agateau.pixelwheels.obstacles;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -29,10 +32,12 @@ import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.TextureRegionProvider;
 import com.agateau.pixelwheels.gameobjet.GameObject;
 import com.agateau.pixelwheels.map.MapUtils;
+import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.objects.RectangleMapObject;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
@@ -62,10 +67,7 @@ public class ObstacleCreatorTest {
         World box2DWorld = createBox2DWorld();
         when(mGameWorld.getBox2DWorld()).thenReturn(box2DWorld);
 
-        when(mTextureRegionProvider.findRegion("obstacle-tyre")).thenReturn(mTextureRegion);
-        when(mTextureRegion.getRegionWidth()).thenReturn(obstacleSize);
-        when(mTextureRegion.getRegionHeight()).thenReturn(obstacleSize);
-        ObstacleDef def = ObstacleDef.createCircle(mTextureRegionProvider, "tyre", 1);
+        ObstacleDef def = createTyreDef(obstacleSize);
 
         // AND an obstacle creator
         ObstacleCreator creator = new ObstacleCreator();
@@ -77,26 +79,146 @@ public class ObstacleCreatorTest {
         MapUtils.setObstacleId(mapObject, def.id);
 
         creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+        creator.finish(mGameWorld);
 
-        // THEN a single object is created
+        // THEN a single passive object is created to draw the obstacle, since it is static
         ArgumentCaptor<GameObject> gameObjectCaptor = ArgumentCaptor.forClass(GameObject.class);
-        verify(mGameWorld).addGameObject(gameObjectCaptor.capture());
+        verify(mGameWorld).addPassiveGameObject(gameObjectCaptor.capture());
+        verify(mGameWorld, never()).addGameObject(any());
+
+        StaticObstacleDrawList drawList = (StaticObstacleDrawList) gameObjectCaptor.getValue();
+        assertThat(drawList.getObstacleCount(), is(1));
+
+        // AND it has a body
+        Array<Body> bodies = new Array<>();
+        box2DWorld.getBodies(bodies);
+        assertThat(bodies.size, is(1));
+        Body body = bodies.get(0);
 
+        // AND the body has a fixture, which knows about the obstacle definition
+        Array<Fixture> fixtures = body.getFixtureList();
+        assertThat(fixtures.size, is(1));
+        Fixture fixture = fixtures.get(0);
+        assertThat(fixture.getUserData(), is(def));
+
+        // AND the fixture is in the top-left corner of the rectangle
+        Vector2 center = body.getWorldPoint(((CircleShape) fixture.getShape()).getPosition());
+        assertTrue(isCloseTo(center.x / Constants.UNIT_FOR_PIXEL, posX + obstacleSize / 2f));
+        assertTrue(isCloseTo(center.y / Constants.UNIT_FOR_PIXEL, posY + obstacleSize / 2f));
+    }
+
+    @Test
+    public void testCreateDynamic() {
+        final float posX = 10;
+        final float posY = 20;
+        final int obstacleSize = 12;
+        // GIVEN a world
+        World box2DWorld = createBox2DWorld();
+        when(mGameWorld.getBox2DWorld()).thenReturn(box2DWorld);
+
+        // AND a dynamic obstacle definition
+        ObstacleDef def = createTyreDef(obstacleSize);
+        def.dynamic = true;
+
+        // AND an obstacle creator
+        ObstacleCreator creator = new ObstacleCreator();
+        creator.addObstacleDef(def);
+
+        // WHEN I call create() with a rectangle the size of the obstacle
+        RectangleMapObject mapObject =
+                new RectangleMapObject(posX, posY, obstacleSize, obstacleSize);
+        MapUtils.setObstacleId(mapObject, def.id);
+
+        creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+        creator.finish(mGameWorld);
+
+        // THEN a passive obstacle is created
+        ArgumentCaptor<GameObject> gameObjectCaptor = ArgumentCaptor.forClass(GameObject.class);
+        verify(mGameWorld).addPassiveGameObject(gameObjectCaptor.capture());
         Obstacle obstacle = (Obstacle) gameObjectCaptor.getValue();
 
+        // AND the activity manager is added to the active objects
+        verify(mGameWorld).addGameObject(any(ObstacleActivityManager.class));
+
         // AND the obstacle is in the top-left corner of the rectangle
         assertTrue(isCloseTo(obstacle.getX() / Constants.UNIT_FOR_PIXEL, posX + obstacleSize / 2f));
         assertTrue(isCloseTo(obstacle.getY() / Constants.UNIT_FOR_PIXEL, posY + obstacleSize / 2f));
 
-        // AND it has a body
+        // AND it has its own body
         Array<Body> bodies = new Array<>();
         box2DWorld.getBodies(bodies);
         assertThat(bodies.size, is(1));
-        Body body = bodies.get(0);
+        assertThat(bodies.get(0), is(obstacle.getBody()));
+    }
 
-        // AND the body has a fixture
-        Array<Fixture> fixtures = body.getFixtureList();
-        assertThat(fixtures.size, is(1));
+    @Test
+    public void testMergeStaticObstacles() {
+        final int obstacleSize = 12;
+        final float chunkSizePx = StaticObstacleMerger.CHUNK_SIZE / Constants.UNIT_FOR_PIXEL;
+        // GIVEN a world
+        World box2DWorld = createBox2DWorld();
+        when(mGameWorld.getBox2DWorld()).thenReturn(box2DWorld);
+
+        ObstacleDef def = createTyreDef(obstacleSize);
+
+        // AND an obstacle creator
+        ObstacleCreator creator = new ObstacleCreator();
+        creator.addObstacleDef(def);
+
+        // WHEN I create two obstacles and a border in the first chunk
+        RectangleMapObject mapObject = new RectangleMapObject(10, 20, obstacleSize, obstacleSize);
+        MapUtils.setObstacleId(mapObject, def.id);
+        creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+
+        mapObject = new RectangleMapObject(40, 20, obstacleSize, obstacleSize);
+        MapUtils.setObstacleId(mapObject, def.id);
+        creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+
+        RectangleMapObject borderObject = new RectangleMapObject(60, 60, 40, 10);
+        creator.create(mGameWorld, mTextureRegionProvider, borderObject);
+
+        // AND an obstacle in another chunk
+        mapObject = new RectangleMapObject(chunkSizePx + 10, 20, obstacleSize, obstacleSize);
+        MapUtils.setObstacleId(mapObject, def.id);
+        creator.create(mGameWorld, mTextureRegionProvider, mapObject);
+
+        creator.finish(mGameWorld);
+
+        // THEN there is a single draw list for all the static obstacles
+        ArgumentCaptor<GameObject> gameObjectCaptor = ArgumentCaptor.forClass(GameObject.class);
+        verify(mGameWorld).addPassiveGameObject(gameObjectCaptor.capture());
+        StaticObstacleDrawList drawList = (StaticObstacleDrawList) gameObjectCaptor.getValue();
+        assertThat(drawList.getObstacleCount(), is(3));
+
+        // AND there is one body per chunk
+        Array<Body> bodies = new Array<>();
+        box2DWorld.getBodies(bodies);
+        assertThat(bodies.size, is(2));
+
+        Body firstBody = findBodyWithFixtureCount(bodies, 3);
+        Body secondBody = findBodyWithFixtureCount(bodies, 1);
+        assertThat(secondBody.getFixtureList().get(0).getUserData(), is(def));
+
+        // AND the border fixture of the first body is a wall
+        Fixture borderFixture = firstBody.getFixtureList().get(2);
+        assertThat(borderFixture.getUserData(), is(nullValue()));
+        assertThat((int) borderFixture.getFilterData().categoryBits, is(CollisionCategories.WALL));
+    }
+
+    private ObstacleDef createTyreDef(int obstacleSize) {
+        when(mTextureRegionProvider.findRegion("obstacle-tyre")).thenReturn(mTextureRegion);
+        when(mTextureRegion.getRegionWidth()).thenReturn(obstacleSize);
+        when(mTextureRegion.getRegionHeight()).thenReturn(obstacleSize);
+        return ObstacleDef.createCircle(mTextureRegionProvider, "tyre", 1);
+    }
+
+    private static Body findBodyWithFixtureCount(Array<Body> bodies, int count) {
+        for (Body body : bodies) {
+            if (body.getFixtureList().size == count) {
+                return body;
+            }
+        }
+        throw new AssertionError("No body with " + count + " fixtures");
     }
 
     private static World createBox2DWorld() {
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.agateau.pixelwheels.utils.ClosestBodyFinder;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ObstaclePerceptionTests {
+    private final ObstaclePerception.Hit mHit = new ObstaclePerception.Hit();
+
+    @Test
+    public void testEmpty() {
+        ObstaclePerception perception = new ObstaclePerception(createWorld());
+
+        assertThat(perception.findClosestObstacle(v(0, 0), v(10, 10), mHit), is(false));
+    }
+
+    @Test
+    public void testWall() {
+        // GIVEN a box centered on 5, 5
+        World world = createWorld();
+        createBox(world, BodyDef.BodyType.StaticBody, 5, 5, 0);
+        ObstaclePerception perception = new ObstaclePerception(world);
+
+        // WHEN looking through it
+        // THEN a wall is found
+        assertThat(perception.findClosestObstacle(v(0, 5), v(10, 5), mHit), is(true));
+        assertThat(mHit.isMine, is(false));
+
+        // AND it is not found when looking next to it, or when stopping before it
+        assertThat(perception.findClosestObstacle(v(0, 7), v(10, 7), mHit), is(false));
+        assertThat(perception.findClosestObstacle(v(0, 5), v(3, 5), mHit), is(false));
+    }
+
+    @Test
+    public void testStartingInsideIgnoresObstacle() {
+        World world = createWorld();
+        createBox(world, BodyDef.BodyType.StaticBody, 5, 5, 0);
+        createCircle(world, 20, 5);
+        ObstaclePerception perception = new ObstaclePerception(world);
+
+        assertThat(perception.findClosestObstacle(v(5, 5), v(10, 5), mHit), is(false));
+        assertThat(perception.findClosestObstacle(v(20, 5), v(25, 5), mHit), is(false));
+    }
+
+    @Test
+    public void testDynamicBodiesAreIgnored() {
+        World world = createWorld();
+        createBox(world, BodyDef.BodyType.DynamicBody, 5, 5, 0);
+        ObstaclePerception perception = new ObstaclePerception(world);
+
+        assertThat(perception.findClosestObstacle(v(0, 5), v(10, 5), mHit), is(false));
+    }
+
+    @Test
+    public void testClosestObstacleWins() {
+        // GIVEN a wall at x=5 and a mine at x=10
+        World world = createWorld();
+        createBox(world, BodyDef.BodyType.StaticBody, 5, 5, 0);
+        ObstaclePerception perception = new ObstaclePerception(world);
+        perception.addMine(10, 5, 1);
+
+        // WHEN looking from the left
+        // THEN the wall is found
+        assertThat(perception.findClosestObstacle(v(0, 5), v(15, 5), mHit), is(true));
+        assertThat(mHit.isMine, is(false));
+
+        // WHEN looking from the right
+        // THEN the mine is found
+        assertThat(perception.findClosestObstacle(v(15, 5), v(0, 5), mHit), is(true));
+        assertThat(mHit.isMine, is(true));
+        assertThat(mHit.minePosition, is(v(10, 5)));
+    }
+
+    @Test
+    public void testMatchesRayCasts() {
+        // GIVEN a world full of boxes and circles
+        World world = createWorld();
+        RandomXS128 random = new RandomXS128(12);
+        for (int idx = 0; idx < 100; ++idx) {
+            float x = random.nextFloat() * 100;
+            float y = random.nextFloat() * 100;
+            if (idx % 2 == 0) {
+                createBox(world, BodyDef.BodyType.StaticBody, x, y, random.nextFloat() * 6);
+            } else {
+                createCircle(world, x, y);
+            }
+        }
+        ObstaclePerception perception = new ObstaclePerception(world);
+        ClosestBodyFinder finder = new ClosestBodyFinder();
+
+        // WHEN looking along random segments
+        // THEN obstacles are found where Box2D ray casts find them
+        for (int idx = 0; idx < 1000; ++idx) {
+            Vector2 from = v(random.nextFloat() * 100, random.nextFloat() * 100);
+            Vector2 to = v(random.nextFloat() * 20 - 10, random.nextFloat() * 20 - 10).add(from);
+            boolean expected = finder.find(world, from, to) != null;
+            assertThat(
+                    "from=" + from + " to=" + to,
+                    perception.findClosestObstacle(from, to, mHit),
+                    is(expected));
+        }
+    }
+
+    private static Vector2 v(float x, float y) {
+        return new Vector2(x, y);
+    }
+
+    private static World createWorld() {
+        return new World(new Vector2(0, 0), true);
+    }
+
+    private static void createBox(
+            World world, BodyDef.BodyType type, float x, float y, float angle) {
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = type;
+        bodyDef.position.set(x, y);
+        bodyDef.angle = angle;
+        Body body = world.createBody(bodyDef);
+
+        PolygonShape shape = new PolygonShape();
+        shape.setAsBox(1, 0.5f);
+        body.createFixture(shape, 0);
+        shape.dispose();
+    }
+
+    private static void createCircle(World world, float x, float y) {
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        bodyDef.position.set(x, y);
+        Body body = world.createBody(bodyDef);
+
+        CircleShape shape = new CircleShape();
+        shape.setRadius(1);
+        body.createFixture(shape, 0);
+        shape.dispose();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.agateau.pixelwheels.ZLevel;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+@RunWith(JUnit4.class)
+public class SkidmarkManagerTests {
+    private static final float EPSILON = 0.0001f;
+    private static final int QUAD_SIZE = 20;
+
+    @Test
+    public void testTrail() {
+        // GIVEN a manager and a trail
+        SkidmarkManager manager = new SkidmarkManager(createRegion(), 10);
+        SkidmarkManager.Trail trail = new SkidmarkManager.Trail();
+
+        // WHEN adding two points
+        manager.addPoint(trail, new Vector2(0, 0));
+        manager.addPoint(trail, new Vector2(1, 0));
+
+        // THEN one quad is created
+        assertThat(manager.getQuadCount(), is(1));
+
+        // WHEN ending the trail and starting a new one
+        manager.endTrail(trail);
+        manager.addPoint(trail, new Vector2(5, 0));
+
+        // THEN no quad is added
+        assertThat(manager.getQuadCount(), is(1));
+
+        // AND it is drawn in one call
+        Batch batch = mock(Batch.class);
+        manager.draw(batch, ZLevel.GROUND);
+        verify(batch).draw(any(Texture.class), any(float[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testFadeOut() {
+        // GIVEN a manager with one quad
+        SkidmarkManager manager = new SkidmarkManager(createRegion(), 10);
+        SkidmarkManager.Trail trail = new SkidmarkManager.Trail();
+        manager.addPoint(trail, new Vector2(0, 0));
+        manager.addPoint(trail, new Vector2(1, 0));
+        float alpha1 = drawAndGetFirstAlpha(manager);
+
+        // WHEN time passes
+        manager.act(SkidmarkManager.LIFETIME / 2);
+
+        // THEN the quad is more transparent
+        float alpha2 = drawAndGetFirstAlpha(manager);
+        assertEquals(alpha1 / 2, alpha2, 0.01f);
+
+        // WHEN its lifetime is over
+        manager.act(SkidmarkManager.LIFETIME / 2);
+
+        // THEN it is not drawn anymore
+        Batch batch = mock(Batch.class);
+        manager.draw(batch, ZLevel.GROUND);
+        verify(batch, never()).draw(any(Texture.class), any(float[].class), anyInt(), anyInt());
+        assertThat(manager.getQuadCount(), is(0));
+    }
+
+    @Test
+    public void testOverflow() {
+        // GIVEN a manager which can hold 3 quads
+        SkidmarkManager manager = new SkidmarkManager(createRegion(), 3);
+        SkidmarkManager.Trail trail = new SkidmarkManager.Trail();
+
+        // WHEN adding 4 quads
+        for (int x = 0; x < 5; ++x) {
+            manager.addPoint(trail, new Vector2(x, 0));
+        }
+
+        // THEN only 3 are kept
+        assertThat(manager.getQuadCount(), is(3));
+
+        // AND they are drawn in two calls, since the buffer wraps
+        Batch batch = mock(Batch.class);
+        ArgumentCaptor<float[]> verticesCaptor = ArgumentCaptor.forClass(float[].class);
+        ArgumentCaptor<Integer> offsetCaptor = ArgumentCaptor.forClass(Integer.class);
+        ArgumentCaptor<Integer> countCaptor = ArgumentCaptor.forClass(Integer.class);
+        manager.draw(batch, ZLevel.GROUND);
+        verify(batch, times(2))
+                .draw(
+                        any(Texture.class),
+                        verticesCaptor.capture(),
+                        offsetCaptor.capture(),
+                        countCaptor.capture());
+        assertThat(offsetCaptor.getAllValues().get(0), is(QUAD_SIZE));
+        assertThat(countCaptor.getAllValues().get(0), is(2 * QUAD_SIZE));
+        assertThat(offsetCaptor.getAllValues().get(1), is(0));
+        assertThat(countCaptor.getAllValues().get(1), is(QUAD_SIZE));
+
+        // AND the oldest quad is the second one (x from 1 to 2)
+        float[] vertices = verticesCaptor.getValue();
+        assertEquals(1, vertices[QUAD_SIZE + Batch.X1], EPSILON);
+        assertEquals(2, vertices[QUAD_SIZE + Batch.X3], EPSILON);
+        // AND the newest quad overwrote the first one (x from 3 to 4)
+        assertEquals(3, vertices[Batch.X1], EPSILON);
+        assertEquals(4, vertices[Batch.X3], EPSILON);
+    }
+
+    private static float drawAndGetFirstAlpha(SkidmarkManager manager) {
+        Batch batch = mock(Batch.class);
+        ArgumentCaptor<float[]> verticesCaptor = ArgumentCaptor.forClass(float[].class);
+        ArgumentCaptor<Integer> offsetCaptor = ArgumentCaptor.forClass(Integer.class);
+        manager.draw(batch, ZLevel.GROUND);
+        verify(batch)
+                .draw(
+                        any(Texture.class),
+                        verticesCaptor.capture(),
+                        offsetCaptor.capture(),
+                        anyInt());
+        float packedColor = verticesCaptor.getValue()[offsetCaptor.getValue() + Batch.C1];
+        Color color = new Color();
+        Color.abgr8888ToColor(color, packedColor);
+        assertTrue(color.a > 0);
+        return color.a;
+    }
+
+    private static TextureRegion createRegion() {
+        Texture texture = mock(Texture.class);
+        when(texture.getWidth()).thenReturn(16);
+        when(texture.getHeight()).thenReturn(16);
+        return new TextureRegion(texture);
+    }
+}
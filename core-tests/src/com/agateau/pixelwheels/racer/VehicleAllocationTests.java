@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.debug.AllocationBudgetRule;
+import com.agateau.pixelwheels.map.Material;
+import com.agateau.pixelwheels.map.Track;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Shape2D;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public class VehicleAllocationTests {
+    // Larger than the values cached by Long.valueOf()
+    private static final long TURBO_CELL_ID = 1_000_000;
+
+    @Mock private Racer mRacer;
+    @Mock private AudioComponent mAudioComponent;
+    @Mock private TextureRegion mWheelRegion;
+
+    @Rule public MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Rule public AllocationBudgetRule mAllocationBudget = new AllocationBudgetRule(0);
+
+    /** A track made of a single, large, turbo cell */
+    private static class TurboTrack extends Track {
+        TurboTrack() {
+            super("turbo", "Turbo");
+        }
+
+        @Override
+        public Material getMaterialAt(float x, float y) {
+            return Material.TURBO;
+        }
+
+        @Override
+        public long getCellIdAt(float x, float y) {
+            return TURBO_CELL_ID;
+        }
+    }
+
+    /**
+     * Creates a GameWorld which only provides what Vehicle needs, and returns null for everything
+     * else.
+     *
+     * <p>Not using a Mockito mock here because mocks allocate when recording calls. A
+     * java.lang.reflect.Proxy does not allocate when calling methods without arguments, and unlike
+     * a class implementing GameWorld, it does not need to be updated when GameWorld changes.
+     */
+    private static GameWorld createGameWorld() {
+        final Track track = new TurboTrack();
+        final World world = new World(new Vector2(0, 0), true);
+        InvocationHandler handler =
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getTrack":
+                            return track;
+                        case "getBox2DWorld":
+                            return world;
+                        case "getState":
+                            return GameWorld.State.RUNNING;
+                        default:
+                            return null;
+                    }
+                };
+        return (GameWorld)
+                Proxy.newProxyInstance(
+                        GameWorld.class.getClassLoader(), new Class<?>[] {GameWorld.class}, handler);
+    }
+
+    @Test
+    public void testStepOnTriggeredTurboCellDoesNotAllocate() {
+        // GIVEN a vehicle on a turbo cell
+        when(mRacer.getAudioComponent()).thenReturn(mAudioComponent);
+        when(mWheelRegion.getRegionWidth()).thenReturn(8);
+        when(mWheelRegion.getRegionHeight()).thenReturn(12);
+        GameWorld gameWorld = createGameWorld();
+        Array<Shape2D> shapes = new Array<>();
+        shapes.add(new Rectangle(-20, -10, 40, 20));
+        Vehicle vehicle = new Vehicle(null, gameWorld, 10, 10, shapes, 0);
+        vehicle.addWheel(mWheelRegion, -1, -0.6f, 0);
+        vehicle.addWheel(mWheelRegion, -1, 0.6f, 0);
+        vehicle.addWheel(mWheelRegion, 1, -0.6f, 0);
+        vehicle.addWheel(mWheelRegion, 1, 0.6f, 0);
+        vehicle.setRacer(mRacer);
+        vehicle.setAccelerating(true);
+
+        // AND the turbo cell has been triggered: the turbo is running
+        step(gameWorld, vehicle, 2);
+        assertThat(vehicle.getTurboTime() > 0, is(true));
+
+        // WHEN the vehicle keeps driving on the turbo cell
+        mAllocationBudget.start();
+        step(gameWorld, vehicle, 20);
+        mAllocationBudget.stop();
+
+        // THEN nothing has been allocated (checked by mAllocationBudget)
+
+        // AND the cell has not triggered the turbo again
+        verify(mAudioComponent, times(1)).triggerTurbo();
+    }
+
+    private static void step(GameWorld gameWorld, Vehicle vehicle, int count) {
+        for (int idx = 0; idx < count; ++idx) {
+            vehicle.act(GameWorld.BOX2D_TIME_STEP);
+            gameWorld
+                    .getBox2DWorld()
+                    .step(
+                            GameWorld.BOX2D_TIME_STEP,
+                            GameWorld.VELOCITY_ITERATIONS,
+                            GameWorld.POSITION_ITERATIONS);
+        }
+    }
+}
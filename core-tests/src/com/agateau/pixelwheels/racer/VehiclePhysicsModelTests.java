@@ -0,0 +1,146 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.map.Material;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.utils.AgcMathUtils;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Shape2D;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/** Compares the handling of the SINGLE_BODY physics model with the JOINTED_WHEELS one */
+@RunWith(JUnit4.class)
+public class VehiclePhysicsModelTests {
+    @Mock private Racer mRacer;
+    @Mock private TextureRegion mWheelRegion;
+
+    @Rule public MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Test
+    public void testSingleBodyVehicleHasOneBody() {
+        // GIVEN a single-body vehicle
+        GameWorld gameWorld = createGameWorld();
+        createVehicle(gameWorld, Vehicle.PhysicsModel.SINGLE_BODY);
+
+        // THEN the world contains one body and no joints
+        World world = gameWorld.getBox2DWorld();
+        assertThat(world.getBodyCount(), is(1));
+        assertThat(world.getJointCount(), is(0));
+    }
+
+    @Test
+    public void testAcceleration() {
+        // GIVEN a vehicle for each model
+        // WHEN they accelerate in straight line for 2 seconds
+        float[] speeds = new float[2];
+        for (Vehicle.PhysicsModel model : Vehicle.PhysicsModel.values()) {
+            Vehicle vehicle = createVehicle(createGameWorld(), model);
+            vehicle.setAccelerating(true);
+            step(vehicle, 2);
+            speeds[model.ordinal()] = vehicle.getSpeed();
+        }
+
+        // THEN they reach about the same speed
+        assertThat(speeds[0] > 0, is(true));
+        assertCloseTo(speeds[1], speeds[0], 0.05f);
+    }
+
+    @Test
+    public void testTurn() {
+        // GIVEN a vehicle for each model, driving at speed
+        // WHEN they turn for 1 second
+        float[] angles = new float[2];
+        for (Vehicle.PhysicsModel model : Vehicle.PhysicsModel.values()) {
+            Vehicle vehicle = createVehicle(createGameWorld(), model);
+            vehicle.setAccelerating(true);
+            step(vehicle, 1);
+            vehicle.setDirection(1);
+            step(vehicle, 1);
+            angles[model.ordinal()] = AgcMathUtils.normalizeAngle(vehicle.getAngle());
+        }
+
+        // THEN they turn by about the same angle
+        assertThat(angles[0] > 10, is(true));
+        assertCloseTo(angles[1], angles[0], 0.1f);
+    }
+
+    private static void assertCloseTo(float actual, float expected, float tolerance) {
+        float delta = Math.abs(actual - expected) / expected;
+        assertThat(
+                "Expected " + expected + ", got " + actual + " (delta: " + delta + ")",
+                delta <= tolerance,
+                is(true));
+    }
+
+    private GameWorld createGameWorld() {
+        Track track = mock(Track.class);
+        when(track.getMaterialAt(any(Vector2.class))).thenReturn(Material.ROAD);
+        when(track.getMaterialAt(anyFloat(), anyFloat())).thenReturn(Material.ROAD);
+        GameWorld gameWorld = mock(GameWorld.class);
+        when(gameWorld.getTrack()).thenReturn(track);
+        when(gameWorld.getBox2DWorld()).thenReturn(new World(new Vector2(0, 0), true));
+        when(gameWorld.getState()).thenReturn(GameWorld.State.RUNNING);
+        return gameWorld;
+    }
+
+    /** Creates a 4-wheel vehicle facing right, steering with its front wheels */
+    private Vehicle createVehicle(GameWorld gameWorld, Vehicle.PhysicsModel model) {
+        when(mWheelRegion.getRegionWidth()).thenReturn(8);
+        when(mWheelRegion.getRegionHeight()).thenReturn(12);
+        Array<Shape2D> shapes = new Array<>();
+        shapes.add(new Rectangle(-20, -10, 40, 20));
+        Vehicle vehicle = new Vehicle(null, gameWorld, 10, 10, shapes, 0, model);
+        vehicle.addWheel(mWheelRegion, -1, -0.6f, 0);
+        vehicle.addWheel(mWheelRegion, -1, 0.6f, 0);
+        vehicle.addWheel(mWheelRegion, 1, -0.6f, 0).steeringFactor = 1;
+        vehicle.addWheel(mWheelRegion, 1, 0.6f, 0).steeringFactor = 1;
+        vehicle.setRacer(mRacer);
+        return vehicle;
+    }
+
+    private static void step(Vehicle vehicle, float duration) {
+        World world = vehicle.getBody().getWorld();
+        for (float time = 0; time < duration; time += GameWorld.BOX2D_TIME_STEP) {
+            vehicle.act(GameWorld.BOX2D_TIME_STEP);
+            world.step(
+                    GameWorld.BOX2D_TIME_STEP,
+                    GameWorld.VELOCITY_ITERATIONS,
+                    GameWorld.POSITION_ITERATIONS);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Affine2;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+
+@RunWith(JUnit4.class)
+public class RecordingBatchTests {
+    private static final float EPSILON = 0.0001f;
+
+    @Test
+    public void testRecordRegion() {
+        // GIVEN the top-left quarter of a 64x32 texture
+        Texture texture = createTexture();
+        TextureRegion region = new TextureRegion(texture, 0, 0, 32, 16);
+        RecordingBatch recordingBatch = new RecordingBatch();
+
+        // WHEN drawing it in red
+        recordingBatch.begin();
+        recordingBatch.setColor(Color.RED);
+        recordingBatch.draw(region, 1, 2, 3, 4);
+        recordingBatch.end();
+
+        // THEN it is replayed as a quad with the SpriteBatch vertex layout
+        float[] vertices = replayOneRun(recordingBatch, texture, 1);
+        float red = Color.RED.toFloatBits();
+        assertVertex(vertices, Batch.X1, 1, 2, red, 0, 0.5f);
+        assertVertex(vertices, Batch.X2, 1, 6, red, 0, 0);
+        assertVertex(vertices, Batch.X3, 4, 6, red, 0.5f, 0);
+        assertVertex(vertices, Batch.X4, 4, 2, red, 0.5f, 0.5f);
+    }
+
+    @Test
+    public void testRecordRotatedRegion() {
+        // GIVEN a region
+        Texture texture = createTexture();
+        TextureRegion region = new TextureRegion(texture, 0, 0, 64, 32);
+        RecordingBatch recordingBatch = new RecordingBatch();
+
+        // WHEN drawing it with a 90° rotation around its center
+        recordingBatch.begin();
+        recordingBatch.draw(region, 0, 0, 2, 1, 4, 2, 1, 1, 90);
+        recordingBatch.end();
+
+        // THEN the quad is rotated
+        float[] vertices = replayOneRun(recordingBatch, texture, 1);
+        float white = Color.WHITE.toFloatBits();
+        assertVertex(vertices, Batch.X1, 3, -1, white, 0, 1);
+        assertVertex(vertices, Batch.X2, 1, -1, white, 0, 0);
+        assertVertex(vertices, Batch.X3, 1, 3, white, 1, 0);
+        assertVertex(vertices, Batch.X4, 3, 3, white, 1, 1);
+    }
+
+    @Test
+    public void testRecordClockwiseRegion() {
+        // GIVEN a region
+        Texture texture = createTexture();
+        TextureRegion region = new TextureRegion(texture, 0, 0, 64, 32);
+        RecordingBatch recordingBatch = new RecordingBatch();
+
+        // WHEN drawing it rotated clockwise, without any extra rotation
+        recordingBatch.begin();
+        recordingBatch.draw(region, 0, 0, 0, 0, 4, 2, 1, 1, 0, true);
+        recordingBatch.end();
+
+        // THEN the texture coordinates are rotated like SpriteBatch does
+        float[] vertices = replayOneRun(recordingBatch, texture, 1);
+        float white = Color.WHITE.toFloatBits();
+        assertVertex(vertices, Batch.X1, 0, 0, white, 1, 1);
+        assertVertex(vertices, Batch.X2, 0, 2, white, 0, 1);
+        assertVertex(vertices, Batch.X3, 4, 2, white, 0, 0);
+        assertVertex(vertices, Batch.X4, 4, 0, white, 1, 0);
+    }
+
+    @Test
+    public void testRecordAffineRegion() {
+        // GIVEN a region
+        Texture texture = createTexture();
+        TextureRegion region = new TextureRegion(texture, 0, 0, 64, 32);
+        RecordingBatch recordingBatch = new RecordingBatch();
+
+        // WHEN drawing it with a translation and a scale
+        Affine2 transform = new Affine2();
+        transform.setToTrnScl(1, 2, 2, 3);
+        recordingBatch.begin();
+        recordingBatch.draw(region, 4, 2, transform);
+        recordingBatch.end();
+
+        // THEN the quad is transformed
+        float[] vertices = replayOneRun(recordingBatch, texture, 1);
+        float white = Color.WHITE.toFloatBits();
+        assertVertex(vertices, Batch.X1, 1, 2, white, 0, 1);
+        assertVertex(vertices, Batch.X2, 1, 8, white, 0, 0);
+        assertVertex(vertices, Batch.X3, 9, 8, white, 1, 0);
+        assertVertex(vertices, Batch.X4, 9, 2, white, 1, 1);
+    }
+
+    @Test
+    public void testReplayStateChanges() {
+        // GIVEN 3 quads using the same texture, the second one drawn with additive blending
+        Texture texture = createTexture();
+        RecordingBatch recordingBatch = new RecordingBatch();
+        recordingBatch.begin();
+        recordingBatch.draw(texture, 0, 0, 1, 1);
+        recordingBatch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE);
+        recordingBatch.draw(texture, 1, 0, 1, 1);
+        recordingBatch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        recordingBatch.draw(texture, 2, 0, 1, 1);
+        recordingBatch.end();
+
+        // WHEN replaying them
+        Batch batch = mock(Batch.class);
+        recordingBatch.replay(batch, 0, recordingBatch.getQuadCount());
+
+        // THEN the blend function changes are applied between the quads, and the batch is back
+        // to the default blend function at the end
+        InOrder inOrder = inOrder(batch);
+        inOrder.verify(batch).draw(eq(texture), any(float[].class), eq(0), eq(20));
+        inOrder.verify(batch)
+                .setBlendFunctionSeparate(
+                        GL20.GL_SRC_ALPHA, GL20.GL_ONE, GL20.GL_SRC_ALPHA, GL20.GL_ONE);
+        inOrder.verify(batch).draw(eq(texture), any(float[].class), eq(20), eq(20));
+        inOrder.verify(batch)
+                .setBlendFunctionSeparate(
+                        GL20.GL_SRC_ALPHA,
+                        GL20.GL_ONE_MINUS_SRC_ALPHA,
+                        GL20.GL_SRC_ALPHA,
+                        GL20.GL_ONE_MINUS_SRC_ALPHA);
+        inOrder.verify(batch).draw(eq(texture), any(float[].class), eq(40), eq(20));
+        inOrder.verify(batch)
+                .setBlendFunctionSeparate(
+                        GL20.GL_SRC_ALPHA,
+                        GL20.GL_ONE_MINUS_SRC_ALPHA,
+                        GL20.GL_SRC_ALPHA,
+                        GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    @Test
+    public void testPartialReplayAppliesStartState() {
+        // GIVEN a quad drawn without blending, after another one
+        Texture texture = createTexture();
+        RecordingBatch recordingBatch = new RecordingBatch();
+        recordingBatch.begin();
+        recordingBatch.draw(texture, 0, 0, 1, 1);
+        recordingBatch.disableBlending();
+        recordingBatch.draw(texture, 1, 0, 1, 1);
+        recordingBatch.end();
+
+        // WHEN replaying only the second quad
+        Batch batch = mock(Batch.class);
+        recordingBatch.replay(batch, 1, 2);
+
+        // THEN blending is disabled before drawing it, and enabled again afterwards
+        InOrder inOrder = inOrder(batch);
+        inOrder.verify(batch).disableBlending();
+        inOrder.verify(batch).draw(eq(texture), any(float[].class), eq(20), eq(20));
+        inOrder.verify(batch).enableBlending();
+    }
+
+    @Test
+    public void testReplayGroupsQuadsByTexture() {
+        // GIVEN quads drawn with textures A, A, B, A
+        Texture textureA = createTexture();
+        Texture textureB = createTexture();
+        RecordingBatch recordingBatch = new RecordingBatch();
+        recordingBatch.begin();
+        recordingBatch.draw(textureA, 0, 0, 1, 1);
+        recordingBatch.draw(textureA, 1, 0, 1, 1);
+        recordingBatch.draw(textureB, 2, 0, 1, 1);
+        recordingBatch.draw(textureA, 3, 0, 1, 1);
+        recordingBatch.end();
+        assertThat(recordingBatch.getQuadCount(), is(4));
+
+        // WHEN replaying them
+        Batch batch = mock(Batch.class);
+        recordingBatch.replay(batch, 0, recordingBatch.getQuadCount());
+
+        // THEN consecutive quads using the same texture are drawn together
+        verify(batch).draw(eq(textureA), any(float[].class), eq(0), eq(40));
+        verify(batch).draw(eq(textureB), any(float[].class), eq(40), eq(20));
+        verify(batch).draw(eq(textureA), any(float[].class), eq(60), eq(20));
+        verifyNoMoreInteractions(batch);
+    }
+
+    @Test
+    public void testBeginForgetsPreviousRecording() {
+        Texture texture = createTexture();
+        RecordingBatch recordingBatch = new RecordingBatch();
+        recordingBatch.begin();
+        recordingBatch.draw(texture, 0, 0, 1, 1);
+        recordingBatch.end();
+
+        recordingBatch.begin();
+        recordingBatch.end();
+
+        assertThat(recordingBatch.getQuadCount(), is(0));
+    }
+
+    private static Texture createTexture() {
+        Texture texture = mock(Texture.class);
+        when(texture.getWidth()).thenReturn(64);
+        when(texture.getHeight()).thenReturn(32);
+        return texture;
+    }
+
+    private static float[] replayOneRun(
+            RecordingBatch recordingBatch, Texture texture, int quadCount) {
+        Batch batch = mock(Batch.class);
+        recordingBatch.replay(batch, 0, recordingBatch.getQuadCount());
+        ArgumentCaptor<float[]> captor = ArgumentCaptor.forClass(float[].class);
+        verify(batch).draw(eq(texture), captor.capture(), eq(0), eq(quadCount * 20));
+        return captor.getValue();
+    }
+
+    private static void assertVertex(
+            float[] vertices, int xIndex, float x, float y, float color, float u, float v) {
+        assertEquals(x, vertices[xIndex], EPSILON);
+        assertEquals(y, vertices[xIndex + 1], EPSILON);
+        assertThat(vertices[xIndex + 2], is(color));
+        assertThat(vertices[xIndex + 3], is(u));
+        assertThat(vertices[xIndex + 4], is(v));
+    }
+}
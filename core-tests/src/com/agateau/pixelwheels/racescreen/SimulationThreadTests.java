@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SimulationThreadTests {
+    private Thread mStepThread;
+    private float mSteppedTime = 0;
+
+    @Test
+    public void testStepsRunOnAnotherThread() {
+        // GIVEN a simulation thread
+        SimulationThread thread =
+                new SimulationThread(
+                        delta -> {
+                            mStepThread = Thread.currentThread();
+                            mSteppedTime += delta;
+                        });
+
+        // WHEN running two steps
+        thread.startStep(0.5f);
+        thread.waitForStep();
+        thread.startStep(0.25f);
+        thread.waitForStep();
+        thread.dispose();
+
+        // THEN they ran on the simulation thread
+        assertThat(mStepThread, not(is(Thread.currentThread())));
+        assertThat(mSteppedTime, is(0.75f));
+    }
+
+    @Test
+    public void testStepErrorsAreRethrown() {
+        SimulationThread thread =
+                new SimulationThread(
+                        delta -> {
+                            throw new IllegalStateException("boom");
+                        });
+        thread.startStep(1);
+        try {
+            thread.waitForStep();
+            fail("waitForStep() should have thrown");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause() instanceof IllegalStateException, is(true));
+        }
+
+        // The thread can still run steps
+        thread.startStep(1);
+        try {
+            thread.waitForStep();
+            fail("waitForStep() should have thrown");
+        } catch (RuntimeException e) {
+            assertThat(e.getCause().getMessage(), is("boom"));
+        }
+        thread.dispose();
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.badlogic.gdx.utils.Array;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ReplayWriterTests {
+    private static final float DELTA = 1 / 60f;
+
+    @Test
+    public void testReadBackSteps() {
+        // GIVEN a writer for 2 racers
+        ReplayWriter writer = new ReplayWriter(2);
+
+        // WHEN I record steps where racer 1 accelerates, then steers and triggers its bonus
+        writeStep(writer, DELTA, 1, 0, true, false);
+        writeStep(writer, DELTA, 1, 0.5f, true, true);
+        writeStep(writer, DELTA, 1, 0.5f, true, false);
+        writeStep(writer, DELTA / 2, 0, -1, false, false);
+
+        // THEN the reader returns the same inputs for each step
+        ReplayReader reader = new ReplayReader(writer.toByteArray(), 2);
+        assertStep(reader, 1, DELTA, 0, true, false);
+        assertStep(reader, 1, DELTA, 0.5f, true, true);
+        assertStep(reader, 1, DELTA, 0.5f, true, false);
+        assertThat(reader.next(), is(ReplayReader.Record.STEP));
+        assertThat(reader.getDelta(), is(DELTA / 2));
+        assertThat(reader.getInput(0).direction, is(-1f));
+
+        // AND racer 1 kept its inputs
+        assertThat(reader.getInput(1).accelerating, is(true));
+        assertThat(reader.getInput(1).direction, is(0.5f));
+        assertThat(reader.next(), is(ReplayReader.Record.END));
+    }
+
+    @Test
+    public void testIdleStepsAreMerged() {
+        // GIVEN a writer
+        ReplayWriter writer = new ReplayWriter(1);
+
+        // WHEN I record 1000 steps where nothing changes after the first one
+        for (int idx = 0; idx < 1000; ++idx) {
+            writeStep(writer, DELTA, 0, 1, true, false);
+        }
+
+        // THEN the steps take a few bytes
+        byte[] data = writer.toByteArray();
+        assertThat(data.length < 20, is(true));
+
+        // AND the reader returns all of them
+        ReplayReader reader = new ReplayReader(data, 1);
+        for (int idx = 0; idx < 1000; ++idx) {
+            assertStep(reader, 0, DELTA, 1, true, false);
+        }
+        assertThat(reader.next(), is(ReplayReader.Record.END));
+        assertThat(reader.getStep(), is(1000));
+    }
+
+    @Test
+    public void testSeekToKeyframe() {
+        // GIVEN a recording with a keyframe after step 2
+        ReplayWriter writer = new ReplayWriter(1);
+        writeStep(writer, DELTA, 0, 0.25f, true, false);
+        writeStep(writer, DELTA, 0, 0.25f, true, false);
+        writer.writeKeyframe(new byte[] {42});
+        writeStep(writer, DELTA, 0, 0.25f, false, false);
+        Replay replay = createReplay(writer, 1);
+        assertThat(replay.getStepCount(), is(3));
+        assertThat(replay.getKeyframeCount(), is(1));
+        assertThat(replay.getKeyframeStep(0), is(2));
+
+        // WHEN I move to the keyframe
+        ReplayReader reader = new ReplayReader(replay.getData(), 1);
+        reader.seekToKeyframe(replay.getKeyframeOffset(0));
+
+        // THEN its payload is available
+        assertThat(reader.getKeyframePayloadLength(), is(1));
+        assertThat(reader.getData()[reader.getKeyframePayloadOffset()], is((byte) 42));
+
+        // AND the reader continues from the keyframe, with the inputs of the previous step
+        assertThat(reader.getStep(), is(2));
+        assertThat(reader.getInput(0).accelerating, is(true));
+        assertStep(reader, 0, DELTA, 0.25f, false, false);
+        assertThat(reader.getStep(), is(3));
+    }
+
+    @Test
+    public void testReplayFile() throws IOException {
+        // GIVEN a replay
+        ReplayWriter writer = new ReplayWriter(2);
+        writeStep(writer, DELTA, 1, 1, true, false);
+        Replay replay = createReplay(writer, 2);
+
+        // WHEN I write it and read it back
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        replay.write(stream);
+        Replay replay2 = Replay.read(new ByteArrayInputStream(stream.toByteArray()));
+
+        // THEN it has the same content
+        assertThat(replay2.getTrackId(), is("track"));
+        assertThat(replay2.getPhysicsModel(), is(Vehicle.PhysicsModel.SINGLE_BODY));
+        assertThat(replay2.getRacerCount(), is(2));
+        assertThat(replay2.isPlayer(0), is(false));
+        assertThat(replay2.isPlayer(1), is(true));
+        assertThat(replay2.getRandomState0(), is(12L));
+        assertThat(replay2.getRandomState1(), is(34L));
+        assertThat(replay2.getStepCount(), is(1));
+        assertThat(replay2.getFinishStep(), is(1));
+        assertThat(replay2.getData(), is(replay.getData()));
+    }
+
+    private static Replay createReplay(ReplayWriter writer, int racerCount) {
+        Array<String> vehicleIds = new Array<>();
+        boolean[] players = new boolean[racerCount];
+        for (int idx = 0; idx < racerCount; ++idx) {
+            vehicleIds.add("vehicle" + idx);
+            players[idx] = idx == racerCount - 1;
+        }
+        return new Replay(
+                "track",
+                Vehicle.PhysicsModel.SINGLE_BODY,
+                12,
+                34,
+                vehicleIds,
+                players,
+                1,
+                writer.toByteArray());
+    }
+
+    private static void writeStep(
+            ReplayWriter writer,
+            float delta,
+            int racerIdx,
+            float direction,
+            boolean accelerating,
+            boolean triggeringBonus) {
+        writer.beginStep(delta);
+        PilotInput input = writer.getInput(racerIdx);
+        input.direction = direction;
+        input.accelerating = accelerating;
+        input.triggeringBonus = triggeringBonus;
+        writer.endStep();
+    }
+
+    private static void assertStep(
+            ReplayReader reader,
+            int racerIdx,
+            float delta,
+            float direction,
+            boolean accelerating,
+            boolean triggeringBonus) {
+        assertThat(reader.next(), is(ReplayReader.Record.STEP));
+        assertThat(reader.getDelta(), is(delta));
+        PilotInput input = reader.getInput(racerIdx);
+        assertThat(input.direction, is(direction));
+        assertThat(input.accelerating, is(accelerating));
+        assertThat(input.braking, is(false));
+        assertThat(input.triggeringBonus, is(triggeringBonus));
+    }
+}
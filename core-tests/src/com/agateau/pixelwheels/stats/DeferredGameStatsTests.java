@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.stats;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+@RunWith(JUnit4.class)
+public class DeferredGameStatsTests {
+    @Mock private GameStatsImpl.IO mStatsIO;
+
+    @Rule public MockitoRule mMockitoRule = MockitoJUnit.rule();
+
+    @Test
+    public void testEventsAreRecordedOnCommit() {
+        // GIVEN deferred stats
+        GameStatsImpl gameStats = new GameStatsImpl(mStatsIO);
+        GameStats.Listener listener = mock(GameStats.Listener.class);
+        gameStats.setListener(listener);
+        DeferredGameStats deferredStats = new DeferredGameStats(gameStats);
+
+        // WHEN events are recorded
+        deferredStats.recordEvent(GameStats.Event.MISSILE_HIT);
+        deferredStats.recordIntEvent(GameStats.Event.LEAVING_ROAD, 3);
+        deferredStats.recordEvent(GameStats.Event.MISSILE_HIT);
+
+        // THEN the wrapped stats are not changed
+        assertThat(gameStats.getEventCount(GameStats.Event.MISSILE_HIT), is(0));
+        verify(listener, never()).onChanged();
+
+        // WHEN they are committed
+        deferredStats.commit();
+
+        // THEN the wrapped stats contain the events
+        assertThat(gameStats.getEventCount(GameStats.Event.MISSILE_HIT), is(2));
+        assertThat(gameStats.getEventCount(GameStats.Event.LEAVING_ROAD), is(3));
+
+        // AND committing again does not record them twice
+        deferredStats.commit();
+        assertThat(gameStats.getEventCount(GameStats.Event.MISSILE_HIT), is(2));
+    }
+}
@@ -22,6 +22,9 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.agateau.pixelwheels.map.Championship;
@@ -57,6 +60,7 @@ public class GameStatsImplTests {
         Championship ch2 = new Championship("ch2", "champ2");
         GameStats stats = new GameStatsImpl(mStatsIO);
         stats.onChampionshipFinished(ch1, 4);
+        stats.flush();
         verify(mStatsIO).save();
 
         stats.onChampionshipFinished(ch1, 3);
@@ -75,10 +79,46 @@ public class GameStatsImplTests {
         // WHEN a new int event is recorded
         stats.recordIntEvent(GameStats.Event.LEAVING_ROAD, 30);
 
-        // THEN the stats are saved
+        // THEN the stats are not saved yet
+        verify(mStatsIO, never()).save();
+
+        // AND they are saved when flushed
+        stats.flush();
         verify(mStatsIO).save();
     }
 
+    @Test
+    public void testFlushCoalescesSaves() {
+        // GIVEN empty game stats
+        GameStats stats = new GameStatsImpl(mStatsIO);
+
+        // WHEN several events are recorded
+        stats.recordEvent(GameStats.Event.LEAVING_ROAD);
+        stats.recordEvent(GameStats.Event.PICKED_BONUS);
+        stats.recordEvent(GameStats.Event.MISSILE_HIT);
+
+        // AND stats are flushed twice
+        stats.flush();
+        stats.flush();
+
+        // THEN they are saved only once
+        verify(mStatsIO, times(1)).save();
+    }
+
+    @Test
+    public void testListenerIsNotifiedImmediately() {
+        // GIVEN game stats with a listener
+        GameStats stats = new GameStatsImpl(mStatsIO);
+        GameStats.Listener listener = mock(GameStats.Listener.class);
+        stats.setListener(listener);
+
+        // WHEN an event is recorded
+        stats.recordEvent(GameStats.Event.LEAVING_ROAD);
+
+        // THEN the listener is notified without waiting for a flush
+        verify(listener).onChanged();
+    }
+
     @Test
     public void testRecordIntEventTwice() {
         // GIVEN empty game stats
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.stats;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.badlogic.gdx.files.FileHandle;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class JournalGameStatsImplIOTests {
+    @Rule public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private final Track mTrack = new Track("t", "track");
+    private final Championship mChampionship = new Championship("ch1", "champ1");
+
+    @Test
+    public void testNoJournal() {
+        JournalGameStatsImplIO io = new JournalGameStatsImplIO(getHandle("none"), null);
+        GameStatsImpl stats = new GameStatsImpl(io);
+        assertTrue(stats.mTrackStats.isEmpty());
+    }
+
+    @Test
+    public void testReplay() {
+        // GIVEN stats saved in a journal, in several flushes
+        FileHandle handle = getHandle("stats.journal");
+        GameStats gameStats = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        TrackStats stats = gameStats.getTrackStats(mTrack);
+        addResult(stats, 12);
+        gameStats.recordEvent(GameStats.Event.MISSILE_HIT);
+        gameStats.onChampionshipFinished(mChampionship, 3);
+        gameStats.flush();
+
+        addResult(stats, 14);
+        addResult(stats, 10);
+        gameStats.recordIntEvent(GameStats.Event.MISSILE_HIT, 4);
+        gameStats.onChampionshipFinished(mChampionship, 1);
+        gameStats.flush();
+
+        addResult(stats, 11);
+        gameStats.flush();
+
+        // WHEN the journal is loaded
+        GameStatsImpl gameStats2 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+
+        // THEN stats are restored
+        assertThat(gameStats2.mTrackStats.size(), is(1));
+        TrackStats stats2 = gameStats2.getTrackStats(mTrack);
+        checkRecords(stats2, 10, 11, 12);
+        assertThat(gameStats2.getBestChampionshipRank(mChampionship), is(1));
+        assertThat(gameStats2.getEventCount(GameStats.Event.MISSILE_HIT), is(5));
+    }
+
+    @Test
+    public void testSaveAppendsChanges() {
+        // GIVEN a journal with a few records
+        FileHandle handle = getHandle("stats.journal");
+        JournalGameStatsImplIO io = new JournalGameStatsImplIO(handle, null);
+        GameStats gameStats = new GameStatsImpl(io);
+        TrackStats stats = gameStats.getTrackStats(mTrack);
+        addResult(stats, 12);
+        addResult(stats, 14);
+        gameStats.flush();
+        long length = io.getJournalLength();
+
+        // WHEN an event is recorded
+        gameStats.recordEvent(GameStats.Event.LEAVING_ROAD);
+        gameStats.flush();
+
+        // THEN only the change is appended: type, event id and delta
+        int eventIdLength = GameStats.Event.LEAVING_ROAD.toString().length();
+        assertThat(io.getJournalLength(), is(length + 1 + 2 + eventIdLength + 4));
+    }
+
+    @Test
+    public void testCompaction() {
+        // GIVEN a journal with a small compaction threshold
+        FileHandle handle = getHandle("stats.journal");
+        int threshold = 200;
+        JournalGameStatsImplIO io = new JournalGameStatsImplIO(handle, null, threshold);
+        GameStats gameStats = new GameStatsImpl(io);
+
+        // WHEN many changes are saved
+        for (int idx = 0; idx < 100; ++idx) {
+            gameStats.recordEvent(GameStats.Event.PICKED_BONUS);
+            gameStats.flush();
+        }
+
+        // THEN the journal does not grow much beyond the threshold
+        assertTrue(io.getJournalLength() < threshold + 50);
+
+        // AND it still contains the right stats
+        GameStatsImpl gameStats2 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        assertThat(gameStats2.getEventCount(GameStats.Event.PICKED_BONUS), is(100));
+    }
+
+    @Test
+    public void testImportJson() {
+        // GIVEN stats saved in JSON format
+        FileHandle jsonHandle = getHandle("stats.json");
+        JsonGameStatsImplIO jsonIO = new JsonGameStatsImplIO(jsonHandle);
+        GameStats jsonStats = new GameStatsImpl(jsonIO);
+        TrackStats stats = jsonStats.getTrackStats(mTrack);
+        addResult(stats, 12);
+        addResult(stats, 10);
+        addResult(stats, 11);
+        jsonStats.recordIntEvent(GameStats.Event.LEAVING_ROAD, 7);
+        jsonStats.onChampionshipFinished(mChampionship, 2);
+        jsonStats.flush();
+        jsonIO.waitForPendingWrites();
+
+        // WHEN a journal IO is created for a journal which does not exist
+        FileHandle handle = getHandle("stats.journal");
+        GameStatsImpl gameStats = new GameStatsImpl(new JournalGameStatsImplIO(handle, jsonHandle));
+
+        // THEN stats are imported from the JSON file
+        checkRecords(gameStats.getTrackStats(mTrack), 10, 11, 12);
+        assertThat(gameStats.getEventCount(GameStats.Event.LEAVING_ROAD), is(7));
+        assertThat(gameStats.getBestChampionshipRank(mChampionship), is(2));
+
+        // AND they are written to the journal
+        assertTrue(handle.exists());
+        GameStatsImpl gameStats2 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        checkRecords(gameStats2.getTrackStats(mTrack), 10, 11, 12);
+    }
+
+    @Test
+    public void testTruncatedJournal() {
+        // GIVEN a journal whose last record has been partially written
+        FileHandle handle = getHandle("stats.journal");
+        GameStats gameStats = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        gameStats.recordEvent(GameStats.Event.MISSILE_HIT);
+        gameStats.flush();
+        gameStats.recordEvent(GameStats.Event.LEAVING_ROAD);
+        gameStats.flush();
+        byte[] bytes = handle.readBytes();
+        handle.writeBytes(Arrays.copyOf(bytes, bytes.length - 2), false);
+
+        // WHEN the journal is loaded
+        GameStatsImpl gameStats2 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+
+        // THEN the complete records are restored
+        assertThat(gameStats2.getEventCount(GameStats.Event.MISSILE_HIT), is(1));
+        assertThat(gameStats2.getEventCount(GameStats.Event.LEAVING_ROAD), is(0));
+
+        // AND the journal is repaired by the next save
+        gameStats2.recordEvent(GameStats.Event.PICKED_BONUS);
+        gameStats2.flush();
+        GameStatsImpl gameStats3 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        assertThat(gameStats3.getEventCount(GameStats.Event.MISSILE_HIT), is(1));
+        assertThat(gameStats3.getEventCount(GameStats.Event.PICKED_BONUS), is(1));
+    }
+
+    @Test
+    public void testInvalidResultType() throws IOException {
+        // GIVEN a journal containing a track result with an unknown result type
+        FileHandle handle = getHandle("stats.journal");
+        GameStats gameStats = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        gameStats.recordEvent(GameStats.Event.MISSILE_HIT);
+        gameStats.flush();
+        try (DataOutputStream out = new DataOutputStream(handle.write(true /* append */))) {
+            out.writeByte(3); // TRACK_RESULT
+            out.writeUTF(mTrack.getId());
+            out.writeByte(42);
+            out.writeUTF("bob");
+            out.writeFloat(12);
+        }
+
+        // WHEN the journal is loaded
+        GameStatsImpl gameStats2 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+
+        // THEN the records before the invalid one are restored
+        assertThat(gameStats2.getEventCount(GameStats.Event.MISSILE_HIT), is(1));
+        assertTrue(gameStats2.mTrackStats.isEmpty());
+
+        // AND the journal is repaired by the next save
+        gameStats2.recordEvent(GameStats.Event.PICKED_BONUS);
+        gameStats2.flush();
+        GameStatsImpl gameStats3 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        assertThat(gameStats3.getEventCount(GameStats.Event.MISSILE_HIT), is(1));
+        assertThat(gameStats3.getEventCount(GameStats.Event.PICKED_BONUS), is(1));
+    }
+
+    @Test
+    public void testCompactionFailureKeepsJournal() {
+        // GIVEN a journal which has to be compacted on every save
+        FileHandle handle = getHandle("stats.journal");
+        GameStats gameStats = new GameStatsImpl(new JournalGameStatsImplIO(handle, null, 0));
+        gameStats.recordEvent(GameStats.Event.MISSILE_HIT);
+        gameStats.flush();
+
+        // AND a compaction snapshot which cannot be written
+        FileHandle tmpHandle = handle.sibling(handle.name() + ".tmp");
+        tmpHandle.mkdirs();
+
+        // WHEN stats are saved
+        gameStats.recordEvent(GameStats.Event.PICKED_BONUS);
+        gameStats.flush();
+
+        // THEN the old journal is kept
+        GameStatsImpl gameStats2 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        assertThat(gameStats2.getEventCount(GameStats.Event.MISSILE_HIT), is(1));
+        assertThat(gameStats2.getEventCount(GameStats.Event.PICKED_BONUS), is(0));
+
+        // AND the next save compacts the journal once it is possible again
+        tmpHandle.deleteDirectory();
+        gameStats.recordEvent(GameStats.Event.LEAVING_ROAD);
+        gameStats.flush();
+        GameStatsImpl gameStats3 = new GameStatsImpl(new JournalGameStatsImplIO(handle, null));
+        assertThat(gameStats3.getEventCount(GameStats.Event.MISSILE_HIT), is(1));
+        assertThat(gameStats3.getEventCount(GameStats.Event.PICKED_BONUS), is(1));
+        assertThat(gameStats3.getEventCount(GameStats.Event.LEAVING_ROAD), is(1));
+    }
+
+    private FileHandle getHandle(String name) {
+        return new FileHandle(mTemporaryFolder.getRoot() + "/" + name);
+    }
+
+    private static void checkRecords(TrackStats stats, float... expectedLaps) {
+        ArrayList<TrackResult> lapResults = stats.get(TrackStats.ResultType.LAP);
+        ArrayList<TrackResult> totalResults = stats.get(TrackStats.ResultType.TOTAL);
+        assertThat(lapResults.size(), is(expectedLaps.length));
+        for (int idx = 0; idx < expectedLaps.length; ++idx) {
+            assertThat(lapResults.get(idx).vehicle, is("bob"));
+            assertThat(lapResults.get(idx).value, is(expectedLaps[idx]));
+            assertThat(totalResults.get(idx).value, is(expectedLaps[idx] * 3));
+        }
+    }
+
+    private static void addResult(TrackStats stats, float value) {
+        stats.addResult(TrackStats.ResultType.LAP, new TrackResult("bob", value));
+        stats.addResult(TrackStats.ResultType.TOTAL, new TrackResult("bob", value * 3));
+    }
+}
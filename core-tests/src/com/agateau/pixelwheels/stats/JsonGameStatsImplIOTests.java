@@ -61,7 +61,10 @@ public class JsonGameStatsImplIOTests {
         gameStats.onChampionshipFinished(ch2, 2);
         gameStats.recordEvent(GameStats.Event.MISSILE_HIT);
         gameStats.recordEvent(GameStats.Event.MISSILE_HIT);
+        gameStats.flush();
+        io.waitForPendingWrites();
         assertTrue(testFile.exists());
+        assertTrue(!testFile.sibling("io.json.tmp").exists());
 
         GameStatsImpl gameStats2 = new GameStatsImpl(io);
         assertTrue(gameStats2.mTrackStats.containsKey("t"));
@@ -19,6 +19,7 @@
 package com.agateau.pixelwheels.utils.tests;
 
 import static com.agateau.pixelwheels.utils.ArcClosestBodyFinder.FilterResult.IGNORE;
+import static com.agateau.pixelwheels.utils.ArcClosestBodyFinder.FilterResult.STOP_FAILED;
 import static com.agateau.pixelwheels.utils.ArcClosestBodyFinder.FilterResult.STOP_SUCCESS;
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertNull;
@@ -92,6 +93,49 @@ public class ArcClosestBodyFinderTests {
         assertEquals(closestBody, found);
     }
 
+    @Test
+    public void testQueryArc() {
+        World world = createWorld();
+        ArcClosestBodyFinder finder = new ArcClosestBodyFinder(10, 90);
+        finder.setMode(ArcClosestBodyFinder.Mode.QUERY);
+        Body closestBody = createSquareBody(world, 0, 1);
+        createSquareBody(world, 3, 0);
+        createSquareBody(world, -3, -3);
+
+        Body found = finder.find(world, new Vector2(0, 0), 45f);
+        assertEquals(closestBody, found);
+    }
+
+    @Test
+    public void testQueryOutOfArc() {
+        World world = createWorld();
+        ArcClosestBodyFinder finder = new ArcClosestBodyFinder(10, 90);
+        finder.setMode(ArcClosestBodyFinder.Mode.QUERY);
+        createSquareBody(world, -3, -3);
+        createSquareBody(world, 20, 20);
+
+        Body found = finder.find(world, new Vector2(0, 0), 45f);
+        assertNull(found);
+    }
+
+    @Test
+    public void testQueryLineOfSight() {
+        // GIVEN a wall hiding the closest body, but not the second one
+        World world = createWorld();
+        ArcClosestBodyFinder finder = new ArcClosestBodyFinder(10, 90);
+        finder.setMode(ArcClosestBodyFinder.Mode.QUERY);
+        final Body wall = createSquareBody(world, 0, 2);
+        createSquareBody(world, 0, 4);
+        Body visibleBody = createSquareBody(world, 5, 0);
+        finder.setBodyFilter(body -> body == wall ? STOP_FAILED : STOP_SUCCESS);
+
+        // WHEN looking for a body
+        Body found = finder.find(world, new Vector2(0, 0), 45f);
+
+        // THEN the visible body is found
+        assertEquals(visibleBody, found);
+    }
+
     private World createWorld() {
         return new World(new Vector2(0, 0), true);
     }
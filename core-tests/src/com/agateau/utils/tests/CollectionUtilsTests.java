@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.agateau.utils.CollectionUtils;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class CollectionUtilsTests {
+    @Test
+    public void testInsertionSort() {
+        Integer[] items = {5, 3, 4, 1, 2};
+        CollectionUtils.insertionSort(items, Comparator.naturalOrder(), 0, items.length);
+        assertThat(items, is(new Integer[] {1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void testInsertionSortRange() {
+        Integer[] items = {9, 5, 3, 4, 0};
+        CollectionUtils.insertionSort(items, Comparator.naturalOrder(), 1, 4);
+        assertThat(items, is(new Integer[] {9, 3, 4, 5, 0}));
+    }
+
+    @Test
+    public void testInsertionSortIsStable() {
+        // GIVEN random items, compared on their tens only
+        Random random = new Random(12);
+        Integer[] items = new Integer[200];
+        for (int idx = 0; idx < items.length; ++idx) {
+            items[idx] = random.nextInt(100);
+        }
+        Comparator<Integer> comparator = (i1, i2) -> Integer.compare(i1 / 10, i2 / 10);
+        Integer[] expected = items.clone();
+        Arrays.sort(expected, comparator);
+
+        // WHEN sorting them
+        CollectionUtils.insertionSort(items, comparator, 0, items.length);
+
+        // THEN they are in the same order as with Arrays.sort(), which is stable
+        assertThat(items, is(expected));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.utils.log.LogRingBuffer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LogRingBufferTests {
+    @Test
+    public void testPollReturnsMessagesInOrder() {
+        // GIVEN a ring buffer with two messages
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        Object[] args = new Object[] {12};
+        buffer.offer(1, "tag1", "message %d", args);
+        buffer.offer(2, "tag2", "message2", null);
+
+        // WHEN I poll them
+        LogRingBuffer.Entry entry = new LogRingBuffer.Entry();
+
+        // THEN they come out in the order they were added
+        assertThat(buffer.poll(entry), is(true));
+        assertThat(entry.level, is(1));
+        assertThat(entry.tag, is("tag1"));
+        assertThat(entry.format, is("message %d"));
+        assertThat(entry.args == args, is(true));
+
+        assertThat(buffer.poll(entry), is(true));
+        assertThat(entry.level, is(2));
+        assertThat(entry.tag, is("tag2"));
+
+        // AND the buffer is then empty
+        assertThat(buffer.poll(entry), is(false));
+    }
+
+    @Test
+    public void testOfferFailsWhenFull() {
+        // GIVEN a full ring buffer
+        LogRingBuffer buffer = new LogRingBuffer(2);
+        assertThat(buffer.offer(1, "t", "a", null), is(true));
+        assertThat(buffer.offer(1, "t", "b", null), is(true));
+
+        // WHEN I add another message
+        // THEN it is refused
+        assertThat(buffer.offer(1, "t", "c", null), is(false));
+
+        // AND the buffer still contains the first messages
+        LogRingBuffer.Entry entry = new LogRingBuffer.Entry();
+        assertThat(buffer.poll(entry), is(true));
+        assertThat(entry.format, is("a"));
+
+        // AND there is room again once a message has been polled
+        assertThat(buffer.offer(1, "t", "c", null), is(true));
+    }
+
+    @Test
+    public void testWrapAround() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        LogRingBuffer.Entry entry = new LogRingBuffer.Entry();
+        for (int idx = 0; idx < 10; ++idx) {
+            assertThat(buffer.offer(idx, "t", "m", null), is(true));
+            assertThat(buffer.offer(idx + 100, "t", "m", null), is(true));
+            assertThat(buffer.poll(entry), is(true));
+            assertThat(entry.level, is(idx));
+            assertThat(buffer.poll(entry), is(true));
+            assertThat(entry.level, is(idx + 100));
+        }
+        assertThat(buffer.poll(entry), is(false));
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        // GIVEN a ring buffer large enough for all messages
+        final int threadCount = 4;
+        final int messageCount = 1000;
+        final LogRingBuffer buffer = new LogRingBuffer(4096);
+
+        // WHEN several threads add messages at the same time
+        Thread[] threads = new Thread[threadCount];
+        for (int threadIdx = 0; threadIdx < threadCount; ++threadIdx) {
+            final int level = threadIdx;
+            threads[threadIdx] =
+                    new Thread(
+                            () -> {
+                                for (int idx = 0; idx < messageCount; ++idx) {
+                                    buffer.offer(level, "t", idx, null);
+                                }
+                            });
+            threads[threadIdx].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // THEN all messages are there, and each thread messages are in order
+        int[] nextIndices = new int[threadCount];
+        LogRingBuffer.Entry entry = new LogRingBuffer.Entry();
+        while (buffer.poll(entry)) {
+            assertThat(entry.format, is(nextIndices[entry.level]));
+            ++nextIndices[entry.level];
+        }
+        for (int nextIndex : nextIndices) {
+            assertThat(nextIndex, is(messageCount));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityMustBeAPowerOfTwo() {
+        new LogRingBuffer(3);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.agateau.utils.LongFloatArrayMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LongFloatArrayMapTests {
+    @Test
+    public void testPut() {
+        // GIVEN an empty map
+        LongFloatArrayMap map = new LongFloatArrayMap(2);
+
+        // WHEN adding more entries than its capacity, and replacing one
+        map.put(10_000_000_000L, 1f);
+        map.put(2, 2f);
+        map.put(3, 3f);
+        map.put(2, 4f);
+
+        // THEN all entries are there, in insertion order
+        assertThat(map.size, is(3));
+        assertThat(map.containsKey(10_000_000_000L), is(true));
+        assertThat(map.containsKey(4), is(false));
+        assertThat(map.getKeyAt(1), is(2L));
+        assertThat(map.getValueAt(1), is(4f));
+        assertThat(map.getKeyAt(2), is(3L));
+    }
+
+    @Test
+    public void testRemoveIndex() {
+        // GIVEN a map with 3 entries
+        LongFloatArrayMap map = new LongFloatArrayMap(4);
+        map.put(1, 1f);
+        map.put(2, 2f);
+        map.put(3, 3f);
+
+        // WHEN removing the middle one
+        map.removeIndex(1);
+
+        // THEN the other entries are still there, in the same order
+        assertThat(map.size, is(2));
+        assertThat(map.containsKey(2), is(false));
+        assertThat(map.getKeyAt(0), is(1L));
+        assertThat(map.getKeyAt(1), is(3L));
+        assertThat(map.getValueAt(1), is(3f));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        LongFloatArrayMap map = new LongFloatArrayMap(4);
+        map.put(1, 1f);
+        map.getValueAt(1);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.Application;
+import java.util.ArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class NLogTests {
+    private static class RecordingPrinter implements NLog.Printer {
+        final ArrayList<String> messages = new ArrayList<>();
+        final ArrayList<String> tags = new ArrayList<>();
+
+        @Override
+        public void print(int level, String tag, String message) {
+            tags.add(tag);
+            messages.add(message);
+        }
+    }
+
+    private final RecordingPrinter mPrinter = new RecordingPrinter();
+
+    @Before
+    public void setUp() {
+        NLog.addPrinter(mPrinter);
+    }
+
+    @After
+    public void tearDown() {
+        NLog.stopAsync();
+        NLog.setLevel(Application.LOG_DEBUG);
+        NLog.removePrinter(mPrinter);
+    }
+
+    @Test
+    public void testSyncModePrintsImmediately() {
+        NLog.i("hello %s", "world");
+        assertThat(mPrinter.messages.size(), is(1));
+        assertThat(mPrinter.messages.get(0), is("hello world"));
+        assertThat(mPrinter.tags.get(0), is("NLogTests.testSyncModePrintsImmediately"));
+    }
+
+    @Test
+    public void testAsyncModePrintsAfterFlush() {
+        // GIVEN NLog in async mode, without caller tags
+        NLog.startAsync(16, false);
+
+        // WHEN I log messages and flush
+        NLog.d("one");
+        NLog.i("two %d", 2);
+        NLog.flush();
+
+        // THEN the messages have been formatted and printed, in order
+        assertThat(mPrinter.messages.size(), is(2));
+        assertThat(mPrinter.messages.get(0), is("one"));
+        assertThat(mPrinter.messages.get(1), is("two 2"));
+        assertThat(mPrinter.tags.get(0), is("-"));
+    }
+
+    @Test
+    public void testAsyncModeCanCaptureCallerTags() {
+        NLog.startAsync(16, true);
+        NLog.i("hello");
+        NLog.flush();
+        assertThat(mPrinter.tags.get(0), is("NLogTests.testAsyncModeCanCaptureCallerTags"));
+    }
+
+    @Test
+    public void testLevelThreshold() {
+        // GIVEN a log level of LOG_INFO
+        NLog.setLevel(Application.LOG_INFO);
+
+        // WHEN I log messages of all levels
+        NLog.d("debug");
+        NLog.i("info");
+        NLog.e("error");
+
+        // THEN debug messages are dropped
+        assertThat(mPrinter.messages.size(), is(2));
+        assertThat(mPrinter.messages.get(0), is("info"));
+        assertThat(mPrinter.messages.get(1), is("error"));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import com.agateau.utils.PerThreadReflectionPool;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class PerThreadReflectionPoolTests {
+    public static class Item {}
+
+    @Test
+    public void testObjectsAreReusedOnTheSameThread() {
+        // GIVEN a pool
+        PerThreadReflectionPool<Item> pool = new PerThreadReflectionPool<>(Item.class);
+
+        // WHEN an object is freed
+        Item item = pool.obtain();
+        pool.free(item);
+
+        // THEN it is returned by the next obtain() call from the same thread
+        assertThat(pool.obtain(), is(sameInstance(item)));
+    }
+
+    @Test
+    public void testObjectsAreNotSharedBetweenThreads() throws InterruptedException {
+        // GIVEN a pool
+        final PerThreadReflectionPool<Item> pool = new PerThreadReflectionPool<>(Item.class);
+
+        // AND an object freed from the current thread
+        Item item = pool.obtain();
+        pool.free(item);
+
+        // WHEN another thread obtains an object
+        final Item[] otherItem = new Item[1];
+        Thread thread = new Thread(() -> otherItem[0] = pool.obtain());
+        thread.start();
+        thread.join();
+
+        // THEN it does not get the freed object
+        assertThat(otherItem[0], is(not(sameInstance(item))));
+    }
+}
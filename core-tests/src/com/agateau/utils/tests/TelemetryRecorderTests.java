@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.tests;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import com.agateau.utils.telemetry.TelemetryReader;
+import com.agateau.utils.telemetry.TelemetryRecorder;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class TelemetryRecorderTests {
+    @Test
+    public void testReadBackRecordedValues() throws IOException {
+        // GIVEN a recorder with a float channel and an int channel, and blocks of 4 rows
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        TelemetryRecorder recorder = new TelemetryRecorder(Channels.newChannel(stream), 4);
+        int speedChannel = recorder.addFloatChannel("speed");
+        int rankChannel = recorder.addIntChannel("rank");
+        recorder.start();
+
+        // WHEN I record 10 rows, spanning 3 blocks
+        for (int idx = 0; idx < 10; ++idx) {
+            recorder.setFloat(speedChannel, idx * 1.5f);
+            recorder.setInt(rankChannel, idx);
+            recorder.endRow();
+        }
+        recorder.dispose();
+
+        // THEN the reader finds the channels
+        TelemetryReader reader =
+                new TelemetryReader(new ByteArrayInputStream(stream.toByteArray()));
+        assertThat(reader.getChannelCount(), is(2));
+        assertThat(reader.getChannelName(0), is("speed"));
+        assertThat(reader.getChannelType(0), is(TelemetryRecorder.TYPE_FLOAT));
+        assertThat(reader.getChannelName(1), is("rank"));
+        assertThat(reader.getChannelType(1), is(TelemetryRecorder.TYPE_INT));
+
+        // AND all the rows, in order
+        int rowCount = 0;
+        while (reader.readBlock()) {
+            for (int row = 0; row < reader.getRowCount(); ++row) {
+                assertThat(reader.getFloat(0, row), is(rowCount * 1.5f));
+                assertThat(reader.getInt(1, row), is(rowCount));
+                ++rowCount;
+            }
+        }
+        assertThat(rowCount, is(10));
+    }
+
+    @Test
+    public void testTruncatedBlockIsIgnored() throws IOException {
+        // GIVEN a file with a complete block of 2 rows, followed by a truncated block
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        TelemetryRecorder recorder = new TelemetryRecorder(Channels.newChannel(stream), 2);
+        int channel = recorder.addIntChannel("value");
+        recorder.start();
+        for (int idx = 0; idx < 4; ++idx) {
+            recorder.setInt(channel, idx);
+            recorder.endRow();
+        }
+        recorder.dispose();
+        byte[] bytes = stream.toByteArray();
+        bytes = Arrays.copyOf(bytes, bytes.length - 2);
+
+        // WHEN I read it
+        TelemetryReader reader = new TelemetryReader(new ByteArrayInputStream(bytes));
+
+        // THEN only the complete block is returned
+        assertThat(reader.readBlock(), is(true));
+        assertThat(reader.getRowCount(), is(2));
+        assertThat(reader.getInt(0, 1), is(1));
+        assertThat(reader.readBlock(), is(false));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        new TelemetryReader(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+    }
+}
@@ -95,7 +95,7 @@ public class Assets implements TextureRegionProvider {
 
     private final Animation<TextureRegion> explosion;
 
-    Assets() {
+    public Assets() {
         if (GamePlay.instance.showTestTrack) {
             tracks.add(new Track("test", "Test"));
         }
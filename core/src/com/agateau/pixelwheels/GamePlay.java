@@ -25,7 +25,8 @@ public class GamePlay {
     public int lowSpeed = 20;
     public int maxSpeed = 270;
     public int maxLateralImpulse = 2;
-    public int maxSkidmarks = 60;
+    // Number of skidmark segments kept for the whole world
+    public int maxSkidmarks = 600;
 
     public int stoppedMaxSteer = 100;
     public int lowSpeedMaxSteer = 14;
@@ -51,7 +52,7 @@ public class GamePlay {
     public boolean alwaysShowTouchInput = false;
 
     public boolean showTestTrack = false;
-    public boolean createSpeedReport = false;
+    public boolean recordTelemetry = false;
 
     public float driftVolume = 0.6f;
     public float turboVolume = 0.5f;
@@ -21,9 +21,12 @@ package com.agateau.pixelwheels;
 import com.agateau.pixelwheels.bonus.BonusPool;
 import com.agateau.pixelwheels.gameobjet.GameObject;
 import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.ObstaclePerception;
 import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.SkidmarkManager;
 import com.agateau.pixelwheels.racescreen.CountDown;
 import com.agateau.pixelwheels.stats.GameStats;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
 
@@ -55,14 +58,34 @@ public interface GameWorld {
 
     void addGameObject(GameObject object);
 
+    /**
+     * Objects which are drawn but never act nor finish, like obstacles. They are kept out of the
+     * active game objects so that they do not cost an act() call per frame.
+     */
+    Array<GameObject> getPassiveGameObjects();
+
+    void addPassiveGameObject(GameObject object);
+
     CountDown getCountDown();
 
+    /** Returns the obstacles seen by AI pilots, shared between all of them */
+    ObstaclePerception getObstaclePerception();
+
+    /** Returns the skidmarks of all the wheels */
+    SkidmarkManager getSkidmarkManager();
+
     int getRacerRank(Racer racer);
 
     float getRacerNormalizedRank(Racer racer);
 
     GameStats getGameStats();
 
+    /**
+     * Returns the random generator gameplay code must use, so that races can be reproduced from a
+     * seed and worlds do not share state between threads
+     */
+    RandomXS128 getRandom();
+
     void act(float delta);
 
     State getState();
@@ -33,6 +33,7 @@ import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.sound.DefaultAudioManager;
 import com.agateau.pixelwheels.stats.GameStats;
 import com.agateau.pixelwheels.stats.GameStatsImpl;
+import com.agateau.pixelwheels.stats.JournalGameStatsImplIO;
 import com.agateau.pixelwheels.stats.JsonGameStatsImplIO;
 import com.agateau.ui.ScreenStack;
 import com.agateau.utils.Assert;
@@ -50,6 +51,8 @@ import com.badlogic.gdx.physics.box2d.Box2D;
 
 /** The game */
 public class PwGame extends Game implements GameConfig.ChangeListener {
+    private static final int LOG_BUFFER_CAPACITY = 1024;
+
     private Assets mAssets;
     private final ScreenStack mScreenStack = new ScreenStack(this);
     private Maestro mMaestro;
@@ -60,6 +63,7 @@ public class PwGame extends Game implements GameConfig.ChangeListener {
     private Introspector mGamePlayIntrospector;
     private Introspector mDebugIntrospector;
     private GameStats mGameStats;
+    private JsonGameStatsImplIO mGameStatsIO;
     private RewardManager mRewardManager;
 
     public Assets getAssets() {
@@ -88,6 +92,10 @@ public class PwGame extends Game implements GameConfig.ChangeListener {
         mGamePlayIntrospector.load();
         mDebugIntrospector.load();
 
+        if (Debug.instance.asyncLogging) {
+            NLog.startAsync(LOG_BUFFER_CAPACITY, Debug.instance.logCallerTags);
+        }
+
         mAssets = new Assets();
         mMouseCursorManager = new MouseCursorManager();
         setupConfig();
@@ -108,6 +116,23 @@ public class PwGame extends Game implements GameConfig.ChangeListener {
         super.render();
     }
 
+    @Override
+    public void pause() {
+        super.pause();
+        // The application may be killed while paused, make sure stats are written
+        mGameStats.flush();
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        mGameStats.flush();
+        if (mGameStatsIO != null) {
+            mGameStatsIO.waitForPendingWrites();
+        }
+        NLog.stopAsync();
+    }
+
     void refreshAssets() {
         mAssets = new Assets();
         // Tracks and championship have been recreated, need to recreate reward manager
@@ -122,8 +147,17 @@ public class PwGame extends Game implements GameConfig.ChangeListener {
     }
 
     private void setupTrackStats() {
-        JsonGameStatsImplIO io =
-                new JsonGameStatsImplIO(FileUtils.getUserWritableFile("gamestats.json"));
+        GameStatsImpl.IO io;
+        if (Debug.instance.journalGameStats) {
+            // Writes happen synchronously, on the calling thread
+            io =
+                    new JournalGameStatsImplIO(
+                            FileUtils.getUserWritableFile("gamestats.journal"),
+                            FileUtils.getUserWritableFile("gamestats.json"));
+        } else {
+            mGameStatsIO = new JsonGameStatsImplIO(FileUtils.getUserWritableFile("gamestats.json"));
+            io = mGameStatsIO;
+        }
         mGameStats = new GameStatsImpl(io);
     }
 
@@ -206,6 +240,7 @@ public class PwGame extends Game implements GameConfig.ChangeListener {
 
     public void onChampionshipFinished(ChampionshipGameInfo gameInfo) {
         mGameStats.onChampionshipFinished(gameInfo.getChampionship(), gameInfo.getBestRank());
+        mGameStats.flush();
     }
 
     @Override
@@ -24,5 +24,13 @@ public enum ZLevel {
     VEHICLES,
     SHADOWS,
     OBSTACLES,
-    FLYING
+    FLYING;
+
+    /** A mask with the bits of all levels set */
+    public static final int ALL_MASK = (1 << values().length) - 1;
+
+    /** Returns the bit representing this level in the masks returned by GameObject */
+    public int mask() {
+        return 1 << ordinal();
+    }
 }
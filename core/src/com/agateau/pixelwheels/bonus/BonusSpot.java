@@ -88,6 +88,11 @@ public class BonusSpot extends GameObjectAdapter {
         }
     }
 
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.GROUND.mask() | ZLevel.OBSTACLES.mask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         if (!mBody.isActive()) {
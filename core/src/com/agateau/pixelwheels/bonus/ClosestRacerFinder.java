@@ -54,8 +54,17 @@ public class ClosestRacerFinder {
     }
 
     public ClosestRacerFinder(float depth, float arc) {
+        this(depth, arc, ArcClosestBodyFinder.Mode.RAYS);
+    }
+
+    public ClosestRacerFinder(float depth, float arc, ArcClosestBodyFinder.Mode mode) {
         mBodyFinder = new ArcClosestBodyFinder(depth, arc);
         mBodyFinder.setBodyFilter(mFilter);
+        mBodyFinder.setMode(mode);
+    }
+
+    public void setMode(ArcClosestBodyFinder.Mode mode) {
+        mBodyFinder.setMode(mode);
     }
 
     public void setIgnoredRacer(Racer ignoredRacer) {
@@ -30,8 +30,10 @@ import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.utils.BodyRegionDrawer;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.utils.PerThreadReflectionPool;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
@@ -44,14 +46,14 @@ import com.badlogic.gdx.physics.box2d.Manifold;
 import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** A mine on the road */
 public class Mine extends GameObjectAdapter
         implements Collidable, Pool.Poolable, Disposable, Explosable {
-    private static final ReflectionPool<Mine> sPool = new ReflectionPool<>(Mine.class);
+    private static final PerThreadReflectionPool<Mine> sPool =
+            new PerThreadReflectionPool<>(Mine.class);
 
-    private static final float MINE_RADIUS = 0.8f;
+    public static final float MINE_RADIUS = 0.8f;
 
     private GameWorld mGameWorld;
     private AudioManager mAudioManager;
@@ -65,15 +67,15 @@ public class Mine extends GameObjectAdapter
     private float mTime;
     private Joint mJoint;
 
-    private static final Vector2 sTmp = new Vector2();
-
     public static Mine createAttachedMine(
             GameWorld gameWorld, Assets assets, AudioManager audioManager, Racer owner) {
+        // Place the mine behind the vehicle
         Vehicle vehicle = owner.getVehicle();
-        sTmp.set(-vehicle.getWidth(), 0);
-        sTmp.rotate(vehicle.getAngle()).add(vehicle.getX(), vehicle.getY());
+        float angle = vehicle.getAngle();
+        float x = vehicle.getX() - vehicle.getWidth() * MathUtils.cosDeg(angle);
+        float y = vehicle.getY() - vehicle.getWidth() * MathUtils.sinDeg(angle);
 
-        Mine mine = createInternal(gameWorld, assets, audioManager, sTmp);
+        Mine mine = createInternal(gameWorld, assets, audioManager, x, y);
         mine.mOwner = owner;
         mine.initJoint();
         return mine;
@@ -81,13 +83,13 @@ public class Mine extends GameObjectAdapter
 
     public static Mine createDroppedMine(
             GameWorld gameWorld, Assets assets, AudioManager audioManager, Vector2 position) {
-        Mine mine = createInternal(gameWorld, assets, audioManager, position);
+        Mine mine = createInternal(gameWorld, assets, audioManager, position.x, position.y);
         mine.mBody.setType(BodyDef.BodyType.StaticBody);
         return mine;
     }
 
     private static Mine createInternal(
-            GameWorld gameWorld, Assets assets, AudioManager audioManager, Vector2 position) {
+            GameWorld gameWorld, Assets assets, AudioManager audioManager, float x, float y) {
         Mine mine = sPool.obtain();
         if (mine.mBodyDef == null) {
             mine.firstInit(assets);
@@ -100,7 +102,7 @@ public class Mine extends GameObjectAdapter
         mine.mJoint = null;
         mine.setFinished(false);
 
-        mine.mBodyDef.position.set(position);
+        mine.mBodyDef.position.set(x, y);
 
         mine.mBody = gameWorld.getBox2DWorld().createBody(mine.mBodyDef);
         mine.mBody.createFixture(mine.mShape, 0.00001f);
@@ -155,6 +157,11 @@ public class Mine extends GameObjectAdapter
 
     private final BodyRegionDrawer mBodyRegionDrawer = new BodyRegionDrawer();
 
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.GROUND.mask() | ZLevel.VEHICLES.mask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         mBodyRegionDrawer.setBatch(batch);
@@ -219,4 +226,9 @@ public class Mine extends GameObjectAdapter
         mJoint = null;
         mBody.setType(BodyDef.BodyType.StaticBody);
     }
+
+    /** Returns true if the mine lies on the track, as opposed to being carried by its owner */
+    public boolean isDropped() {
+        return !isFinished() && mBody.getType() == BodyDef.BodyType.StaticBody;
+    }
 }
@@ -34,8 +34,10 @@ import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.sound.SoundPlayer;
 import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.utils.ArcClosestBodyFinder;
 import com.agateau.pixelwheels.utils.BodyRegionDrawer;
 import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.utils.PerThreadReflectionPool;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
@@ -54,12 +56,12 @@ import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.physics.box2d.joints.WeldJointDef;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** A player bullet */
 public class Missile extends GameObjectAdapter
         implements Collidable, Pool.Poolable, Disposable, Explosable {
-    private static final ReflectionPool<Missile> sPool = new ReflectionPool<>(Missile.class);
+    private static final PerThreadReflectionPool<Missile> sPool =
+            new PerThreadReflectionPool<>(Missile.class);
 
     private static final float WIDTH = 44;
     private static final float HEIGHT = 13;
@@ -84,7 +86,9 @@ public class Missile extends GameObjectAdapter
     private final WeldJointDef mJointDef = new WeldJointDef();
     private final PolygonShape mShape = new PolygonShape();
     private final BodyRegionDrawer mDrawer = new BodyRegionDrawer();
-    private final ClosestRacerFinder mRacerFinder = new ClosestRacerFinder(LOCK_DISTANCE, LOCK_ARC);
+    // Checked every frame: use a single box query rather than a fan of rays
+    private final ClosestRacerFinder mRacerFinder =
+            new ClosestRacerFinder(LOCK_DISTANCE, LOCK_ARC, ArcClosestBodyFinder.Mode.QUERY);
     private final MissileGuidingSystem mGuidingSystem = new MissileGuidingSystem();
     private Assets mAssets;
 
@@ -252,6 +256,11 @@ public class Missile extends GameObjectAdapter
                         world, mBody.getWorldCenter(), mBody.getAngle() * MathUtils.radDeg);
     }
 
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.FLYING.mask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         if (zLevel == ZLevel.FLYING) {
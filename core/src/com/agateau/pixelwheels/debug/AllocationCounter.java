@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.debug;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Tells how many bytes the current thread has allocated so far.
+ *
+ * <p>Relies on com.sun.management.ThreadMXBean, so it only works on desktop JVMs, not on Android.
+ * Check isSupported() before calling getThreadAllocatedBytes().
+ */
+public class AllocationCounter {
+    // Only loaded when getThreadAllocatedBytes() is called, so that this class can be loaded on
+    // platforms without com.sun.management
+    private static class Holder {
+        static final com.sun.management.ThreadMXBean BEAN = createBean();
+
+        private static com.sun.management.ThreadMXBean createBean() {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+                return null;
+            }
+            com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+            if (!sunBean.isThreadAllocatedMemorySupported()) {
+                return null;
+            }
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            return sunBean;
+        }
+    }
+
+    public static boolean isSupported() {
+        try {
+            Class.forName("com.sun.management.ThreadMXBean");
+            return Holder.BEAN != null;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /** Returns the number of bytes allocated by the current thread. Does not allocate itself. */
+    public static long getThreadAllocatedBytes() {
+        return Holder.BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.debug;
+
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * PerformanceCounters whose counters also record how many bytes are allocated between their start()
+ * and stop() calls, frame by frame. A frame ends when tick() is called.
+ *
+ * <p>Allocations are counted on the thread calling start() and stop(), using AllocationCounter, so
+ * this only works where AllocationCounter.isSupported() returns true.
+ */
+public class AllocationTrackingPerformanceCounters extends PerformanceCounters {
+    public static class Counter extends PerformanceCounter {
+        private long mStartBytes;
+        private long mFrameBytes;
+
+        /** Bytes allocated during the last frame */
+        public long lastFrameBytes;
+        /** Bytes allocated since the last reset */
+        public long totalBytes;
+        /** Maximum number of bytes allocated in a frame since the last reset */
+        public long maxFrameBytes;
+
+        public int frameCount;
+        /** Number of frames which allocated at least one byte since the last reset */
+        public int allocatingFrameCount;
+
+        public Counter(String name) {
+            super(name);
+        }
+
+        public Counter(String name, int windowSize) {
+            super(name, windowSize);
+        }
+
+        @Override
+        public void start() {
+            super.start();
+            mStartBytes = AllocationCounter.getThreadAllocatedBytes();
+        }
+
+        @Override
+        public void stop() {
+            mFrameBytes += AllocationCounter.getThreadAllocatedBytes() - mStartBytes;
+            super.stop();
+        }
+
+        @Override
+        public void tick(float delta) {
+            super.tick(delta);
+            lastFrameBytes = mFrameBytes;
+            mFrameBytes = 0;
+            totalBytes += lastFrameBytes;
+            maxFrameBytes = Math.max(maxFrameBytes, lastFrameBytes);
+            ++frameCount;
+            if (lastFrameBytes > 0) {
+                ++allocatingFrameCount;
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            lastFrameBytes = 0;
+            totalBytes = 0;
+            maxFrameBytes = 0;
+            frameCount = 0;
+            allocatingFrameCount = 0;
+        }
+
+        public long getAverageFrameBytes() {
+            return frameCount > 0 ? totalBytes / frameCount : 0;
+        }
+    }
+
+    @Override
+    public PerformanceCounter add(String name, int windowSize) {
+        Counter counter = new Counter(name, windowSize);
+        counters.add(counter);
+        return counter;
+    }
+
+    @Override
+    public PerformanceCounter add(String name) {
+        Counter counter = new Counter(name);
+        counters.add(counter);
+        return counter;
+    }
+
+    /** Resets all counters, for example to ignore allocations done while a race starts */
+    public void reset() {
+        for (PerformanceCounter counter : counters) {
+            counter.reset();
+        }
+    }
+
+    public void logReport(String title) {
+        NLog.i("Allocations per frame, %s", title);
+        for (PerformanceCounter performanceCounter : counters) {
+            Counter counter = (Counter) performanceCounter;
+            NLog.i(
+                    "%s: average=%dB max=%dB allocating frames=%d/%d",
+                    counter.name,
+                    counter.getAverageFrameBytes(),
+                    counter.maxFrameBytes,
+                    counter.allocatingFrameCount,
+                    counter.frameCount);
+        }
+    }
+}
@@ -27,6 +27,13 @@ public class Debug {
     public boolean showHudDebugLines = false;
     public boolean oneLapOnly = false;
     public boolean freeCamera = false;
+    public boolean profileAllocations = false;
+    public boolean asyncLogging = false;
+    public boolean logCallerTags = false;
+    public boolean journalGameStats = false;
+    public boolean recordReplays = false;
+    public boolean threadedSimulation = false;
+    public boolean singleBodyVehicles = false;
 
     public static final Debug instance = new Debug();
 }
@@ -19,7 +19,7 @@
 package com.agateau.pixelwheels.debug;
 
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /** An helper class to register global debug shape drawers */
 public class DebugShapeMap {
@@ -27,7 +27,8 @@ public class DebugShapeMap {
         void draw(ShapeRenderer renderer);
     }
 
-    private static final HashMap<Object, Shape> sMap = new HashMap<>();
+    // Concurrent because shapes can be registered by worlds running on other threads
+    private static final ConcurrentHashMap<Object, Shape> sMap = new ConcurrentHashMap<>();
 
     public static Iterable<? extends Shape> values() {
         return sMap.values();
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.debug;
+
+/** What a rendering step sent to the GPU during the current frame, shown in the debug hud */
+public class DrawStats {
+    public int vertexCount;
+    public int drawCallCount;
+
+    public void reset() {
+        vertexCount = 0;
+        drawCallCount = 0;
+    }
+
+    public void add(int vertices, int drawCalls) {
+        vertexCount += vertices;
+        drawCallCount += drawCalls;
+    }
+}
@@ -21,18 +21,18 @@ package com.agateau.pixelwheels.gameobjet;
 import com.agateau.pixelwheels.Constants;
 import com.agateau.pixelwheels.ZLevel;
 import com.agateau.pixelwheels.sound.AudioManager;
+import com.agateau.utils.PerThreadReflectionPool;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.g2d.Animation;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** A generic short-animation game object */
 public class AnimationObject extends GameObjectAdapter implements Pool.Poolable, Disposable {
-    private static final ReflectionPool<AnimationObject> sPool =
-            new ReflectionPool<>(AnimationObject.class);
+    private static final PerThreadReflectionPool<AnimationObject> sPool =
+            new PerThreadReflectionPool<>(AnimationObject.class);
     private float mTime;
     private Animation<TextureRegion> mAnimation;
     private float mPosX;
@@ -60,6 +60,11 @@ public class AnimationObject extends GameObjectAdapter implements Pool.Poolable,
         }
     }
 
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.OBSTACLES.mask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         if (mTime < 0) {
@@ -34,6 +34,12 @@ public interface GameObject {
 
     void draw(Batch batch, ZLevel zLevel);
 
+    /**
+     * Returns the levels draw() should be called for, as a combination of ZLevel.mask() values.
+     * Called once per frame before drawing, so the result can change over time.
+     */
+    int getZLevelMask();
+
     float getX();
 
     float getY();
@@ -18,6 +18,7 @@
  */
 package com.agateau.pixelwheels.gameobjet;
 
+import com.agateau.pixelwheels.ZLevel;
 import com.badlogic.gdx.math.Vector2;
 
 /** An adapter for the GameObject interface */
@@ -30,6 +31,11 @@ public abstract class GameObjectAdapter implements GameObject {
         return mIsFinished;
     }
 
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.ALL_MASK;
+    }
+
     @Override
     public void audioRender(AudioClipper audioClipper) {}
 
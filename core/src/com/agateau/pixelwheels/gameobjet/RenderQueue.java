@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.gameobjet;
+
+import com.agateau.pixelwheels.ZLevel;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Buckets game objects by the ZLevels they draw on, so that drawing a level only calls draw() on
+ * the objects which use it.
+ *
+ * <p>Buckets of active objects are rebuilt once per frame by update(), in a single pass over the
+ * objects. Buckets of passive objects are only rebuilt when objects are added to them.
+ */
+public class RenderQueue {
+    private static final ZLevel[] LEVELS = ZLevel.values();
+
+    private final Array<Array<GameObject>> mBuckets = createBuckets();
+    private final Array<Array<GameObject>> mPassiveBuckets = createBuckets();
+    private int mPassiveObjectCount = 0;
+    private int mPassiveDrawCallCount = 0;
+    private int mObjectCount = 0;
+    private int mDrawCallCount = 0;
+
+    public void update(Array<GameObject> objects, Array<GameObject> passiveObjects) {
+        if (passiveObjects.size != mPassiveObjectCount) {
+            mPassiveDrawCallCount = fillBuckets(mPassiveBuckets, passiveObjects);
+            mPassiveObjectCount = passiveObjects.size;
+        }
+        mDrawCallCount = fillBuckets(mBuckets, objects) + mPassiveDrawCallCount;
+        mObjectCount = objects.size + mPassiveObjectCount;
+    }
+
+    /** Draws the passive objects of @p zLevel, then the active ones */
+    public void draw(Batch batch, ZLevel zLevel) {
+        drawBucket(mPassiveBuckets.get(zLevel.ordinal()), batch, zLevel);
+        drawBucket(mBuckets.get(zLevel.ordinal()), batch, zLevel);
+    }
+
+    /** How many objects went through the last update() */
+    public int getObjectCount() {
+        return mObjectCount;
+    }
+
+    /** How many objects draw on @p zLevel, which is also the number of draw() calls for it */
+    public int getObjectCount(ZLevel zLevel) {
+        return mBuckets.get(zLevel.ordinal()).size + mPassiveBuckets.get(zLevel.ordinal()).size;
+    }
+
+    /** How many draw() calls are made for all levels */
+    public int getDrawCallCount() {
+        return mDrawCallCount;
+    }
+
+    private static Array<Array<GameObject>> createBuckets() {
+        Array<Array<GameObject>> buckets = new Array<>(LEVELS.length);
+        for (int idx = 0; idx < LEVELS.length; ++idx) {
+            buckets.add(new Array<>(false, 16));
+        }
+        return buckets;
+    }
+
+    /** Fills @p buckets with @p objects, returns the number of draw() calls this will cause */
+    private static int fillBuckets(Array<Array<GameObject>> buckets, Array<GameObject> objects) {
+        for (Array<GameObject> bucket : buckets) {
+            bucket.clear();
+        }
+        int drawCallCount = 0;
+        for (int objectIdx = 0; objectIdx < objects.size; ++objectIdx) {
+            int mask = objects.get(objectIdx).getZLevelMask();
+            while (mask != 0) {
+                int idx = Integer.numberOfTrailingZeros(mask);
+                buckets.get(idx).add(objects.get(objectIdx));
+                mask &= mask - 1;
+                ++drawCallCount;
+            }
+        }
+        return drawCallCount;
+    }
+
+    private static void drawBucket(Array<GameObject> bucket, Batch batch, ZLevel zLevel) {
+        for (int idx = 0; idx < bucket.size; ++idx) {
+            bucket.get(idx).draw(batch, zLevel);
+        }
+    }
+}
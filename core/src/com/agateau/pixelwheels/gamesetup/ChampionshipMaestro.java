@@ -158,6 +158,7 @@ public class ChampionshipMaestro extends Maestro {
                         }
                     }
                 };
+        applyDebugRaceOptions(mGameInfo);
         return new RaceScreen(getGame(), listener, mGameInfo);
     }
 
@@ -21,6 +21,7 @@ package com.agateau.pixelwheels.gamesetup;
 import com.agateau.pixelwheels.GameConfig;
 import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Vehicle;
 import com.agateau.pixelwheels.vehicledef.VehicleDef;
 import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.utils.Array;
@@ -34,6 +35,7 @@ public abstract class GameInfo {
 
     private final Array<Entrant> mEntrants = new Array<>();
     private final GameType mGameType;
+    private Vehicle.PhysicsModel mPhysicsModel = Vehicle.PhysicsModel.JOINTED_WHEELS;
 
     public abstract static class Builder<T extends GameInfo> {
         final Array<VehicleDef> mVehicleDefs;
@@ -140,6 +142,15 @@ public abstract class GameInfo {
 
     public abstract Track getTrack();
 
+    /** The physics model used by the vehicles of the race */
+    public Vehicle.PhysicsModel getPhysicsModel() {
+        return mPhysicsModel;
+    }
+
+    public void setPhysicsModel(Vehicle.PhysicsModel physicsModel) {
+        mPhysicsModel = physicsModel;
+    }
+
     public Array<Entrant> getEntrants() {
         return mEntrants;
     }
@@ -19,7 +19,9 @@
 package com.agateau.pixelwheels.gamesetup;
 
 import com.agateau.pixelwheels.PwGame;
+import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.pixelwheels.gameinput.GamepadInputWatcher;
+import com.agateau.pixelwheels.racer.Vehicle;
 import com.agateau.pixelwheels.rewards.Reward;
 import com.agateau.pixelwheels.screens.NavStageScreen;
 import com.agateau.pixelwheels.screens.NotEnoughGamepadsScreen;
@@ -95,6 +97,14 @@ public abstract class Maestro implements GamepadInputWatcher.Listener {
         return unlockedRewards;
     }
 
+    /** Applies the race options which can be changed from the debug screen */
+    static void applyDebugRaceOptions(GameInfo gameInfo) {
+        gameInfo.setPhysicsModel(
+                Debug.instance.singleBodyVehicles
+                        ? Vehicle.PhysicsModel.SINGLE_BODY
+                        : Vehicle.PhysicsModel.JOINTED_WHEELS);
+    }
+
     void updateAlreadyUnlockedRewards() {
         mAlreadyUnlockedRewards.addAll(getGame().getRewardManager().getUnlockedRewards());
     }
@@ -130,6 +130,7 @@ public class QuickRaceMaestro extends Maestro {
                     }
                 };
         QuickRaceGameInfo gameInfo = mGameInfoBuilder.build();
+        applyDebugRaceOptions(gameInfo);
         return new RaceScreen(getGame(), listener, gameInfo);
     }
 }
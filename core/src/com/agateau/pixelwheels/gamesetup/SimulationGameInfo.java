@@ -0,0 +1,43 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.gamesetup;
+
+import com.agateau.pixelwheels.map.Track;
+import com.badlogic.gdx.utils.Array;
+
+/** A GameInfo for races with AI entrants only, used by simulations */
+public class SimulationGameInfo extends GameInfo {
+    private final Track mTrack;
+
+    /** Creates one AI entrant per vehicle id, in starting grid order */
+    public SimulationGameInfo(Track track, Array<String> vehicleIds) {
+        super(GameType.QUICK_RACE);
+        mTrack = track;
+        for (String vehicleId : vehicleIds) {
+            Entrant entrant = new Entrant();
+            entrant.mVehicleId = vehicleId;
+            getEntrants().add(entrant);
+        }
+    }
+
+    @Override
+    public Track getTrack() {
+        return mTrack;
+    }
+}
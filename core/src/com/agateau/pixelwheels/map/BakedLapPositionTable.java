@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import com.agateau.utils.Assert;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A LapPositionTable precomputed on a grid of samples, one every SAMPLE_SIZE pixels.
+ *
+ * <p>Each sample packs the section id (16 bits), the quantized section distance (8 bits) and the
+ * quantized center distance (8 bits) in an int, so a lookup is a single array read.
+ *
+ * <p>Tables are generated by the LapPositionTableBaker tool and stored as gzipped files next to the
+ * maps. They contain the checksum of the sections they have been computed from (see
+ * LapPositionTableIO.computeSectionChecksum()), so that out of date tables can be detected.
+ */
+public class BakedLapPositionTable implements LapPositionTable {
+    public static final int SAMPLE_SIZE = 4;
+    public static final String FILE_EXTENSION = ".lpt";
+
+    private static final int MAGIC = 0x50574c54; // "PWLT"
+    private static final int VERSION = 2;
+    private static final int EMPTY_SAMPLE = -1;
+    private static final int MAX_SECTION_COUNT = 0xffff;
+    private static final float SECTION_DISTANCE_SCALE = 255;
+    private static final float CENTER_DISTANCE_SCALE = 127;
+
+    private final int mWidth;
+    private final int mHeight;
+    private final int mSectionCount;
+    private final int mSourceChecksum;
+    private final int[] mSamples;
+    private final LapPosition mLapPosition = new LapPosition();
+
+    private BakedLapPositionTable(
+            int width, int height, int sectionCount, int sourceChecksum, int[] samples) {
+        mWidth = width;
+        mHeight = height;
+        mSectionCount = sectionCount;
+        mSourceChecksum = sourceChecksum;
+        mSamples = samples;
+    }
+
+    /**
+     * Samples @p table, at the center of each sample cell.
+     *
+     * @param width width of the map, in pixels
+     * @param height height of the map, in pixels
+     * @param sourceChecksum checksum of the sections @p table has been computed from
+     */
+    public static BakedLapPositionTable bake(
+            LapPositionTable table, int width, int height, int sourceChecksum) {
+        Assert.check(
+                table.getSectionCount() < MAX_SECTION_COUNT,
+                "Too many sections: " + table.getSectionCount());
+        int sampleWidth = (width + SAMPLE_SIZE - 1) / SAMPLE_SIZE;
+        int sampleHeight = (height + SAMPLE_SIZE - 1) / SAMPLE_SIZE;
+        int[] samples = new int[sampleWidth * sampleHeight];
+        for (int sy = 0; sy < sampleHeight; ++sy) {
+            int y = sy * SAMPLE_SIZE + SAMPLE_SIZE / 2;
+            for (int sx = 0; sx < sampleWidth; ++sx) {
+                int x = sx * SAMPLE_SIZE + SAMPLE_SIZE / 2;
+                samples[sy * sampleWidth + sx] = encode(table.get(x, y));
+            }
+        }
+        return new BakedLapPositionTable(
+                sampleWidth, sampleHeight, table.getSectionCount(), sourceChecksum, samples);
+    }
+
+    @Override
+    public LapPosition get(int x, int y) {
+        return get(x, y, mLapPosition);
+    }
+
+    @Override
+    public LapPosition get(int x, int y, LapPosition out) {
+        if (x < 0 || y < 0) {
+            return null;
+        }
+        int sx = x / SAMPLE_SIZE;
+        int sy = y / SAMPLE_SIZE;
+        if (sx >= mWidth || sy >= mHeight) {
+            return null;
+        }
+        int sample = mSamples[sy * mWidth + sx];
+        if (sample == EMPTY_SAMPLE) {
+            return null;
+        }
+        int sectionId = sample >>> 16;
+        float sectionDistance = ((sample >>> 8) & 0xff) / SECTION_DISTANCE_SCALE;
+        float centerDistance = ((byte) sample) / CENTER_DISTANCE_SCALE;
+        out.init(sectionId, sectionDistance, centerDistance);
+        return out;
+    }
+
+    @Override
+    public int getSectionCount() {
+        return mSectionCount;
+    }
+
+    public int getSourceChecksum() {
+        return mSourceChecksum;
+    }
+
+    /** Maximum error introduced by quantization on the section distance */
+    public static float getSectionDistanceError() {
+        return 0.5f / SECTION_DISTANCE_SCALE;
+    }
+
+    /** Maximum error introduced by quantization on the center distance */
+    public static float getCenterDistanceError() {
+        return 0.5f / CENTER_DISTANCE_SCALE;
+    }
+
+    public void write(FileHandle handle) {
+        try (DataOutputStream out =
+                new DataOutputStream(
+                        new BufferedOutputStream(
+                                new GZIPOutputStream(handle.write(false /* append */))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(mWidth);
+            out.writeInt(mHeight);
+            out.writeInt(mSectionCount);
+            out.writeInt(mSourceChecksum);
+            for (int sample : mSamples) {
+                out.writeInt(sample);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + handle.path(), e);
+        }
+    }
+
+    /** Returns null if the file has been written by an older or newer version of this class */
+    public static BakedLapPositionTable read(FileHandle handle) {
+        try (DataInputStream in =
+                new DataInputStream(new BufferedInputStream(new GZIPInputStream(handle.read())))) {
+            int magic = in.readInt();
+            Assert.check(magic == MAGIC, handle.path() + " is not a lap position table");
+            int version = in.readInt();
+            if (version != VERSION) {
+                NLog.e("%s: unsupported lap position table version %d", handle.path(), version);
+                return null;
+            }
+            int width = in.readInt();
+            int height = in.readInt();
+            int sectionCount = in.readInt();
+            int sourceChecksum = in.readInt();
+            int[] samples = new int[width * height];
+            for (int idx = 0; idx < samples.length; ++idx) {
+                samples[idx] = in.readInt();
+            }
+            return new BakedLapPositionTable(width, height, sectionCount, sourceChecksum, samples);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + handle.path(), e);
+        }
+    }
+
+    private static int encode(LapPosition pos) {
+        if (pos == null) {
+            return EMPTY_SAMPLE;
+        }
+        int sectionDistance =
+                MathUtils.clamp(
+                        MathUtils.round(pos.getSectionDistance() * SECTION_DISTANCE_SCALE),
+                        0,
+                        (int) SECTION_DISTANCE_SCALE);
+        int centerDistance =
+                MathUtils.clamp(
+                        MathUtils.round(pos.getCenterDistance() * CENTER_DISTANCE_SCALE),
+                        -(int) CENTER_DISTANCE_SCALE,
+                        (int) CENTER_DISTANCE_SCALE);
+        return (pos.getSectionId() << 16) | (sectionDistance << 8) | (centerDistance & 0xff);
+    }
+}
@@ -41,6 +41,16 @@ public class LapPosition {
         mCenterDistance = UNINITIALIZED;
     }
 
+    /** Init from precomputed values, used by baked tables which have no section polygons */
+    public void init(int sectionId, float sectionDistance, float centerDistance) {
+        mSectionId = sectionId;
+        mSectionPolygon = null;
+        mX = 0;
+        mY = 0;
+        mSectionDistance = sectionDistance;
+        mCenterDistance = centerDistance;
+    }
+
     public void copy(LapPosition other) {
         mSectionId = other.mSectionId;
         mSectionPolygon = other.mSectionPolygon;
@@ -18,63 +18,19 @@
  */
 package com.agateau.pixelwheels.map;
 
-import com.agateau.utils.Assert;
-import com.badlogic.gdx.math.Polygon;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Array;
-
 /** Can provide the position within a lap based on x, y (in tile pixels) */
-public class LapPositionTable {
-    private final Array<LapSection> mSections = new Array<>();
-
-    private static class LapSection {
-        private final int mSectionId;
-        private final Polygon mPolygon;
-        private final Warper mWarper = new Warper();
-
-        public LapSection(int sectionId, Polygon polygon) {
-            mSectionId = sectionId;
-            mPolygon = polygon;
-            float[] vertices = mPolygon.getTransformedVertices();
-            int verticeCount = vertices.length / 2;
-            Assert.check(
-                    verticeCount == 4,
-                    "Polygon " + sectionId + " must have 4 vertices, not " + verticeCount);
-            mWarper.setSource(
-                    vertices[0], vertices[1],
-                    vertices[2], vertices[3],
-                    vertices[4], vertices[5],
-                    vertices[6], vertices[7]);
-            mWarper.setDestination(
-                    0, -1,
-                    1, -1,
-                    1, 1,
-                    0, 1);
-        }
-
-        private final LapPosition mLapPosition = new LapPosition();
-
-        public LapPosition computePosition(float x, float y) {
-            Vector2 out = mWarper.warp(x, y);
-            mLapPosition.init(mSectionId, mPolygon, x, y, out.x);
-            return mLapPosition;
-        }
-    }
-
-    public void addSection(int section, Polygon polygon) {
-        mSections.add(new LapSection(section, polygon));
-    }
-
-    public LapPosition get(int x, int y) {
-        for (LapSection zone : mSections) {
-            if (zone.mPolygon.contains(x, y)) {
-                return zone.computePosition(x, y);
-            }
-        }
-        return null;
-    }
-
-    public int getSectionCount() {
-        return mSections.size;
-    }
+public interface LapPositionTable {
+    /**
+     * Returns the position at x, y, or null if x, y is not on the track. The returned instance is
+     * reused by the next call.
+     */
+    LapPosition get(int x, int y);
+
+    /**
+     * Same as get(x, y), but stores the position in @p out. Once the table is fully built, this can
+     * be called from several threads, as long as each thread uses its own @p out.
+     */
+    LapPosition get(int x, int y, LapPosition out);
+
+    int getSectionCount();
 }
@@ -19,8 +19,6 @@
 package com.agateau.pixelwheels.map;
 
 import com.agateau.utils.Assert;
-import com.agateau.utils.log.NLog;
-import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.maps.MapLayer;
 import com.badlogic.gdx.maps.MapObject;
 import com.badlogic.gdx.maps.MapObjects;
@@ -29,8 +27,10 @@ import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.math.Polygon;
 import com.badlogic.gdx.math.Polyline;
 import com.badlogic.gdx.utils.Array;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
  * Loads a LapPositionTable from a TiledMap. Parses the section segments defined in
@@ -49,6 +49,45 @@ public class LapPositionTableIO {
     }
 
     public static LapPositionTable load(TiledMap map) {
+        Array<Line> lines = loadLines(map);
+        PolygonLapPositionTable table = new PolygonLapPositionTable();
+        for (int idx = 0; idx < lines.size; ++idx) {
+            Line line1 = lines.get(idx);
+            Line line2 = lines.get((idx + 1) % lines.size);
+            float[] vertices = {
+                line1.x1, line1.y1,
+                line2.x1, line2.y1,
+                line2.x2, line2.y2,
+                line1.x2, line1.y2
+            };
+            Polygon polygon = new Polygon(vertices);
+            table.addSection(idx, polygon);
+        }
+        table.buildIndex();
+        return table;
+    }
+
+    /**
+     * Returns a checksum of the section lines of @p map. Baked tables store it, so that they can
+     * be discarded when the sections they have been computed from change.
+     */
+    public static int computeSectionChecksum(TiledMap map) {
+        Array<Line> lines = loadLines(map);
+        ByteBuffer buffer = ByteBuffer.allocate(lines.size * 5 * 4);
+        for (Line line : lines) {
+            buffer.putFloat(line.order);
+            buffer.putFloat(line.x1);
+            buffer.putFloat(line.y1);
+            buffer.putFloat(line.x2);
+            buffer.putFloat(line.y2);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array());
+        return (int) crc.getValue();
+    }
+
+    /** Returns the section lines of @p map, sorted by order */
+    private static Array<Line> loadLines(TiledMap map) {
         MapLayer layer = map.getLayers().get("Sections");
         Assert.check(layer != null, "No 'Sections' layer found");
         MapObjects objects = layer.getObjects();
@@ -88,42 +127,6 @@ public class LapPositionTableIO {
             lines.add(line);
         }
         lines.sort();
-
-        LapPositionTable table = new LapPositionTable();
-        for (int idx = 0; idx < lines.size; ++idx) {
-            Line line1 = lines.get(idx);
-            Line line2 = lines.get((idx + 1) % lines.size);
-            float[] vertices = {
-                line1.x1, line1.y1,
-                line2.x1, line2.y1,
-                line2.x2, line2.y2,
-                line1.x2, line1.y2
-            };
-            Polygon polygon = new Polygon(vertices);
-            table.addSection(idx, polygon);
-        }
-        return table;
-    }
-
-    public static Pixmap createPixmap(LapPositionTable table, int width, int height) {
-        NLog.i("Saving");
-        Pixmap pixmap = new Pixmap(width, height, Pixmap.Format.RGBA8888);
-        for (int y = 0; y < height; ++y) {
-            NLog.i("Saving %d/%d", y, height);
-            for (int x = 0; x < width; ++x) {
-                LapPosition pos = table.get(x, y);
-                int color;
-                if (pos == null) {
-                    color = 0;
-                } else {
-                    int r = (int) ((1 - Math.abs(pos.getCenterDistance())) * 255);
-                    int g = pos.getSectionId() * 255 / table.getSectionCount();
-                    int b = (int) (pos.getSectionDistance() * 255);
-                    color = (r << 24) | (g << 16) | (b << 8) | 0xff;
-                }
-                pixmap.drawPixel(x, height - 1 - y, color);
-            }
-        }
-        return pixmap;
+        return lines;
     }
 }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+/** Compares a LapPositionTable with a reference one, for example a baked table with its source */
+public class LapPositionTableValidator {
+    public static class Result {
+        public int sampleCount = 0;
+        /** Samples where only one of the tables returned a position */
+        public int edgeMismatchCount = 0;
+        /** Samples where both tables returned a position, but too far from each other */
+        public int valueMismatchCount = 0;
+
+        public float maxLapDistanceError = 0;
+        public float maxCenterDistanceError = 0;
+        /** Where maxLapDistanceError has been measured */
+        public int maxLapDistanceErrorX = -1;
+        public int maxLapDistanceErrorY = -1;
+
+        public boolean isValid(float maxEdgeMismatchRatio) {
+            return valueMismatchCount == 0
+                    && edgeMismatchCount <= sampleCount * maxEdgeMismatchRatio;
+        }
+
+        @Override
+        public String toString() {
+            return "samples="
+                    + sampleCount
+                    + " edgeMismatches="
+                    + edgeMismatchCount
+                    + " valueMismatches="
+                    + valueMismatchCount
+                    + " maxLapDistanceError="
+                    + maxLapDistanceError
+                    + " at ("
+                    + maxLapDistanceErrorX
+                    + ", "
+                    + maxLapDistanceErrorY
+                    + ")"
+                    + " maxCenterDistanceError="
+                    + maxCenterDistanceError;
+        }
+    }
+
+    private final float mLapDistanceTolerance;
+    private final float mCenterDistanceTolerance;
+    private int mStride = 1;
+    private int mOffset = 0;
+
+    /**
+     * @param tolerance maximum accepted difference, for both the lap distance (expressed in
+     *     sections) and the center distance
+     */
+    public LapPositionTableValidator(float tolerance) {
+        this(tolerance, tolerance);
+    }
+
+    /**
+     * @param lapDistanceTolerance maximum accepted difference for the lap distance, expressed in
+     *     sections
+     * @param centerDistanceTolerance maximum accepted difference for the center distance
+     */
+    public LapPositionTableValidator(float lapDistanceTolerance, float centerDistanceTolerance) {
+        mLapDistanceTolerance = lapDistanceTolerance;
+        mCenterDistanceTolerance = centerDistanceTolerance;
+    }
+
+    /** Only check one pixel every @p stride pixels in each direction */
+    public void setStride(int stride) {
+        mStride = stride;
+    }
+
+    /** Start checking at (@p offset, @p offset) instead of (0, 0) */
+    public void setOffset(int offset) {
+        mOffset = offset;
+    }
+
+    public Result validate(
+            LapPositionTable reference, LapPositionTable table, int width, int height) {
+        Result result = new Result();
+        int sectionCount = reference.getSectionCount();
+        for (int y = mOffset; y < height; y += mStride) {
+            for (int x = mOffset; x < width; x += mStride) {
+                ++result.sampleCount;
+                LapPosition expected = reference.get(x, y);
+                LapPosition actual = table.get(x, y);
+                if (expected == null || actual == null) {
+                    if (expected != actual) {
+                        ++result.edgeMismatchCount;
+                    }
+                    continue;
+                }
+                float lapDistanceError =
+                        Math.abs(actual.getLapDistance() - expected.getLapDistance());
+                // The finish line is both at 0 and at sectionCount
+                lapDistanceError = Math.min(lapDistanceError, sectionCount - lapDistanceError);
+                float centerDistanceError =
+                        Math.abs(actual.getCenterDistance() - expected.getCenterDistance());
+                if (lapDistanceError > result.maxLapDistanceError) {
+                    result.maxLapDistanceError = lapDistanceError;
+                    result.maxLapDistanceErrorX = x;
+                    result.maxLapDistanceErrorY = y;
+                }
+                result.maxCenterDistanceError =
+                        Math.max(result.maxCenterDistanceError, centerDistanceError);
+                if (lapDistanceError > mLapDistanceTolerance
+                        || centerDistanceError > mCenterDistanceTolerance) {
+                    ++result.valueMismatchCount;
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -24,16 +24,13 @@ import com.badlogic.gdx.maps.objects.RectangleMapObject;
 
 /** Provides instances of MapObjectWalker for a given MapObject */
 public class MapObjectWalkerFactory {
-    private static final RectangleMapObjectWalker sRectangleWalker = new RectangleMapObjectWalker();
-    private static final PolylineMapObjectWalker sPolylineWalker = new PolylineMapObjectWalker();
-
     public static MapObjectWalker get(MapObject object) {
-        // This assumes we do not create fillers from multiple threads
+        // Walkers are not shared, so that worlds can be created from multiple threads
         MapObjectWalker walker;
         if (object instanceof RectangleMapObject) {
-            walker = sRectangleWalker;
+            walker = new RectangleMapObjectWalker();
         } else if (object instanceof PolylineMapObject) {
-            walker = sPolylineWalker;
+            walker = new PolylineMapObjectWalker();
         } else {
             throw new RuntimeException("Unsupported MapObject type: " + object);
         }
@@ -31,6 +31,13 @@ public enum Material {
     AIR,
     ICE;
 
+    private static final Material[] sValues = values();
+
+    /** Like values()[ordinal], without allocating an array on each call */
+    public static Material fromOrdinal(int ordinal) {
+        return sValues[ordinal];
+    }
+
     public boolean isHole() {
         return this == DEEP_WATER;
     }
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * The material of the top-most tile of each cell of a set of layers, stored as Material ordinals,
+ * row by row, starting from the bottom.
+ *
+ * <p>The grid has the size of the first layer. Outside of it, the material is ROAD.
+ */
+class MaterialGrid {
+    private final byte[] mData;
+    private final int mWidth;
+    private final int mHeight;
+    private final float mTileWidth;
+    private final float mTileHeight;
+
+    /**
+     * @param layers the layers, from bottom to top
+     * @param materialForTileId the material of each tile, indexed by tile id
+     * @param tileWidth width of a tile, in world units
+     * @param tileHeight height of a tile, in world units
+     */
+    MaterialGrid(
+            Array<TiledMapTileLayer> layers,
+            Material[] materialForTileId,
+            float tileWidth,
+            float tileHeight) {
+        mWidth = layers.get(0).getWidth();
+        mHeight = layers.get(0).getHeight();
+        mTileWidth = tileWidth;
+        mTileHeight = tileHeight;
+        mData = new byte[mWidth * mHeight];
+        for (int ty = 0; ty < mHeight; ++ty) {
+            for (int tx = 0; tx < mWidth; ++tx) {
+                TiledMapTile tile = getTopTileAt(layers, tx, ty);
+                Material material = tile == null ? Material.ROAD : materialForTileId[tile.getId()];
+                mData[ty * mWidth + tx] = (byte) material.ordinal();
+            }
+        }
+    }
+
+    Material getMaterialAt(float x, float y) {
+        int tx = MathUtils.floor(x / mTileWidth);
+        int ty = MathUtils.floor(y / mTileHeight);
+        if (tx < 0 || ty < 0 || tx >= mWidth || ty >= mHeight) {
+            return Material.ROAD;
+        }
+        return Material.fromOrdinal(mData[ty * mWidth + tx]);
+    }
+
+    byte[] getData() {
+        return mData;
+    }
+
+    int getWidth() {
+        return mWidth;
+    }
+
+    int getHeight() {
+        return mHeight;
+    }
+
+    private static TiledMapTile getTopTileAt(Array<TiledMapTileLayer> layers, int tx, int ty) {
+        for (int idx = layers.size - 1; idx >= 0; idx--) {
+            TiledMapTileLayer.Cell cell = layers.get(idx).getCell(tx, ty);
+            if (cell != null) {
+                return cell.getTile();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.map;
+
+import com.agateau.utils.Assert;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Polygon;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Implementation of LapPositionTable which computes positions from the section polygons
+ *
+ * <p>To avoid testing all sections on each lookup, sections are indexed in a uniform grid: each
+ * cell lists the sections whose bounding rectangle overlaps it.
+ *
+ * <p>Once the index has been built, get(x, y, out) can be called from several threads.
+ */
+public class PolygonLapPositionTable implements LapPositionTable {
+    private static final int CELL_SIZE = 64;
+
+    private final Array<LapSection> mSections = new Array<>();
+
+    // Grid, stored as compressed rows: the sections overlapping cell N are
+    // mCellSections[mCellStarts[N]] to mCellSections[mCellStarts[N + 1] - 1], in section order
+    private boolean mIndexDirty = true;
+    private int mGridX;
+    private int mGridY;
+    private int mGridColumns;
+    private int mGridRows;
+    private int[] mCellStarts;
+    private int[] mCellSections;
+
+    private static class LapSection {
+        private final int mSectionId;
+        private final Polygon mPolygon;
+        private final Warper mWarper = new Warper();
+
+        public LapSection(int sectionId, Polygon polygon) {
+            mSectionId = sectionId;
+            mPolygon = polygon;
+            float[] vertices = mPolygon.getTransformedVertices();
+            int verticeCount = vertices.length / 2;
+            Assert.check(
+                    verticeCount == 4,
+                    "Polygon " + sectionId + " must have 4 vertices, not " + verticeCount);
+            mWarper.setSource(
+                    vertices[0], vertices[1],
+                    vertices[2], vertices[3],
+                    vertices[4], vertices[5],
+                    vertices[6], vertices[7]);
+            mWarper.setDestination(
+                    0, -1,
+                    1, -1,
+                    1, 1,
+                    0, 1);
+            mWarper.computeWarp();
+        }
+
+        public LapPosition computePosition(float x, float y, LapPosition out) {
+            out.init(mSectionId, mPolygon, x, y, mWarper.warpX(x, y));
+            return out;
+        }
+    }
+
+    private final LapPosition mLapPosition = new LapPosition();
+
+    public void addSection(int section, Polygon polygon) {
+        mSections.add(new LapSection(section, polygon));
+        mIndexDirty = true;
+    }
+
+    @Override
+    public LapPosition get(int x, int y) {
+        return get(x, y, mLapPosition);
+    }
+
+    @Override
+    public LapPosition get(int x, int y, LapPosition out) {
+        if (mIndexDirty) {
+            buildIndex();
+        }
+        if (x < mGridX || y < mGridY) {
+            return null;
+        }
+        int column = (x - mGridX) / CELL_SIZE;
+        int row = (y - mGridY) / CELL_SIZE;
+        if (column >= mGridColumns || row >= mGridRows) {
+            return null;
+        }
+        int cell = row * mGridColumns + column;
+        for (int idx = mCellStarts[cell], end = mCellStarts[cell + 1]; idx < end; ++idx) {
+            LapSection zone = mSections.get(mCellSections[idx]);
+            if (zone.mPolygon.contains(x, y)) {
+                return zone.computePosition(x, y, out);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Builds the grid used by get(). Called automatically by get() if sections have been added
+     * since the last call, call it explicitly to avoid paying the cost on the first lookup.
+     */
+    public void buildIndex() {
+        mIndexDirty = false;
+        if (mSections.size == 0) {
+            mGridColumns = 0;
+            mGridRows = 0;
+            return;
+        }
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (LapSection section : mSections) {
+            Rectangle rect = section.mPolygon.getBoundingRectangle();
+            minX = Math.min(minX, MathUtils.floor(rect.x));
+            minY = Math.min(minY, MathUtils.floor(rect.y));
+            maxX = Math.max(maxX, MathUtils.ceil(rect.x + rect.width));
+            maxY = Math.max(maxY, MathUtils.ceil(rect.y + rect.height));
+        }
+        mGridX = minX;
+        mGridY = minY;
+        mGridColumns = (maxX - minX) / CELL_SIZE + 1;
+        mGridRows = (maxY - minY) / CELL_SIZE + 1;
+
+        // First pass: count sections per cell, second pass: fill cells
+        int cellCount = mGridColumns * mGridRows;
+        mCellStarts = new int[cellCount + 1];
+        for (int idx = 0; idx < mSections.size; ++idx) {
+            forEachCell(idx, (cell, sectionIdx) -> ++mCellStarts[cell + 1]);
+        }
+        for (int cell = 0; cell < cellCount; ++cell) {
+            mCellStarts[cell + 1] += mCellStarts[cell];
+        }
+        mCellSections = new int[mCellStarts[cellCount]];
+        final int[] fillCounts = new int[cellCount];
+        for (int idx = 0; idx < mSections.size; ++idx) {
+            forEachCell(
+                    idx,
+                    (cell, sectionIdx) -> {
+                        mCellSections[mCellStarts[cell] + fillCounts[cell]] = sectionIdx;
+                        ++fillCounts[cell];
+                    });
+        }
+    }
+
+    private interface CellFunction {
+        void apply(int cell, int sectionIdx);
+    }
+
+    /** Calls function for all the cells overlapped by the bounding rectangle of a section */
+    private void forEachCell(int sectionIdx, CellFunction function) {
+        Rectangle rect = mSections.get(sectionIdx).mPolygon.getBoundingRectangle();
+        int column1 = (MathUtils.floor(rect.x) - mGridX) / CELL_SIZE;
+        int row1 = (MathUtils.floor(rect.y) - mGridY) / CELL_SIZE;
+        int column2 = (MathUtils.ceil(rect.x + rect.width) - mGridX) / CELL_SIZE;
+        int row2 = (MathUtils.ceil(rect.y + rect.height) - mGridY) / CELL_SIZE;
+        for (int row = row1; row <= row2; ++row) {
+            for (int column = column1; column <= column2; ++column) {
+                function.apply(row * mGridColumns + column, sectionIdx);
+            }
+        }
+    }
+
+    @Override
+    public int getSectionCount() {
+        return mSections.size;
+    }
+}
@@ -48,7 +48,7 @@ class PolylineMapObjectWalker implements MapObjectWalker {
         }
     }
 
-    private static final Vector2 mTmp = new Vector2();
+    private final Vector2 mTmp = new Vector2();
 
     private void walkVector(Vector2 v1, Vector2 v2, float stepSize, WalkFunction function) {
         mTmp.set(v2).sub(v1);
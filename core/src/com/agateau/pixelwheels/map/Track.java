@@ -22,7 +22,9 @@ import com.agateau.pixelwheels.Constants;
 import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.pixelwheels.utils.OrientedPoint;
 import com.agateau.utils.Assert;
+import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.maps.MapLayer;
@@ -50,6 +52,7 @@ public class Track implements Disposable {
 
     private TiledMap mMap;
     private Material[] mMaterialForTileId;
+    private MaterialGrid mMaterialGrid;
     private int mStartTileId = -1;
     private Array<TiledMapTileLayer> mBackgroundLayers;
     private Array<TiledMapTileLayer> mForegroundLayers;
@@ -79,15 +82,21 @@ public class Track implements Disposable {
             return;
         }
         String path = Gdx.files.internal("maps/" + mId + ".tmx").path();
-        mMap = sMapLoader.load(path, sMapLoaderParameters);
+        // The loader is shared, and the textures it creates are registered in a static list, so
+        // serialize loading in case several worlds are created from different threads
+        synchronized (sMapLoader) {
+            mMap = sMapLoader.load(path, sMapLoaderParameters);
+        }
         mMaterialForTileId = computeMaterialForTileId();
         findSpecialTileIds();
         findLayers();
 
         mTileWidth = Constants.UNIT_FOR_PIXEL * mBackgroundLayers.get(0).getTileWidth();
         mTileHeight = Constants.UNIT_FOR_PIXEL * mBackgroundLayers.get(0).getTileHeight();
+        mMaterialGrid =
+                new MaterialGrid(mBackgroundLayers, mMaterialForTileId, mTileWidth, mTileHeight);
 
-        mLapPositionTable = LapPositionTableIO.load(mMap);
+        mLapPositionTable = loadLapPositionTable();
         readWaypoints();
 
         String bgColorText = mMap.getProperties().get("backgroundcolor", "#808080", String.class);
@@ -95,6 +104,27 @@ public class Track implements Disposable {
         mBackgroundColor = Color.valueOf(bgColorText);
     }
 
+    /**
+     * Use the baked table generated by LapPositionTableBaker if there is one, and it has been
+     * computed from the sections of the map. Falls back to computing positions from the map
+     * sections otherwise.
+     */
+    private LapPositionTable loadLapPositionTable() {
+        FileHandle handle =
+                Gdx.files.internal("maps/" + mId + BakedLapPositionTable.FILE_EXTENSION);
+        if (handle.exists()) {
+            BakedLapPositionTable table = BakedLapPositionTable.read(handle);
+            if (table != null) {
+                int checksum = LapPositionTableIO.computeSectionChecksum(mMap);
+                if (table.getSourceChecksum() == checksum) {
+                    return table;
+                }
+                NLog.e("%s is out of date (sections have changed), ignoring it", handle.path());
+            }
+        }
+        return LapPositionTableIO.load(mMap);
+    }
+
     private void findLayers() {
         mBackgroundLayers = findLayersMatching("bg");
         Assert.check(mBackgroundLayers.size > 0, "No background layers found");
@@ -203,18 +233,6 @@ public class Track implements Disposable {
         Assert.check(mStartTileId != -1, "No start id");
     }
 
-    private TiledMapTile getTopTileAt(Array<TiledMapTileLayer> layers, float x, float y) {
-        int tx = MathUtils.floor(x / mTileWidth);
-        int ty = MathUtils.floor(y / mTileHeight);
-        for (int idx = layers.size - 1; idx >= 0; idx--) {
-            TiledMapTileLayer.Cell cell = layers.get(idx).getCell(tx, ty);
-            if (cell != null) {
-                return cell.getTile();
-            }
-        }
-        return null;
-    }
-
     /**
      * Returns a "cell id" for the given screen coordinates.
      *
@@ -231,16 +249,32 @@ public class Track implements Disposable {
     }
 
     public Material getMaterialAt(float x, float y) {
-        TiledMapTile tile = getTopTileAt(mBackgroundLayers, x, y);
-        if (tile == null) {
-            return Material.ROAD;
-        }
-        return mMaterialForTileId[tile.getId()];
+        return mMaterialGrid.getMaterialAt(x, y);
+    }
+
+    /**
+     * Returns the material grid: the Material ordinal of the top-most background tile of each cell,
+     * row by row, starting from the bottom. Must not be modified.
+     */
+    public byte[] getMaterialGrid() {
+        return mMaterialGrid.getData();
+    }
+
+    /** Width of the material grid, in tiles */
+    public int getMaterialGridWidth() {
+        return mMaterialGrid.getWidth();
+    }
+
+    /** Height of the material grid, in tiles */
+    public int getMaterialGridHeight() {
+        return mMaterialGrid.getHeight();
     }
 
     @Override
     public void dispose() {
-        mMap.dispose();
+        synchronized (sMapLoader) {
+            mMap.dispose();
+        }
         mMap = null;
     }
 
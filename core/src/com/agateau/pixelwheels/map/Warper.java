@@ -204,6 +204,19 @@ class Warper {
         return mOutput;
     }
 
+    /**
+     * Returns the x coordinate of the warped point. Unlike warp(), does not modify the instance
+     * (once computeWarp() has been called), so it can be called from several threads.
+     */
+    public float warpX(float srcX, float srcY) {
+        if (dirty) {
+            computeWarp();
+        }
+        final float result0 = srcX * warpMat[0] + srcY * warpMat[4] + warpMat[12];
+        final float result3 = srcX * warpMat[3] + srcY * warpMat[7] + warpMat[15];
+        return result0 / result3;
+    }
+
     private static void warp(float[] mat, float srcX, float srcY, Vector2 output) {
         final float result0 = srcX * mat[0] + srcY * mat[4] + mat[12];
         final float result1 = srcX * mat[1] + srcY * mat[5] + mat[13];
@@ -31,7 +31,8 @@ import com.badlogic.gdx.utils.Array;
 
 /** Holds all the waypoints used by AI players */
 public class WaypointStore {
-    private static final OrientedPoint tmpPoint = new OrientedPoint();
+    private final OrientedPoint mTmpPoint = new OrientedPoint();
+    private final Vector2 mTmpVector = new Vector2();
 
     private static class WaypointInfo implements Comparable {
         float lapDistance;
@@ -45,6 +46,31 @@ public class WaypointStore {
     }
 
     private final Array<WaypointInfo> mWaypointInfos = new Array<>();
+    // Lap distances of mWaypointInfos, sorted, for getWaypointIndex()
+    private float[] mLapDistances = new float[0];
+
+    /**
+     * Remembers the last waypoint index returned for a racer, to speed up lookups since the lap
+     * distance of a racer changes little between two frames
+     */
+    public class Cursor {
+        private static final int MAX_STEPS = 2;
+        private int mIndex = -1;
+
+        /** Same as WaypointStore.getWaypointIndex(), but faster for successive lap distances */
+        public int getWaypointIndex(float lapDistance) {
+            if (mIndex >= 0 && mIndex < mLapDistances.length) {
+                for (int step = 0; step < MAX_STEPS; ++step) {
+                    if (isWaypointIndex(mIndex, lapDistance)) {
+                        return mIndex;
+                    }
+                    mIndex = getNextIndex(mIndex);
+                }
+            }
+            mIndex = WaypointStore.this.getWaypointIndex(lapDistance);
+            return mIndex;
+        }
+    }
 
     public void read(MapLayer layer, LapPositionTable lapPositionTable) {
         final float U = Constants.UNIT_FOR_PIXEL;
@@ -63,6 +89,14 @@ public class WaypointStore {
             mWaypointInfos.add(info);
         }
         mWaypointInfos.sort();
+        mLapDistances = new float[mWaypointInfos.size];
+        for (int idx = 0; idx < mWaypointInfos.size; ++idx) {
+            mLapDistances[idx] = mWaypointInfos.get(idx).lapDistance;
+        }
+    }
+
+    public Cursor createCursor() {
+        return new Cursor();
     }
 
     public Vector2 getWaypoint(int index) {
@@ -86,7 +120,7 @@ public class WaypointStore {
         int prevIdx = getPreviousIndex(nextIdx);
         Vector2 prev = mWaypointInfos.get(prevIdx).waypoint;
         Vector2 next = mWaypointInfos.get(nextIdx).waypoint;
-        Vector2 projected = AgcMathUtils.project(pos, prev, next);
+        Vector2 projected = AgcMathUtils.project(pos, prev, next, mTmpVector);
         float waypointSquareLength = prev.dst2(next);
         if (projected.dst2(prev) > waypointSquareLength) {
             // projected is after the [prev, next] segment
@@ -95,18 +129,37 @@ public class WaypointStore {
             // projected is before the [prev, next] segment
             projected.set(prev);
         }
-        tmpPoint.x = projected.x;
-        tmpPoint.y = projected.y;
-        tmpPoint.angle = AgcMathUtils.normalizeAngle(AgcMathUtils.segmentAngle(prev, next));
-        return tmpPoint;
+        mTmpPoint.x = projected.x;
+        mTmpPoint.y = projected.y;
+        mTmpPoint.angle = AgcMathUtils.normalizeAngle(AgcMathUtils.segmentAngle(prev, next));
+        return mTmpPoint;
     }
 
+    /**
+     * Returns the index of the first waypoint after @p lapDistance. Wraps to 0 when @p lapDistance
+     * is after the last waypoint.
+     */
     public int getWaypointIndex(float lapDistance) {
-        for (int idx = 0; idx < mWaypointInfos.size; ++idx) {
-            if (lapDistance < mWaypointInfos.get(idx).lapDistance) {
-                return idx;
+        // Binary search for the first lap distance greater than lapDistance
+        int low = 0;
+        int high = mLapDistances.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lapDistance < mLapDistances[middle]) {
+                high = middle;
+            } else {
+                low = middle + 1;
             }
         }
-        return 0;
+        return low < mLapDistances.length ? low : 0;
+    }
+
+    /** Returns true if getWaypointIndex(lapDistance) would return @p index */
+    private boolean isWaypointIndex(int index, float lapDistance) {
+        if (index == 0) {
+            return lapDistance < mLapDistances[0]
+                    || lapDistance >= mLapDistances[mLapDistances.length - 1];
+        }
+        return mLapDistances[index - 1] <= lapDistance && lapDistance < mLapDistances[index];
     }
 }
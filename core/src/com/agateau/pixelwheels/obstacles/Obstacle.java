@@ -62,12 +62,22 @@ class Obstacle extends GameObjectAdapter implements Disposable {
                         | CollisionCategories.EXPLOSABLE);
     }
 
+    Body getBody() {
+        return mBody;
+    }
+
+    /** Applies drag to the body. Called by ObstacleActivityManager, only for dynamic obstacles */
     @Override
     public void act(float delta) {
         Box2DUtils.applyDrag(mBody, LINEAR_DRAG);
         Box2DUtils.applyCircularDrag(mBody, ANGULAR_DRAG);
     }
 
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.SHADOWS.mask() | ZLevel.OBSTACLES.mask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         if (zLevel == ZLevel.OBSTACLES) {
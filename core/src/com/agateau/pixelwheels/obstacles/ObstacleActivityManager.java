@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.obstacles;
+
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.ZLevel;
+import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
+import com.agateau.pixelwheels.racescreen.Collidable;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Makes the dynamic obstacles act, on behalf of the game world.
+ *
+ * <p>Obstacles are passive game objects, so the world does not call their act() method. This object
+ * does it, but only for the dynamic obstacles whose body is awake. At regular intervals it puts to
+ * sleep the almost still obstacles which are far from any racer or projectile (the Collidable
+ * active game objects). Putting a body to sleep resets its velocity, so moving obstacles are left
+ * to Box2D, which puts them to sleep once they have stopped. Box2D wakes them up again when
+ * something hits them.
+ */
+public class ObstacleActivityManager extends GameObjectAdapter {
+    /** How often, in seconds, distant obstacles are put to sleep */
+    static final float SLEEP_CHECK_INTERVAL = 0.5f;
+
+    /** Obstacles moving faster than this, in m/s, are never put to sleep */
+    static final float SLEEP_MAX_LINEAR_SPEED = 0.1f;
+
+    /** Obstacles rotating faster than this, in rad/s, are never put to sleep */
+    static final float SLEEP_MAX_ANGULAR_SPEED = 0.1f;
+
+    private final GameWorld mGameWorld;
+    private final Array<Obstacle> mObstacles = new Array<>();
+    private float mTimeSinceSleepCheck = 0;
+    private int mActingCount = 0;
+
+    ObstacleActivityManager(GameWorld gameWorld) {
+        mGameWorld = gameWorld;
+    }
+
+    void addObstacle(Obstacle obstacle) {
+        mObstacles.add(obstacle);
+    }
+
+    /** Number of obstacles which acted during the last call to act() */
+    int getActingCount() {
+        return mActingCount;
+    }
+
+    @Override
+    public void act(float delta) {
+        mTimeSinceSleepCheck += delta;
+        if (mTimeSinceSleepCheck >= SLEEP_CHECK_INTERVAL) {
+            mTimeSinceSleepCheck = 0;
+            putDistantObstaclesToSleep();
+        }
+
+        mActingCount = 0;
+        for (int idx = 0, n = mObstacles.size; idx < n; ++idx) {
+            Obstacle obstacle = mObstacles.get(idx);
+            if (obstacle.getBody().isAwake()) {
+                obstacle.act(delta);
+                ++mActingCount;
+            }
+        }
+    }
+
+    private void putDistantObstaclesToSleep() {
+        float radius = GamePlay.instance.viewportWidth;
+        float radius2 = radius * radius;
+        Array<GameObject> gameObjects = mGameWorld.getActiveGameObjects();
+        for (int idx = 0, n = mObstacles.size; idx < n; ++idx) {
+            Body body = mObstacles.get(idx).getBody();
+            if (!body.isAwake() || !isAlmostStill(body)) {
+                continue;
+            }
+            float x = body.getPosition().x;
+            float y = body.getPosition().y;
+            boolean isNear = false;
+            for (int objectIdx = 0; objectIdx < gameObjects.size; ++objectIdx) {
+                GameObject object = gameObjects.get(objectIdx);
+                if (!(object instanceof Collidable)) {
+                    continue;
+                }
+                float dx = object.getX() - x;
+                float dy = object.getY() - y;
+                if (dx * dx + dy * dy < radius2) {
+                    isNear = true;
+                    break;
+                }
+            }
+            if (!isNear) {
+                body.setAwake(false);
+            }
+        }
+    }
+
+    private static boolean isAlmostStill(Body body) {
+        return body.getLinearVelocity().len2() < SLEEP_MAX_LINEAR_SPEED * SLEEP_MAX_LINEAR_SPEED
+                && Math.abs(body.getAngularVelocity()) < SLEEP_MAX_ANGULAR_SPEED;
+    }
+
+    @Override
+    public int getZLevelMask() {
+        return 0;
+    }
+
+    @Override
+    public void draw(Batch batch, ZLevel zLevel) {}
+
+    @Override
+    public float getX() {
+        return 0;
+    }
+
+    @Override
+    public float getY() {
+        return 0;
+    }
+}
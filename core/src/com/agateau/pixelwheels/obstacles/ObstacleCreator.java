@@ -29,15 +29,17 @@ import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.agateau.pixelwheels.utils.Box2DUtils;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.maps.MapObject;
-import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
-import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.physics.box2d.Shape;
 import java.util.HashMap;
 
 /** Helper class to create GameObjects and Box2D bodies from the Obstacles layer of a map */
 public class ObstacleCreator {
     private final HashMap<String, ObstacleDef> mObstacleDefs = new HashMap<>();
     private final HashMap<ObstacleDef, BodyDef> mBodyDefs = new HashMap<>();
+    private final StaticObstacleMerger mStaticObstacleMerger = new StaticObstacleMerger();
+    private ObstacleActivityManager mActivityManager;
+    private StaticObstacleDrawList mStaticObstacleDrawList;
 
     public void addObstacleDef(ObstacleDef obstacleDef) {
         mObstacleDefs.put(obstacleDef.id, obstacleDef);
@@ -49,12 +51,18 @@ public class ObstacleCreator {
         mBodyDefs.put(obstacleDef, bodyDef);
     }
 
+    /**
+     * Creates the obstacles for mapObject.
+     *
+     * <p>Static obstacles and borders are only collected: call finish() once all the map objects
+     * have been passed to create() to create their bodies.
+     */
     public void create(
             GameWorld gameWorld, TextureRegionProvider textureRegionProvider, MapObject mapObject) {
         String id = MapUtils.getObstacleId(mapObject);
         if (id == null) {
             // Special case: an obstacle with no id is a border
-            createBorder(gameWorld.getBox2DWorld(), mapObject);
+            addBorder(mapObject);
             return;
         }
         ObstacleDef obstacleDef = mObstacleDefs.get(id);
@@ -65,7 +73,13 @@ public class ObstacleCreator {
                 obstacleRegion.getRegionWidth(),
                 obstacleRegion.getRegionHeight(),
                 (x, y, angle) -> {
-                    bodyDef.position.set(x, y).scl(Constants.UNIT_FOR_PIXEL);
+                    x *= Constants.UNIT_FOR_PIXEL;
+                    y *= Constants.UNIT_FOR_PIXEL;
+                    if (!obstacleDef.dynamic) {
+                        addStaticObstacle(gameWorld, obstacleDef, obstacleRegion, x, y, angle);
+                        return;
+                    }
+                    bodyDef.position.set(x, y);
                     bodyDef.angle = angle;
                     Obstacle obstacle =
                             new Obstacle(
@@ -73,18 +87,64 @@ public class ObstacleCreator {
                                     textureRegionProvider,
                                     obstacleDef,
                                     bodyDef);
-                    gameWorld.addGameObject(obstacle);
+                    gameWorld.addPassiveGameObject(obstacle);
+                    getActivityManager(gameWorld).addObstacle(obstacle);
                 });
     }
 
-    private static void createBorder(World world, MapObject mapObject) {
-        Body body = Box2DUtils.createStaticBodyForMapObject(world, mapObject);
-        Box2DUtils.setCollisionInfo(
-                body,
+    /**
+     * Creates the bodies of the static obstacles and borders collected by create(): their fixtures
+     * are merged into one body per chunk of the track
+     */
+    public void finish(GameWorld gameWorld) {
+        mStaticObstacleMerger.createBodies(gameWorld.getBox2DWorld());
+    }
+
+    private ObstacleActivityManager getActivityManager(GameWorld gameWorld) {
+        if (mActivityManager == null) {
+            mActivityManager = new ObstacleActivityManager(gameWorld);
+            gameWorld.addGameObject(mActivityManager);
+        }
+        return mActivityManager;
+    }
+
+    private StaticObstacleDrawList getStaticObstacleDrawList(GameWorld gameWorld) {
+        if (mStaticObstacleDrawList == null) {
+            mStaticObstacleDrawList = new StaticObstacleDrawList();
+            gameWorld.addPassiveGameObject(mStaticObstacleDrawList);
+        }
+        return mStaticObstacleDrawList;
+    }
+
+    private void addStaticObstacle(
+            GameWorld gameWorld,
+            ObstacleDef obstacleDef,
+            TextureRegion region,
+            float x,
+            float y,
+            float angle) {
+        Shape shape = Box2DUtils.createBox2DShape(obstacleDef.shape, Constants.UNIT_FOR_PIXEL);
+        Box2DUtils.transformShape(shape, x, y, angle);
+        mStaticObstacleMerger.addShape(
+                shape,
+                CollisionCategories.SOLID_BODIES,
+                CollisionCategories.WALL
+                        | CollisionCategories.RACER
+                        | CollisionCategories.RACER_BULLET
+                        | CollisionCategories.EXPLOSABLE,
+                0,
+                obstacleDef);
+        getStaticObstacleDrawList(gameWorld).addObstacle(region, x, y, angle);
+    }
+
+    private void addBorder(MapObject mapObject) {
+        mStaticObstacleMerger.addShape(
+                Box2DUtils.createShapeForMapObject(mapObject),
                 CollisionCategories.WALL,
                 CollisionCategories.RACER
                         | CollisionCategories.EXPLOSABLE
-                        | CollisionCategories.RACER_BULLET);
-        Box2DUtils.setBodyRestitution(body, GamePlay.instance.borderRestitution / 10.0f);
+                        | CollisionCategories.RACER_BULLET,
+                GamePlay.instance.borderRestitution / 10.0f,
+                null);
     }
 }
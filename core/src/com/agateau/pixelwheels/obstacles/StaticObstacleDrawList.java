@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.obstacles;
+
+import com.agateau.pixelwheels.ZLevel;
+import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
+import com.agateau.pixelwheels.racescreen.RecordingBatch;
+import com.agateau.pixelwheels.utils.BodyRegionDrawer;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+
+/**
+ * Draws all the static obstacles of a track.
+ *
+ * <p>Static obstacles never move, so their quads and the quads of their shadows are recorded once,
+ * when the track is loaded, and replayed as is at each frame.
+ */
+public class StaticObstacleDrawList extends GameObjectAdapter {
+    private final RecordingBatch mShadowBatch = new RecordingBatch();
+    private final RecordingBatch mObstacleBatch = new RecordingBatch();
+    private final BodyRegionDrawer mBodyRegionDrawer = new BodyRegionDrawer();
+
+    StaticObstacleDrawList() {
+        mShadowBatch.begin();
+        mObstacleBatch.begin();
+        mBodyRegionDrawer.setZ(-0.1f);
+    }
+
+    /** Adds an obstacle centered on (x, y), rotated by angle radians */
+    void addObstacle(TextureRegion region, float x, float y, float angle) {
+        mBodyRegionDrawer.setBatch(mShadowBatch);
+        mBodyRegionDrawer.drawShadow(x, y, angle, region);
+        mBodyRegionDrawer.setBatch(mObstacleBatch);
+        mBodyRegionDrawer.draw(x, y, angle, region);
+    }
+
+    public int getObstacleCount() {
+        return mObstacleBatch.getQuadCount();
+    }
+
+    @Override
+    public void act(float delta) {}
+
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.SHADOWS.mask() | ZLevel.OBSTACLES.mask();
+    }
+
+    @Override
+    public void draw(Batch batch, ZLevel zLevel) {
+        if (zLevel == ZLevel.OBSTACLES) {
+            mObstacleBatch.replay(batch, 0, mObstacleBatch.getQuadCount());
+        } else if (zLevel == ZLevel.SHADOWS) {
+            mShadowBatch.replay(batch, 0, mShadowBatch.getQuadCount());
+        }
+    }
+
+    // The draw list covers the whole track, so it has no meaningful position
+    @Override
+    public float getX() {
+        return 0;
+    }
+
+    @Override
+    public float getY() {
+        return 0;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.obstacles;
+
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+
+/**
+ * Merges the shapes of static obstacles and borders into one compound static body per chunk of
+ * CHUNK_SIZE x CHUNK_SIZE world units.
+ *
+ * <p>Each fixture keeps its own collision filter, restitution and user data.
+ */
+class StaticObstacleMerger {
+    /** Size of a chunk, in world units */
+    static final float CHUNK_SIZE = 16;
+
+    private static class ShapeInfo {
+        Shape shape;
+        int categoryBits;
+        int maskBits;
+        float restitution;
+        Object userData;
+    }
+
+    private static class Chunk {
+        final int x;
+        final int y;
+        final Array<ShapeInfo> shapeInfos = new Array<>();
+
+        Chunk(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private final IntMap<Chunk> mChunkForKey = new IntMap<>();
+    // Kept in insertion order so that bodies are always created in the same order
+    private final Array<Chunk> mChunks = new Array<>();
+    private final Vector2 mTmp = new Vector2();
+
+    /**
+     * Adds a shape, in world coordinates. The merger takes ownership of the shape: it is disposed
+     * by createBodies()
+     */
+    void addShape(Shape shape, int categoryBits, int maskBits, float restitution, Object userData) {
+        ShapeInfo info = new ShapeInfo();
+        info.shape = shape;
+        info.categoryBits = categoryBits;
+        info.maskBits = maskBits;
+        info.restitution = restitution;
+        info.userData = userData;
+
+        Vector2 anchor = getShapeAnchor(shape);
+        int chunkX = MathUtils.floor(anchor.x / CHUNK_SIZE);
+        int chunkY = MathUtils.floor(anchor.y / CHUNK_SIZE);
+        int key = ((chunkX & 0xffff) << 16) | (chunkY & 0xffff);
+        Chunk chunk = mChunkForKey.get(key);
+        if (chunk == null) {
+            chunk = new Chunk(chunkX, chunkY);
+            mChunkForKey.put(key, chunk);
+            mChunks.add(chunk);
+        }
+        chunk.shapeInfos.add(info);
+    }
+
+    /** Creates one static body per chunk, and returns them */
+    Array<Body> createBodies(World world) {
+        Array<Body> bodies = new Array<>();
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        FixtureDef fixtureDef = new FixtureDef();
+        for (Chunk chunk : mChunks) {
+            bodyDef.position.set(chunk.x * CHUNK_SIZE, chunk.y * CHUNK_SIZE);
+            Body body = world.createBody(bodyDef);
+            for (ShapeInfo info : chunk.shapeInfos) {
+                // Make the shape relative to the body
+                Box2DUtils.transformShape(info.shape, -bodyDef.position.x, -bodyDef.position.y, 0);
+                fixtureDef.shape = info.shape;
+                fixtureDef.restitution = info.restitution;
+                fixtureDef.filter.categoryBits = (short) info.categoryBits;
+                fixtureDef.filter.maskBits = (short) info.maskBits;
+                Fixture fixture = body.createFixture(fixtureDef);
+                fixture.setUserData(info.userData);
+                info.shape.dispose();
+            }
+            bodies.add(body);
+        }
+        mChunks.clear();
+        mChunkForKey.clear();
+        return bodies;
+    }
+
+    /** Returns the point used to decide which chunk a shape belongs to */
+    private Vector2 getShapeAnchor(Shape shape) {
+        if (shape instanceof CircleShape) {
+            return mTmp.set(((CircleShape) shape).getPosition());
+        }
+        PolygonShape polygonShape = (PolygonShape) shape;
+        Vector2 vertex = new Vector2();
+        mTmp.setZero();
+        int count = polygonShape.getVertexCount();
+        for (int idx = 0; idx < count; ++idx) {
+            polygonShape.getVertex(idx, vertex);
+            mTmp.add(vertex);
+        }
+        return mTmp.scl(1f / count);
+    }
+}
@@ -18,7 +18,6 @@
  */
 package com.agateau.pixelwheels.racer;
 
-import com.agateau.pixelwheels.BodyIdentifier;
 import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.bonus.Bonus;
@@ -27,12 +26,9 @@ import com.agateau.pixelwheels.map.Track;
 import com.agateau.pixelwheels.map.WaypointStore;
 import com.agateau.pixelwheels.stats.GameStats;
 import com.agateau.pixelwheels.stats.TrackStats;
-import com.agateau.pixelwheels.utils.ClosestBodyFinder;
 import com.agateau.utils.AgcMathUtils;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.physics.box2d.Body;
-import com.badlogic.gdx.physics.box2d.World;
 
 /** An AI pilot */
 public class AIPilot implements Pilot {
@@ -43,13 +39,6 @@ public class AIPilot implements Pilot {
     // How much of the vehicle width to move the target to avoid a mine
     private static final float MINE_AVOIDANCE_FACTOR = 2;
 
-    class MineFilter implements ClosestBodyFinder.BodyFilter {
-        @Override
-        public boolean acceptBody(Body body) {
-            return BodyIdentifier.isStaticObstacle(body);
-        }
-    }
-
     private enum State {
         NORMAL,
         BLOCKED,
@@ -80,8 +69,7 @@ public class AIPilot implements Pilot {
     private final Track mTrack;
     private final Racer mRacer;
 
-    private final MineFilter mMineFilter = new MineFilter();
-    private final ClosestBodyFinder mClosestBodyFinder = new ClosestBodyFinder(mMineFilter);
+    private final ObstaclePerception.Hit mObstacleHit = new ObstaclePerception.Hit();
 
     private State mState = State.NORMAL;
     private float mBlockedDuration = 0;
@@ -89,11 +77,15 @@ public class AIPilot implements Pilot {
 
     private final Target mTarget = new Target();
     private final Target mNextTarget = new Target();
+    private final WaypointStore.Cursor mWaypointCursor;
+
+    private GameStats mGameStats = sDummyGameStats;
 
     public AIPilot(GameWorld gameWorld, Track track, Racer racer) {
         mGameWorld = gameWorld;
         mTrack = track;
         mRacer = racer;
+        mWaypointCursor = track.getWaypointStore().createCursor();
     }
 
     Vector2 getTargetPosition() {
@@ -144,11 +136,19 @@ public class AIPilot implements Pilot {
 
                 @Override
                 public void save() {}
+
+                @Override
+                public void flush() {}
             };
 
     @Override
     public GameStats getGameStats() {
-        return sDummyGameStats;
+        return mGameStats;
+    }
+
+    /** Lets simulations collect the events of AI racers, which are not recorded by default */
+    public void setGameStats(GameStats gameStats) {
+        mGameStats = gameStats;
     }
 
     private void actNormal(float dt) {
@@ -229,7 +229,7 @@ public class AIPilot implements Pilot {
         WaypointStore store = mTrack.getWaypointStore();
 
         // Start at the previous index, as a fallback in case the next waypoints are not visible
-        int index = store.getPreviousIndex(store.getWaypointIndex(lapDistance));
+        int index = store.getPreviousIndex(mWaypointCursor.getWaypointIndex(lapDistance));
         mTarget.reset();
         for (int i = -1; i < MAX_FORWARD_WAYPOINTS; ++i, index = store.getNextIndex(index)) {
             mNextTarget.position.set(store.getWaypoint(index));
@@ -247,7 +247,7 @@ public class AIPilot implements Pilot {
     }
 
     private void updateNextTarget() {
-        World world = mGameWorld.getBox2DWorld();
+        ObstaclePerception perception = mGameWorld.getObstaclePerception();
         Vector2 halfWidth = mTmpVector1;
         Vector2 position = mTmpVector2;
         Vector2 adjustedTargetPos = mTmpVector3;
@@ -258,11 +258,10 @@ public class AIPilot implements Pilot {
         // Check on the right
         position.set(mRacer.getPosition()).add(halfWidth);
         adjustedTargetPos.set(mNextTarget.position).add(halfWidth);
-        Body body = mClosestBodyFinder.find(world, position, adjustedTargetPos);
-        if (body != null) {
-            if (BodyIdentifier.isMine(body)) {
+        if (perception.findClosestObstacle(position, adjustedTargetPos, mObstacleHit)) {
+            if (mObstacleHit.isMine) {
                 halfWidth.scl(-2 * MINE_AVOIDANCE_FACTOR);
-                mNextTarget.position.set(body.getPosition()).add(halfWidth);
+                mNextTarget.position.set(mObstacleHit.minePosition).add(halfWidth);
                 mNextTarget.score += Target.MINE_BETWEEN;
             } else {
                 mNextTarget.reset();
@@ -273,11 +272,10 @@ public class AIPilot implements Pilot {
         // Check on the left
         position.set(mRacer.getPosition()).sub(halfWidth);
         adjustedTargetPos.set(mNextTarget.position).add(halfWidth);
-        body = mClosestBodyFinder.find(world, position, adjustedTargetPos);
-        if (body != null) {
-            if (BodyIdentifier.isMine(body)) {
+        if (perception.findClosestObstacle(position, adjustedTargetPos, mObstacleHit)) {
+            if (mObstacleHit.isMine) {
                 halfWidth.scl(-2 * MINE_AVOIDANCE_FACTOR);
-                mNextTarget.position.set(body.getPosition()).sub(halfWidth);
+                mNextTarget.position.set(mObstacleHit.minePosition).sub(halfWidth);
                 mNextTarget.score += Target.MINE_BETWEEN;
             } else {
                 mNextTarget.reset();
@@ -22,6 +22,10 @@ import com.agateau.pixelwheels.Constants;
 import com.agateau.pixelwheels.map.LapPosition;
 import com.agateau.pixelwheels.map.Track;
 import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.utils.FloatArray;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 /** A component to track the racer time */
 public class LapPositionComponent implements Racer.Component {
@@ -40,6 +44,7 @@ public class LapPositionComponent implements Racer.Component {
     private float mTotalTime = 0;
     private float mLapTime = 0;
     private int mLapCount = 0;
+    private final FloatArray mLapTimes = new FloatArray();
     private final LapPosition mLapPosition = new LapPosition();
     private Status mStatus = Status.RACING;
 
@@ -71,6 +76,11 @@ public class LapPositionComponent implements Racer.Component {
         return mTotalTime;
     }
 
+    /** Returns the duration of each completed lap */
+    public FloatArray getLapTimes() {
+        return mLapTimes;
+    }
+
     public int getLapCount() {
         return mLapCount;
     }
@@ -87,17 +97,43 @@ public class LapPositionComponent implements Racer.Component {
         return mStatus;
     }
 
+    /** Writes the state of the component, so that it can be restored with readState() */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeFloat(mBestLapTime);
+        out.writeFloat(mTotalTime);
+        out.writeFloat(mLapTime);
+        out.writeInt(mLapCount);
+        out.writeInt(mLapTimes.size);
+        for (int idx = 0; idx < mLapTimes.size; ++idx) {
+            out.writeFloat(mLapTimes.get(idx));
+        }
+        out.writeByte(mStatus.ordinal());
+        out.writeBoolean(mSkipNextFinishLine);
+    }
+
+    /**
+     * Restores a state written by writeState(). The vehicle must already be at the position it had
+     * when the state was written.
+     */
+    public void readState(DataInput in) throws IOException {
+        mBestLapTime = in.readFloat();
+        mTotalTime = in.readFloat();
+        mLapTime = in.readFloat();
+        mLapCount = in.readInt();
+        mLapTimes.clear();
+        for (int idx = in.readInt(); idx > 0; --idx) {
+            mLapTimes.add(in.readFloat());
+        }
+        mStatus = Status.values()[in.readByte()];
+        mSkipNextFinishLine = in.readBoolean();
+        lookupPosition();
+    }
+
     private void updatePosition() {
         final int oldSectionId = mLapPosition.getSectionId();
-        final float PFU = 1 / Constants.UNIT_FOR_PIXEL;
-        final int pixelX = (int) (PFU * mVehicle.getX());
-        final int pixelY = (int) (PFU * mVehicle.getY());
-        final LapPosition pos = mTrack.getLapPositionTable().get(pixelX, pixelY);
-        if (pos == null) {
-            NLog.e("No LapPosition at pixel " + pixelX + " x " + pixelY);
+        if (!lookupPosition()) {
             return;
         }
-        mLapPosition.copy(pos);
         final boolean crossedFinishLine = mLapPosition.getSectionId() == 0 && oldSectionId > 1;
         final boolean crossedFinishLineBackward =
                 mLapPosition.getSectionId() > 1 && oldSectionId == 0;
@@ -118,7 +154,22 @@ public class LapPositionComponent implements Racer.Component {
         }
     }
 
+    /** Updates mLapPosition from the vehicle position. Returns false if it failed */
+    private boolean lookupPosition() {
+        final float PFU = 1 / Constants.UNIT_FOR_PIXEL;
+        final int pixelX = (int) (PFU * mVehicle.getX());
+        final int pixelY = (int) (PFU * mVehicle.getY());
+        final LapPosition pos = mTrack.getLapPositionTable().get(pixelX, pixelY);
+        if (pos == null) {
+            NLog.e("No LapPosition at pixel " + pixelX + " x " + pixelY);
+            return false;
+        }
+        mLapPosition.copy(pos);
+        return true;
+    }
+
     private void onLapCompleted() {
+        mLapTimes.add(mLapTime);
         if (!hasBestLapTime() || mLapTime < mBestLapTime) {
             mBestLapTime = mLapTime;
         }
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import com.agateau.pixelwheels.bonus.Mine;
+import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.FloatArray;
+
+/**
+ * Tells AI pilots which obstacles lie between two points, without going through Box2D ray casts.
+ *
+ * <p>Static obstacles never move, so their outlines are extracted once, when the perception is
+ * created, and indexed in a uniform grid. Dropped mines come and go, they are collected once per
+ * step by update() and shared by all pilots.
+ *
+ * <p>Like Box2D ray casts, segments starting inside an obstacle do not hit it.
+ */
+public class ObstaclePerception {
+    private static final float CELL_SIZE = 4;
+
+    /** Describes the obstacle found by findClosestObstacle() */
+    public static class Hit {
+        public boolean isMine;
+        /** Only set if isMine is true */
+        public final Vector2 minePosition = new Vector2();
+    }
+
+    // Outlines of static obstacles. A shape is either an edge (x1, y1, x2, y2) of a polygon, whose
+    // vertices are in counter-clockwise order, or a circle (x, y, radius, unused)
+    private static final int SHAPE_STRIDE = 4;
+    private final FloatArray mShapes = new FloatArray();
+    private final Array<ShapeType> mShapeTypes = new Array<>();
+
+    private enum ShapeType {
+        EDGE,
+        CIRCLE
+    }
+
+    // Grid, stored as compressed rows: the shapes overlapping cell N are
+    // mCellShapes[mCellStarts[N]] to mCellShapes[mCellStarts[N + 1] - 1]
+    private float mGridX;
+    private float mGridY;
+    private int mGridColumns;
+    private int mGridRows;
+    private int[] mCellStarts;
+    private int[] mCellShapes;
+
+    // A shape can be listed in several cells: shapes whose stamp is mQueryStamp have already been
+    // tested by the current query
+    private int[] mShapeStamps;
+    private int mQueryStamp = 0;
+
+    // Dropped mines, as (x, y, radius)
+    private static final int MINE_STRIDE = 3;
+    private final FloatArray mMines = new FloatArray();
+
+    private final Vector2 mTmp = new Vector2();
+
+    public ObstaclePerception(World world) {
+        Array<Body> bodies = new Array<>();
+        world.getBodies(bodies);
+        for (Body body : bodies) {
+            if (body.getType() != BodyDef.BodyType.StaticBody
+                    || body.getUserData() instanceof Mine) {
+                continue;
+            }
+            for (Fixture fixture : body.getFixtureList()) {
+                addFixture(body, fixture.getShape());
+            }
+        }
+        buildIndex();
+    }
+
+    /** Collects the dropped mines. Must be called once per step, before pilots act */
+    public void update(Array<GameObject> gameObjects) {
+        mMines.clear();
+        for (int idx = 0, n = gameObjects.size; idx < n; ++idx) {
+            GameObject object = gameObjects.get(idx);
+            if (object instanceof Mine && ((Mine) object).isDropped()) {
+                addMine(object.getX(), object.getY(), Mine.MINE_RADIUS);
+            }
+        }
+    }
+
+    void addMine(float x, float y, float radius) {
+        mMines.add(x, y, radius);
+    }
+
+    /**
+     * Looks for the closest obstacle between @p from and @p to. Returns false if there is none,
+     * otherwise returns true and describes the obstacle in @p hit.
+     */
+    public boolean findClosestObstacle(Vector2 from, Vector2 to, Hit hit) {
+        float dx = to.x - from.x;
+        float dy = to.y - from.y;
+        float closest = Float.MAX_VALUE;
+        int closestMine = -1;
+
+        for (int idx = 0; idx < mMines.size; idx += MINE_STRIDE) {
+            float fraction =
+                    intersectCircle(
+                            from.x,
+                            from.y,
+                            dx,
+                            dy,
+                            mMines.get(idx),
+                            mMines.get(idx + 1),
+                            mMines.get(idx + 2));
+            if (fraction < closest) {
+                closest = fraction;
+                closestMine = idx;
+            }
+        }
+
+        float wallFraction = findClosestWall(from.x, from.y, dx, dy);
+        if (wallFraction < closest) {
+            hit.isMine = false;
+            return true;
+        }
+        if (closestMine >= 0) {
+            hit.isMine = true;
+            hit.minePosition.set(mMines.get(closestMine), mMines.get(closestMine + 1));
+            return true;
+        }
+        return false;
+    }
+
+    private float findClosestWall(float x, float y, float dx, float dy) {
+        if (mGridColumns == 0) {
+            return Float.MAX_VALUE;
+        }
+        int column1 = toColumn(Math.min(x, x + dx));
+        int column2 = toColumn(Math.max(x, x + dx));
+        int row1 = toRow(Math.min(y, y + dy));
+        int row2 = toRow(Math.max(y, y + dy));
+        if (column1 >= mGridColumns || column2 < 0 || row1 >= mGridRows || row2 < 0) {
+            return Float.MAX_VALUE;
+        }
+        column1 = Math.max(column1, 0);
+        column2 = Math.min(column2, mGridColumns - 1);
+        row1 = Math.max(row1, 0);
+        row2 = Math.min(row2, mGridRows - 1);
+
+        ++mQueryStamp;
+        float closest = Float.MAX_VALUE;
+        for (int row = row1; row <= row2; ++row) {
+            for (int column = column1; column <= column2; ++column) {
+                int cell = row * mGridColumns + column;
+                for (int idx = mCellStarts[cell], end = mCellStarts[cell + 1]; idx < end; ++idx) {
+                    int shapeIdx = mCellShapes[idx];
+                    if (mShapeStamps[shapeIdx] == mQueryStamp) {
+                        continue;
+                    }
+                    mShapeStamps[shapeIdx] = mQueryStamp;
+                    closest = Math.min(closest, intersectShape(shapeIdx, x, y, dx, dy));
+                }
+            }
+        }
+        return closest;
+    }
+
+    private float intersectShape(int shapeIdx, float x, float y, float dx, float dy) {
+        float[] shapes = mShapes.items;
+        int offset = shapeIdx * SHAPE_STRIDE;
+        if (mShapeTypes.get(shapeIdx) == ShapeType.CIRCLE) {
+            return intersectCircle(
+                    x, y, dx, dy, shapes[offset], shapes[offset + 1], shapes[offset + 2]);
+        } else {
+            return intersectEdge(
+                    x,
+                    y,
+                    dx,
+                    dy,
+                    shapes[offset],
+                    shapes[offset + 1],
+                    shapes[offset + 2],
+                    shapes[offset + 3]);
+        }
+    }
+
+    /**
+     * Returns the fraction of the (x, y) + (dx, dy) segment at which it enters the circle, or
+     * Float.MAX_VALUE if it does not
+     */
+    private static float intersectCircle(
+            float x, float y, float dx, float dy, float cx, float cy, float radius) {
+        float fx = x - cx;
+        float fy = y - cy;
+        float c = fx * fx + fy * fy - radius * radius;
+        if (c < 0) {
+            // Starts inside
+            return Float.MAX_VALUE;
+        }
+        float a = dx * dx + dy * dy;
+        if (a == 0) {
+            return Float.MAX_VALUE;
+        }
+        float b = fx * dx + fy * dy;
+        float discriminant = b * b - a * c;
+        if (discriminant < 0) {
+            return Float.MAX_VALUE;
+        }
+        float fraction = (-b - (float) Math.sqrt(discriminant)) / a;
+        return fraction >= 0 && fraction <= 1 ? fraction : Float.MAX_VALUE;
+    }
+
+    /**
+     * Returns the fraction of the (x, y) + (dx, dy) segment at which it crosses the (x1, y1) - (x2,
+     * y2) edge, or Float.MAX_VALUE if it does not. Since polygon vertices are counter-clockwise,
+     * only segments crossing the edge from the outside are considered
+     */
+    private static float intersectEdge(
+            float x, float y, float dx, float dy, float x1, float y1, float x2, float y2) {
+        float ex = x2 - x1;
+        float ey = y2 - y1;
+        float denominator = dx * ey - dy * ex;
+        if (denominator >= 0) {
+            // Parallel, or leaving the polygon
+            return Float.MAX_VALUE;
+        }
+        float ox = x1 - x;
+        float oy = y1 - y;
+        float fraction = (ox * ey - oy * ex) / denominator;
+        float edgeFraction = (ox * dy - oy * dx) / denominator;
+        if (fraction < 0 || fraction > 1 || edgeFraction < 0 || edgeFraction > 1) {
+            return Float.MAX_VALUE;
+        }
+        return fraction;
+    }
+
+    private void addFixture(Body body, Shape shape) {
+        if (shape instanceof PolygonShape) {
+            PolygonShape polygon = (PolygonShape) shape;
+            int count = polygon.getVertexCount();
+            polygon.getVertex(count - 1, mTmp);
+            Vector2 previous = body.getWorldPoint(mTmp);
+            float previousX = previous.x;
+            float previousY = previous.y;
+            for (int idx = 0; idx < count; ++idx) {
+                polygon.getVertex(idx, mTmp);
+                Vector2 vertex = body.getWorldPoint(mTmp);
+                mShapes.add(previousX, previousY, vertex.x, vertex.y);
+                mShapeTypes.add(ShapeType.EDGE);
+                previousX = vertex.x;
+                previousY = vertex.y;
+            }
+        } else if (shape instanceof CircleShape) {
+            CircleShape circle = (CircleShape) shape;
+            Vector2 center = body.getWorldPoint(circle.getPosition());
+            mShapes.add(center.x, center.y, circle.getRadius(), 0);
+            mShapeTypes.add(ShapeType.CIRCLE);
+        } else {
+            NLog.e("Ignoring unsupported shape type %s", shape.getType());
+        }
+    }
+
+    private void buildIndex() {
+        int shapeCount = mShapeTypes.size;
+        mShapeStamps = new int[shapeCount];
+        if (shapeCount == 0) {
+            mGridColumns = 0;
+            mGridRows = 0;
+            return;
+        }
+        float minX = Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        for (int idx = 0; idx < shapeCount; ++idx) {
+            minX = Math.min(minX, getShapeLeft(idx));
+            minY = Math.min(minY, getShapeBottom(idx));
+            maxX = Math.max(maxX, getShapeRight(idx));
+            maxY = Math.max(maxY, getShapeTop(idx));
+        }
+        mGridX = minX;
+        mGridY = minY;
+        mGridColumns = MathUtils.floor((maxX - minX) / CELL_SIZE) + 1;
+        mGridRows = MathUtils.floor((maxY - minY) / CELL_SIZE) + 1;
+
+        // First pass: count shapes per cell, second pass: fill cells
+        int cellCount = mGridColumns * mGridRows;
+        mCellStarts = new int[cellCount + 1];
+        for (int idx = 0; idx < shapeCount; ++idx) {
+            forEachCell(idx, (cell, shapeIdx) -> ++mCellStarts[cell + 1]);
+        }
+        for (int cell = 0; cell < cellCount; ++cell) {
+            mCellStarts[cell + 1] += mCellStarts[cell];
+        }
+        mCellShapes = new int[mCellStarts[cellCount]];
+        final int[] fillCounts = new int[cellCount];
+        for (int idx = 0; idx < shapeCount; ++idx) {
+            forEachCell(
+                    idx,
+                    (cell, shapeIdx) -> {
+                        mCellShapes[mCellStarts[cell] + fillCounts[cell]] = shapeIdx;
+                        ++fillCounts[cell];
+                    });
+        }
+    }
+
+    private interface CellFunction {
+        void apply(int cell, int shapeIdx);
+    }
+
+    /** Calls function for all the cells overlapped by the bounding rectangle of a shape */
+    private void forEachCell(int shapeIdx, CellFunction function) {
+        int column1 = toColumn(getShapeLeft(shapeIdx));
+        int row1 = toRow(getShapeBottom(shapeIdx));
+        int column2 = Math.min(toColumn(getShapeRight(shapeIdx)), mGridColumns - 1);
+        int row2 = Math.min(toRow(getShapeTop(shapeIdx)), mGridRows - 1);
+        for (int row = row1; row <= row2; ++row) {
+            for (int column = column1; column <= column2; ++column) {
+                function.apply(row * mGridColumns + column, shapeIdx);
+            }
+        }
+    }
+
+    private int toColumn(float x) {
+        return MathUtils.floor((x - mGridX) / CELL_SIZE);
+    }
+
+    private int toRow(float y) {
+        return MathUtils.floor((y - mGridY) / CELL_SIZE);
+    }
+
+    private float getShapeLeft(int shapeIdx) {
+        int offset = shapeIdx * SHAPE_STRIDE;
+        if (mShapeTypes.get(shapeIdx) == ShapeType.CIRCLE) {
+            return mShapes.get(offset) - mShapes.get(offset + 2);
+        }
+        return Math.min(mShapes.get(offset), mShapes.get(offset + 2));
+    }
+
+    private float getShapeRight(int shapeIdx) {
+        int offset = shapeIdx * SHAPE_STRIDE;
+        if (mShapeTypes.get(shapeIdx) == ShapeType.CIRCLE) {
+            return mShapes.get(offset) + mShapes.get(offset + 2);
+        }
+        return Math.max(mShapes.get(offset), mShapes.get(offset + 2));
+    }
+
+    private float getShapeBottom(int shapeIdx) {
+        int offset = shapeIdx * SHAPE_STRIDE;
+        if (mShapeTypes.get(shapeIdx) == ShapeType.CIRCLE) {
+            return mShapes.get(offset + 1) - mShapes.get(offset + 2);
+        }
+        return Math.min(mShapes.get(offset + 1), mShapes.get(offset + 3));
+    }
+
+    private float getShapeTop(int shapeIdx) {
+        int offset = shapeIdx * SHAPE_STRIDE;
+        if (mShapeTypes.get(shapeIdx) == ShapeType.CIRCLE) {
+            return mShapes.get(offset + 1) + mShapes.get(offset + 2);
+        }
+        return Math.max(mShapes.get(offset + 1), mShapes.get(offset + 3));
+    }
+}
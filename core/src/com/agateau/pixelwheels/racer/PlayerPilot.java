@@ -39,6 +39,8 @@ public class PlayerPilot implements Pilot {
 
     private GameInputHandler mInputHandler;
     private boolean mLastTriggering = false;
+    private final GameInput mSampledInput = new GameInput();
+    private boolean mUseSampledInput = false;
 
     public PlayerPilot(
             Assets assets,
@@ -61,13 +63,37 @@ public class PlayerPilot implements Pilot {
         mInputHandler.createHudButtons(mAssets, hud);
     }
 
+    /**
+     * Reads the input handler and keeps a copy of its input for the next act() call.
+     *
+     * <p>Input handlers read Gdx.input and update the hud, so they must be used from the render
+     * thread. When the world acts on another thread, this must be called from the render thread
+     * before each step. Once it has been called, act() no longer uses the input handler.
+     */
+    public void sampleInput() {
+        mUseSampledInput = true;
+        if (mGameWorld.getState() == GameWorld.State.RUNNING) {
+            mInputHandler.setBonus(mRacer.getBonus());
+        }
+        GameInput input = mInputHandler.getGameInput();
+        mSampledInput.direction = input.direction;
+        mSampledInput.accelerating = input.accelerating;
+        mSampledInput.braking = input.braking;
+        mSampledInput.triggeringBonus = input.triggeringBonus;
+    }
+
     @Override
     public void act(float dt) {
         Vehicle vehicle = mRacer.getVehicle();
 
         if (mGameWorld.getState() == GameWorld.State.RUNNING) {
-            mInputHandler.setBonus(mRacer.getBonus());
-            GameInput input = mInputHandler.getGameInput();
+            GameInput input;
+            if (mUseSampledInput) {
+                input = mSampledInput;
+            } else {
+                mInputHandler.setBonus(mRacer.getBonus());
+                input = mInputHandler.getGameInput();
+            }
             vehicle.setDirection(input.direction);
             vehicle.setAccelerating(input.accelerating);
             vehicle.setBraking(input.braking);
@@ -31,6 +31,7 @@ import com.agateau.pixelwheels.racescreen.Collidable;
 import com.agateau.pixelwheels.racescreen.CollisionCategories;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.utils.AgcMathUtils;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
@@ -59,6 +60,8 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
 
     // State
     private Bonus mBonus;
+    private int mBonusTriggerCount = 0;
+    private int mRank = -1;
     private final RecordRanks mRecordRanks = new RecordRanks();
 
     public static class RecordRanks {
@@ -124,12 +127,6 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         addComponent(supervisorComponent);
         addComponent(new BonusSpotHitComponent(this));
         addComponent(mAudioComponent);
-
-        if (GamePlay.instance.createSpeedReport) {
-            Probe probe = new Probe("speed.dat");
-            mVehicle.setProbe(probe);
-            addComponent(probe);
-        }
     }
 
     private void addComponent(Component component) {
@@ -155,6 +152,15 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         mPilot = pilot;
     }
 
+    /** Returns the rank of the racer, starting from 1. Updated by GameWorld after each step */
+    public int getRank() {
+        return mRank;
+    }
+
+    public void setRank(int rank) {
+        mRank = rank;
+    }
+
     public Vehicle getVehicle() {
         return mVehicle;
     }
@@ -287,7 +293,7 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
 
         // To avoid allocating an array of the counts for each normalized rank, we subtract counts
         // from pick, until it is less than 0, at this point we are on the selected pool
-        float pick = MathUtils.random(0f, totalCount);
+        float pick = AgcMathUtils.random(mGameWorld.getRandom(), 0f, totalCount);
         BonusPool pool = null;
         for (int idx = 0; idx < pools.size; ++idx) {
             pool = pools.get(idx);
@@ -309,9 +315,15 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         if (mBonus == null) {
             return;
         }
+        ++mBonusTriggerCount;
         mBonus.trigger();
     }
 
+    /** Returns how many times the pilot triggered a bonus, used to record replays */
+    public int getBonusTriggerCount() {
+        return mBonusTriggerCount;
+    }
+
     /** Called by bonuses when they are done */
     public void resetBonus() {
         mBonus = null;
@@ -324,6 +336,11 @@ public class Racer extends GameObjectAdapter implements Collidable, Disposable {
         }
     }
 
+    @Override
+    public int getZLevelMask() {
+        return mVehicleRenderer.getZLevelMask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         mVehicleRenderer.draw(batch, zLevel);
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racer;
+
+import com.agateau.pixelwheels.Constants;
+import com.agateau.pixelwheels.ZLevel;
+import com.agateau.pixelwheels.gameobjet.GameObjectAdapter;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Vector2;
+
+/**
+ * Stores and draws the skidmarks of all the wheels of a world.
+ *
+ * <p>Skidmark segments are stored as quads, in a ring buffer of vertices using the SpriteBatch
+ * layout. When the buffer is full, new segments replace the oldest ones. Each segment end knows
+ * when it was created, so the opacity of the segments is computed when they are drawn: nothing is
+ * updated between frames.
+ */
+public class SkidmarkManager extends GameObjectAdapter {
+    static final float LIFETIME = 10f;
+    private static final float WIDTH = 7 * Constants.UNIT_FOR_PIXEL;
+    private static final float ALPHA_INC = 0.05f;
+    private static final float ALPHA_MIN = 0.1f;
+    private static final float ALPHA_MAX = 0.4f;
+    private static final int VERTEX_SIZE = 5;
+    private static final int QUAD_SIZE = 4 * VERTEX_SIZE;
+
+    /** State of the skidmark a wheel is currently drawing */
+    public static class Trail {
+        private final Vector2 mLastPos = new Vector2();
+        private float mLastTime;
+        private boolean mHasLastPos = false;
+        private float mThickX;
+        private float mThickY;
+        private boolean mHasThickness = false;
+        private float mAlpha;
+    }
+
+    private final TextureRegion mRegion;
+    private final int mCapacity;
+    private final float[] mVertices;
+    // Creation time and base alpha of the start and end of each quad
+    private final float[] mTimes;
+    private final float[] mAlphas;
+    // Index of the oldest quad
+    private int mTail = 0;
+    private int mQuadCount = 0;
+    private float mTime = 0;
+
+    public SkidmarkManager(TextureRegion region, int capacity) {
+        mRegion = region;
+        mCapacity = capacity;
+        mVertices = new float[capacity * QUAD_SIZE];
+        mTimes = new float[capacity * 2];
+        mAlphas = new float[capacity * 2];
+    }
+
+    /** Number of quads currently stored, including the ones which have faded out */
+    public int getQuadCount() {
+        return mQuadCount;
+    }
+
+    /** Adds a point to the skidmark of trail, creating a new segment if it is not the first one */
+    public void addPoint(Trail trail, Vector2 pos) {
+        if (!trail.mHasLastPos) {
+            trail.mLastPos.set(pos);
+            trail.mLastTime = mTime;
+            trail.mHasLastPos = true;
+            trail.mAlpha = ALPHA_MIN;
+            return;
+        }
+        float dx = pos.x - trail.mLastPos.x;
+        float dy = pos.y - trail.mLastPos.y;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length == 0) {
+            return;
+        }
+        float thickX = -dy / length * WIDTH / 2;
+        float thickY = dx / length * WIDTH / 2;
+        if (!trail.mHasThickness) {
+            trail.mThickX = thickX;
+            trail.mThickY = thickY;
+            trail.mHasThickness = true;
+        }
+        addQuad(trail, pos, thickX, thickY);
+        trail.mAlpha = Math.min(ALPHA_MAX, trail.mAlpha + ALPHA_INC);
+        trail.mLastPos.set(pos);
+        trail.mLastTime = mTime;
+        trail.mThickX = thickX;
+        trail.mThickY = thickY;
+    }
+
+    /** Ends the skidmark of trail: the next point starts a new one */
+    public void endTrail(Trail trail) {
+        trail.mHasLastPos = false;
+        trail.mHasThickness = false;
+    }
+
+    /*
+        0            3
+         x----------x        ^
+         |          |        |
+    pos1 x          x pos2   | thickness
+         |          |
+         x----------x
+        1            2
+     */
+    private void addQuad(Trail trail, Vector2 pos2, float thickX2, float thickY2) {
+        int quadIdx = (mTail + mQuadCount) % mCapacity;
+        if (mQuadCount == mCapacity) {
+            // Full, replace the oldest quad
+            mTail = (mTail + 1) % mCapacity;
+        } else {
+            ++mQuadCount;
+        }
+        Vector2 pos1 = trail.mLastPos;
+        float u = mRegion.getU();
+        float v = mRegion.getV();
+        float u2 = mRegion.getU2();
+        float v2 = mRegion.getV2();
+        int offset = quadIdx * QUAD_SIZE;
+        setVertex(offset, pos1.x + trail.mThickX, pos1.y + trail.mThickY, u, v);
+        setVertex(offset + VERTEX_SIZE, pos1.x - trail.mThickX, pos1.y - trail.mThickY, u2, v);
+        setVertex(offset + 2 * VERTEX_SIZE, pos2.x - thickX2, pos2.y - thickY2, u2, v2);
+        setVertex(offset + 3 * VERTEX_SIZE, pos2.x + thickX2, pos2.y + thickY2, u, v2);
+
+        mTimes[quadIdx * 2] = trail.mLastTime;
+        mTimes[quadIdx * 2 + 1] = mTime;
+        mAlphas[quadIdx * 2] = trail.mAlpha;
+        mAlphas[quadIdx * 2 + 1] = trail.mAlpha + ALPHA_INC;
+    }
+
+    private void setVertex(int offset, float x, float y, float u, float v) {
+        mVertices[offset] = x;
+        mVertices[offset + 1] = y;
+        mVertices[offset + 3] = u;
+        mVertices[offset + 4] = v;
+    }
+
+    @Override
+    public void act(float delta) {
+        mTime += delta;
+    }
+
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.GROUND.mask();
+    }
+
+    @Override
+    public void draw(Batch batch, ZLevel zLevel) {
+        // Quads are sorted by age, so the faded out ones are at the tail
+        while (mQuadCount > 0 && mTime - mTimes[mTail * 2 + 1] >= LIFETIME) {
+            mTail = (mTail + 1) % mCapacity;
+            --mQuadCount;
+        }
+        if (mQuadCount == 0) {
+            return;
+        }
+        for (int idx = 0; idx < mQuadCount; ++idx) {
+            int quadIdx = (mTail + idx) % mCapacity;
+            float c1 = computeColor(quadIdx * 2);
+            float c2 = computeColor(quadIdx * 2 + 1);
+            int offset = quadIdx * QUAD_SIZE + 2;
+            mVertices[offset] = c1;
+            mVertices[offset + VERTEX_SIZE] = c1;
+            mVertices[offset + 2 * VERTEX_SIZE] = c2;
+            mVertices[offset + 3 * VERTEX_SIZE] = c2;
+        }
+        int end = mTail + mQuadCount;
+        if (end <= mCapacity) {
+            batch.draw(mRegion.getTexture(), mVertices, mTail * QUAD_SIZE, mQuadCount * QUAD_SIZE);
+        } else {
+            // The buffer wraps. Both calls end up in the same batch flush since they use the same
+            // texture
+            batch.draw(
+                    mRegion.getTexture(),
+                    mVertices,
+                    mTail * QUAD_SIZE,
+                    (mCapacity - mTail) * QUAD_SIZE);
+            batch.draw(mRegion.getTexture(), mVertices, 0, (end - mCapacity) * QUAD_SIZE);
+        }
+    }
+
+    private float computeColor(int endIdx) {
+        float opacity = Math.max(0, 1 - (mTime - mTimes[endIdx]) / LIFETIME);
+        return Color.toFloatBits(1, 1, 1, mAlphas[endIdx] * opacity);
+    }
+
+    // Skidmarks cover the whole track, so they have no meaningful position
+    @Override
+    public float getX() {
+        return 0;
+    }
+
+    @Override
+    public float getY() {
+        return 0;
+    }
+}
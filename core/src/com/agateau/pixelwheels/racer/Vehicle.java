@@ -25,6 +25,7 @@ import com.agateau.pixelwheels.map.Material;
 import com.agateau.pixelwheels.stats.GameStats;
 import com.agateau.pixelwheels.utils.Box2DUtils;
 import com.agateau.utils.AgcMathUtils;
+import com.agateau.utils.LongFloatArrayMap;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Shape2D;
@@ -32,10 +33,10 @@ import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.MassData;
 import com.badlogic.gdx.physics.box2d.joints.RevoluteJoint;
 import com.badlogic.gdx.physics.box2d.joints.RevoluteJointDef;
 import com.badlogic.gdx.utils.Array;
-import com.badlogic.gdx.utils.ArrayMap;
 import com.badlogic.gdx.utils.Disposable;
 
 /** Represents a car on the world */
@@ -47,13 +48,27 @@ public class Vehicle implements Racer.Component, Disposable {
     private static final float MIN_ICE_DRIFT_ANGLE = 5;
     private static final float MIN_ICE_DRIFT_SPEED = 4;
 
+    /** How wheels are simulated */
+    public enum PhysicsModel {
+        /** Each wheel has its own body, attached to the vehicle body by a revolute joint */
+        JOINTED_WHEELS,
+        /**
+         * Wheels have no body: their forces are applied to the vehicle body. Cheaper, for races
+         * with many racers
+         */
+        SINGLE_BODY
+    }
+
     public static class WheelInfo {
         public Wheel wheel;
+        /** Null with the SINGLE_BODY physics model */
         public RevoluteJoint joint;
+
         public float steeringFactor;
     }
 
     private final Body mBody;
+    private final PhysicsModel mPhysicsModel;
     private final GameWorld mGameWorld;
     private Racer mRacer;
 
@@ -74,9 +89,11 @@ public class Vehicle implements Racer.Component, Disposable {
     private Material mMaterial = Material.ROAD;
     private float mSpeedLimiter = 1f;
 
-    private Probe mProbe = null;
+    private float mSteerAngle = 0;
 
-    private final ArrayMap<Long, Float> mTurboCellMap = new ArrayMap<>(8);
+    // Maps the ids of the cells which recently triggered a turbo to the remaining time before they
+    // can trigger it again
+    private final LongFloatArrayMap mTurboCellMap = new LongFloatArrayMap(8);
 
     public Vehicle(
             TextureRegion region,
@@ -85,7 +102,19 @@ public class Vehicle implements Racer.Component, Disposable {
             float originY,
             Array<Shape2D> shapes,
             float angle) {
+        this(region, gameWorld, originX, originY, shapes, angle, PhysicsModel.JOINTED_WHEELS);
+    }
+
+    public Vehicle(
+            TextureRegion region,
+            GameWorld gameWorld,
+            float originX,
+            float originY,
+            Array<Shape2D> shapes,
+            float angle,
+            PhysicsModel physicsModel) {
         mGameWorld = gameWorld;
+        mPhysicsModel = physicsModel;
 
         // Main
         mRegion = region;
@@ -118,6 +147,9 @@ public class Vehicle implements Racer.Component, Disposable {
     }
 
     public WheelInfo addWheel(TextureRegion region, float x, float y, float angle) {
+        if (mPhysicsModel == PhysicsModel.SINGLE_BODY) {
+            return addBodylessWheel(region, x, y);
+        }
         WheelInfo info = new WheelInfo();
         info.wheel = new Wheel(mGameWorld, this, region, getX() + x, getY() + y, angle);
         mWheels.add(info);
@@ -138,18 +170,39 @@ public class Vehicle implements Racer.Component, Disposable {
         return info;
     }
 
+    private WheelInfo addBodylessWheel(TextureRegion region, float x, float y) {
+        Vector2 localPosition = new Vector2(mBody.getLocalPoint(mTmp.set(getX() + x, getY() + y)));
+        WheelInfo info = new WheelInfo();
+        info.wheel = new Wheel(mGameWorld, this, region, localPosition);
+        mWheels.add(info);
+
+        // Add the mass of the wheel to the body, so that forces have the same effect as on a
+        // vehicle with jointed wheels
+        MassData massData = mBody.getMassData();
+        float wheelMass = info.wheel.getMass();
+        float mass = massData.mass + wheelMass;
+        massData.center.scl(massData.mass).mulAdd(localPosition, wheelMass).scl(1 / mass);
+        massData.I += info.wheel.getInertia() + wheelMass * localPosition.len2();
+        massData.mass = mass;
+        mBody.setMassData(massData);
+        return info;
+    }
+
+    public PhysicsModel getPhysicsModel() {
+        return mPhysicsModel;
+    }
+
     public void setRacer(Racer racer) {
         mRacer = racer;
         mBody.setUserData(racer);
         for (WheelInfo info : mWheels) {
-            info.wheel.getBody().setUserData(racer);
+            Body body = info.wheel.getBody();
+            if (body != null) {
+                body.setUserData(racer);
+            }
         }
     }
 
-    public void setProbe(Probe probe) {
-        mProbe = probe;
-    }
-
     public void setCollisionInfo(int categoryBits, int maskBits) {
         mCollisionCategoryBits = categoryBits;
         mCollisionMaskBits = maskBits;
@@ -180,6 +233,16 @@ public class Vehicle implements Racer.Component, Disposable {
         return mBody.getLinearVelocity().len();
     }
 
+    /** Returns the last steer angle applied to the wheels, in degrees */
+    public float getSteerAngle() {
+        return mSteerAngle;
+    }
+
+    /** Returns the material under the center of the vehicle */
+    public Material getMaterial() {
+        return mMaterial;
+    }
+
     public boolean isDrifting() {
         for (WheelInfo wheelInfo : mWheels) {
             if (wheelInfo.wheel.isDrifting()) {
@@ -251,7 +314,10 @@ public class Vehicle implements Racer.Component, Disposable {
         if (!wasFlying && flying) {
             Box2DUtils.setCollisionInfo(mBody, 0, 0);
             for (WheelInfo info : mWheels) {
-                Box2DUtils.setCollisionInfo(info.wheel.getBody(), 0, 0);
+                Body body = info.wheel.getBody();
+                if (body != null) {
+                    Box2DUtils.setCollisionInfo(body, 0, 0);
+                }
             }
         } else if (wasFlying && !flying) {
             applyCollisionInfo();
@@ -331,11 +397,16 @@ public class Vehicle implements Racer.Component, Disposable {
             }
         }
 
-        float steerAngle = computeSteerAngle() * MathUtils.degRad;
+        mSteerAngle = computeSteerAngle();
+        float steerAngle = mSteerAngle * MathUtils.degRad;
         for (WheelInfo info : mWheels) {
             float angle = info.steeringFactor * steerAngle;
             info.wheel.adjustSpeed(speedDelta);
-            info.joint.setLimits(angle, angle);
+            if (info.joint != null) {
+                info.joint.setLimits(angle, angle);
+            } else {
+                info.wheel.setSteerAngle(angle);
+            }
         }
     }
 
@@ -354,6 +425,7 @@ public class Vehicle implements Racer.Component, Disposable {
     }
 
     private final Vector2 mDirectionVector = new Vector2();
+    private final Vector2 mTmp = new Vector2();
 
     private Vector2 computeDirectionVector(float strength) {
         return mDirectionVector.set(strength, 0).rotateRad(mBody.getAngle());
@@ -379,35 +451,18 @@ public class Vehicle implements Racer.Component, Disposable {
     private float computeSteerAngle() {
         final GamePlay GP = GamePlay.instance;
         if (mDirection == 0) {
-            if (mProbe != null) {
-                float speed = mBody.getLinearVelocity().len() * Box2DUtils.MS_TO_KMH;
-                mProbe.addValue("steer", 0);
-                mProbe.addValue("speed", speed);
-                mProbe.addValue("category", 0);
-            }
             return 0;
         }
 
         float speed = mBody.getLinearVelocity().len() * Box2DUtils.MS_TO_KMH;
         float steer;
-        // Category is 0 if speed is < GP.lowSpeed, 1 if < GP.maxSpeed, 2 if > GP.maxSpeed
-        // For a better driving experience, it should not reach 2 except when triggering turbos
-        float category;
         if (speed < GP.lowSpeed) {
             steer = MathUtils.lerp(GP.stoppedMaxSteer, GP.lowSpeedMaxSteer, speed / GP.lowSpeed);
-            category = 0;
         } else if (speed < GP.maxSpeed) {
             float factor = (speed - GP.lowSpeed) / (GP.maxSpeed - GP.lowSpeed);
             steer = MathUtils.lerp(GP.lowSpeedMaxSteer, GP.highSpeedMaxSteer, factor);
-            category = 1;
         } else {
             steer = GP.highSpeedMaxSteer;
-            category = 2;
-        }
-        if (mProbe != null) {
-            mProbe.addValue("steer", steer);
-            mProbe.addValue("speed", speed);
-            mProbe.addValue("category", category);
         }
         return mDirection * steer;
     }
@@ -435,6 +490,10 @@ public class Vehicle implements Racer.Component, Disposable {
         mAccelerating = value;
     }
 
+    public boolean isAccelerating() {
+        return mAccelerating;
+    }
+
     public void setBraking(boolean value) {
         mBraking = value;
     }
@@ -447,6 +506,10 @@ public class Vehicle implements Racer.Component, Disposable {
         mDirection = direction;
     }
 
+    public float getDirection() {
+        return mDirection;
+    }
+
     public Vector2 getPosition() {
         return mBody.getPosition();
     }
@@ -479,8 +542,10 @@ public class Vehicle implements Racer.Component, Disposable {
     private void applyCollisionInfo() {
         Box2DUtils.setCollisionInfo(mBody, mCollisionCategoryBits, mCollisionMaskBits);
         for (WheelInfo info : mWheels) {
-            Box2DUtils.setCollisionInfo(
-                    info.wheel.getBody(), mCollisionCategoryBits, mCollisionMaskBits);
+            Body body = info.wheel.getBody();
+            if (body != null) {
+                Box2DUtils.setCollisionInfo(body, mCollisionCategoryBits, mCollisionMaskBits);
+            }
         }
     }
 
@@ -35,17 +35,19 @@ import com.badlogic.gdx.utils.Array;
 /** Renders a vehicle */
 public class VehicleRenderer implements Renderer {
     private static final Color IMMERSED_COLOR = new Color(0, 0.5f, 1, 0.2f);
+    // draw() used to be called for all ZLevels, advancing mTime at each call. Keep the splash
+    // animation running at the speed it had then.
+    private static final float SPLASH_SPEED = ZLevel.values().length;
+
     private final Assets mAssets;
     private final Vehicle mVehicle;
     private final Array<Renderer> mRenderers = new Array<>();
-    private final SkidmarksRenderer mSkidmarksRenderer;
     private float mTime = 0;
     private final BodyRegionDrawer mBodyRegionDrawer = new BodyRegionDrawer();
 
     public VehicleRenderer(Assets assets, Vehicle vehicle) {
         mAssets = assets;
         mVehicle = vehicle;
-        mSkidmarksRenderer = new SkidmarksRenderer(mAssets);
     }
 
     public void addRenderer(Renderer renderer) {
@@ -58,22 +60,28 @@ public class VehicleRenderer implements Renderer {
 
     private final Color mBatchColor = new Color();
 
+    /** Returns the levels draw() must be called for, see GameObject.getZLevelMask() */
+    public int getZLevelMask() {
+        ZLevel vehicleLevel = mVehicle.isFlying() ? ZLevel.FLYING : ZLevel.VEHICLES;
+        return ZLevel.GROUND.mask() | vehicleLevel.mask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
         mBodyRegionDrawer.setBatch(batch);
         mBodyRegionDrawer.setScale(mVehicle.getZ() + 1);
-        mTime += Gdx.app.getGraphics().getDeltaTime();
         if (zLevel == ZLevel.GROUND) {
-            for (Vehicle.WheelInfo info : mVehicle.getWheelInfos()) {
-                mSkidmarksRenderer.draw(batch, info.wheel.getSkidmarks());
-            }
-
+            mTime += Gdx.app.getGraphics().getDeltaTime() * SPLASH_SPEED;
             // Only draw splash and shadow if we are not falling
             if (!mVehicle.isFalling()) {
                 for (Vehicle.WheelInfo info : mVehicle.getWheelInfos()) {
                     if (info.wheel.getMaterial().isWater()) {
+                        Vector2 pos = info.wheel.getPosition();
                         mBodyRegionDrawer.draw(
-                                info.wheel.getBody(), mAssets.splash.getKeyFrame(mTime, true));
+                                pos.x,
+                                pos.y,
+                                info.wheel.getAngle(),
+                                mAssets.splash.getKeyFrame(mTime, true));
                     }
                 }
                 mBodyRegionDrawer.drawShadow(mVehicle.getBody(), mVehicle.getRegion());
@@ -97,7 +105,8 @@ public class VehicleRenderer implements Renderer {
             // wheels are visible
             // through it and it looks ugly
             for (Vehicle.WheelInfo info : mVehicle.getWheelInfos()) {
-                mBodyRegionDrawer.draw(info.wheel.getBody(), info.wheel.getRegion());
+                Vector2 pos = info.wheel.getPosition();
+                mBodyRegionDrawer.draw(pos.x, pos.y, info.wheel.getAngle(), info.wheel.getRegion());
             }
         }
         mBodyRegionDrawer.draw(mVehicle.getBody(), mVehicle.getRegion());
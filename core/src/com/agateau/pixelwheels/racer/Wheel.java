@@ -23,7 +23,6 @@ import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.map.Material;
 import com.agateau.pixelwheels.utils.Box2DUtils;
-import com.agateau.utils.CircularArray;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.Interpolation;
 import com.badlogic.gdx.math.MathUtils;
@@ -33,55 +32,30 @@ import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.utils.Disposable;
 
-/** A wheel */
+/**
+ * A wheel
+ *
+ * <p>With the JOINTED_WHEELS physics model, a wheel has its own body, attached to the vehicle body
+ * by a joint. With the SINGLE_BODY physics model it has no body: its friction, drag and driving
+ * forces are applied to the vehicle body, at the position of the wheel.
+ */
 public class Wheel implements Disposable {
     private static final float DRIFT_IMPULSE_REDUCTION =
             0.5f; // Limit how much of the lateral velocity is killed when drifting
     private static final float DRAG_FACTOR = 1;
     private static final int SKIDMARK_INTERVAL = 3;
-    private static final float SKIDMARK_LIFETIME = 10f;
-
-    public static class Skidmark {
-        private final Vector2 mPos = new Vector2();
-        private boolean mIsEnd = false;
-        private float mRemainingLife;
-
-        public boolean isEnd() {
-            return mIsEnd;
-        }
-
-        public Vector2 getPos() {
-            return mPos;
-        }
-
-        public void init(Vector2 pos) {
-            mPos.set(pos);
-            mRemainingLife = SKIDMARK_LIFETIME;
-        }
-
-        public void initAsEnd() {
-            mIsEnd = true;
-        }
-
-        public void act(float delta) {
-            mRemainingLife = Math.max(0, mRemainingLife - delta);
-        }
-
-        public float getOpacity() {
-            return mRemainingLife / SKIDMARK_LIFETIME;
-        }
-    }
+    private static final float DENSITY = 2f;
 
-    private final CircularArray<Skidmark> mSkidmarks =
-            new CircularArray<Skidmark>(GamePlay.instance.maxSkidmarks) {
-                @Override
-                protected Skidmark createInstance() {
-                    return new Skidmark();
-                }
-            };
+    private final SkidmarkManager.Trail mSkidmarkTrail = new SkidmarkManager.Trail();
     private int mSkidmarkCount = 0; // Used to limit the number of skidmarks created
 
     private final Body mBody;
+    // The body forces are applied to: mBody for jointed wheels, the vehicle body otherwise
+    private final Body mTargetBody;
+    private final Vector2 mLocalPosition = new Vector2();
+    private final float mMass;
+    private final float mInertia;
+    private float mSteerAngle = 0;
     private final GameWorld mGameWorld;
     private final TextureRegion mRegion;
     private final Vehicle mVehicle;
@@ -91,6 +65,10 @@ public class Wheel implements Disposable {
     private Material mMaterial = Material.ROAD;
     private boolean mDrifting = false;
 
+    private final Vector2 mPosition = new Vector2();
+    private final Vector2 mVelocity = new Vector2();
+    private final Vector2 mLateralVelocity = new Vector2();
+
     public Wheel(
             GameWorld gameWorld,
             Vehicle vehicle,
@@ -113,8 +91,40 @@ public class Wheel implements Disposable {
 
         PolygonShape shape = new PolygonShape();
         shape.set(Box2DUtils.createOctogon(w, h, w / 4, w / 4));
-        mBody.createFixture(shape, 2f);
+        mBody.createFixture(shape, DENSITY);
         shape.dispose();
+        mTargetBody = mBody;
+        mMass = mBody.getMass();
+        mInertia = mBody.getInertia();
+    }
+
+    /**
+     * Creates a wheel without a body, for the SINGLE_BODY physics model. localPosition is the
+     * position of the wheel center in the vehicle body coordinates
+     */
+    Wheel(GameWorld gameWorld, Vehicle vehicle, TextureRegion region, Vector2 localPosition) {
+        mGameWorld = gameWorld;
+        mVehicle = vehicle;
+        mRegion = region;
+        mBody = null;
+        mTargetBody = vehicle.getBody();
+        mLocalPosition.set(localPosition);
+
+        float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
+        float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
+        mMass = computeMass(w, h);
+        mInertia = computeInertia(mMass, w, h);
+    }
+
+    /** Mass of the octogon shape of a jointed wheel */
+    private static float computeMass(float w, float h) {
+        float cornerSize = w / 4;
+        return DENSITY * (w * h - 2 * cornerSize * cornerSize);
+    }
+
+    /** Rotational inertia around the center, approximating the octogon with a rectangle */
+    private static float computeInertia(float mass, float w, float h) {
+        return mass * (w * w + h * h) / 12;
     }
 
     public TextureRegion getRegion() {
@@ -127,7 +137,9 @@ public class Wheel implements Disposable {
 
     @Override
     public void dispose() {
-        mGameWorld.getBox2DWorld().destroyBody(mBody);
+        if (mBody != null) {
+            mGameWorld.getBox2DWorld().destroyBody(mBody);
+        }
     }
 
     @SuppressWarnings("UnusedParameters")
@@ -137,19 +149,49 @@ public class Wheel implements Disposable {
             if (mGripEnabled) {
                 updateFriction();
             }
-            Box2DUtils.applyDrag(mBody, DRAG_FACTOR);
-        }
-        for (int idx = mSkidmarks.getBeginIndex(), end = mSkidmarks.getEndIndex();
-                idx != end;
-                idx = mSkidmarks.getNextIndex(idx)) {
-            mSkidmarks.get(idx).act(delta);
+            applyDrag();
         }
     }
 
+    /** Returns the body of the wheel. Null if the vehicle uses the SINGLE_BODY physics model */
     public Body getBody() {
         return mBody;
     }
 
+    /** Mass of the wheel. For body-less wheels, this is the mass their body would have */
+    public float getMass() {
+        return mMass;
+    }
+
+    /** Rotational inertia of the wheel around its center */
+    public float getInertia() {
+        return mInertia;
+    }
+
+    /** Returns the position of the center of the wheel, in world coordinates */
+    public Vector2 getPosition() {
+        if (mBody != null) {
+            return mPosition.set(mBody.getWorldCenter());
+        }
+        return mPosition.set(mTargetBody.getWorldPoint(mLocalPosition));
+    }
+
+    /** Returns the angle of the wheel, in radians */
+    public float getAngle() {
+        if (mBody != null) {
+            return mBody.getAngle();
+        }
+        return mTargetBody.getAngle() + mSteerAngle;
+    }
+
+    /**
+     * Sets the steer angle, in radians, of a body-less wheel. Jointed wheels are steered through
+     * their joint
+     */
+    void setSteerAngle(float steerAngle) {
+        mSteerAngle = steerAngle;
+    }
+
     public float getGroundSpeed() {
         return mMaterial.getSpeed();
     }
@@ -162,48 +204,94 @@ public class Wheel implements Disposable {
         if (amount == 0) {
             return;
         }
-        final float currentSpeed = mBody.getLinearVelocity().len() * Box2DUtils.MS_TO_KMH;
+        Vector2 pos = getPosition();
+        final float currentSpeed = getVelocity(pos).len() * Box2DUtils.MS_TO_KMH;
 
         final float limit =
                 1 - 0.2f * Interpolation.sineOut.apply(currentSpeed / GamePlay.instance.maxSpeed);
         amount *= limit;
 
         float force = mMaxDrivingForce * amount;
-        float angle = mBody.getAngle();
-        Vector2 pos = mBody.getWorldCenter();
-        mBody.applyForce(
+        float angle = getAngle();
+        mTargetBody.applyForce(
                 force * MathUtils.cos(angle), force * MathUtils.sin(angle), pos.x, pos.y, true);
     }
 
     public long getCellId() {
-        return mGameWorld
-                .getTrack()
-                .getCellIdAt(mBody.getWorldCenter().x, mBody.getWorldCenter().y);
+        Vector2 pos = getPosition();
+        return mGameWorld.getTrack().getCellIdAt(pos.x, pos.y);
+    }
+
+    /** Returns the velocity of the point of the target body at pos */
+    private Vector2 getVelocity(Vector2 pos) {
+        if (mBody != null) {
+            return mVelocity.set(mBody.getLinearVelocity());
+        }
+        return mVelocity.set(mTargetBody.getLinearVelocityFromWorldPoint(pos));
+    }
+
+    private void applyDrag() {
+        if (mBody != null) {
+            Box2DUtils.applyDrag(mBody, DRAG_FACTOR);
+            return;
+        }
+        Vector2 pos = getPosition();
+        Vector2 dragForce = getVelocity(pos).scl(-DRAG_FACTOR);
+        mTargetBody.applyForce(dragForce, pos, true);
+    }
+
+    /** Returns the velocity of the target body at pos, along the lateral axis of the wheel */
+    private Vector2 getLateralVelocity(Vector2 pos) {
+        if (mBody != null) {
+            return Box2DUtils.getLateralVelocity(mBody);
+        }
+        float angle = getAngle();
+        mLateralVelocity.set(-MathUtils.sin(angle), MathUtils.cos(angle));
+        return mLateralVelocity.scl(mLateralVelocity.dot(getVelocity(pos)));
     }
 
     private void updateFriction() {
-        // Kill lateral velocity
-        Vector2 impulse =
-                Box2DUtils.getLateralVelocity(mBody).scl(-mBody.getMass()).scl(mMaterial.getGrip());
+        Vector2 pos = getPosition();
+        // Kill lateral velocity. The impulse is computed for the mass of the wheel, even for
+        // body-less wheels, so that drift starts at the same lateral speed with both models
+        Vector2 impulse = getLateralVelocity(pos).scl(-mMass).scl(mMaterial.getGrip());
         float maxImpulse =
                 (float) GamePlay.instance.maxLateralImpulse / (mVehicle.isBraking() ? 0.2f : 1);
         if (mMaterial != Material.ICE && mCanDrift && impulse.len() > maxImpulse) {
             // Drift
             mDrifting = true;
             if (mSkidmarkCount == 0) {
-                mSkidmarks.add().init(mBody.getWorldCenter());
+                mGameWorld.getSkidmarkManager().addPoint(mSkidmarkTrail, pos);
             }
             mSkidmarkCount = (mSkidmarkCount + 1) % SKIDMARK_INTERVAL;
             maxImpulse = Math.max(maxImpulse, impulse.len() - DRIFT_IMPULSE_REDUCTION);
             impulse.limit(maxImpulse);
         } else if (mDrifting) {
-            mSkidmarks.add().initAsEnd();
+            mGameWorld.getSkidmarkManager().endTrail(mSkidmarkTrail);
             mDrifting = false;
         }
-        mBody.applyLinearImpulse(impulse, mBody.getWorldCenter(), true);
+        if (mBody == null) {
+            // Scale the impulse to the mass the vehicle body has at the wheel position along the
+            // lateral axis, like the wheel joint would
+            impulse.scl(computeEffectiveMass(pos, getAngle()) / mMass);
+        }
+        mTargetBody.applyLinearImpulse(impulse, pos, true);
 
         // Kill angular velocity
-        mBody.applyAngularImpulse(0.1f * mBody.getInertia() * -mBody.getAngularVelocity(), true);
+        mTargetBody.applyAngularImpulse(0.1f * mInertia * -mTargetBody.getAngularVelocity(), true);
+    }
+
+    /**
+     * Returns the mass which, hit by an impulse along the lateral axis of the wheel at pos, gets
+     * the same change of velocity at pos as the target body
+     */
+    private float computeEffectiveMass(Vector2 pos, float angle) {
+        float normalX = -MathUtils.sin(angle);
+        float normalY = MathUtils.cos(angle);
+        Vector2 center = mTargetBody.getWorldCenter();
+        float rn = (pos.x - center.x) * normalY - (pos.y - center.y) * normalX;
+        float inertia = mTargetBody.getInertia();
+        return 1 / (1 / mTargetBody.getMass() + rn * rn / inertia);
     }
 
     private void updateGroundInfo() {
@@ -211,7 +299,7 @@ public class Wheel implements Disposable {
             mMaterial = Material.AIR;
             return;
         }
-        mMaterial = mGameWorld.getTrack().getMaterialAt(mBody.getWorldCenter());
+        mMaterial = mGameWorld.getTrack().getMaterialAt(getPosition());
     }
 
     public void setCanDrift(boolean canDrift) {
@@ -222,10 +310,6 @@ public class Wheel implements Disposable {
         mMaxDrivingForce = maxDrivingForce;
     }
 
-    public CircularArray<Skidmark> getSkidmarks() {
-        return mSkidmarks;
-    }
-
     public Material getMaterial() {
         return mMaterial;
     }
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.pixelwheels.debug.DrawStats;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTile;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Renders tile layers from vertices baked once in a SpriteCache, instead of submitting all visible
+ * tiles to a SpriteBatch each frame like OrthogonalTiledMapRenderer does.
+ *
+ * <p>Layers are rendered in groups, each group is split in chunks of CHUNK_SIZE x CHUNK_SIZE tiles,
+ * and each chunk is a SpriteCache cache, so that render() only issues draw calls for the chunks
+ * overlapping the view.
+ *
+ * <p>Tiles are baked as they are when the renderer is created: animated tiles would not be
+ * animated, but maps do not use them.
+ */
+class CachedTiledMapRenderer implements Disposable {
+    private static final int CHUNK_SIZE = 16;
+
+    // SpriteCache expects 6 vertices per sprite when it is not using indices, which it must not
+    // do to hold more than 8191 sprites
+    private static final int VERTICES_PER_TILE = 6;
+    private static final int VERTEX_SIZE = 5;
+
+    private final SpriteCache mSpriteCache;
+    private final float mChunkWidth;
+    private final float mChunkHeight;
+    private final int mChunkColumns;
+    private final int mChunkRows;
+
+    // For each group, the cache ID of each chunk, or -1 if the chunk is empty, and how many
+    // vertices the chunk contains
+    private final int[][] mCacheIds;
+    private final int[][] mVertexCounts;
+
+    // Chunks overlapping the view
+    private int mColumn1;
+    private int mColumn2;
+    private int mRow1;
+    private int mRow2;
+
+    private final float[] mQuad = new float[4 * VERTEX_SIZE];
+    private final float[] mVertices = new float[VERTICES_PER_TILE * VERTEX_SIZE];
+
+    /**
+     * Bakes the layers of @p map listed in @p layerGroups. The index of a group in @p layerGroups
+     * is the value to pass to render() to draw it.
+     */
+    CachedTiledMapRenderer(TiledMap map, float unitScale, int[][] layerGroups) {
+        TiledMapTileLayer firstLayer = (TiledMapTileLayer) map.getLayers().get(0);
+        int mapWidth = 0;
+        int mapHeight = 0;
+        int tileCount = 0;
+        for (int[] group : layerGroups) {
+            for (int layerIndex : group) {
+                TiledMapTileLayer layer = (TiledMapTileLayer) map.getLayers().get(layerIndex);
+                mapWidth = Math.max(mapWidth, layer.getWidth());
+                mapHeight = Math.max(mapHeight, layer.getHeight());
+                tileCount += countTiles(layer);
+            }
+        }
+        float tileWidth = firstLayer.getTileWidth() * unitScale;
+        float tileHeight = firstLayer.getTileHeight() * unitScale;
+        mChunkWidth = CHUNK_SIZE * tileWidth;
+        mChunkHeight = CHUNK_SIZE * tileHeight;
+        mChunkColumns = MathUtils.ceil(mapWidth / (float) CHUNK_SIZE);
+        mChunkRows = MathUtils.ceil(mapHeight / (float) CHUNK_SIZE);
+
+        mSpriteCache = new SpriteCache(Math.max(tileCount, 1), false);
+        int chunkCount = mChunkColumns * mChunkRows;
+        mCacheIds = new int[layerGroups.length][chunkCount];
+        mVertexCounts = new int[layerGroups.length][chunkCount];
+        for (int groupIdx = 0; groupIdx < layerGroups.length; ++groupIdx) {
+            for (int row = 0; row < mChunkRows; ++row) {
+                for (int column = 0; column < mChunkColumns; ++column) {
+                    bakeChunk(map, unitScale, layerGroups[groupIdx], groupIdx, column, row);
+                }
+            }
+        }
+    }
+
+    /** Defines the visible part of the map, in world units */
+    void setView(Matrix4 projectionMatrix, float x, float y, float width, float height) {
+        mSpriteCache.setProjectionMatrix(projectionMatrix);
+        // Tiles can overflow their cell, so keep chunks which are just outside the view
+        mColumn1 = Math.max(MathUtils.floor(x / mChunkWidth) - 1, 0);
+        mColumn2 = Math.min(MathUtils.floor((x + width) / mChunkWidth) + 1, mChunkColumns - 1);
+        mRow1 = Math.max(MathUtils.floor(y / mChunkHeight) - 1, 0);
+        mRow2 = Math.min(MathUtils.floor((y + height) / mChunkHeight) + 1, mChunkRows - 1);
+    }
+
+    /** Draws the visible chunks of a layer group, and adds what has been drawn to @p stats */
+    void render(int group, boolean blending, DrawStats stats) {
+        if (blending) {
+            Gdx.gl.glEnable(GL20.GL_BLEND);
+            Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        }
+        int[] cacheIds = mCacheIds[group];
+        int[] vertexCounts = mVertexCounts[group];
+        int vertexCount = 0;
+        mSpriteCache.begin();
+        for (int row = mRow1; row <= mRow2; ++row) {
+            for (int column = mColumn1; column <= mColumn2; ++column) {
+                int chunk = row * mChunkColumns + column;
+                if (cacheIds[chunk] >= 0) {
+                    mSpriteCache.draw(cacheIds[chunk]);
+                    vertexCount += vertexCounts[chunk];
+                }
+            }
+        }
+        mSpriteCache.end();
+        if (blending) {
+            Gdx.gl.glDisable(GL20.GL_BLEND);
+        }
+        stats.add(vertexCount, mSpriteCache.renderCalls);
+    }
+
+    @Override
+    public void dispose() {
+        mSpriteCache.dispose();
+    }
+
+    private void bakeChunk(
+            TiledMap map, float unitScale, int[] layerIndexes, int groupIdx, int column, int row) {
+        int chunk = row * mChunkColumns + column;
+        int tileCount = 0;
+        mSpriteCache.beginCache();
+        for (int layerIndex : layerIndexes) {
+            TiledMapTileLayer layer = (TiledMapTileLayer) map.getLayers().get(layerIndex);
+            if (layer.isVisible()) {
+                tileCount += bakeChunkLayer(layer, unitScale, column, row);
+            }
+        }
+        int cacheId = mSpriteCache.endCache();
+        mCacheIds[groupIdx][chunk] = tileCount > 0 ? cacheId : -1;
+        mVertexCounts[groupIdx][chunk] = tileCount * VERTICES_PER_TILE;
+    }
+
+    /**
+     * Adds the tiles of @p layer which are in the chunk at @p chunkColumn, @p chunkRow to the
+     * current cache. Vertices are computed the same way OrthogonalTiledMapRenderer does, top row
+     * first. Returns the number of tiles added
+     */
+    private int bakeChunkLayer(
+            TiledMapTileLayer layer, float unitScale, int chunkColumn, int chunkRow) {
+        float color = Color.toFloatBits(1, 1, 1, layer.getOpacity());
+        float layerTileWidth = layer.getTileWidth() * unitScale;
+        float layerTileHeight = layer.getTileHeight() * unitScale;
+        float layerOffsetX = layer.getRenderOffsetX() * unitScale;
+        // Offsets in Tiled are y down
+        float layerOffsetY = -layer.getRenderOffsetY() * unitScale;
+
+        int column1 = chunkColumn * CHUNK_SIZE;
+        int column2 = Math.min(column1 + CHUNK_SIZE, layer.getWidth());
+        int row1 = chunkRow * CHUNK_SIZE;
+        int row2 = Math.min(row1 + CHUNK_SIZE, layer.getHeight());
+
+        int tileCount = 0;
+        for (int row = row2 - 1; row >= row1; --row) {
+            for (int column = column1; column < column2; ++column) {
+                TiledMapTileLayer.Cell cell = layer.getCell(column, row);
+                if (cell == null || cell.getTile() == null) {
+                    continue;
+                }
+                TiledMapTile tile = cell.getTile();
+                TextureRegion region = tile.getTextureRegion();
+                float x1 = column * layerTileWidth + tile.getOffsetX() * unitScale + layerOffsetX;
+                float y1 = row * layerTileHeight + tile.getOffsetY() * unitScale + layerOffsetY;
+                float x2 = x1 + region.getRegionWidth() * unitScale;
+                float y2 = y1 + region.getRegionHeight() * unitScale;
+                setQuad(cell, region, color, x1, y1, x2, y2);
+                mSpriteCache.add(region.getTexture(), mVertices, 0, mVertices.length);
+                ++tileCount;
+            }
+        }
+        return tileCount;
+    }
+
+    /**
+     * Fills mVertices with the two triangles of a tile. mQuad holds the 4 corners: bottom-left,
+     * top-left, top-right and bottom-right
+     */
+    private void setQuad(
+            TiledMapTileLayer.Cell cell,
+            TextureRegion region,
+            float color,
+            float x1,
+            float y1,
+            float x2,
+            float y2) {
+        float u1 = region.getU();
+        float v1 = region.getV2();
+        float u2 = region.getU2();
+        float v2 = region.getV();
+        setCorner(0, x1, y1, color, u1, v1);
+        setCorner(1, x1, y2, color, u1, v2);
+        setCorner(2, x2, y2, color, u2, v2);
+        setCorner(3, x2, y1, color, u2, v1);
+
+        if (cell.getFlipHorizontally()) {
+            swapTexCoords(0, 2, 3);
+            swapTexCoords(1, 3, 3);
+        }
+        if (cell.getFlipVertically()) {
+            swapTexCoords(0, 2, 4);
+            swapTexCoords(1, 3, 4);
+        }
+        switch (cell.getRotation()) {
+            case TiledMapTileLayer.Cell.ROTATE_90:
+                rotateTexCoords(1);
+                break;
+            case TiledMapTileLayer.Cell.ROTATE_180:
+                rotateTexCoords(2);
+                break;
+            case TiledMapTileLayer.Cell.ROTATE_270:
+                rotateTexCoords(3);
+                break;
+        }
+
+        // Triangles 0-1-2 and 2-3-0
+        System.arraycopy(mQuad, 0, mVertices, 0, 3 * VERTEX_SIZE);
+        System.arraycopy(mQuad, 2 * VERTEX_SIZE, mVertices, 3 * VERTEX_SIZE, 2 * VERTEX_SIZE);
+        System.arraycopy(mQuad, 0, mVertices, 5 * VERTEX_SIZE, VERTEX_SIZE);
+    }
+
+    private void setCorner(int corner, float x, float y, float color, float u, float v) {
+        int offset = corner * VERTEX_SIZE;
+        mQuad[offset] = x;
+        mQuad[offset + 1] = y;
+        mQuad[offset + 2] = color;
+        mQuad[offset + 3] = u;
+        mQuad[offset + 4] = v;
+    }
+
+    /** Swaps the texture coordinate at @p field (3 for u, 4 for v) of two corners */
+    private void swapTexCoords(int corner1, int corner2, int field) {
+        int offset1 = corner1 * VERTEX_SIZE + field;
+        int offset2 = corner2 * VERTEX_SIZE + field;
+        float tmp = mQuad[offset1];
+        mQuad[offset1] = mQuad[offset2];
+        mQuad[offset2] = tmp;
+    }
+
+    /**
+     * Moves the texture coordinates of each corner @p steps corners backward: for one step, corner
+     * 0 gets the coordinates of corner 1, corner 1 those of corner 2...
+     */
+    private void rotateTexCoords(int steps) {
+        for (int step = 0; step < steps; ++step) {
+            float u = mQuad[3];
+            float v = mQuad[4];
+            for (int corner = 0; corner < 3; ++corner) {
+                int offset = corner * VERTEX_SIZE;
+                mQuad[offset + 3] = mQuad[offset + VERTEX_SIZE + 3];
+                mQuad[offset + 4] = mQuad[offset + VERTEX_SIZE + 4];
+            }
+            mQuad[3 * VERTEX_SIZE + 3] = u;
+            mQuad[3 * VERTEX_SIZE + 4] = v;
+        }
+    }
+
+    private static int countTiles(TiledMapTileLayer layer) {
+        int count = 0;
+        for (int row = 0; row < layer.getHeight(); ++row) {
+            for (int column = 0; column < layer.getWidth(); ++column) {
+                TiledMapTileLayer.Cell cell = layer.getCell(column, row);
+                if (cell != null && cell.getTile() != null) {
+                    ++count;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -34,6 +34,7 @@ public class CountDown {
 
     private float mTime = START;
     private boolean mFirstCall = true;
+    private String mPendingSoundName = null;
 
     public CountDown(GameWorld gameWorld, AudioManager audioManager, SoundAtlas soundAtlas) {
         mGameWorld = gameWorld;
@@ -63,11 +64,21 @@ public class CountDown {
         int newValue = getValue();
         if ((oldValue != newValue && newValue >= 0) || mFirstCall) {
             mFirstCall = false;
-            String soundName = newValue > 0 ? "countdown1" : "countdown2";
-            mAudioManager.play(mSoundAtlas.get(soundName), 1f);
+            mPendingSoundName = newValue > 0 ? "countdown1" : "countdown2";
         }
         if (mTime < 0) {
             mGameWorld.startRace();
         }
     }
+
+    /**
+     * Plays the sound of the last tick, if any. act() can run on the simulation thread, so like
+     * GameObject.audioRender() this must be called from the render thread.
+     */
+    public void audioRender() {
+        if (mPendingSoundName != null) {
+            mAudioManager.play(mSoundAtlas.get(mPendingSoundName), 1f);
+            mPendingSoundName = null;
+        }
+    }
 }
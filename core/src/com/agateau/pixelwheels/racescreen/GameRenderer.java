@@ -23,24 +23,30 @@ import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.ZLevel;
 import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.pixelwheels.debug.DebugShapeMap;
-import com.agateau.pixelwheels.gameobjet.GameObject;
+import com.agateau.pixelwheels.debug.DrawStats;
+import com.agateau.pixelwheels.gameobjet.RenderQueue;
 import com.agateau.pixelwheels.map.Track;
 import com.agateau.pixelwheels.map.WaypointStore;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.graphics.glutils.HdpiUtils;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
-import com.badlogic.gdx.maps.tiled.renderers.OrthogonalTiledMapRenderer;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
+import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.PerformanceCounter;
 import com.badlogic.gdx.utils.PerformanceCounters;
 
 /** Responsible for rendering the game world */
-public class GameRenderer {
+public class GameRenderer implements Disposable {
+    // Layer groups of mTileRenderer
+    private static final int BACKGROUND_GROUP = 0;
+    private static final int EXTRA_BACKGROUND_GROUP = 1;
+    private static final int FOREGROUND_GROUP = 2;
+
     private final Track mTrack;
-    private final OrthogonalTiledMapRenderer mRenderer;
+    private final CachedTiledMapRenderer mTileRenderer;
     private final Box2DDebugRenderer mDebugRenderer;
     private final Batch mBatch;
     private final OrthographicCamera mCamera;
@@ -57,11 +63,23 @@ public class GameRenderer {
     private int mScreenWidth;
     private int mScreenHeight;
     private final PerformanceCounter mTilePerformanceCounter;
+    private final DrawStats mTileDrawStats = new DrawStats();
     private final PerformanceCounter mGameObjectPerformanceCounter;
+    private final RenderQueue mRenderQueue = new RenderQueue();
+    // Only set if the game objects must be recorded, see prepare()
+    private final RecordingBatch mRecordingBatch;
+    // Index of the first quad of mRecordingBatch to draw above the foreground tile layers
+    private int mForegroundQuadIndex = 0;
 
-    public GameRenderer(GameWorld world, Batch batch, PerformanceCounters counters) {
+    /**
+     * @param recording if true, prepare() records how the game objects look, so that draw() can be
+     *     called while the world changes. Otherwise draw() draws the game objects directly.
+     */
+    public GameRenderer(
+            GameWorld world, Batch batch, PerformanceCounters counters, boolean recording) {
         mDebugRenderer = new Box2DDebugRenderer();
         mWorld = world;
+        mRecordingBatch = recording ? new RecordingBatch() : null;
 
         mTrack = mWorld.getTrack();
 
@@ -77,8 +95,15 @@ public class GameRenderer {
                         : singlePlayer
                                 ? new SinglePlayerCameraUpdater(mWorld)
                                 : new MultiPlayerCameraUpdater(mWorld);
-        mRenderer =
-                new OrthogonalTiledMapRenderer(mTrack.getMap(), Constants.UNIT_FOR_PIXEL, mBatch);
+        mTileRenderer =
+                new CachedTiledMapRenderer(
+                        mTrack.getMap(),
+                        Constants.UNIT_FOR_PIXEL,
+                        new int[][] {
+                            mBackgroundLayerFirstIndexes,
+                            mExtraBackgroundLayerIndexes,
+                            mForegroundLayerIndexes
+                        });
 
         mTilePerformanceCounter = counters.add("- tiles");
         mGameObjectPerformanceCounter = counters.add("- g.o.");
@@ -106,6 +131,20 @@ public class GameRenderer {
                 });
     }
 
+    public PerformanceCounter getTilePerformanceCounter() {
+        return mTilePerformanceCounter;
+    }
+
+    /** Vertices and draw calls of the tile layers, for the last frame */
+    public DrawStats getTileDrawStats() {
+        return mTileDrawStats;
+    }
+
+    /** The game objects drawn on each ZLevel, for the last frame */
+    public RenderQueue getRenderQueue() {
+        return mRenderQueue;
+    }
+
     public void setScreenRect(int x, int y, int width, int height) {
         mScreenX = x;
         mScreenY = y;
@@ -119,37 +158,64 @@ public class GameRenderer {
     }
 
     public void render(float delta) {
-        HdpiUtils.glViewport(mScreenX, mScreenY, mScreenWidth, mScreenHeight);
+        prepare(delta);
+        draw();
+    }
+
+    /**
+     * Updates the camera and the render queue. When recording, also records how the game objects
+     * look, so that draw() does not need to access the world. Must not be called while the world
+     * is changing.
+     */
+    public void prepare(float delta) {
         updateCamera(delta);
         updateMapRendererCamera();
 
+        mGameObjectPerformanceCounter.start();
+        mRenderQueue.update(mWorld.getActiveGameObjects(), mWorld.getPassiveGameObjects());
+        if (mRecordingBatch == null) {
+            mGameObjectPerformanceCounter.stop();
+            return;
+        }
+        mRecordingBatch.begin();
+        for (ZLevel z : ZLevel.values()) {
+            mRenderQueue.draw(mRecordingBatch, z);
+            if (z == ZLevel.OBSTACLES) {
+                mForegroundQuadIndex = mRecordingBatch.getQuadCount();
+            }
+        }
+        mRecordingBatch.end();
+        mGameObjectPerformanceCounter.stop();
+    }
+
+    /**
+     * Draws the game objects queued by the last call to prepare(). When recording, only accesses
+     * the world if the debug layer is enabled.
+     */
+    public void draw() {
+        HdpiUtils.glViewport(mScreenX, mScreenY, mScreenWidth, mScreenHeight);
+
         mTilePerformanceCounter.start();
-        mBatch.disableBlending();
-        mRenderer.render(mBackgroundLayerFirstIndexes);
-        mBatch.enableBlending();
+        mTileDrawStats.reset();
+        mTileRenderer.render(BACKGROUND_GROUP, false, mTileDrawStats);
         if (mExtraBackgroundLayerIndexes.length > 0) {
-            mRenderer.render(mExtraBackgroundLayerIndexes);
+            mTileRenderer.render(EXTRA_BACKGROUND_GROUP, true, mTileDrawStats);
         }
         mTilePerformanceCounter.stop();
 
         mGameObjectPerformanceCounter.start();
         mBatch.begin();
-        for (ZLevel z : ZLevel.values()) {
-            for (GameObject object : mWorld.getActiveGameObjects()) {
-                object.draw(mBatch, z);
-            }
-
-            if (z == ZLevel.OBSTACLES && mForegroundLayerIndexes.length > 0) {
-                mGameObjectPerformanceCounter.stop();
-                mTilePerformanceCounter.start();
-
-                mBatch.end();
-                mRenderer.render(mForegroundLayerIndexes);
-                mBatch.begin();
-
-                mTilePerformanceCounter.stop();
-                mGameObjectPerformanceCounter.start();
+        if (mRecordingBatch == null) {
+            for (ZLevel z : ZLevel.values()) {
+                mRenderQueue.draw(mBatch, z);
+                if (z == ZLevel.OBSTACLES) {
+                    drawForegroundLayers();
+                }
             }
+        } else {
+            mRecordingBatch.replay(mBatch, 0, mForegroundQuadIndex);
+            drawForegroundLayers();
+            mRecordingBatch.replay(mBatch, mForegroundQuadIndex, mRecordingBatch.getQuadCount());
         }
         mGameObjectPerformanceCounter.stop();
         mBatch.end();
@@ -180,6 +246,22 @@ public class GameRenderer {
         }
     }
 
+    /** Must be called between mBatch.begin() and mBatch.end() */
+    private void drawForegroundLayers() {
+        if (mForegroundLayerIndexes.length == 0) {
+            return;
+        }
+        mGameObjectPerformanceCounter.stop();
+        mTilePerformanceCounter.start();
+
+        mBatch.end();
+        mTileRenderer.render(FOREGROUND_GROUP, true, mTileDrawStats);
+        mBatch.begin();
+
+        mTilePerformanceCounter.stop();
+        mGameObjectPerformanceCounter.start();
+    }
+
     private void updateCamera(float delta) {
         mCameraUpdater.update(delta);
     }
@@ -187,12 +269,13 @@ public class GameRenderer {
     private void updateMapRendererCamera() {
         float width = mCamera.viewportWidth * mCamera.zoom;
         float height = mCamera.viewportHeight * mCamera.zoom;
-        mRenderer.setView(
+        mTileRenderer.setView(
                 mCamera.combined,
                 mCamera.position.x - width / 2,
                 mCamera.position.y - height / 2,
                 width,
                 height);
+        mBatch.setProjectionMatrix(mCamera.combined);
     }
 
     private final Vector3 sTmp3 = new Vector3();
@@ -202,4 +285,11 @@ public class GameRenderer {
         mCamera.unproject(sTmp3);
         coord.set(sTmp3.x, sTmp3.y);
     }
+
+    @Override
+    public void dispose() {
+        mTileRenderer.dispose();
+        mShapeRenderer.dispose();
+        mDebugRenderer.dispose();
+    }
 }
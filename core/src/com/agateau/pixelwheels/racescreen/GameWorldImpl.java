@@ -19,6 +19,8 @@
 package com.agateau.pixelwheels.racescreen;
 
 import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.GameConfig;
+import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.PwGame;
 import com.agateau.pixelwheels.bonus.BonusPool;
@@ -34,9 +36,12 @@ import com.agateau.pixelwheels.obstacles.ObstacleCreator;
 import com.agateau.pixelwheels.obstacles.ObstacleDef;
 import com.agateau.pixelwheels.racer.AIPilot;
 import com.agateau.pixelwheels.racer.LapPositionComponent;
+import com.agateau.pixelwheels.racer.ObstaclePerception;
 import com.agateau.pixelwheels.racer.PlayerPilot;
 import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.SkidmarkManager;
 import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.replay.ReplayRecorder;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.stats.GameStats;
 import com.agateau.pixelwheels.stats.TrackResult;
@@ -44,7 +49,10 @@ import com.agateau.pixelwheels.stats.TrackStats;
 import com.agateau.pixelwheels.vehicledef.VehicleCreator;
 import com.agateau.pixelwheels.vehicledef.VehicleDef;
 import com.agateau.utils.Assert;
+import com.agateau.utils.CollectionUtils;
+import com.agateau.utils.FileUtils;
 import com.badlogic.gdx.maps.MapObject;
+import com.badlogic.gdx.math.RandomXS128;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Contact;
 import com.badlogic.gdx.physics.box2d.ContactImpulse;
@@ -55,15 +63,18 @@ import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.PerformanceCounter;
 import com.badlogic.gdx.utils.PerformanceCounters;
-import com.badlogic.gdx.utils.Sort;
 import java.util.Comparator;
 
 public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
-    private final PwGame mGame;
+    private final Assets mAssets;
+    private final AudioManager mAudioManager;
+    private final GameConfig mGameConfig;
+    private final GameStats mGameStats;
     private Track mTrack;
     private final CountDown mCountDown;
 
     private final World mBox2DWorld;
+    private final RandomXS128 mRandom = new RandomXS128();
     private float mTimeAccumulator = 0;
 
     private final Array<BonusPool> mBonusPools = new Array<>();
@@ -73,24 +84,67 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
     private State mState = GameWorld.State.COUNTDOWN;
 
     private final Array<GameObject> mActiveGameObjects = new Array<>();
+    private final Array<GameObject> mPassiveGameObjects = new Array<>();
+    private final ObstaclePerception mObstaclePerception;
+    private final SkidmarkManager mSkidmarkManager;
 
     private final PerformanceCounter mBox2DPerformanceCounter;
     private final PerformanceCounter mGameObjectPerformanceCounter;
 
-    GameWorldImpl(PwGame game, GameInfo gameInfo, PerformanceCounters performanceCounters) {
-        mGame = game;
+    private RaceTelemetry mTelemetry;
+    private ReplayRecorder mReplayRecorder;
+    private final Vehicle.PhysicsModel mPhysicsModel;
+
+    GameWorldImpl(
+            PwGame game,
+            GameStats gameStats,
+            GameInfo gameInfo,
+            PerformanceCounters performanceCounters) {
+        this(
+                game.getAssets(),
+                game.getAudioManager(),
+                game.getConfig(),
+                gameStats,
+                gameInfo,
+                performanceCounters);
+    }
+
+    /**
+     * Creates a world which does not depend on PwGame, used to run races without a screen.
+     *
+     * <p>gameConfig is only used for player racers, so it can be null if all entrants are AI
+     */
+    public GameWorldImpl(
+            Assets assets,
+            AudioManager audioManager,
+            GameConfig gameConfig,
+            GameStats gameStats,
+            GameInfo gameInfo,
+            PerformanceCounters performanceCounters) {
+        mAssets = assets;
+        mAudioManager = audioManager;
+        mGameConfig = gameConfig;
+        mGameStats = gameStats;
         mBox2DWorld = new World(new Vector2(0, 0), true);
         mBox2DWorld.setContactListener(this);
         mTrack = gameInfo.getTrack();
         mTrack.init();
-        mCountDown = new CountDown(this, game.getAudioManager(), game.getAssets().soundAtlas);
+        mCountDown = new CountDown(this, mAudioManager, mAssets.soundAtlas);
 
         mBox2DPerformanceCounter = performanceCounters.add("- box2d");
         mGameObjectPerformanceCounter = performanceCounters.add("- g.o");
+        mSkidmarkManager = new SkidmarkManager(mAssets.skidmark, GamePlay.instance.maxSkidmarks);
+        addGameObject(mSkidmarkManager);
+        mPhysicsModel = gameInfo.getPhysicsModel();
         setupRacers(gameInfo.getEntrants());
         setupObstacles();
+        mObstaclePerception = new ObstaclePerception(mBox2DWorld);
         setupBonusSpots();
         setupBonusPools();
+
+        if (GamePlay.instance.recordTelemetry) {
+            mTelemetry = new RaceTelemetry(FileUtils.getUserWritableFile("telemetry.dat"), mRacers);
+        }
     }
 
     @Override
@@ -133,19 +187,34 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         mActiveGameObjects.add(object);
     }
 
+    @Override
+    public Array<GameObject> getPassiveGameObjects() {
+        return mPassiveGameObjects;
+    }
+
+    @Override
+    public void addPassiveGameObject(GameObject object) {
+        mPassiveGameObjects.add(object);
+    }
+
     @Override
     public CountDown getCountDown() {
         return mCountDown;
     }
 
+    @Override
+    public ObstaclePerception getObstaclePerception() {
+        return mObstaclePerception;
+    }
+
+    @Override
+    public SkidmarkManager getSkidmarkManager() {
+        return mSkidmarkManager;
+    }
+
     @Override
     public int getRacerRank(Racer racer) {
-        for (int idx = mRacers.size - 1; idx >= 0; --idx) {
-            if (mRacers.get(idx) == racer) {
-                return idx + 1;
-            }
-        }
-        return -1;
+        return racer.getRank();
     }
 
     /**
@@ -162,7 +231,12 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
 
     @Override
     public GameStats getGameStats() {
-        return mGame.getGameStats();
+        return mGameStats;
+    }
+
+    @Override
+    public RandomXS128 getRandom() {
+        return mRandom;
     }
 
     /**
@@ -192,6 +266,9 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
 
     @Override
     public void act(float delta) {
+        if (mReplayRecorder != null) {
+            mReplayRecorder.beginStep(delta);
+        }
         mCountDown.act(delta);
         mBox2DPerformanceCounter.start();
         // fixed time step
@@ -208,6 +285,7 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         mBox2DPerformanceCounter.stop();
 
         mGameObjectPerformanceCounter.start();
+        mObstaclePerception.update(mActiveGameObjects);
         for (int idx = mActiveGameObjects.size - 1; idx >= 0; --idx) {
             GameObject obj = mActiveGameObjects.get(idx);
             obj.act(delta);
@@ -220,18 +298,16 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         }
         mGameObjectPerformanceCounter.stop();
 
-        // Skip finished racers so that they keep the position they had when they crossed the finish
-        // line, even if they continue a bit after it
-        int fromIndex;
-        for (fromIndex = 0; fromIndex < mRacers.size; ++fromIndex) {
-            if (!mRacers.get(fromIndex).getLapPositionComponent().hasFinishedRace()) {
-                break;
-            }
+        sortRacers();
+
+        if (mTelemetry != null) {
+            mTelemetry.record(delta, mRacers);
         }
-        Sort.instance().sort(mRacers.items, sRacerComparator, fromIndex, mRacers.size);
 
+        // Without players (for example when running simulations), wait for all racers
+        Array<Racer> watchedRacers = mPlayerRacers.size > 0 ? mPlayerRacers : mRacers;
         boolean allFinished = true;
-        for (Racer racer : mPlayerRacers) {
+        for (Racer racer : watchedRacers) {
             if (!racer.getLapPositionComponent().hasFinishedRace()) {
                 allFinished = false;
                 break;
@@ -240,10 +316,48 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
         if (allFinished) {
             setState(GameWorld.State.FINISHED);
         }
+
+        if (mReplayRecorder != null) {
+            mReplayRecorder.endStep();
+        }
+    }
+
+    /**
+     * Records the race in @p recorder. Must be called before the first call to act(), so that the
+     * racers are still in entrant order
+     */
+    public void setReplayRecorder(ReplayRecorder recorder) {
+        mReplayRecorder = recorder;
+        recorder.start(this);
+    }
+
+    /** The part of the last frames which has not been simulated yet, used by replays */
+    public float getTimeAccumulator() {
+        return mTimeAccumulator;
+    }
+
+    public void setTimeAccumulator(float timeAccumulator) {
+        mTimeAccumulator = timeAccumulator;
+    }
+
+    /** Sorts racers by rank. Called by act(), public so that benchmarks can measure it */
+    public void sortRacers() {
+        // Skip finished racers so that they keep the position they had when they crossed the finish
+        // line, even if they continue a bit after it
+        int fromIndex;
+        for (fromIndex = 0; fromIndex < mRacers.size; ++fromIndex) {
+            if (!mRacers.get(fromIndex).getLapPositionComponent().hasFinishedRace()) {
+                break;
+            }
+        }
+        // Racers rarely change rank between two steps, so the list is almost always sorted already
+        CollectionUtils.insertionSort(mRacers.items, sRacerComparator, fromIndex, mRacers.size);
+        for (int idx = fromIndex; idx < mRacers.size; ++idx) {
+            mRacers.get(idx).setRank(idx + 1);
+        }
     }
 
     private void onFinished() {
-        TrackStats stats = mGame.getGameStats().getTrackStats(mTrack);
         for (int idx = 0; idx < mRacers.size; ++idx) {
             Racer racer = mRacers.get(idx);
             racer.markRaceFinished();
@@ -254,42 +368,65 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
 
             LapPositionComponent lapPositionComponent = racer.getLapPositionComponent();
             entrant.addRaceTime(lapPositionComponent.getTotalTime());
+        }
+    }
 
-            if (entrant.isPlayer()) {
-                Racer.RecordRanks ranks = racer.getRecordRanks();
-                // TODO find another way to get the name
-                String name = racer.getVehicle().getName();
-                ranks.lapRecordRank =
-                        stats.addResult(
-                                TrackStats.ResultType.LAP,
-                                new TrackResult(name, lapPositionComponent.getBestLapTime()));
-                ranks.totalRecordRank =
-                        stats.addResult(
-                                TrackStats.ResultType.TOTAL,
-                                new TrackResult(name, lapPositionComponent.getTotalTime()));
+    /**
+     * Adds the lap and total times of the players to the track records. Must be called once the
+     * race is finished, from the thread which owns the game stats: act() may run on another thread.
+     */
+    public void recordTrackResults() {
+        Assert.check(mState == GameWorld.State.FINISHED, "The race is not finished");
+        TrackStats stats = mGameStats.getTrackStats(mTrack);
+        // Go through mRacers rather than mPlayerRacers so that results are added in rank order
+        for (Racer racer : mRacers) {
+            if (!racer.getEntrant().isPlayer()) {
+                continue;
             }
+            LapPositionComponent lapPositionComponent = racer.getLapPositionComponent();
+            Racer.RecordRanks ranks = racer.getRecordRanks();
+            // TODO find another way to get the name
+            String name = racer.getVehicle().getName();
+            ranks.lapRecordRank =
+                    stats.addResult(
+                            TrackStats.ResultType.LAP,
+                            new TrackResult(name, lapPositionComponent.getBestLapTime()));
+            ranks.totalRecordRank =
+                    stats.addResult(
+                            TrackStats.ResultType.TOTAL,
+                            new TrackResult(name, lapPositionComponent.getTotalTime()));
         }
     }
 
+    public Vehicle.PhysicsModel getPhysicsModel() {
+        return mPhysicsModel;
+    }
+
     private void setupRacers(Array<GameInfo.Entrant> entrants) {
-        VehicleCreator creator = new VehicleCreator(mGame.getAssets(), this);
-        Assets assets = mGame.getAssets();
+        VehicleCreator creator = new VehicleCreator(mAssets, this);
+        creator.setPhysicsModel(mPhysicsModel);
 
         final float startAngle = 90;
         Array<Vector2> positions = mTrack.findStartTilePositions();
         positions.reverse();
+        Assert.check(positions.size > 0, "No start tiles");
+        float gridHeight = computeStartGridHeight(positions);
 
-        AudioManager audioManager = mGame.getAudioManager();
+        Vector2 position = new Vector2();
         for (int idx = 0; idx < entrants.size; ++idx) {
-            Assert.check(idx < positions.size, "Too many entrants");
+            // Maps have one start tile per racer of a normal race. Simulations and benchmarks can
+            // use more racers: put them on copies of the start grid, stacked behind it
+            int gridIdx = idx / positions.size;
+            position.set(positions.get(idx % positions.size)).sub(0, gridIdx * gridHeight);
+
             GameInfo.Entrant entrant = entrants.get(idx);
-            VehicleDef vehicleDef = assets.findVehicleDefById(entrant.getVehicleId());
-            Vehicle vehicle = creator.create(vehicleDef, positions.get(idx), startAngle);
-            Racer racer = new Racer(assets, audioManager, this, vehicle, entrant);
+            VehicleDef vehicleDef = mAssets.findVehicleDefById(entrant.getVehicleId());
+            Vehicle vehicle = creator.create(vehicleDef, position, startAngle);
+            Racer racer = new Racer(mAssets, mAudioManager, this, vehicle, entrant);
             if (entrant.isPlayer()) {
                 GameInfo.Player player = (GameInfo.Player) entrant;
                 PlayerPilot pilot =
-                        new PlayerPilot(assets, this, racer, mGame.getConfig(), player.getIndex());
+                        new PlayerPilot(mAssets, this, racer, mGameConfig, player.getIndex());
                 racer.setPilot(pilot);
                 mPlayerRacers.add(racer);
             } else {
@@ -297,41 +434,52 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
             }
             addGameObject(racer);
             mRacers.add(racer);
+            racer.setRank(mRacers.size);
         }
     }
 
+    /** Returns the height of the area covered by the start tiles @p positions */
+    private float computeStartGridHeight(Array<Vector2> positions) {
+        float minY = positions.first().y;
+        float maxY = minY;
+        for (Vector2 position : positions) {
+            minY = Math.min(minY, position.y);
+            maxY = Math.max(maxY, position.y);
+        }
+        return maxY - minY + mTrack.getTileHeight();
+    }
+
     private void setupObstacles() {
         ObstacleCreator creator = new ObstacleCreator();
-        for (ObstacleDef def : mGame.getAssets().obstacleDefs) {
+        for (ObstacleDef def : mAssets.obstacleDefs) {
             creator.addObstacleDef(def);
         }
 
         for (MapObject object : mTrack.getObstacleObjects()) {
-            creator.create(this, mGame.getAssets(), object);
+            creator.create(this, mAssets, object);
         }
+        creator.finish(this);
     }
 
     private void setupBonusSpots() {
         for (Vector2 pos : mTrack.findBonusSpotPositions()) {
-            BonusSpot spot =
-                    new BonusSpot(mGame.getAssets(), mGame.getAudioManager(), this, pos.x, pos.y);
+            BonusSpot spot = new BonusSpot(mAssets, mAudioManager, this, pos.x, pos.y);
             addGameObject(spot);
         }
     }
 
     private void setupBonusPools() {
         addPool(
-                new BonusPool<>(GunBonus.class, mGame.getAssets(), this, mGame.getAudioManager()),
+                new BonusPool<>(GunBonus.class, mAssets, this, mAudioManager),
                 new float[] {0.2f, 1.0f, 1.0f});
         addPool(
-                new BonusPool<>(MineBonus.class, mGame.getAssets(), this, mGame.getAudioManager()),
+                new BonusPool<>(MineBonus.class, mAssets, this, mAudioManager),
                 new float[] {2.0f, 1.0f, 0.5f});
         addPool(
-                new BonusPool<>(TurboBonus.class, mGame.getAssets(), this, mGame.getAudioManager()),
+                new BonusPool<>(TurboBonus.class, mAssets, this, mAudioManager),
                 new float[] {0.1f, 1.0f, 2.0f});
         addPool(
-                new BonusPool<>(
-                        MissileBonus.class, mGame.getAssets(), this, mGame.getAudioManager()),
+                new BonusPool<>(MissileBonus.class, mAssets, this, mAudioManager),
                 new float[] {0.2f, 1.0f, 1.0f});
     }
 
@@ -420,9 +568,20 @@ public class GameWorldImpl implements ContactListener, Disposable, GameWorld {
             }
         }
         mActiveGameObjects.clear();
+        for (GameObject gameObject : mPassiveGameObjects) {
+            if (gameObject instanceof Disposable) {
+                ((Disposable) gameObject).dispose();
+            }
+        }
+        mPassiveGameObjects.clear();
+        mBox2DWorld.dispose();
+        if (mTelemetry != null) {
+            mTelemetry.dispose();
+        }
     }
 
-    void forgetTrack() {
+    /** Prevents dispose() from disposing the track, for callers which keep using it */
+    public void forgetTrack() {
         mTrack = null;
     }
 }
@@ -30,6 +30,7 @@ import com.agateau.pixelwheels.racer.HoleHandlerComponent;
 import com.agateau.pixelwheels.racer.Vehicle;
 import com.agateau.pixelwheels.sound.AudioManager;
 import com.agateau.pixelwheels.sound.SoundPlayer;
+import com.agateau.utils.PerThreadReflectionPool;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.Pixmap;
@@ -43,7 +44,6 @@ import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.Pool;
-import com.badlogic.gdx.utils.ReflectionPool;
 
 /** The rescue helicopter which comes to pick up fallen vehicles */
 public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disposable {
@@ -62,7 +62,8 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
         LEAVING
     }
 
-    private static final ReflectionPool<Helicopter> sPool = new ReflectionPool<>(Helicopter.class);
+    private static final PerThreadReflectionPool<Helicopter> sPool =
+            new PerThreadReflectionPool<>(Helicopter.class);
 
     private SoundPlayer mSoundPlayer;
     private FrameBuffer mFrameBuffer;
@@ -79,6 +80,8 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
     private float mEndAngle;
     private final Vector2 mLeavePosition = new Vector2();
     private float mTime;
+    // Value of mTime when mFrameBuffer was last updated
+    private float mFrameBufferTime;
     private State mState;
 
     public static Helicopter create(
@@ -109,22 +112,9 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
         object.mEndAngle = holeHandlerComponent.getVehicle().getAngle();
         object.mLeavePosition.set(vehicle.getPosition().x, mapHeight);
         object.mTime = 0;
+        object.mFrameBufferTime = -1;
         object.mState = State.ARRIVING;
 
-        if (object.mFrameBuffer == null) {
-            int bufferWidth = object.mPropellerRegion.getRegionWidth();
-            int bufferHeight = object.mPropellerRegion.getRegionHeight() / 2 + (int) BODY_CENTER.y;
-            object.mFrameBuffer =
-                    new FrameBuffer(
-                            Pixmap.Format.RGBA8888,
-                            bufferWidth,
-                            bufferHeight,
-                            false /* hasDepth */);
-            object.mFrameBufferBatch = new SpriteBatch();
-            object.mFrameBufferBatch.setProjectionMatrix(
-                    new Matrix4().setToOrtho2D(0, 0, bufferWidth, bufferHeight));
-        }
-
         return object;
     }
 
@@ -151,7 +141,6 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
     @Override
     public void act(float delta) {
         mTime += delta;
-        updateFrameBuffer();
         switch (mState) {
             case ARRIVING:
                 actArriving(delta);
@@ -230,8 +219,18 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
         mAngle = MathUtils.lerp(mStartAngle, mEndAngle, progress);
     }
 
+    @Override
+    public int getZLevelMask() {
+        return ZLevel.SHADOWS.mask() | ZLevel.FLYING.mask();
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {
+        if (mFrameBufferTime != mTime) {
+            // Done here rather than in act() because act() may not run on the GL thread
+            updateFrameBuffer();
+            mFrameBufferTime = mTime;
+        }
         if (zLevel == ZLevel.SHADOWS) {
             float old = batch.getPackedColor();
             batch.setColor(0, 0, 0, SHADOW_ALPHA);
@@ -254,6 +253,20 @@ public class Helicopter extends GameObjectAdapter implements Pool.Poolable, Disp
         float propellerTopW = mPropellerTopRegion.getRegionWidth();
         float propellerTopH = mPropellerTopRegion.getRegionHeight();
 
+        if (mFrameBuffer == null) {
+            int bufferWidth = mPropellerRegion.getRegionWidth();
+            int bufferHeight = mPropellerRegion.getRegionHeight() / 2 + (int) BODY_CENTER.y;
+            mFrameBuffer =
+                    new FrameBuffer(
+                            Pixmap.Format.RGBA8888,
+                            bufferWidth,
+                            bufferHeight,
+                            false /* hasDepth */);
+            mFrameBufferBatch = new SpriteBatch();
+            mFrameBufferBatch.setProjectionMatrix(
+                    new Matrix4().setToOrtho2D(0, 0, bufferWidth, bufferHeight));
+        }
+
         mFrameBuffer.begin();
         mFrameBufferBatch.begin();
         Gdx.gl.glClearColor(0, 0, 0, 0);
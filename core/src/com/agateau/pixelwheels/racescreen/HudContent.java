@@ -20,18 +20,24 @@ package com.agateau.pixelwheels.racescreen;
 
 import com.agateau.pixelwheels.Assets;
 import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.ZLevel;
+import com.agateau.pixelwheels.debug.AllocationTrackingPerformanceCounters;
 import com.agateau.pixelwheels.debug.DebugStringMap;
+import com.agateau.pixelwheels.debug.DrawStats;
+import com.agateau.pixelwheels.gameobjet.RenderQueue;
 import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.utils.StringUtils;
 import com.agateau.ui.anchor.Anchor;
 import com.agateau.ui.anchor.AnchorGroup;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.ui.Label;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IdentityMap;
 import com.badlogic.gdx.utils.PerformanceCounter;
 import com.badlogic.gdx.utils.PerformanceCounters;
 import com.badlogic.gdx.utils.StringBuilder;
@@ -43,6 +49,8 @@ public class HudContent {
     private final GameWorld mGameWorld;
     private final Hud mHud;
     private PerformanceCounters mPerformanceCounters = null;
+    private final IdentityMap<PerformanceCounter, DrawStats> mDrawStats = new IdentityMap<>();
+    private RenderQueue mRenderQueue;
 
     private final Array<Label> mRankLabels = new Array<>();
     private final Array<Label> mLapLabels = new Array<>();
@@ -103,6 +111,16 @@ public class HudContent {
         root.addPositionRule(mDebugLabel, Anchor.CENTER_LEFT, root, Anchor.CENTER_LEFT);
     }
 
+    /** Shows @p stats next to @p counter in the debug label */
+    public void addDrawStats(PerformanceCounter counter, DrawStats stats) {
+        mDrawStats.put(counter, stats);
+    }
+
+    /** Shows the number of objects drawn on each ZLevel in the debug label */
+    public void setRenderQueue(RenderQueue renderQueue) {
+        mRenderQueue = renderQueue;
+    }
+
     public void createPauseButton(ClickListener clickListener) {
         HudButton button = new HudButton(mAssets, mHud, "pause");
         button.addListener(clickListener);
@@ -164,10 +182,23 @@ public class HudContent {
     }
 
     private static final StringBuilder sDebugSB = new StringBuilder();
+    private static final ZLevel[] ZLEVELS = ZLevel.values();
 
     private void updateDebugLabel() {
         sDebugSB.setLength(0);
-        sDebugSB.append("objCount: ").append(mGameWorld.getActiveGameObjects().size).append('\n');
+        sDebugSB.append("objCount: ")
+                .append(mGameWorld.getActiveGameObjects().size)
+                .append(" + ")
+                .append(mGameWorld.getPassiveGameObjects().size)
+                .append(" passive\n");
+        World box2DWorld = mGameWorld.getBox2DWorld();
+        sDebugSB.append("box2d: ")
+                .append(box2DWorld.getBodyCount())
+                .append(" bodies, ")
+                .append(box2DWorld.getFixtureCount())
+                .append(" fixtures, ")
+                .append(box2DWorld.getContactCount())
+                .append(" contacts\n");
         sDebugSB.append("FPS: ").append(Gdx.graphics.getFramesPerSecond()).append('\n');
         for (PerformanceCounter counter : mPerformanceCounters.counters) {
             sDebugSB.append(counter.name)
@@ -175,7 +206,35 @@ public class HudContent {
                     .append(String.valueOf((int) (counter.time.value * 1000)))
                     .append(" | ")
                     .append(String.valueOf((int) (counter.load.value * 100)))
-                    .append("%\n");
+                    .append("%");
+            if (counter instanceof AllocationTrackingPerformanceCounters.Counter) {
+                long bytes =
+                        ((AllocationTrackingPerformanceCounters.Counter) counter).lastFrameBytes;
+                sDebugSB.append(" | ").append(bytes).append("B");
+            }
+            DrawStats drawStats = mDrawStats.get(counter);
+            if (drawStats != null) {
+                sDebugSB.append(" | ")
+                        .append(drawStats.vertexCount)
+                        .append("v ")
+                        .append(drawStats.drawCallCount)
+                        .append("dc");
+            }
+            sDebugSB.append('\n');
+        }
+        if (mRenderQueue != null) {
+            sDebugSB.append("draw(): ")
+                    .append(mRenderQueue.getDrawCallCount())
+                    .append(" calls for ")
+                    .append(mRenderQueue.getObjectCount())
+                    .append(" objects\n");
+            for (ZLevel zLevel : ZLEVELS) {
+                sDebugSB.append("- ")
+                        .append(zLevel.name())
+                        .append(": ")
+                        .append(mRenderQueue.getObjectCount(zLevel))
+                        .append('\n');
+            }
         }
         for (Map.Entry<String, String> entry : DebugStringMap.getMap().entrySet()) {
             sDebugSB.append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
@@ -50,6 +50,11 @@ class MineDropper extends GameObjectAdapter {
         }
     }
 
+    @Override
+    public int getZLevelMask() {
+        return 0;
+    }
+
     @Override
     public void draw(Batch batch, ZLevel zLevel) {}
 
@@ -21,6 +21,8 @@ package com.agateau.pixelwheels.racescreen;
 import com.agateau.pixelwheels.GamePlay;
 import com.agateau.pixelwheels.GameWorld;
 import com.agateau.pixelwheels.PwGame;
+import com.agateau.pixelwheels.debug.AllocationCounter;
+import com.agateau.pixelwheels.debug.AllocationTrackingPerformanceCounters;
 import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.pixelwheels.debug.DebugShapeMap;
 import com.agateau.pixelwheels.gameinput.GameInputHandlerFactories;
@@ -32,12 +34,17 @@ import com.agateau.pixelwheels.racer.Pilot;
 import com.agateau.pixelwheels.racer.PlayerPilot;
 import com.agateau.pixelwheels.racer.Racer;
 import com.agateau.pixelwheels.racer.RacerDebugShape;
+import com.agateau.pixelwheels.replay.ReplayRecorder;
 import com.agateau.pixelwheels.screens.ConfigScreen;
 import com.agateau.pixelwheels.screens.PwStageScreen;
+import com.agateau.pixelwheels.stats.DeferredGameStats;
+import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.utils.FileUtils;
 import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.ScreenAdapter;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
@@ -47,6 +54,7 @@ import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.utils.PerformanceCounter;
 import com.badlogic.gdx.utils.PerformanceCounters;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
+import java.io.IOException;
 
 public class RaceScreen extends ScreenAdapter {
     public interface Listener {
@@ -57,11 +65,14 @@ public class RaceScreen extends ScreenAdapter {
         void onNextTrackPressed();
     }
 
+    private static final String REPLAY_FILE_NAME = "last-race.pwreplay";
+
     private final PwGame mGame;
     private final Listener mListener;
     private final GameInfo mGameInfo;
 
     private final GameWorldImpl mGameWorld;
+    private ReplayRecorder mReplayRecorder;
     private final Color mBackgroundColor;
 
     private final GameRenderer mGameRenderer;
@@ -72,11 +83,13 @@ public class RaceScreen extends ScreenAdapter {
     private final ScreenViewport mHudViewport = new ScreenViewport();
     private final Stage mHudStage;
 
-    private final PerformanceCounters mPerformanceCounters = new PerformanceCounters();
+    private final PerformanceCounters mPerformanceCounters = createPerformanceCounters();
     private final PerformanceCounter mGameWorldPerformanceCounter;
     private final PerformanceCounter mRendererPerformanceCounter;
     private final PerformanceCounter mOverallPerformanceCounter;
     private PauseOverlay mPauseOverlay = null;
+    private SimulationThread mSimulationThread = null;
+    private DeferredGameStats mDeferredGameStats = null;
 
     private boolean mFirstRender = true;
     private boolean mConfigVisible = false;
@@ -91,7 +104,18 @@ public class RaceScreen extends ScreenAdapter {
 
         mOverallPerformanceCounter = mPerformanceCounters.add("All");
         mGameWorldPerformanceCounter = mPerformanceCounters.add("GameWorld.act");
-        mGameWorld = new GameWorldImpl(game, gameInfo, mPerformanceCounters);
+        boolean threaded = canUseSimulationThread();
+        GameStats gameStats = game.getGameStats();
+        if (threaded) {
+            // The simulation thread must not touch the game stats, queue its events instead
+            mDeferredGameStats = new DeferredGameStats(gameStats);
+            gameStats = mDeferredGameStats;
+        }
+        mGameWorld = new GameWorldImpl(game, gameStats, gameInfo, mPerformanceCounters);
+        if (Debug.instance.recordReplays) {
+            mReplayRecorder = new ReplayRecorder(ReplayRecorder.DEFAULT_KEYFRAME_INTERVAL);
+            mGameWorld.setReplayRecorder(mReplayRecorder);
+        }
         mBackgroundColor = gameInfo.getTrack().getBackgroundColor();
         mRendererPerformanceCounter = mPerformanceCounters.add("Renderer");
 
@@ -99,12 +123,25 @@ public class RaceScreen extends ScreenAdapter {
         mHudStage = new Stage(mHudViewport, batch);
         mHudStage.setDebugAll(Debug.instance.showHudDebugLines);
 
-        mGameRenderer = new GameRenderer(mGameWorld, batch, mPerformanceCounters);
+        mGameRenderer = new GameRenderer(mGameWorld, batch, mPerformanceCounters, threaded);
         setupHud(mGameWorld.getTrack());
 
         mAudioClipper = createAudioClipper();
 
         setupMineDropper();
+        if (threaded) {
+            mSimulationThread = new SimulationThread(this::actGameWorld);
+        }
+    }
+
+    private static PerformanceCounters createPerformanceCounters() {
+        if (Debug.instance.profileAllocations) {
+            if (AllocationCounter.isSupported()) {
+                return new AllocationTrackingPerformanceCounters();
+            }
+            NLog.e("Allocation profiling is not supported on this platform");
+        }
+        return new PerformanceCounters();
     }
 
     private void setupMineDropper() {
@@ -114,6 +151,18 @@ public class RaceScreen extends ScreenAdapter {
         }
     }
 
+    private static boolean canUseSimulationThread() {
+        if (!Debug.instance.threadedSimulation) {
+            return false;
+        }
+        // The debug layer and the free camera access the world while it is being simulated
+        if (Debug.instance.showDebugLayer || Debug.instance.freeCamera) {
+            NLog.e("Threaded simulation does not work with the debug layer or the free camera");
+            return false;
+        }
+        return true;
+    }
+
     private void setupHud(Track track) {
         mHud = new Hud(mGame.getAssets(), mHudStage);
         mHudContent = new HudContent(mGame.getAssets(), mGameWorld, mHud);
@@ -128,6 +177,9 @@ public class RaceScreen extends ScreenAdapter {
 
         if (Debug.instance.showDebugHud) {
             mHudContent.setPerformanceCounters(mPerformanceCounters);
+            mHudContent.addDrawStats(
+                    mGameRenderer.getTilePerformanceCounter(), mGameRenderer.getTileDrawStats());
+            mHudContent.setRenderQueue(mGameRenderer.getRenderQueue());
         }
 
         if (GameInputHandlerFactories.hasMultitouch()) {
@@ -174,26 +226,111 @@ public class RaceScreen extends ScreenAdapter {
         boolean paused = mPauseOverlay != null;
 
         mOverallPerformanceCounter.start();
-        mGameWorldPerformanceCounter.start();
+        if (mSimulationThread == null) {
+            renderSequential(delta, paused);
+        } else {
+            renderThreaded(delta, paused);
+        }
+
+        mOverallPerformanceCounter.stop();
+        if (!paused) {
+            mPerformanceCounters.tick(delta);
+        }
+    }
+
+    private void renderSequential(float delta, boolean paused) {
         if (!paused) {
             GameWorld.State oldState = mGameWorld.getState();
-            mGameWorld.act(delta);
-            GameWorld.State newState = mGameWorld.getState();
-            if (newState == GameWorld.State.FINISHED && oldState != newState) {
-                onFinished();
+            actGameWorld(delta);
+            checkFinished(oldState);
+        }
+
+        mRendererPerformanceCounter.start();
+        mGameRenderer.prepare(delta);
+        audioRender();
+        handlePauseKey(paused);
+        clearScreen();
+        mGameRenderer.draw();
+        mRendererPerformanceCounter.stop();
+
+        // Process hud *after* rendering game so that if an action on the hud (called from
+        // mHudStage.act()) causes us to leave this screen (back to menu from pause, or leaving
+        // the FinishedOverlay) then the game renderer does not alter the OpenGL viewport *after*
+        // we have changed screens.
+        mHudContent.act(delta);
+        mHudViewport.apply(true);
+        mHudStage.draw();
+        mHudStage.act(delta);
+    }
+
+    /**
+     * Same as renderSequential(), but the world acts on mSimulationThread while the state it had at
+     * the end of the previous frame is drawn. Everything which reads the world happens before the
+     * step starts or after it is done.
+     *
+     * <p>Sounds are played from audioRender(), game stats events are queued in mDeferredGameStats
+     * and player input is sampled by sampleInputs(), so that neither the audio, the game stats nor
+     * the input handlers are used from two threads.
+     */
+    private void renderThreaded(float delta, boolean paused) {
+        mRendererPerformanceCounter.start();
+        mGameRenderer.prepare(delta);
+        audioRender();
+        mHudContent.act(delta);
+        handlePauseKey(paused);
+
+        GameWorld.State oldState = mGameWorld.getState();
+        boolean stepping = mPauseOverlay == null;
+        if (stepping) {
+            sampleInputs();
+            mSimulationThread.startStep(delta);
+        }
+
+        clearScreen();
+        mGameRenderer.draw();
+        mRendererPerformanceCounter.stop();
+        mHudViewport.apply(true);
+        mHudStage.draw();
+
+        if (stepping) {
+            mSimulationThread.waitForStep();
+            mDeferredGameStats.commit();
+            checkFinished(oldState);
+        }
+        // See renderSequential() for why this comes last
+        mHudStage.act(delta);
+    }
+
+    private void sampleInputs() {
+        for (Racer racer : mGameWorld.getPlayerRacers()) {
+            Pilot pilot = racer.getPilot();
+            if (pilot instanceof PlayerPilot) {
+                ((PlayerPilot) pilot).sampleInput();
             }
         }
+    }
+
+    private void actGameWorld(float delta) {
+        mGameWorldPerformanceCounter.start();
+        mGameWorld.act(delta);
         mGameWorldPerformanceCounter.stop();
+    }
 
-        mRendererPerformanceCounter.start();
-        Gdx.gl.glClearColor(mBackgroundColor.r, mBackgroundColor.g, mBackgroundColor.b, 1);
-        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
-        mGameRenderer.render(delta);
+    private void checkFinished(GameWorld.State oldState) {
+        GameWorld.State newState = mGameWorld.getState();
+        if (newState == GameWorld.State.FINISHED && oldState != newState) {
+            onFinished();
+        }
+    }
 
+    private void audioRender() {
+        mGameWorld.getCountDown().audioRender();
         for (GameObject gameObject : mGameWorld.getActiveGameObjects()) {
             gameObject.audioRender(mAudioClipper);
         }
+    }
 
+    private void handlePauseKey(boolean paused) {
         if (isPauseKeyPressed()) {
             if (paused) {
                 resumeRace();
@@ -201,22 +338,11 @@ public class RaceScreen extends ScreenAdapter {
                 pauseRace();
             }
         }
+    }
 
-        mRendererPerformanceCounter.stop();
-
-        // Process hud *after* rendering game so that if an action on the hud (called from
-        // mHudStage.act()) causes us to leave this screen (back to menu from pause, or leaving
-        // the FinishedOverlay) then the game renderer does not alter the OpenGL viewport *after*
-        // we have changed screens.
-        mHudContent.act(delta);
-        mHudViewport.apply(true);
-        mHudStage.draw();
-        mHudStage.act(delta);
-
-        mOverallPerformanceCounter.stop();
-        if (!paused) {
-            mPerformanceCounters.tick(delta);
-        }
+    private void clearScreen() {
+        Gdx.gl.glClearColor(mBackgroundColor.r, mBackgroundColor.g, mBackgroundColor.b, 1);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
     }
 
     private boolean isPauseKeyPressed() {
@@ -241,12 +367,32 @@ public class RaceScreen extends ScreenAdapter {
     }
 
     private void onFinished() {
+        mGameWorld.recordTrackResults();
+        if (mPerformanceCounters instanceof AllocationTrackingPerformanceCounters) {
+            ((AllocationTrackingPerformanceCounters) mPerformanceCounters)
+                    .logReport(mGameInfo.getTrack().getId());
+        }
+        mGame.getGameStats().flush();
+        if (mReplayRecorder != null) {
+            saveReplay();
+        }
         FinishedOverlay overlay = new FinishedOverlay(mGame, this, mGameWorld.getRacers());
         mHudStage.addActor(overlay);
     }
 
+    private void saveReplay() {
+        FileHandle handle = FileUtils.getUserWritableFile(REPLAY_FILE_NAME);
+        try {
+            mReplayRecorder.createReplay().write(handle);
+            NLog.i("Replay saved in %s", handle.path());
+        } catch (IOException e) {
+            NLog.e("Failed to save replay in %s: %s", handle.path(), e);
+        }
+    }
+
     private void pauseRace() {
         mGame.getAudioManager().setMuted(true);
+        mGame.getGameStats().flush();
         mPauseOverlay = new PauseOverlay(mGame, this);
         mHudStage.addActor(mPauseOverlay);
     }
@@ -289,6 +435,11 @@ public class RaceScreen extends ScreenAdapter {
     @Override
     public void dispose() {
         super.dispose();
+        if (mSimulationThread != null) {
+            mSimulationThread.dispose();
+        }
+        mGame.getGameStats().flush();
+        mGameRenderer.dispose();
         mGameWorld.dispose();
     }
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.utils.Box2DUtils;
+import com.agateau.utils.telemetry.TelemetryRecorder;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectIntMap;
+
+/**
+ * Records the state of all racers at each step of the game world, for analysis.
+ *
+ * <p>Each row describes one racer. The racer channel contains the index of the racer in the entrant
+ * list. Use the TelemetryConverter tool to turn the file into CSV or TSV.
+ */
+class RaceTelemetry implements Disposable {
+    private final TelemetryRecorder mRecorder;
+    private final ObjectIntMap<Racer> mRacerIndices = new ObjectIntMap<>();
+
+    private final int mTimeChannel;
+    private final int mRacerChannel;
+    private final int mRankChannel;
+    private final int mSpeedChannel;
+    private final int mSteerChannel;
+    private final int mMaterialChannel;
+
+    private float mTime = 0;
+
+    /** @param racers the racers, in entrant order */
+    RaceTelemetry(FileHandle handle, Array<Racer> racers) {
+        for (int idx = 0; idx < racers.size; ++idx) {
+            mRacerIndices.put(racers.get(idx), idx);
+        }
+        mRecorder = new TelemetryRecorder(handle);
+        mTimeChannel = mRecorder.addFloatChannel("time");
+        mRacerChannel = mRecorder.addIntChannel("racer");
+        mRankChannel = mRecorder.addIntChannel("rank");
+        mSpeedChannel = mRecorder.addFloatChannel("speed");
+        mSteerChannel = mRecorder.addFloatChannel("steer");
+        mMaterialChannel = mRecorder.addIntChannel("material");
+        mRecorder.start();
+    }
+
+    /** @param sortedRacers the racers, sorted by rank */
+    void record(float delta, Array<Racer> sortedRacers) {
+        mTime += delta;
+        for (int idx = 0; idx < sortedRacers.size; ++idx) {
+            Racer racer = sortedRacers.get(idx);
+            Vehicle vehicle = racer.getVehicle();
+            mRecorder.setFloat(mTimeChannel, mTime);
+            mRecorder.setInt(mRacerChannel, mRacerIndices.get(racer, -1));
+            mRecorder.setInt(mRankChannel, idx + 1);
+            mRecorder.setFloat(mSpeedChannel, vehicle.getSpeed() * Box2DUtils.MS_TO_KMH);
+            mRecorder.setFloat(mSteerChannel, vehicle.getSteerAngle());
+            mRecorder.setInt(mMaterialChannel, vehicle.getMaterial().ordinal());
+            mRecorder.endRow();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        mRecorder.dispose();
+    }
+}
@@ -0,0 +1,707 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Affine2;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * A Batch which does not draw anything but records the quads it receives, using the same vertex
+ * layout as SpriteBatch.
+ *
+ * <p>Recording does not make any GL call, and the recorded quads do not reference the objects which
+ * drew them: the recording is a snapshot of what the game objects looked like, which can be
+ * replayed on a real batch later, while the objects change.
+ *
+ * <p>Changes to the blending, the shader or the transform matrix are recorded too, as state changes
+ * applied to the real batch when the quads following them are replayed. At the end of replay(), the
+ * real batch is put back in the default state: blending enabled with SpriteBatch's blend
+ * functions, default shader and identity transform.
+ */
+public class RecordingBatch implements Batch {
+    private static final int QUAD_SIZE = 20;
+
+    /** The drawing state set by the state changes recorded before a quad */
+    private static class State {
+        int quadIndex;
+        boolean blending;
+        int srcFuncColor;
+        int dstFuncColor;
+        int srcFuncAlpha;
+        int dstFuncAlpha;
+        ShaderProgram shader;
+        final Matrix4 transform = new Matrix4();
+
+        State() {
+            reset();
+        }
+
+        void reset() {
+            quadIndex = 0;
+            blending = true;
+            srcFuncColor = GL20.GL_SRC_ALPHA;
+            dstFuncColor = GL20.GL_ONE_MINUS_SRC_ALPHA;
+            srcFuncAlpha = GL20.GL_SRC_ALPHA;
+            dstFuncAlpha = GL20.GL_ONE_MINUS_SRC_ALPHA;
+            shader = null;
+            transform.idt();
+        }
+
+        void set(State other) {
+            quadIndex = other.quadIndex;
+            blending = other.blending;
+            srcFuncColor = other.srcFuncColor;
+            dstFuncColor = other.dstFuncColor;
+            srcFuncAlpha = other.srcFuncAlpha;
+            dstFuncAlpha = other.dstFuncAlpha;
+            shader = other.shader;
+            transform.set(other.transform);
+        }
+
+        void apply(Batch batch) {
+            if (blending) {
+                batch.enableBlending();
+            } else {
+                batch.disableBlending();
+            }
+            batch.setBlendFunctionSeparate(srcFuncColor, dstFuncColor, srcFuncAlpha, dstFuncAlpha);
+            batch.setShader(shader);
+            batch.setTransformMatrix(transform);
+        }
+    }
+
+    private static final State sDefaultState = new State();
+
+    private float[] mVertices = new float[QUAD_SIZE * 256];
+    private final Array<Texture> mQuadTextures = new Array<>(false, 256);
+    private int mQuadCount = 0;
+    private boolean mDrawing = false;
+
+    private final Color mColor = new Color(1, 1, 1, 1);
+    private float mPackedColor = Color.WHITE_FLOAT_BITS;
+    private final Matrix4 mProjectionMatrix = new Matrix4();
+
+    private final State mState = new State();
+    // State changes, in recording order. Items past mStateChangeCount are kept for reuse
+    private final Array<State> mStateChanges = new Array<>();
+    private int mStateChangeCount = 0;
+
+    // Corners of the last quad computed by computeTransformedCorners(), x1, y1, ..., x4, y4
+    private final float[] mCorners = new float[8];
+
+    /** Number of quads recorded since the last call to begin() */
+    public int getQuadCount() {
+        return mQuadCount;
+    }
+
+    /**
+     * Draws quads from @p from (included) to @p to (excluded) on @p batch, applying the state
+     * changes recorded before them
+     */
+    public void replay(Batch batch, int from, int to) {
+        // Find the state in effect at @p from
+        int stateIdx = 0;
+        State startState = null;
+        while (stateIdx < mStateChangeCount && mStateChanges.get(stateIdx).quadIndex <= from) {
+            startState = mStateChanges.get(stateIdx);
+            ++stateIdx;
+        }
+        boolean stateChanged = false;
+        if (startState != null) {
+            startState.apply(batch);
+            stateChanged = true;
+        }
+
+        int runStart = from;
+        while (runStart < to) {
+            int runLimit = to;
+            if (stateIdx < mStateChangeCount) {
+                State state = mStateChanges.get(stateIdx);
+                if (state.quadIndex <= runStart) {
+                    state.apply(batch);
+                    stateChanged = true;
+                    ++stateIdx;
+                    continue;
+                }
+                runLimit = Math.min(runLimit, state.quadIndex);
+            }
+            Texture texture = mQuadTextures.get(runStart);
+            int runEnd = runStart + 1;
+            while (runEnd < runLimit && mQuadTextures.get(runEnd) == texture) {
+                ++runEnd;
+            }
+            batch.draw(texture, mVertices, runStart * QUAD_SIZE, (runEnd - runStart) * QUAD_SIZE);
+            runStart = runEnd;
+        }
+
+        if (stateChanged) {
+            sDefaultState.apply(batch);
+        }
+    }
+
+    /** Starts a new recording, forgetting the quads and state changes recorded so far */
+    @Override
+    public void begin() {
+        mQuadCount = 0;
+        mQuadTextures.clear();
+        mStateChangeCount = 0;
+        mState.reset();
+        mDrawing = true;
+    }
+
+    @Override
+    public void end() {
+        mDrawing = false;
+    }
+
+    @Override
+    public void setColor(Color tint) {
+        mColor.set(tint);
+        mPackedColor = tint.toFloatBits();
+    }
+
+    @Override
+    public void setColor(float r, float g, float b, float a) {
+        mColor.set(r, g, b, a);
+        mPackedColor = mColor.toFloatBits();
+    }
+
+    @Override
+    public Color getColor() {
+        return mColor;
+    }
+
+    @Override
+    public void setPackedColor(float packedColor) {
+        Color.abgr8888ToColor(mColor, packedColor);
+        mPackedColor = packedColor;
+    }
+
+    @Override
+    public float getPackedColor() {
+        return mPackedColor;
+    }
+
+    @Override
+    public void draw(
+            Texture texture,
+            float x,
+            float y,
+            float originX,
+            float originY,
+            float width,
+            float height,
+            float scaleX,
+            float scaleY,
+            float rotation,
+            int srcX,
+            int srcY,
+            int srcWidth,
+            int srcHeight,
+            boolean flipX,
+            boolean flipY) {
+        float invTexWidth = 1f / texture.getWidth();
+        float invTexHeight = 1f / texture.getHeight();
+        float u = srcX * invTexWidth;
+        float v = (srcY + srcHeight) * invTexHeight;
+        float u2 = (srcX + srcWidth) * invTexWidth;
+        float v2 = srcY * invTexHeight;
+        if (flipX) {
+            float tmp = u;
+            u = u2;
+            u2 = tmp;
+        }
+        if (flipY) {
+            float tmp = v;
+            v = v2;
+            v2 = tmp;
+        }
+        addTransformedQuad(
+                texture, x, y, originX, originY, width, height, scaleX, scaleY, rotation, u, v, u2,
+                v2);
+    }
+
+    @Override
+    public void draw(
+            Texture texture,
+            float x,
+            float y,
+            float width,
+            float height,
+            int srcX,
+            int srcY,
+            int srcWidth,
+            int srcHeight,
+            boolean flipX,
+            boolean flipY) {
+        draw(
+                texture, x, y, 0, 0, width, height, 1, 1, 0, srcX, srcY, srcWidth, srcHeight, flipX,
+                flipY);
+    }
+
+    @Override
+    public void draw(
+            Texture texture, float x, float y, int srcX, int srcY, int srcWidth, int srcHeight) {
+        draw(
+                texture, x, y, 0, 0, srcWidth, srcHeight, 1, 1, 0, srcX, srcY, srcWidth, srcHeight,
+                false, false);
+    }
+
+    @Override
+    public void draw(
+            Texture texture,
+            float x,
+            float y,
+            float width,
+            float height,
+            float u,
+            float v,
+            float u2,
+            float v2) {
+        addRectQuad(texture, x, y, x + width, y + height, u, v, u2, v2);
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y) {
+        draw(texture, x, y, texture.getWidth(), texture.getHeight());
+    }
+
+    @Override
+    public void draw(Texture texture, float x, float y, float width, float height) {
+        addRectQuad(texture, x, y, x + width, y + height, 0, 1, 1, 0);
+    }
+
+    @Override
+    public void draw(Texture texture, float[] spriteVertices, int offset, int count) {
+        int quadCount = count / QUAD_SIZE;
+        ensureCapacity(quadCount);
+        System.arraycopy(
+                spriteVertices, offset, mVertices, mQuadCount * QUAD_SIZE, quadCount * QUAD_SIZE);
+        for (int idx = 0; idx < quadCount; ++idx) {
+            mQuadTextures.add(texture);
+        }
+        mQuadCount += quadCount;
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y) {
+        draw(region, x, y, region.getRegionWidth(), region.getRegionHeight());
+    }
+
+    @Override
+    public void draw(TextureRegion region, float x, float y, float width, float height) {
+        addRectQuad(
+                region.getTexture(),
+                x,
+                y,
+                x + width,
+                y + height,
+                region.getU(),
+                region.getV2(),
+                region.getU2(),
+                region.getV());
+    }
+
+    @Override
+    public void draw(
+            TextureRegion region,
+            float x,
+            float y,
+            float originX,
+            float originY,
+            float width,
+            float height,
+            float scaleX,
+            float scaleY,
+            float rotation) {
+        addTransformedQuad(
+                region.getTexture(),
+                x,
+                y,
+                originX,
+                originY,
+                width,
+                height,
+                scaleX,
+                scaleY,
+                rotation,
+                region.getU(),
+                region.getV2(),
+                region.getU2(),
+                region.getV());
+    }
+
+    @Override
+    public void draw(
+            TextureRegion region,
+            float x,
+            float y,
+            float originX,
+            float originY,
+            float width,
+            float height,
+            float scaleX,
+            float scaleY,
+            float rotation,
+            boolean clockwise) {
+        computeTransformedCorners(x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+        float[] c = mCorners;
+        // Same texture coordinates as SpriteBatch
+        if (clockwise) {
+            addQuad(
+                    region.getTexture(),
+                    c[0],
+                    c[1],
+                    c[2],
+                    c[3],
+                    c[4],
+                    c[5],
+                    c[6],
+                    c[7],
+                    region.getU2(),
+                    region.getV2(),
+                    region.getU(),
+                    region.getV2(),
+                    region.getU(),
+                    region.getV(),
+                    region.getU2(),
+                    region.getV());
+        } else {
+            addQuad(
+                    region.getTexture(),
+                    c[0],
+                    c[1],
+                    c[2],
+                    c[3],
+                    c[4],
+                    c[5],
+                    c[6],
+                    c[7],
+                    region.getU(),
+                    region.getV(),
+                    region.getU2(),
+                    region.getV(),
+                    region.getU2(),
+                    region.getV2(),
+                    region.getU(),
+                    region.getV2());
+        }
+    }
+
+    @Override
+    public void draw(TextureRegion region, float width, float height, Affine2 transform) {
+        // Same vertex computations as SpriteBatch
+        float x1 = transform.m02;
+        float y1 = transform.m12;
+        float x2 = transform.m01 * height + transform.m02;
+        float y2 = transform.m11 * height + transform.m12;
+        float x3 = transform.m00 * width + transform.m01 * height + transform.m02;
+        float y3 = transform.m10 * width + transform.m11 * height + transform.m12;
+        float x4 = transform.m00 * width + transform.m02;
+        float y4 = transform.m10 * width + transform.m12;
+        float u = region.getU();
+        float v = region.getV2();
+        float u2 = region.getU2();
+        float v2 = region.getV();
+        addQuad(region.getTexture(), x1, y1, x2, y2, x3, y3, x4, y4, u, v, u, v2, u2, v2, u2, v);
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void disableBlending() {
+        if (!mState.blending) {
+            return;
+        }
+        mState.blending = false;
+        recordStateChange();
+    }
+
+    @Override
+    public void enableBlending() {
+        if (mState.blending) {
+            return;
+        }
+        mState.blending = true;
+        recordStateChange();
+    }
+
+    @Override
+    public void setBlendFunction(int srcFunc, int dstFunc) {
+        setBlendFunctionSeparate(srcFunc, dstFunc, srcFunc, dstFunc);
+    }
+
+    @Override
+    public void setBlendFunctionSeparate(
+            int srcFuncColor, int dstFuncColor, int srcFuncAlpha, int dstFuncAlpha) {
+        if (mState.srcFuncColor == srcFuncColor
+                && mState.dstFuncColor == dstFuncColor
+                && mState.srcFuncAlpha == srcFuncAlpha
+                && mState.dstFuncAlpha == dstFuncAlpha) {
+            return;
+        }
+        mState.srcFuncColor = srcFuncColor;
+        mState.dstFuncColor = dstFuncColor;
+        mState.srcFuncAlpha = srcFuncAlpha;
+        mState.dstFuncAlpha = dstFuncAlpha;
+        recordStateChange();
+    }
+
+    @Override
+    public int getBlendSrcFunc() {
+        return mState.srcFuncColor;
+    }
+
+    @Override
+    public int getBlendDstFunc() {
+        return mState.dstFuncColor;
+    }
+
+    @Override
+    public int getBlendSrcFuncAlpha() {
+        return mState.srcFuncAlpha;
+    }
+
+    @Override
+    public int getBlendDstFuncAlpha() {
+        return mState.dstFuncAlpha;
+    }
+
+    @Override
+    public Matrix4 getProjectionMatrix() {
+        return mProjectionMatrix;
+    }
+
+    @Override
+    public Matrix4 getTransformMatrix() {
+        return mState.transform;
+    }
+
+    @Override
+    public void setProjectionMatrix(Matrix4 projection) {
+        mProjectionMatrix.set(projection);
+    }
+
+    @Override
+    public void setTransformMatrix(Matrix4 transform) {
+        mState.transform.set(transform);
+        recordStateChange();
+    }
+
+    @Override
+    public void setShader(ShaderProgram shader) {
+        if (mState.shader == shader) {
+            return;
+        }
+        mState.shader = shader;
+        recordStateChange();
+    }
+
+    @Override
+    public ShaderProgram getShader() {
+        return mState.shader;
+    }
+
+    @Override
+    public boolean isBlendingEnabled() {
+        return mState.blending;
+    }
+
+    @Override
+    public boolean isDrawing() {
+        return mDrawing;
+    }
+
+    @Override
+    public void dispose() {}
+
+    /** Records the current state, so that replay() applies it before the next quads */
+    private void recordStateChange() {
+        State state;
+        if (mStateChangeCount > 0
+                && mStateChanges.get(mStateChangeCount - 1).quadIndex == mQuadCount) {
+            // No quad since the last change, replace it
+            state = mStateChanges.get(mStateChangeCount - 1);
+        } else {
+            if (mStateChangeCount == mStateChanges.size) {
+                mStateChanges.add(new State());
+            }
+            state = mStateChanges.get(mStateChangeCount);
+            ++mStateChangeCount;
+        }
+        state.set(mState);
+        state.quadIndex = mQuadCount;
+    }
+
+    private void addTransformedQuad(
+            Texture texture,
+            float x,
+            float y,
+            float originX,
+            float originY,
+            float width,
+            float height,
+            float scaleX,
+            float scaleY,
+            float rotation,
+            float u,
+            float v,
+            float u2,
+            float v2) {
+        computeTransformedCorners(x, y, originX, originY, width, height, scaleX, scaleY, rotation);
+        float[] c = mCorners;
+        addQuad(texture, c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7], u, v, u, v2, u2, v2, u2, v);
+    }
+
+    /**
+     * Same vertex computations as SpriteBatch.draw(TextureRegion, ..., rotation). Stores the
+     * result in mCorners.
+     */
+    private void computeTransformedCorners(
+            float x,
+            float y,
+            float originX,
+            float originY,
+            float width,
+            float height,
+            float scaleX,
+            float scaleY,
+            float rotation) {
+        float worldOriginX = x + originX;
+        float worldOriginY = y + originY;
+        float fx = -originX * scaleX;
+        float fy = -originY * scaleY;
+        float fx2 = (width - originX) * scaleX;
+        float fy2 = (height - originY) * scaleY;
+
+        float x1, y1, x2, y2, x3, y3, x4, y4;
+        if (rotation != 0) {
+            float cos = MathUtils.cosDeg(rotation);
+            float sin = MathUtils.sinDeg(rotation);
+            x1 = cos * fx - sin * fy;
+            y1 = sin * fx + cos * fy;
+            x2 = cos * fx - sin * fy2;
+            y2 = sin * fx + cos * fy2;
+            x3 = cos * fx2 - sin * fy2;
+            y3 = sin * fx2 + cos * fy2;
+            x4 = x1 + (x3 - x2);
+            y4 = y3 - (y2 - y1);
+        } else {
+            x1 = fx;
+            y1 = fy;
+            x2 = fx;
+            y2 = fy2;
+            x3 = fx2;
+            y3 = fy2;
+            x4 = fx2;
+            y4 = fy;
+        }
+        float[] c = mCorners;
+        c[0] = x1 + worldOriginX;
+        c[1] = y1 + worldOriginY;
+        c[2] = x2 + worldOriginX;
+        c[3] = y2 + worldOriginY;
+        c[4] = x3 + worldOriginX;
+        c[5] = y3 + worldOriginY;
+        c[6] = x4 + worldOriginX;
+        c[7] = y4 + worldOriginY;
+    }
+
+    private void addRectQuad(
+            Texture texture,
+            float x,
+            float y,
+            float x2,
+            float y2,
+            float u,
+            float v,
+            float u2,
+            float v2) {
+        addQuad(texture, x, y, x, y2, x2, y2, x2, y, u, v, u, v2, u2, v2, u2, v);
+    }
+
+    private void addQuad(
+            Texture texture,
+            float x1,
+            float y1,
+            float x2,
+            float y2,
+            float x3,
+            float y3,
+            float x4,
+            float y4,
+            float u1,
+            float v1,
+            float u2,
+            float v2,
+            float u3,
+            float v3,
+            float u4,
+            float v4) {
+        ensureCapacity(1);
+        float[] vertices = mVertices;
+        int idx = mQuadCount * QUAD_SIZE;
+        float color = mPackedColor;
+
+        vertices[idx + X1] = x1;
+        vertices[idx + Y1] = y1;
+        vertices[idx + C1] = color;
+        vertices[idx + U1] = u1;
+        vertices[idx + V1] = v1;
+
+        vertices[idx + X2] = x2;
+        vertices[idx + Y2] = y2;
+        vertices[idx + C2] = color;
+        vertices[idx + U2] = u2;
+        vertices[idx + V2] = v2;
+
+        vertices[idx + X3] = x3;
+        vertices[idx + Y3] = y3;
+        vertices[idx + C3] = color;
+        vertices[idx + U3] = u3;
+        vertices[idx + V3] = v3;
+
+        vertices[idx + X4] = x4;
+        vertices[idx + Y4] = y4;
+        vertices[idx + C4] = color;
+        vertices[idx + U4] = u4;
+        vertices[idx + V4] = v4;
+
+        mQuadTextures.add(texture);
+        ++mQuadCount;
+    }
+
+    private void ensureCapacity(int quadCount) {
+        int needed = (mQuadCount + quadCount) * QUAD_SIZE;
+        if (needed > mVertices.length) {
+            float[] vertices = new float[Math.max(needed, mVertices.length * 2)];
+            System.arraycopy(mVertices, 0, vertices, 0, mQuadCount * QUAD_SIZE);
+            mVertices = vertices;
+        }
+    }
+}
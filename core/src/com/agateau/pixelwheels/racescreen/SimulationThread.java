@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.racescreen;
+
+import com.agateau.utils.Assert;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * Runs the steps of the game simulation on a dedicated thread.
+ *
+ * <p>A step is started with startStep() and must be waited for with waitForStep() before the caller
+ * accesses the simulated objects again. In between, the caller can do work which does not touch
+ * them, like drawing a snapshot of their previous state.
+ */
+class SimulationThread implements Disposable {
+    interface Stepper {
+        void step(float delta);
+    }
+
+    private final Stepper mStepper;
+    private final Thread mThread;
+    private final Object mLock = new Object();
+
+    // Guarded by mLock
+    private float mDelta;
+    private boolean mStepPending = false;
+    private boolean mQuitRequested = false;
+    private Throwable mError;
+
+    SimulationThread(Stepper stepper) {
+        mStepper = stepper;
+        mThread = new Thread(this::runLoop, "Simulation");
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    void startStep(float delta) {
+        synchronized (mLock) {
+            Assert.check(!mStepPending, "The previous step has not been waited for");
+            mDelta = delta;
+            mStepPending = true;
+            mLock.notifyAll();
+        }
+    }
+
+    /** Blocks until the current step is done. Rethrows any exception raised by the step */
+    void waitForStep() {
+        Throwable error;
+        synchronized (mLock) {
+            while (mStepPending) {
+                try {
+                    mLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while waiting for the simulation", e);
+                }
+            }
+            error = mError;
+            mError = null;
+        }
+        if (error != null) {
+            throw new RuntimeException("Simulation step failed", error);
+        }
+    }
+
+    /** Waits for the current step if there is one, then stops the thread */
+    @Override
+    public void dispose() {
+        synchronized (mLock) {
+            mQuitRequested = true;
+            mLock.notifyAll();
+        }
+        try {
+            mThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runLoop() {
+        while (true) {
+            float delta;
+            synchronized (mLock) {
+                while (!mStepPending && !mQuitRequested) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!mStepPending) {
+                    return;
+                }
+                delta = mDelta;
+            }
+            Throwable error = null;
+            try {
+                mStepper.step(delta);
+            } catch (Throwable throwable) {
+                error = throwable;
+            }
+            synchronized (mLock) {
+                mError = error;
+                mStepPending = false;
+                mLock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.gamesetup.SimulationGameInfo;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A recorded race: the initial state of the random generator, the entrants and the steps. Created
+ * by ReplayRecorder, played by ReplayPlayer.
+ *
+ * <p>File format (big-endian):
+ *
+ * <pre>
+ * magic: "PWRP"
+ * version: int
+ * trackId: UTF
+ * physicsModel: UTF, name of a Vehicle.PhysicsModel (since version 2)
+ * randomState0, randomState1: long
+ * entrantCount: int
+ * entrantCount times:
+ *   vehicleId: UTF
+ *   isPlayer: boolean
+ * finishStep: int, -1 if the race did not finish
+ * dataLength: int
+ * data: the steps and keyframes, see ReplayWriter
+ * </pre>
+ */
+public class Replay {
+    private static final byte[] MAGIC = {'P', 'W', 'R', 'P'};
+    private static final int VERSION = 2;
+
+    private final String mTrackId;
+    private final Vehicle.PhysicsModel mPhysicsModel;
+    private final long mRandomState0;
+    private final long mRandomState1;
+    private final Array<String> mVehicleIds;
+    private final boolean[] mPlayers;
+    private final int mFinishStep;
+    private final byte[] mData;
+
+    private int mStepCount = 0;
+    private final IntArray mKeyframeSteps = new IntArray();
+    private final IntArray mKeyframeOffsets = new IntArray();
+
+    Replay(
+            String trackId,
+            Vehicle.PhysicsModel physicsModel,
+            long randomState0,
+            long randomState1,
+            Array<String> vehicleIds,
+            boolean[] players,
+            int finishStep,
+            byte[] data) {
+        mTrackId = trackId;
+        mPhysicsModel = physicsModel;
+        mRandomState0 = randomState0;
+        mRandomState1 = randomState1;
+        mVehicleIds = vehicleIds;
+        mPlayers = players;
+        mFinishStep = finishStep;
+        mData = data;
+        indexKeyframes();
+    }
+
+    public static Replay read(FileHandle handle) throws IOException {
+        try (InputStream stream = handle.read()) {
+            return read(stream);
+        }
+    }
+
+    public static Replay read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a replay file");
+        }
+        int version = in.readInt();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported replay version " + version);
+        }
+        String trackId = in.readUTF();
+        Vehicle.PhysicsModel physicsModel = Vehicle.PhysicsModel.JOINTED_WHEELS;
+        if (version >= 2) {
+            String name = in.readUTF();
+            try {
+                physicsModel = Vehicle.PhysicsModel.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unknown physics model " + name, e);
+            }
+        }
+        long randomState0 = in.readLong();
+        long randomState1 = in.readLong();
+        int entrantCount = in.readInt();
+        Array<String> vehicleIds = new Array<>();
+        boolean[] players = new boolean[entrantCount];
+        for (int idx = 0; idx < entrantCount; ++idx) {
+            vehicleIds.add(in.readUTF());
+            players[idx] = in.readBoolean();
+        }
+        int finishStep = in.readInt();
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        return new Replay(
+                trackId,
+                physicsModel,
+                randomState0,
+                randomState1,
+                vehicleIds,
+                players,
+                finishStep,
+                data);
+    }
+
+    public void write(FileHandle handle) throws IOException {
+        try (OutputStream stream = handle.write(false /* append */)) {
+            write(stream);
+        }
+    }
+
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.write(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(mTrackId);
+        out.writeUTF(mPhysicsModel.name());
+        out.writeLong(mRandomState0);
+        out.writeLong(mRandomState1);
+        out.writeInt(mVehicleIds.size);
+        for (int idx = 0; idx < mVehicleIds.size; ++idx) {
+            out.writeUTF(mVehicleIds.get(idx));
+            out.writeBoolean(mPlayers[idx]);
+        }
+        out.writeInt(mFinishStep);
+        out.writeInt(mData.length);
+        out.write(mData);
+        out.flush();
+    }
+
+    public String getTrackId() {
+        return mTrackId;
+    }
+
+    public Vehicle.PhysicsModel getPhysicsModel() {
+        return mPhysicsModel;
+    }
+
+    public int getRacerCount() {
+        return mVehicleIds.size;
+    }
+
+    public boolean isPlayer(int racerIdx) {
+        return mPlayers[racerIdx];
+    }
+
+    public int getStepCount() {
+        return mStepCount;
+    }
+
+    /**
+     * Returns the step at which the race finished, or -1. Races with players finish when the
+     * players finish, so replays must finish them at the same step
+     */
+    public int getFinishStep() {
+        return mFinishStep;
+    }
+
+    public int getKeyframeCount() {
+        return mKeyframeSteps.size;
+    }
+
+    /**
+     * Creates a GameInfo to play the replay. All entrants are AI entrants, since their pilots are
+     * replaced by ReplayPilot instances anyway
+     */
+    public GameInfo createGameInfo(Track track) {
+        GameInfo gameInfo = new SimulationGameInfo(track, mVehicleIds);
+        gameInfo.setPhysicsModel(mPhysicsModel);
+        return gameInfo;
+    }
+
+    long getRandomState0() {
+        return mRandomState0;
+    }
+
+    long getRandomState1() {
+        return mRandomState1;
+    }
+
+    byte[] getData() {
+        return mData;
+    }
+
+    /** Returns the index of the last keyframe at or before @p step, or -1 if there is none */
+    int findKeyframe(int step) {
+        int idx = mKeyframeSteps.size - 1;
+        while (idx >= 0 && mKeyframeSteps.get(idx) > step) {
+            --idx;
+        }
+        return idx;
+    }
+
+    int getKeyframeStep(int idx) {
+        return mKeyframeSteps.get(idx);
+    }
+
+    int getKeyframeOffset(int idx) {
+        return mKeyframeOffsets.get(idx);
+    }
+
+    private void indexKeyframes() {
+        ReplayReader reader = new ReplayReader(mData, mVehicleIds.size);
+        while (true) {
+            ReplayReader.Record record = reader.next();
+            if (record == ReplayReader.Record.END) {
+                break;
+            }
+            if (record == ReplayReader.Record.KEYFRAME) {
+                mKeyframeSteps.add(reader.getStep());
+                mKeyframeOffsets.add(reader.getKeyframeOffset());
+            }
+        }
+        mStepCount = reader.getStep();
+    }
+}
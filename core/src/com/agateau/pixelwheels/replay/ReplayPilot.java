@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.racer.Pilot;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.stats.GameStats;
+
+/** A pilot which replays the recorded inputs of a racer */
+public class ReplayPilot implements Pilot {
+    private final Racer mRacer;
+    private final PilotInput mInput;
+    private GameStats mGameStats;
+
+    /** @param input the input to apply, updated by ReplayPlayer before each step */
+    ReplayPilot(GameWorld gameWorld, Racer racer, PilotInput input) {
+        mRacer = racer;
+        mInput = input;
+        mGameStats = gameWorld.getGameStats();
+    }
+
+    public void setGameStats(GameStats gameStats) {
+        mGameStats = gameStats;
+    }
+
+    @Override
+    public void act(float delta) {
+        Vehicle vehicle = mRacer.getVehicle();
+        vehicle.setDirection(mInput.direction);
+        vehicle.setAccelerating(mInput.accelerating);
+        vehicle.setBraking(mInput.braking);
+        if (mInput.triggeringBonus) {
+            mRacer.triggerBonus();
+        }
+    }
+
+    @Override
+    public GameStats getGameStats() {
+        return mGameStats;
+    }
+}
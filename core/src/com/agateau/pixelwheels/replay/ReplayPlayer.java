@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.utils.Assert;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Plays a Replay, driving the racers with ReplayPilot instances.
+ *
+ * <p>Playing from the start reproduces the recorded race exactly. Each keyframe met on the way is
+ * compared with the state of the world: getDivergentStep() returns the first step where they
+ * differ, which happens if the simulation code changed since the race was recorded.
+ *
+ * <p>seek() restores the closest keyframe, then plays the remaining steps. See WorldSnapshot for
+ * what keyframes restore.
+ */
+public class ReplayPlayer implements Disposable {
+    public interface WorldFactory {
+        GameWorldImpl createWorld(GameInfo gameInfo);
+    }
+
+    private final Replay mReplay;
+    private final Track mTrack;
+    private final WorldFactory mWorldFactory;
+    private final ReplayReader mReader;
+    private final WorldSnapshot mSnapshot = new WorldSnapshot();
+    private final Array<Racer> mRacers = new Array<>();
+
+    private GameWorldImpl mWorld;
+    // False once a keyframe has been restored, since the world may then differ slightly from the
+    // recorded one
+    private boolean mExact;
+    private int mDivergentStep = -1;
+
+    public ReplayPlayer(Replay replay, Track track, WorldFactory worldFactory) {
+        Assert.check(replay.getTrackId().equals(track.getId()), "Wrong track for this replay");
+        mReplay = replay;
+        mTrack = track;
+        mWorldFactory = worldFactory;
+        mReader = new ReplayReader(replay.getData(), replay.getRacerCount());
+        createWorld();
+    }
+
+    public GameWorldImpl getWorld() {
+        return mWorld;
+    }
+
+    /** Returns the number of steps played so far */
+    public int getStep() {
+        return mReader.getStep();
+    }
+
+    public boolean isFinished() {
+        return getStep() >= mReplay.getStepCount();
+    }
+
+    /** Returns the duration of the last step played */
+    public float getStepDelta() {
+        return mReader.getDelta();
+    }
+
+    /** Returns the first step at which the world did not match a keyframe, or -1 */
+    public int getDivergentStep() {
+        return mDivergentStep;
+    }
+
+    /**
+     * Plays one step
+     *
+     * @return false if there are no more steps
+     */
+    public boolean step() {
+        while (true) {
+            switch (mReader.next()) {
+                case END:
+                    return false;
+                case KEYFRAME:
+                    checkKeyframe();
+                    break;
+                case STEP:
+                    mWorld.act(mReader.getDelta());
+                    if (getStep() == mReplay.getFinishStep()) {
+                        mWorld.setState(GameWorld.State.FINISHED);
+                    }
+                    return true;
+            }
+        }
+    }
+
+    /** Moves to @p step, which must be between 0 and Replay.getStepCount() */
+    public void seek(int step) {
+        Assert.check(step >= 0 && step <= mReplay.getStepCount(), "Invalid step " + step);
+        int keyframeIdx = mReplay.findKeyframe(step);
+        int keyframeStep = keyframeIdx >= 0 ? mReplay.getKeyframeStep(keyframeIdx) : -1;
+        if (step < getStep() || keyframeStep > getStep()) {
+            if (keyframeIdx >= 0) {
+                restoreKeyframe(keyframeIdx);
+            } else {
+                mWorld.forgetTrack();
+                mWorld.dispose();
+                createWorld();
+            }
+        }
+        while (getStep() < step && step()) {
+            // Keep going
+        }
+    }
+
+    @Override
+    public void dispose() {
+        mWorld.forgetTrack();
+        mWorld.dispose();
+    }
+
+    private void createWorld() {
+        mWorld = mWorldFactory.createWorld(mReplay.createGameInfo(mTrack));
+        mWorld.getRandom().setState(mReplay.getRandomState0(), mReplay.getRandomState1());
+        mRacers.clear();
+        mRacers.addAll(mWorld.getRacers());
+        for (int idx = 0; idx < mRacers.size; ++idx) {
+            Racer racer = mRacers.get(idx);
+            racer.setPilot(new ReplayPilot(mWorld, racer, mReader.getInput(idx)));
+        }
+        mReader.rewind();
+        mExact = true;
+    }
+
+    private void checkKeyframe() {
+        if (!mExact || mDivergentStep >= 0) {
+            return;
+        }
+        byte[] current = mSnapshot.save(mWorld, mRacers);
+        int offset = mReader.getKeyframePayloadOffset();
+        byte[] recorded =
+                Arrays.copyOfRange(
+                        mReader.getData(), offset, offset + mReader.getKeyframePayloadLength());
+        if (!Arrays.equals(current, recorded)) {
+            mDivergentStep = mReader.getStep();
+            NLog.e("Replay diverged from the recorded race at step %d", mDivergentStep);
+        }
+    }
+
+    private void restoreKeyframe(int keyframeIdx) {
+        // Keyframes are only recorded once the race is running, finish the countdown first
+        while (mWorld.getState() == GameWorld.State.COUNTDOWN && step()) {
+            // Keep going
+        }
+        mReader.seekToKeyframe(mReplay.getKeyframeOffset(keyframeIdx));
+        DataInputStream in =
+                new DataInputStream(
+                        new ByteArrayInputStream(
+                                mReader.getData(),
+                                mReader.getKeyframePayloadOffset(),
+                                mReader.getKeyframePayloadLength()));
+        try {
+            WorldSnapshot.restore(in, mWorld, mRacers);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to restore replay keyframe", e);
+        }
+        mWorld.setState(GameWorld.State.RUNNING);
+        mExact = false;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/** Decodes the steps written by ReplayWriter */
+class ReplayReader {
+    enum Record {
+        STEP,
+        KEYFRAME,
+        END
+    }
+
+    /** A ByteArrayInputStream which can be repositioned */
+    private static class SeekableInputStream extends ByteArrayInputStream {
+        SeekableInputStream(byte[] data) {
+            super(data);
+        }
+
+        int getPosition() {
+            return pos;
+        }
+
+        void setPosition(int position) {
+            pos = position;
+        }
+    }
+
+    private final byte[] mData;
+    private final SeekableInputStream mStream;
+    private final DataInputStream mIn;
+    private final PilotInput[] mInputs;
+
+    private float mDelta = 0;
+    private int mPendingIdleSteps = 0;
+    private int mStep = 0;
+
+    // Set when next() returns KEYFRAME
+    private int mKeyframeOffset;
+    private int mKeyframePayloadOffset;
+    private int mKeyframePayloadLength;
+
+    ReplayReader(byte[] data, int racerCount) {
+        mData = data;
+        mStream = new SeekableInputStream(data);
+        mIn = new DataInputStream(mStream);
+        mInputs = new PilotInput[racerCount];
+        for (int idx = 0; idx < racerCount; ++idx) {
+            mInputs[idx] = new PilotInput();
+        }
+    }
+
+    /**
+     * Reads the next record. If it returns STEP, getDelta() and getInput() return the values for
+     * this step. If it returns KEYFRAME, the getKeyframe*() methods describe the keyframe.
+     */
+    Record next() {
+        for (PilotInput input : mInputs) {
+            input.triggeringBonus = false;
+        }
+        if (mPendingIdleSteps > 0) {
+            --mPendingIdleSteps;
+            ++mStep;
+            return Record.STEP;
+        }
+        if (mStream.available() == 0) {
+            return Record.END;
+        }
+        try {
+            int position = mStream.getPosition();
+            byte tag = mIn.readByte();
+            switch (tag) {
+                case ReplayWriter.TAG_STEP:
+                    readStep();
+                    ++mStep;
+                    return Record.STEP;
+                case ReplayWriter.TAG_IDLE:
+                    mPendingIdleSteps = readVarInt(mIn) - 1;
+                    ++mStep;
+                    return Record.STEP;
+                case ReplayWriter.TAG_KEYFRAME:
+                    mKeyframeOffset = position;
+                    readKeyframe();
+                    return Record.KEYFRAME;
+                default:
+                    throw new RuntimeException("Invalid replay record tag " + tag);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read replay", e);
+        }
+    }
+
+    /** Number of steps returned so far */
+    int getStep() {
+        return mStep;
+    }
+
+    float getDelta() {
+        return mDelta;
+    }
+
+    PilotInput getInput(int idx) {
+        return mInputs[idx];
+    }
+
+    int getKeyframeOffset() {
+        return mKeyframeOffset;
+    }
+
+    byte[] getData() {
+        return mData;
+    }
+
+    int getKeyframePayloadOffset() {
+        return mKeyframePayloadOffset;
+    }
+
+    int getKeyframePayloadLength() {
+        return mKeyframePayloadLength;
+    }
+
+    /**
+     * Moves to the keyframe starting at @p offset, restoring the decoding state it contains. The
+     * next call to next() returns the step following the keyframe.
+     */
+    void seekToKeyframe(int offset) {
+        mStream.setPosition(offset);
+        mPendingIdleSteps = 0;
+        Record record = next();
+        if (record != Record.KEYFRAME) {
+            throw new RuntimeException("No keyframe at offset " + offset);
+        }
+    }
+
+    /** Goes back to the first step */
+    void rewind() {
+        mStream.setPosition(0);
+        mPendingIdleSteps = 0;
+        mStep = 0;
+        mDelta = 0;
+        for (PilotInput input : mInputs) {
+            input.direction = 0;
+            input.accelerating = false;
+            input.braking = false;
+            input.triggeringBonus = false;
+        }
+    }
+
+    private void readStep() throws IOException {
+        int flags = mIn.readByte();
+        if ((flags & ReplayWriter.DELTA_CHANGED) != 0) {
+            mDelta = mIn.readFloat();
+        }
+        for (int count = readVarInt(mIn); count > 0; --count) {
+            PilotInput input = mInputs[readVarInt(mIn)];
+            int inputFlags = mIn.readByte();
+            decodeInputFlags(input, inputFlags);
+            if ((inputFlags & ReplayWriter.INPUT_DIRECTION_CHANGED) != 0) {
+                input.direction = mIn.readFloat();
+            }
+        }
+    }
+
+    private void readKeyframe() throws IOException {
+        mStep = readVarInt(mIn);
+        mDelta = mIn.readFloat();
+        for (PilotInput input : mInputs) {
+            input.direction = mIn.readFloat();
+            decodeInputFlags(input, mIn.readByte());
+        }
+        mKeyframePayloadLength = mIn.readInt();
+        mKeyframePayloadOffset = mStream.getPosition();
+        mStream.setPosition(mKeyframePayloadOffset + mKeyframePayloadLength);
+    }
+
+    private static void decodeInputFlags(PilotInput input, int flags) {
+        input.accelerating = (flags & ReplayWriter.INPUT_ACCELERATING) != 0;
+        input.braking = (flags & ReplayWriter.INPUT_BRAKING) != 0;
+        input.triggeringBonus = (flags & ReplayWriter.INPUT_TRIGGERING_BONUS) != 0;
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
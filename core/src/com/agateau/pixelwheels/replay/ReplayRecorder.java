@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.utils.Assert;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Records a race so that it can be played back with ReplayPlayer.
+ *
+ * <p>Records the state of the random generator, the entrants, and for each step the frame duration
+ * and the commands each pilot gave to its vehicle. Every keyframeInterval steps of the running
+ * race, a snapshot of the world is added, so that playback can seek without simulating the race
+ * from the start, and can check it did not diverge.
+ *
+ * <p>Use GameWorldImpl.setReplayRecorder() to start recording.
+ */
+public class ReplayRecorder {
+    /** Ten seconds of race when stepping at GameWorld.BOX2D_TIME_STEP */
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 600;
+
+    private final int mKeyframeInterval;
+    private final WorldSnapshot mSnapshot = new WorldSnapshot();
+    private final Array<Racer> mRacers = new Array<>();
+    private GameWorldImpl mWorld;
+    private ReplayWriter mWriter;
+    private int[] mBonusTriggerCounts;
+
+    private String mTrackId;
+    private Vehicle.PhysicsModel mPhysicsModel;
+    private long mRandomState0;
+    private long mRandomState1;
+    private int mFinishStep = -1;
+
+    /** @param keyframeInterval number of steps between keyframes, 0 to disable keyframes */
+    public ReplayRecorder(int keyframeInterval) {
+        mKeyframeInterval = keyframeInterval;
+    }
+
+    /** Called by GameWorldImpl.setReplayRecorder() */
+    public void start(GameWorldImpl world) {
+        Assert.check(mWorld == null, "Recorder already started");
+        mWorld = world;
+        mRacers.addAll(world.getRacers());
+        mWriter = new ReplayWriter(mRacers.size);
+        mBonusTriggerCounts = new int[mRacers.size];
+        mTrackId = world.getTrack().getId();
+        mPhysicsModel = world.getPhysicsModel();
+        mRandomState0 = world.getRandom().getState(0);
+        mRandomState1 = world.getRandom().getState(1);
+    }
+
+    public void beginStep(float delta) {
+        mWriter.beginStep(delta);
+    }
+
+    /**
+     * Records the commands of the pilots. Called at the end of the step: pilots act after their
+     * vehicle, so their commands are still there
+     */
+    public void endStep() {
+        for (int idx = 0; idx < mRacers.size; ++idx) {
+            Racer racer = mRacers.get(idx);
+            Vehicle vehicle = racer.getVehicle();
+            PilotInput input = mWriter.getInput(idx);
+            input.direction = vehicle.getDirection();
+            input.accelerating = vehicle.isAccelerating();
+            input.braking = vehicle.isBraking();
+            int bonusTriggerCount = racer.getBonusTriggerCount();
+            input.triggeringBonus = bonusTriggerCount != mBonusTriggerCounts[idx];
+            mBonusTriggerCounts[idx] = bonusTriggerCount;
+        }
+        mWriter.endStep();
+        if (mFinishStep < 0 && mWorld.getState() == GameWorld.State.FINISHED) {
+            mFinishStep = mWriter.getStepCount();
+        }
+        if (mKeyframeInterval > 0
+                && mWorld.getState() == GameWorld.State.RUNNING
+                && mWriter.getStepCount() % mKeyframeInterval == 0) {
+            mWriter.writeKeyframe(mSnapshot.save(mWorld, mRacers));
+        }
+    }
+
+    /** Returns the number of steps recorded so far */
+    public int getStepCount() {
+        return mWriter.getStepCount();
+    }
+
+    /** Returns a replay of the steps recorded so far */
+    public Replay createReplay() {
+        Array<String> vehicleIds = new Array<>();
+        boolean[] players = new boolean[mRacers.size];
+        for (int idx = 0; idx < mRacers.size; ++idx) {
+            Racer racer = mRacers.get(idx);
+            vehicleIds.add(racer.getEntrant().getVehicleId());
+            players[idx] = racer.getEntrant().isPlayer();
+        }
+        return new Replay(
+                mTrackId,
+                mPhysicsModel,
+                mRandomState0,
+                mRandomState1,
+                vehicleIds,
+                players,
+                mFinishStep,
+                mWriter.toByteArray());
+    }
+}
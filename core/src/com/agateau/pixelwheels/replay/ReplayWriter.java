@@ -0,0 +1,208 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Encodes the steps of a race. ReplayReader decodes them.
+ *
+ * <p>Only changes are stored: a step where the frame duration and the pilot inputs did not change
+ * is merged with the previous ones in an IDLE record, so most steps cost nothing.
+ *
+ * <pre>
+ * STEP: tag, flags (DELTA_CHANGED), [delta: float], changedCount: varint,
+ *       changedCount times: racerIndex: varint, inputFlags, [direction: float]
+ * IDLE: tag, stepCount: varint
+ * KEYFRAME: tag, step: varint, delta: float,
+ *           racerCount times: direction: float, inputFlags
+ *           payloadLength: int, payload
+ * </pre>
+ */
+class ReplayWriter {
+    static final byte TAG_STEP = 1;
+    static final byte TAG_IDLE = 2;
+    static final byte TAG_KEYFRAME = 3;
+
+    static final int DELTA_CHANGED = 1;
+
+    static final int INPUT_ACCELERATING = 1;
+    static final int INPUT_BRAKING = 1 << 1;
+    static final int INPUT_TRIGGERING_BONUS = 1 << 2;
+    static final int INPUT_DIRECTION_CHANGED = 1 << 3;
+
+    private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+    private final DataOutputStream mOut = new DataOutputStream(mBytes);
+
+    private final PilotInput[] mInputs;
+    private final PilotInput[] mWrittenInputs;
+    private final int[] mInputFlags;
+
+    private float mDelta = -1;
+    private float mWrittenDelta = -1;
+    private int mIdleStepCount = 0;
+    private int mStepCount = 0;
+
+    ReplayWriter(int racerCount) {
+        mInputs = new PilotInput[racerCount];
+        mWrittenInputs = new PilotInput[racerCount];
+        mInputFlags = new int[racerCount];
+        for (int idx = 0; idx < racerCount; ++idx) {
+            mInputs[idx] = new PilotInput();
+            mWrittenInputs[idx] = new PilotInput();
+        }
+    }
+
+    void beginStep(float delta) {
+        mDelta = delta;
+    }
+
+    /** Returns the input of racer @p idx for the current step, to be filled by the caller */
+    PilotInput getInput(int idx) {
+        return mInputs[idx];
+    }
+
+    void endStep() {
+        boolean deltaChanged = mDelta != mWrittenDelta;
+        int changedCount = 0;
+        for (int idx = 0; idx < mInputs.length; ++idx) {
+            mInputFlags[idx] = computeInputFlags(mInputs[idx], mWrittenInputs[idx]);
+            if (mInputFlags[idx] != 0) {
+                ++changedCount;
+            }
+        }
+        ++mStepCount;
+        if (!deltaChanged && changedCount == 0) {
+            ++mIdleStepCount;
+            return;
+        }
+        try {
+            flushIdleSteps();
+            mOut.writeByte(TAG_STEP);
+            mOut.writeByte(deltaChanged ? DELTA_CHANGED : 0);
+            if (deltaChanged) {
+                mOut.writeFloat(mDelta);
+                mWrittenDelta = mDelta;
+            }
+            writeVarInt(mOut, changedCount);
+            for (int idx = 0; idx < mInputs.length; ++idx) {
+                int flags = mInputFlags[idx];
+                if (flags == 0) {
+                    continue;
+                }
+                PilotInput input = mInputs[idx];
+                writeVarInt(mOut, idx);
+                mOut.writeByte(encodeInputFlags(input, flags));
+                if ((flags & INPUT_DIRECTION_CHANGED) != 0) {
+                    mOut.writeFloat(input.direction);
+                }
+                mWrittenInputs[idx].set(input);
+                mWrittenInputs[idx].triggeringBonus = false;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write replay step", e);
+        }
+        for (PilotInput input : mInputs) {
+            input.triggeringBonus = false;
+        }
+    }
+
+    /** Adds a keyframe after the last step. @p payload is not interpreted */
+    void writeKeyframe(byte[] payload) {
+        try {
+            flushIdleSteps();
+            mOut.writeByte(TAG_KEYFRAME);
+            writeVarInt(mOut, mStepCount);
+            mOut.writeFloat(mWrittenDelta);
+            for (PilotInput input : mWrittenInputs) {
+                mOut.writeFloat(input.direction);
+                mOut.writeByte(encodeInputFlags(input, 0));
+            }
+            mOut.writeInt(payload.length);
+            mOut.write(payload);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write replay keyframe", e);
+        }
+    }
+
+    int getStepCount() {
+        return mStepCount;
+    }
+
+    byte[] toByteArray() {
+        try {
+            flushIdleSteps();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write replay steps", e);
+        }
+        return mBytes.toByteArray();
+    }
+
+    private void flushIdleSteps() throws IOException {
+        if (mIdleStepCount == 0) {
+            return;
+        }
+        mOut.writeByte(TAG_IDLE);
+        writeVarInt(mOut, mIdleStepCount);
+        mIdleStepCount = 0;
+    }
+
+    /** Returns the flags of the changes between @p input and @p written, 0 if nothing changed */
+    private static int computeInputFlags(PilotInput input, PilotInput written) {
+        int flags = 0;
+        if (input.direction != written.direction) {
+            flags |= INPUT_DIRECTION_CHANGED;
+        }
+        if (input.accelerating != written.accelerating) {
+            flags |= INPUT_ACCELERATING;
+        }
+        if (input.braking != written.braking) {
+            flags |= INPUT_BRAKING;
+        }
+        if (input.triggeringBonus) {
+            flags |= INPUT_TRIGGERING_BONUS;
+        }
+        return flags;
+    }
+
+    /** Encodes the values of @p input, and the INPUT_DIRECTION_CHANGED flag if set in @p flags */
+    private static int encodeInputFlags(PilotInput input, int flags) {
+        int encoded = flags & INPUT_DIRECTION_CHANGED;
+        if (input.accelerating) {
+            encoded |= INPUT_ACCELERATING;
+        }
+        if (input.braking) {
+            encoded |= INPUT_BRAKING;
+        }
+        if (input.triggeringBonus) {
+            encoded |= INPUT_TRIGGERING_BONUS;
+        }
+        return encoded;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+}
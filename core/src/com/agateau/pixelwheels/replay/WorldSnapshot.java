@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.replay;
+
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Saves and restores the state of a race, used for replay keyframes.
+ *
+ * <p>The snapshot contains the random generator state, the bodies of the racers and their lap
+ * positions. Bonuses and other game objects are not part of it, and neither is the internal state
+ * of Box2D, so restoring a snapshot brings the race close to, but not exactly at, the recorded
+ * state.
+ */
+class WorldSnapshot {
+    private final ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+    private final DataOutputStream mOut = new DataOutputStream(mBytes);
+
+    /** @param racers the racers of @p world, in entrant order */
+    byte[] save(GameWorldImpl world, Array<Racer> racers) {
+        mBytes.reset();
+        try {
+            RandomXS128 random = world.getRandom();
+            mOut.writeLong(random.getState(0));
+            mOut.writeLong(random.getState(1));
+            mOut.writeFloat(world.getTimeAccumulator());
+            for (Racer racer : racers) {
+                Vehicle vehicle = racer.getVehicle();
+                writeBody(vehicle.getBody());
+                for (Vehicle.WheelInfo info : vehicle.getWheelInfos()) {
+                    // Body-less wheels have no state of their own
+                    if (info.wheel.getBody() != null) {
+                        writeBody(info.wheel.getBody());
+                    }
+                }
+                racer.getLapPositionComponent().writeState(mOut);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save world snapshot", e);
+        }
+        return mBytes.toByteArray();
+    }
+
+    static void restore(DataInputStream in, GameWorldImpl world, Array<Racer> racers)
+            throws IOException {
+        long state0 = in.readLong();
+        long state1 = in.readLong();
+        world.getRandom().setState(state0, state1);
+        world.setTimeAccumulator(in.readFloat());
+        for (Racer racer : racers) {
+            Vehicle vehicle = racer.getVehicle();
+            readBody(in, vehicle.getBody());
+            for (Vehicle.WheelInfo info : vehicle.getWheelInfos()) {
+                if (info.wheel.getBody() != null) {
+                    readBody(in, info.wheel.getBody());
+                }
+            }
+            racer.getLapPositionComponent().readState(in);
+        }
+    }
+
+    private void writeBody(Body body) throws IOException {
+        Vector2 position = body.getPosition();
+        mOut.writeFloat(position.x);
+        mOut.writeFloat(position.y);
+        mOut.writeFloat(body.getAngle());
+        Vector2 velocity = body.getLinearVelocity();
+        mOut.writeFloat(velocity.x);
+        mOut.writeFloat(velocity.y);
+        mOut.writeFloat(body.getAngularVelocity());
+    }
+
+    private static void readBody(DataInputStream in, Body body) throws IOException {
+        float x = in.readFloat();
+        float y = in.readFloat();
+        float angle = in.readFloat();
+        body.setTransform(x, y, angle);
+        float vx = in.readFloat();
+        float vy = in.readFloat();
+        body.setLinearVelocity(vx, vy);
+        body.setAngularVelocity(in.readFloat());
+        body.setAwake(true);
+    }
+}
@@ -72,7 +72,7 @@ public class DebugScreen extends PwStageScreen {
         mCurrentGroup = tabMenuItem.addPage("Race");
         addRange("Viewport width", "viewportWidth", 20, 800, 10);
         addRange("Racer count", "racerCount", 1, 6);
-        addRange("Max skidmarks", "maxSkidmarks", 10, 200, 10);
+        addRange("Max skidmarks", "maxSkidmarks", 100, 2000, 100);
         addRange("Border restitution", "borderRestitution", 1, 50);
 
         mCurrentGroup = tabMenuItem.addPage("Speed");
@@ -106,6 +106,13 @@ public class DebugScreen extends PwStageScreen {
         addCheckBox("- Draw tile corners", "drawTileCorners");
         addCheckBox("Hud debug lines", "showHudDebugLines");
         addCheckBox("Free camera", "freeCamera");
+        addCheckBox("Profile allocations", "profileAllocations");
+        addCheckBox("Async logging (restart)", "asyncLogging");
+        addCheckBox("- Log caller tags (restart)", "logCallerTags");
+        addCheckBox("Journal game stats (restart)", "journalGameStats");
+        addCheckBox("Record replays", "recordReplays");
+        addCheckBox("Threaded simulation", "threadedSimulation");
+        addCheckBox("Single-body vehicles", "singleBodyVehicles");
 
         builder.getActor("backButton")
                 .addListener(
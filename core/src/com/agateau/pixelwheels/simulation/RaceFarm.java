@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.simulation;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.GamePlay;
+import com.agateau.pixelwheels.gamesetup.SimulationGameInfo;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.vehicledef.VehicleDef;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Spreads simulated races over several threads.
+ *
+ * <p>Each race runs on a single thread, in its own world, and only depends on its seed, which is
+ * derived from the farm seed. Results are returned in race order, so the output does not depend on
+ * the number of threads.
+ *
+ * <p>GamePlay.instance and Debug.instance are shared by all races: they must not be modified while
+ * races are running.
+ */
+public class RaceFarm {
+    public interface Listener {
+        /** Called from the thread which ran the race, must be thread-safe */
+        void onRaceFinished(int raceIdx, RaceResult result);
+    }
+
+    /** Number of chunks per thread, so that threads finishing early can steal work */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Assets mAssets;
+    private final RaceSimulator mSimulator;
+    private final int mThreadCount;
+
+    private Listener mListener;
+    private Vehicle.PhysicsModel mPhysicsModel = Vehicle.PhysicsModel.JOINTED_WHEELS;
+
+    public RaceFarm(Assets assets, int threadCount) {
+        mAssets = assets;
+        mSimulator = new RaceSimulator(assets);
+        mThreadCount = threadCount;
+    }
+
+    public RaceSimulator getSimulator() {
+        return mSimulator;
+    }
+
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /** The physics model used by the vehicles of all races */
+    public void setPhysicsModel(Vehicle.PhysicsModel physicsModel) {
+        mPhysicsModel = physicsModel;
+    }
+
+    /**
+     * Runs @p raceCount races, cycling through @p tracks. Blocks until all races are done.
+     *
+     * @return the results, in race order
+     */
+    public Array<RaceResult> run(Array<Track> tracks, int raceCount, long seed) {
+        RandomXS128 random = new RandomXS128(seed);
+        long[] seeds = new long[raceCount];
+        for (int idx = 0; idx < raceCount; ++idx) {
+            seeds[idx] = random.nextLong();
+        }
+        RaceResult[] results = new RaceResult[raceCount];
+        int chunkSize = Math.max(1, raceCount / (mThreadCount * CHUNKS_PER_THREAD));
+
+        ForkJoinPool pool = new ForkJoinPool(mThreadCount);
+        try {
+            pool.invoke(new RaceRangeAction(tracks, seeds, results, 0, raceCount, chunkSize));
+        } finally {
+            pool.shutdown();
+        }
+        return new Array<>(results);
+    }
+
+    private class RaceRangeAction extends RecursiveAction {
+        private final Array<Track> mTracks;
+        private final long[] mSeeds;
+        private final RaceResult[] mResults;
+        private final int mFrom;
+        private final int mTo;
+        private final int mChunkSize;
+
+        RaceRangeAction(
+                Array<Track> tracks,
+                long[] seeds,
+                RaceResult[] results,
+                int from,
+                int to,
+                int chunkSize) {
+            mTracks = tracks;
+            mSeeds = seeds;
+            mResults = results;
+            mFrom = from;
+            mTo = to;
+            mChunkSize = chunkSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (mTo - mFrom <= mChunkSize) {
+                runRaces();
+                return;
+            }
+            int middle = (mFrom + mTo) / 2;
+            invokeAll(
+                    new RaceRangeAction(mTracks, mSeeds, mResults, mFrom, middle, mChunkSize),
+                    new RaceRangeAction(mTracks, mSeeds, mResults, middle, mTo, mChunkSize));
+        }
+
+        private void runRaces() {
+            // Tracks cannot be shared between threads, each chunk loads its own instances
+            ObjectMap<String, Track> chunkTracks = new ObjectMap<>();
+            try {
+                for (int raceIdx = mFrom; raceIdx < mTo; ++raceIdx) {
+                    Track sharedTrack = mTracks.get(raceIdx % mTracks.size);
+                    Track track = chunkTracks.get(sharedTrack.getId());
+                    if (track == null) {
+                        track = new Track(sharedTrack.getId(), sharedTrack.getMapName());
+                        chunkTracks.put(track.getId(), track);
+                    }
+                    RandomXS128 random = new RandomXS128(mSeeds[raceIdx]);
+                    SimulationGameInfo gameInfo =
+                            new SimulationGameInfo(track, pickVehicleIds(random));
+                    gameInfo.setPhysicsModel(mPhysicsModel);
+                    RaceResult result = mSimulator.run(gameInfo, random.nextLong());
+                    mResults[raceIdx] = result;
+                    if (mListener != null) {
+                        mListener.onRaceFinished(raceIdx, result);
+                    }
+                }
+            } finally {
+                for (Track track : chunkTracks.values()) {
+                    track.dispose();
+                }
+            }
+        }
+    }
+
+    private Array<String> pickVehicleIds(RandomXS128 random) {
+        Array<String> ids = new Array<>();
+        for (VehicleDef vehicleDef : mAssets.vehicleDefs) {
+            ids.add(vehicleDef.id);
+        }
+        // Do not use Array.shuffle(), it relies on the global random generator
+        for (int idx = ids.size - 1; idx > 0; --idx) {
+            ids.swap(idx, random.nextInt(idx + 1));
+        }
+        ids.truncate(Math.min(GamePlay.instance.racerCount, ids.size));
+        return ids;
+    }
+}
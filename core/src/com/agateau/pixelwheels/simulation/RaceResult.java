@@ -0,0 +1,73 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.simulation;
+
+import com.agateau.pixelwheels.racer.LapPositionComponent;
+import com.agateau.pixelwheels.stats.GameStats;
+import com.badlogic.gdx.utils.Array;
+
+/** The outcome of a simulated race */
+public class RaceResult {
+    public static class RacerResult {
+        public final int rank;
+        public final String vehicleId;
+        public final LapPositionComponent.Status status;
+        public final float totalTime;
+        public final float bestLapTime;
+        public final float[] lapTimes;
+        private final int[] mEventCounts;
+
+        RacerResult(
+                int rank,
+                String vehicleId,
+                LapPositionComponent.Status status,
+                float totalTime,
+                float bestLapTime,
+                float[] lapTimes,
+                int[] eventCounts) {
+            this.rank = rank;
+            this.vehicleId = vehicleId;
+            this.status = status;
+            this.totalTime = totalTime;
+            this.bestLapTime = bestLapTime;
+            this.lapTimes = lapTimes;
+            mEventCounts = eventCounts;
+        }
+
+        public int getEventCount(GameStats.Event event) {
+            return mEventCounts[event.ordinal()];
+        }
+    }
+
+    public final String trackId;
+    public final long seed;
+    /** Simulated duration of the race, including the count down */
+    public final float duration;
+    /** True if the race was stopped before all racers crossed the finish line */
+    public final boolean timedOut;
+    /** Racers, sorted by rank */
+    public final Array<RacerResult> racers = new Array<>();
+
+    RaceResult(String trackId, long seed, float duration, boolean timedOut) {
+        this.trackId = trackId;
+        this.seed = seed;
+        this.duration = duration;
+        this.timedOut = timedOut;
+    }
+}
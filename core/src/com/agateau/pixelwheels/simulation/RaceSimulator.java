@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.simulation;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.GameWorld;
+import com.agateau.pixelwheels.debug.AllocationCounter;
+import com.agateau.pixelwheels.debug.AllocationTrackingPerformanceCounters;
+import com.agateau.pixelwheels.gamesetup.GameInfo;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.AIPilot;
+import com.agateau.pixelwheels.racer.LapPositionComponent;
+import com.agateau.pixelwheels.racer.Racer;
+import com.agateau.pixelwheels.racescreen.GameWorldImpl;
+import com.agateau.pixelwheels.replay.Replay;
+import com.agateau.pixelwheels.replay.ReplayPilot;
+import com.agateau.pixelwheels.replay.ReplayPlayer;
+import com.agateau.pixelwheels.replay.ReplayRecorder;
+import com.agateau.pixelwheels.sound.AudioManager;
+import com.agateau.pixelwheels.sound.SilentAudioManager;
+import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.pixelwheels.stats.GameStatsImpl;
+import com.agateau.utils.Assert;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.PerformanceCounter;
+import com.badlogic.gdx.utils.PerformanceCounters;
+
+/**
+ * Runs AI-only races without rendering or audio, as fast as possible.
+ *
+ * <p>Assets must have been loaded, but no screen is needed: the world is stepped at
+ * GameWorld.BOX2D_TIME_STEP until all racers have finished, or until the maximum duration is
+ * reached.
+ *
+ * <p>The track is initialized if needed, but not disposed, so that it can be reused for other
+ * races. A RaceSimulator can be used from several threads, as long as they do not share tracks.
+ */
+public class RaceSimulator {
+    public static final float DEFAULT_MAX_DURATION = 600;
+
+    private static class NullIO implements GameStatsImpl.IO {
+        @Override
+        public void setGameStats(GameStatsImpl gameStats) {}
+
+        @Override
+        public void load() {}
+
+        @Override
+        public void save() {}
+    }
+
+    private final Assets mAssets;
+    private final AudioManager mAudioManager = new SilentAudioManager();
+    private float mMaxDuration = DEFAULT_MAX_DURATION;
+    private boolean mProfileAllocations = false;
+
+    public RaceSimulator(Assets assets) {
+        mAssets = assets;
+    }
+
+    /** Maximum simulated duration of a race, in seconds */
+    public void setMaxDuration(float maxDuration) {
+        mMaxDuration = maxDuration;
+    }
+
+    /**
+     * If set, log how many bytes are allocated per step at the end of each race, using the same
+     * counter names as RaceScreen. Requires AllocationCounter.isSupported() to be true.
+     */
+    public void setProfileAllocations(boolean profileAllocations) {
+        Assert.check(
+                !profileAllocations || AllocationCounter.isSupported(),
+                "Allocation profiling is not supported on this platform");
+        mProfileAllocations = profileAllocations;
+    }
+
+    /**
+     * Creates the world run() uses, without running it. Useful to step races manually, for example
+     * in benchmarks
+     */
+    public GameWorldImpl createWorld(
+            GameInfo gameInfo, long seed, PerformanceCounters performanceCounters) {
+        GameStatsImpl worldStats = new GameStatsImpl(new NullIO());
+        GameWorldImpl world =
+                new GameWorldImpl(
+                        mAssets,
+                        mAudioManager,
+                        null /* gameConfig */,
+                        worldStats,
+                        gameInfo,
+                        performanceCounters);
+        world.getRandom().setSeed(seed);
+        return world;
+    }
+
+    /** Runs a race. Races run with the same seed and the same GameInfo produce the same result */
+    public RaceResult run(GameInfo gameInfo, long seed) {
+        return run(gameInfo, seed, null);
+    }
+
+    /** Same as run(gameInfo, seed), but also records the race in @p recorder if it is not null */
+    public RaceResult run(GameInfo gameInfo, long seed, ReplayRecorder recorder) {
+        for (GameInfo.Entrant entrant : gameInfo.getEntrants()) {
+            Assert.check(!entrant.isPlayer(), "Simulated races cannot have players");
+        }
+        PerformanceCounters performanceCounters = createPerformanceCounters();
+        PerformanceCounter gameWorldPerformanceCounter = performanceCounters.add("GameWorld.act");
+        GameWorldImpl world = createWorld(gameInfo, seed, performanceCounters);
+
+        Array<GameStatsImpl> racerStats = new Array<>();
+        Array<Racer> startRacers = new Array<>(world.getRacers());
+        for (Racer racer : startRacers) {
+            GameStatsImpl stats = new GameStatsImpl(new NullIO());
+            ((AIPilot) racer.getPilot()).setGameStats(stats);
+            racerStats.add(stats);
+        }
+        if (recorder != null) {
+            world.setReplayRecorder(recorder);
+        }
+
+        float time = 0;
+        while (world.getState() != GameWorld.State.FINISHED && time < mMaxDuration) {
+            gameWorldPerformanceCounter.start();
+            world.act(GameWorld.BOX2D_TIME_STEP);
+            gameWorldPerformanceCounter.stop();
+            if (mProfileAllocations) {
+                performanceCounters.tick(GameWorld.BOX2D_TIME_STEP);
+            }
+            time += GameWorld.BOX2D_TIME_STEP;
+        }
+        if (mProfileAllocations) {
+            ((AllocationTrackingPerformanceCounters) performanceCounters)
+                    .logReport(gameInfo.getTrack().getId() + ", seed " + seed);
+        }
+        boolean timedOut = world.getState() != GameWorld.State.FINISHED;
+        RaceResult result = finishRace(world, startRacers, racerStats, seed, time, timedOut);
+        world.forgetTrack();
+        world.dispose();
+        return result;
+    }
+
+    /**
+     * Plays @p replay from the start, as fast as possible.
+     *
+     * <p>The seed of the returned result is always 0. Use ReplayPlayer directly to seek or to check
+     * whether the replay diverged.
+     */
+    public RaceResult replay(Replay replay) {
+        Track track = mAssets.findTrackById(replay.getTrackId());
+        Assert.check(track != null, "No track with id " + replay.getTrackId());
+        PerformanceCounters performanceCounters = createPerformanceCounters();
+        ReplayPlayer player =
+                new ReplayPlayer(
+                        replay, track, gameInfo -> createWorld(gameInfo, 0, performanceCounters));
+        GameWorldImpl world = player.getWorld();
+
+        Array<GameStatsImpl> racerStats = new Array<>();
+        Array<Racer> startRacers = new Array<>(world.getRacers());
+        for (Racer racer : startRacers) {
+            GameStatsImpl stats = new GameStatsImpl(new NullIO());
+            ((ReplayPilot) racer.getPilot()).setGameStats(stats);
+            racerStats.add(stats);
+        }
+
+        float time = 0;
+        while (player.step()) {
+            time += player.getStepDelta();
+        }
+        // The replay may have been saved before the race finished
+        RaceResult result = finishRace(world, startRacers, racerStats, 0, time, false);
+        player.dispose();
+        return result;
+    }
+
+    private PerformanceCounters createPerformanceCounters() {
+        return mProfileAllocations
+                ? new AllocationTrackingPerformanceCounters()
+                : new PerformanceCounters();
+    }
+
+    private static RaceResult finishRace(
+            GameWorldImpl world,
+            Array<Racer> startRacers,
+            Array<GameStatsImpl> racerStats,
+            long seed,
+            float time,
+            boolean timedOut) {
+        if (world.getState() != GameWorld.State.FINISHED) {
+            world.setState(GameWorld.State.FINISHED);
+        }
+
+        RaceResult result = new RaceResult(world.getTrack().getId(), seed, time, timedOut);
+        Array<Racer> racers = world.getRacers();
+        for (int idx = 0; idx < racers.size; ++idx) {
+            Racer racer = racers.get(idx);
+            GameStatsImpl stats = racerStats.get(startRacers.indexOf(racer, /* identity= */ true));
+            result.racers.add(createRacerResult(idx + 1, racer, stats));
+        }
+        return result;
+    }
+
+    private static RaceResult.RacerResult createRacerResult(
+            int rank, Racer racer, GameStats stats) {
+        LapPositionComponent component = racer.getLapPositionComponent();
+        GameStats.Event[] events = GameStats.Event.values();
+        int[] eventCounts = new int[events.length];
+        for (GameStats.Event event : events) {
+            eventCounts[event.ordinal()] = stats.getEventCount(event);
+        }
+        return new RaceResult.RacerResult(
+                rank,
+                racer.getEntrant().getVehicleId(),
+                component.getStatus(),
+                component.getTotalTime(),
+                component.getBestLapTime(),
+                component.getLapTimes().toArray(),
+                eventCounts);
+    }
+}
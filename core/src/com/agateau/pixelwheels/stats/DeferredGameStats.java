@@ -0,0 +1,97 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.stats;
+
+import com.agateau.pixelwheels.map.Championship;
+import com.agateau.pixelwheels.map.Track;
+import com.badlogic.gdx.utils.IntArray;
+
+/**
+ * Queues the events recorded by a simulation running on another thread, until commit() records them
+ * in the wrapped GameStats.
+ *
+ * <p>recordEvent() and recordIntEvent() can be called from the simulation thread. commit() and all
+ * the other methods must be called from the thread which owns the wrapped GameStats, while the
+ * simulation is not running.
+ */
+public class DeferredGameStats implements GameStats {
+    private static final Event[] EVENTS = Event.values();
+
+    private final GameStats mGameStats;
+    // Pairs of (event ordinal, value)
+    private final IntArray mPendingEvents = new IntArray();
+
+    public DeferredGameStats(GameStats gameStats) {
+        mGameStats = gameStats;
+    }
+
+    /** Records the queued events in the wrapped GameStats */
+    public void commit() {
+        for (int idx = 0; idx < mPendingEvents.size; idx += 2) {
+            mGameStats.recordIntEvent(
+                    EVENTS[mPendingEvents.get(idx)], mPendingEvents.get(idx + 1));
+        }
+        mPendingEvents.clear();
+    }
+
+    @Override
+    public void recordEvent(Event event) {
+        recordIntEvent(event, 1);
+    }
+
+    @Override
+    public void recordIntEvent(Event event, int value) {
+        mPendingEvents.add(event.ordinal(), value);
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mGameStats.setListener(listener);
+    }
+
+    @Override
+    public TrackStats getTrackStats(Track track) {
+        return mGameStats.getTrackStats(track);
+    }
+
+    @Override
+    public int getBestChampionshipRank(Championship championship) {
+        return mGameStats.getBestChampionshipRank(championship);
+    }
+
+    @Override
+    public void onChampionshipFinished(Championship championship, int rank) {
+        mGameStats.onChampionshipFinished(championship, rank);
+    }
+
+    @Override
+    public int getEventCount(Event event) {
+        return mGameStats.getEventCount(event);
+    }
+
+    @Override
+    public void save() {
+        mGameStats.save();
+    }
+
+    @Override
+    public void flush() {
+        mGameStats.flush();
+    }
+}
@@ -47,5 +47,12 @@ public interface GameStats {
 
     int getEventCount(Event event);
 
+    /** Notifies the listener, and records that there are changes to write */
     void save();
+
+    /**
+     * Writes pending changes, if any. Should be called at points where writing does not disturb the
+     * game, for example at the end of a race
+     */
+    void flush();
 }
@@ -23,9 +23,17 @@ import com.agateau.pixelwheels.map.Track;
 import com.agateau.utils.CollectionUtils;
 import java.util.HashMap;
 
+/**
+ * Stores game stats in memory, and writes them through an IO instance.
+ *
+ * <p>Changes are not written immediately: save() marks the stats as dirty, and flush() writes them.
+ * This way several changes made during a race result in a single write, done at a time where it
+ * does not cause the game to stutter.
+ */
 public class GameStatsImpl implements GameStats {
     private final transient IO mIO;
     private transient Listener mListener;
+    private transient boolean mDirty = false;
     final HashMap<String, TrackStats> mTrackStats = new HashMap<>();
     final HashMap<String, Integer> mBestChampionshipRank = new HashMap<>();
     final HashMap<String, Integer> mEvents = new HashMap<>();
@@ -35,6 +43,10 @@ public class GameStatsImpl implements GameStats {
 
         void load();
 
+        /**
+         * Saves the stats. Must read the stats before returning, but may write them to storage
+         * later
+         */
         void save();
     }
 
@@ -102,10 +114,25 @@ public class GameStatsImpl implements GameStats {
         return CollectionUtils.getOrDefault(mEvents, event.toString(), 0);
     }
 
+    /** Notifies the listener and marks the stats as dirty, they are written by flush() */
+    @Override
     public void save() {
         if (mListener != null) {
             mListener.onChanged();
         }
+        mDirty = true;
+    }
+
+    @Override
+    public void flush() {
+        if (!mDirty) {
+            return;
+        }
+        mDirty = false;
         mIO.save();
     }
+
+    public boolean isDirty() {
+        return mDirty;
+    }
 }
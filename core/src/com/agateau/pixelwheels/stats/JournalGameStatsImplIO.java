@@ -0,0 +1,324 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.stats;
+
+import com.agateau.utils.Assert;
+import com.agateau.utils.FileUtils;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores game stats in an append-only binary journal.
+ *
+ * <p>save() only appends what changed since the previous save: event count increments, new
+ * championship ranks and new track records. load() replays the journal. When the journal grows
+ * larger than a threshold, it is compacted: replaced with a snapshot of the current stats.
+ *
+ * <p>If the journal does not exist yet, stats are imported from the JSON file written by
+ * JsonGameStatsImplIO, if any.
+ *
+ * <p>A crash while appending can only lose the last record: load() ignores truncated records, and
+ * the next save() compacts the journal to get rid of them.
+ */
+public class JournalGameStatsImplIO implements GameStatsImpl.IO {
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 64 * 1024;
+
+    private static final int MAGIC = 0x5057534a; // "PWSJ"
+    private static final int VERSION = 1;
+
+    private static final byte EVENT_DELTA = 1;
+    private static final byte CHAMPIONSHIP_RANK = 2;
+    private static final byte TRACK_RESULT = 3;
+
+    private final FileHandle mHandle;
+    private final FileHandle mJsonHandle;
+    private final int mCompactionThreshold;
+    private GameStatsImpl mGameStats;
+    private boolean mNeedsCompaction = false;
+
+    // What the journal contains, used to find what changed since the last save
+    private final HashMap<String, Integer> mJournalEvents = new HashMap<>();
+    private final HashMap<String, Integer> mJournalChampionshipRanks = new HashMap<>();
+    private final HashMap<String, ArrayList<TrackResult>> mJournalTrackResults = new HashMap<>();
+
+    private final ByteArrayOutputStream mBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream mBufferOut = new DataOutputStream(mBuffer);
+
+    /**
+     * @param handle the journal file
+     * @param jsonHandle a file in JsonGameStatsImplIO format to import stats from if the journal
+     *     does not exist. Can be null.
+     */
+    public JournalGameStatsImplIO(FileHandle handle, FileHandle jsonHandle) {
+        this(handle, jsonHandle, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public JournalGameStatsImplIO(
+            FileHandle handle, FileHandle jsonHandle, int compactionThreshold) {
+        mHandle = handle;
+        mJsonHandle = jsonHandle;
+        mCompactionThreshold = compactionThreshold;
+    }
+
+    @Override
+    public void setGameStats(GameStatsImpl gameStats) {
+        mGameStats = gameStats;
+    }
+
+    @Override
+    public void load() {
+        Assert.check(mGameStats != null, "setGameStats() has not been called");
+        mGameStats.mTrackStats.clear();
+        mGameStats.mBestChampionshipRank.clear();
+        mGameStats.mEvents.clear();
+        if (mHandle.exists()) {
+            replay();
+        } else if (mJsonHandle != null && mJsonHandle.exists()) {
+            NLog.i("Importing stats from %s", mJsonHandle.path());
+            JsonGameStatsImplIO jsonIO = new JsonGameStatsImplIO(mJsonHandle);
+            jsonIO.setGameStats(mGameStats);
+            jsonIO.load();
+            // Write the imported stats now, so that the import only happens once
+            compact();
+            return;
+        }
+        updateJournalState();
+    }
+
+    @Override
+    public void save() {
+        Assert.check(mGameStats != null, "setGameStats() has not been called");
+        if (mNeedsCompaction || !mHandle.exists() || mHandle.length() > mCompactionThreshold) {
+            compact();
+            return;
+        }
+        mBuffer.reset();
+        try {
+            writeChanges(mBufferOut);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to serialize stats", e);
+        }
+        if (mBuffer.size() == 0) {
+            return;
+        }
+        try (OutputStream out = mHandle.write(true /* append */)) {
+            mBuffer.writeTo(out);
+        } catch (IOException | GdxRuntimeException e) {
+            NLog.e("Failed to append to %s: %s", mHandle.path(), e);
+            mNeedsCompaction = true;
+            return;
+        }
+        updateJournalState();
+    }
+
+    /** Returns the size of the journal, in bytes */
+    public long getJournalLength() {
+        return mHandle.exists() ? mHandle.length() : 0;
+    }
+
+    private void replay() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(mHandle.read()))) {
+            int magic = in.readInt();
+            int version = in.readInt();
+            if (magic != MAGIC || version != VERSION) {
+                NLog.e("%s is not a stats journal, or has an unsupported version", mHandle.path());
+                mNeedsCompaction = true;
+                return;
+            }
+            while (true) {
+                int type = in.read();
+                if (type == -1) {
+                    break;
+                }
+                replayRecord((byte) type, in);
+            }
+        } catch (EOFException e) {
+            NLog.e("%s ends with a truncated record, ignoring it", mHandle.path());
+            mNeedsCompaction = true;
+        } catch (IOException e) {
+            NLog.e("Failed to read %s: %s", mHandle.path(), e);
+            mNeedsCompaction = true;
+        }
+    }
+
+    private void replayRecord(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case EVENT_DELTA:
+                {
+                    String id = in.readUTF();
+                    int delta = in.readInt();
+                    Integer count = mGameStats.mEvents.get(id);
+                    long newCount = (count == null ? 0L : count) + delta;
+                    mGameStats.mEvents.put(id, (int) Math.min(newCount, Integer.MAX_VALUE));
+                    break;
+                }
+            case CHAMPIONSHIP_RANK:
+                {
+                    String id = in.readUTF();
+                    int rank = in.readInt();
+                    mGameStats.mBestChampionshipRank.put(id, rank);
+                    break;
+                }
+            case TRACK_RESULT:
+                {
+                    String trackId = in.readUTF();
+                    int resultTypeOrdinal = in.readByte();
+                    if (resultTypeOrdinal < 0
+                            || resultTypeOrdinal >= TrackStats.ResultType.values().length) {
+                        throw new IOException("Unknown result type " + resultTypeOrdinal);
+                    }
+                    TrackStats.ResultType resultType =
+                            TrackStats.ResultType.values()[resultTypeOrdinal];
+                    String vehicle = in.readUTF();
+                    float value = in.readFloat();
+                    TrackStats trackStats = mGameStats.mTrackStats.get(trackId);
+                    if (trackStats == null) {
+                        trackStats = new TrackStats(mGameStats);
+                        mGameStats.mTrackStats.put(trackId, trackStats);
+                    }
+                    TrackStats.addResult(
+                            trackStats.get(resultType), new TrackResult(vehicle, value));
+                    break;
+                }
+            default:
+                throw new IOException("Unknown record type " + type);
+        }
+    }
+
+    /**
+     * Replaces the journal with a snapshot of the current stats. If writing fails, the old journal
+     * is kept and compaction is attempted again on the next save().
+     */
+    private void compact() {
+        FileHandle tmpHandle = mHandle.sibling(mHandle.name() + ".tmp");
+        // The journal state is empty, so this writes all the stats
+        clearJournalState();
+        try (DataOutputStream out = new DataOutputStream(tmpHandle.write(false /* append */))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeChanges(out);
+        } catch (IOException | GdxRuntimeException e) {
+            NLog.e("Failed to write %s: %s", tmpHandle.path(), e);
+            mNeedsCompaction = true;
+            return;
+        }
+        try {
+            FileUtils.replace(tmpHandle, mHandle);
+        } catch (GdxRuntimeException e) {
+            NLog.e("Failed to replace %s: %s", mHandle.path(), e);
+            mNeedsCompaction = true;
+            return;
+        }
+        mNeedsCompaction = false;
+        updateJournalState();
+    }
+
+    /** Writes records for the differences between the stats and the journal state */
+    private void writeChanges(DataOutputStream out) throws IOException {
+        for (Map.Entry<String, Integer> kv : mGameStats.mEvents.entrySet()) {
+            Integer journalCount = mJournalEvents.get(kv.getKey());
+            int delta = kv.getValue() - (journalCount == null ? 0 : journalCount);
+            if (delta != 0) {
+                out.writeByte(EVENT_DELTA);
+                out.writeUTF(kv.getKey());
+                out.writeInt(delta);
+            }
+        }
+        for (Map.Entry<String, Integer> kv : mGameStats.mBestChampionshipRank.entrySet()) {
+            if (!kv.getValue().equals(mJournalChampionshipRanks.get(kv.getKey()))) {
+                out.writeByte(CHAMPIONSHIP_RANK);
+                out.writeUTF(kv.getKey());
+                out.writeInt(kv.getValue());
+            }
+        }
+        for (Map.Entry<String, TrackStats> kv : mGameStats.mTrackStats.entrySet()) {
+            for (TrackStats.ResultType resultType : TrackStats.ResultType.values()) {
+                writeNewResults(out, kv.getKey(), resultType, kv.getValue().get(resultType));
+            }
+        }
+    }
+
+    /**
+     * Writes the results of @p results which are not in the journal yet. Replaying the insertion of
+     * these results in the journal list produces @p results, because records are a sorted list.
+     */
+    private void writeNewResults(
+            DataOutputStream out,
+            String trackId,
+            TrackStats.ResultType resultType,
+            ArrayList<TrackResult> results)
+            throws IOException {
+        ArrayList<TrackResult> journalResults =
+                mJournalTrackResults.get(getTrackResultsKey(trackId, resultType));
+        for (TrackResult result : results) {
+            if (journalResults != null && containsInstance(journalResults, result)) {
+                continue;
+            }
+            out.writeByte(TRACK_RESULT);
+            out.writeUTF(trackId);
+            out.writeByte(resultType.ordinal());
+            out.writeUTF(result.vehicle);
+            out.writeFloat(result.value);
+        }
+    }
+
+    private void clearJournalState() {
+        mJournalEvents.clear();
+        mJournalChampionshipRanks.clear();
+        mJournalTrackResults.clear();
+    }
+
+    /** Records that the journal now contains the current stats */
+    private void updateJournalState() {
+        clearJournalState();
+        mJournalEvents.putAll(mGameStats.mEvents);
+        mJournalChampionshipRanks.putAll(mGameStats.mBestChampionshipRank);
+        for (Map.Entry<String, TrackStats> kv : mGameStats.mTrackStats.entrySet()) {
+            for (TrackStats.ResultType resultType : TrackStats.ResultType.values()) {
+                mJournalTrackResults.put(
+                        getTrackResultsKey(kv.getKey(), resultType),
+                        new ArrayList<>(kv.getValue().get(resultType)));
+            }
+        }
+    }
+
+    private static String getTrackResultsKey(String trackId, TrackStats.ResultType resultType) {
+        return trackId + "/" + resultType;
+    }
+
+    private static boolean containsInstance(ArrayList<TrackResult> list, TrackResult result) {
+        for (TrackResult item : list) {
+            if (item == result) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
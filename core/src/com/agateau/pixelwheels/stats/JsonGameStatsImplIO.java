@@ -19,6 +19,8 @@
 package com.agateau.pixelwheels.stats;
 
 import com.agateau.utils.Assert;
+import com.agateau.utils.FileUtils;
+import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.files.FileHandle;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -28,12 +30,36 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Stores game stats in a JSON file.
+ *
+ * <p>save() creates a JSON tree of the stats, but converting it to text and writing it happens in a
+ * background thread. If several saves are queued, only the last one is written. The file is
+ * replaced atomically, so it is never left half-written.
+ */
 public class JsonGameStatsImplIO implements GameStatsImpl.IO {
     private final FileHandle mHandle;
     private GameStatsImpl mGameStats;
     private final Gson mGson = new GsonBuilder().setPrettyPrinting().create();
 
+    private final ExecutorService mExecutor =
+            Executors.newSingleThreadExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "JsonGameStatsImplIO");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+    // The tree to write. Only the last one matters, so save() replaces it if the writer thread has
+    // not picked it yet
+    private final AtomicReference<JsonObject> mPendingRoot = new AtomicReference<>();
+    private Future<?> mLastWrite;
+
     public JsonGameStatsImplIO(FileHandle handle) {
         mHandle = handle;
     }
@@ -46,6 +72,7 @@ public class JsonGameStatsImplIO implements GameStatsImpl.IO {
     @Override
     public void load() {
         Assert.check(mGameStats != null, "setGameStats() has not been called");
+        waitForPendingWrites();
         if (!mHandle.exists()) {
             return;
         }
@@ -102,8 +129,30 @@ public class JsonGameStatsImplIO implements GameStatsImpl.IO {
 
         root.add("bestChampionshipRank", mGson.toJsonTree(mGameStats.mBestChampionshipRank));
         root.add("events", mGson.toJsonTree(mGameStats.mEvents));
+        if (mPendingRoot.getAndSet(root) == null) {
+            // No write was pending, schedule one
+            mLastWrite = mExecutor.submit(this::writePendingRoot);
+        }
+    }
+
+    /** Blocks until all saved stats have been written */
+    public void waitForPendingWrites() {
+        if (mLastWrite == null) {
+            return;
+        }
+        try {
+            mLastWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            NLog.e("Failed to write %s: %s", mHandle.path(), e.getCause());
+        }
+    }
+
+    private void writePendingRoot() {
+        JsonObject root = mPendingRoot.getAndSet(null);
         String json = mGson.toJson(root);
-        mHandle.writeString(json, false /* append */);
+        FileUtils.writeStringAtomically(mHandle, json);
     }
 
     private JsonObject createJsonForTrack(TrackStats trackStats) {
@@ -50,7 +50,7 @@ public class TrackStats {
         return rank;
     }
 
-    private static int addResult(ArrayList<TrackResult> results, TrackResult result) {
+    static int addResult(ArrayList<TrackResult> results, TrackResult result) {
         // Insert result if it is better than an existing one
         for (int idx = 0; idx < results.size(); ++idx) {
             if (result.value < results.get(idx).value) {
@@ -18,10 +18,16 @@
  */
 package com.agateau.pixelwheels.utils;
 
+import com.agateau.utils.AgcMathUtils;
+import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
 import com.badlogic.gdx.physics.box2d.RayCastCallback;
+import com.badlogic.gdx.physics.box2d.Shape;
 import com.badlogic.gdx.physics.box2d.World;
 
 /**
@@ -37,22 +43,53 @@ public class ArcClosestBodyFinder implements RayCastCallback {
         STOP_SUCCESS
     }
 
+    public enum Mode {
+        /** Sweep the arc with one ray every ANGLE_BETWEEN_RAYS degrees */
+        RAYS,
+        /**
+         * Query the bounding box of the arc, keep the bodies accepted by the filter which are in
+         * the arc, and cast a line-of-sight ray to the closest ones only. Bodies the filter stops
+         * on (STOP_FAILED) block the line of sight.
+         */
+        QUERY
+    }
+
     public interface BodyFilter {
         FilterResult filter(Body body);
     }
 
     private static final float ANGLE_BETWEEN_RAYS = 3;
+    // In QUERY mode, how many candidates to check for line of sight, closest first
+    private static final int MAX_LINE_OF_SIGHT_CHECKS = 2;
     private final float mDepth;
     private final float mArc;
+    private Mode mMode = Mode.RAYS;
     private BodyFilter mBodyFilter = sDefaultBodyFilter;
     private Body mBody;
     private float mFraction;
 
+    // QUERY mode state
+    private final Vector2 mOrigin = new Vector2();
+    private float mAngle;
+    private final Body[] mCandidates = new Body[MAX_LINE_OF_SIGHT_CHECKS];
+    private final float[] mCandidateDistances = new float[MAX_LINE_OF_SIGHT_CHECKS];
+    private boolean mLineOfSightBlocked;
+    private final QueryCallback mQueryCallback = this::reportQueryFixture;
+    private final RayCastCallback mLineOfSightCallback =
+            (fixture, point, normal, fraction) -> {
+                if (mBodyFilter.filter(fixture.getBody()) == FilterResult.STOP_FAILED) {
+                    mLineOfSightBlocked = true;
+                    return 0;
+                }
+                return -1;
+            };
+
     /** Default filter which reports success on first hit */
     private static BodyFilter sDefaultBodyFilter = body -> FilterResult.STOP_SUCCESS;
 
     // Work vars
     private final Vector2 mTmp = new Vector2();
+    private final Vector2 mVertex = new Vector2();
 
     public ArcClosestBodyFinder(float depth) {
         this(depth, 0);
@@ -67,7 +104,14 @@ public class ArcClosestBodyFinder implements RayCastCallback {
         mBodyFilter = bodyFilter;
     }
 
+    public void setMode(Mode mode) {
+        mMode = mode;
+    }
+
     public Body find(World world, Vector2 origin, float angle) {
+        if (mMode == Mode.QUERY) {
+            return findByQuery(world, origin, angle);
+        }
         mFraction = 1;
         mBody = null;
         for (float a = angle - mArc / 2; a <= angle + mArc / 2; a += ANGLE_BETWEEN_RAYS) {
@@ -77,6 +121,119 @@ public class ArcClosestBodyFinder implements RayCastCallback {
         return mBody;
     }
 
+    private Body findByQuery(World world, Vector2 origin, float angle) {
+        mOrigin.set(origin);
+        mAngle = angle;
+        for (int idx = 0; idx < MAX_LINE_OF_SIGHT_CHECKS; ++idx) {
+            mCandidates[idx] = null;
+            mCandidateDistances[idx] = Float.MAX_VALUE;
+        }
+
+        // Bounding box of the arc: the origin, both ends of the arc, and the points of the arc
+        // which are the furthest along each axis, if the arc contains them
+        float minX = origin.x;
+        float minY = origin.y;
+        float maxX = origin.x;
+        float maxY = origin.y;
+        Vector2 vertex = getLeftVertex(origin, angle);
+        minX = Math.min(minX, vertex.x);
+        minY = Math.min(minY, vertex.y);
+        maxX = Math.max(maxX, vertex.x);
+        maxY = Math.max(maxY, vertex.y);
+        vertex = getRightVertex(origin, angle);
+        minX = Math.min(minX, vertex.x);
+        minY = Math.min(minY, vertex.y);
+        maxX = Math.max(maxX, vertex.x);
+        maxY = Math.max(maxY, vertex.y);
+        for (int axisAngle = 0; axisAngle < 360; axisAngle += 90) {
+            if (Math.abs(AgcMathUtils.normalizeAngle180(axisAngle - angle)) <= mArc / 2) {
+                mTmp.set(mDepth, 0).rotate(axisAngle).add(origin);
+                minX = Math.min(minX, mTmp.x);
+                minY = Math.min(minY, mTmp.y);
+                maxX = Math.max(maxX, mTmp.x);
+                maxY = Math.max(maxY, mTmp.y);
+            }
+        }
+        world.QueryAABB(mQueryCallback, minX, minY, maxX, maxY);
+
+        for (int idx = 0; idx < MAX_LINE_OF_SIGHT_CHECKS; ++idx) {
+            Body candidate = mCandidates[idx];
+            if (candidate == null) {
+                break;
+            }
+            mLineOfSightBlocked = false;
+            world.rayCast(mLineOfSightCallback, origin, candidate.getPosition());
+            if (!mLineOfSightBlocked) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private boolean reportQueryFixture(Fixture fixture) {
+        Body body = fixture.getBody();
+        for (Body candidate : mCandidates) {
+            if (candidate == body) {
+                return true;
+            }
+        }
+        if (mBodyFilter.filter(body) != FilterResult.STOP_SUCCESS) {
+            return true;
+        }
+
+        Vector2 position = body.getPosition();
+        float distance = mTmp.set(position).sub(mOrigin).len();
+        if (distance >= mCandidateDistances[MAX_LINE_OF_SIGHT_CHECKS - 1]) {
+            // We already have closer candidates
+            return true;
+        }
+
+        // Accept the fixture if any part of its bounding circle is in the arc
+        float radius = getBoundingRadius(fixture.getShape());
+        if (distance - radius > mDepth) {
+            return true;
+        }
+        if (distance > radius) {
+            float delta = Math.abs(AgcMathUtils.normalizeAngle180(mTmp.angle() - mAngle));
+            float tolerance = (float) Math.asin(radius / distance) * MathUtils.radiansToDegrees;
+            if (delta > mArc / 2 + tolerance) {
+                return true;
+            }
+        }
+
+        // Insert it in the list of candidates, sorted by distance
+        for (int idx = 0; idx < MAX_LINE_OF_SIGHT_CHECKS; ++idx) {
+            if (distance < mCandidateDistances[idx]) {
+                for (int idx2 = MAX_LINE_OF_SIGHT_CHECKS - 1; idx2 > idx; --idx2) {
+                    mCandidates[idx2] = mCandidates[idx2 - 1];
+                    mCandidateDistances[idx2] = mCandidateDistances[idx2 - 1];
+                }
+                mCandidates[idx] = body;
+                mCandidateDistances[idx] = distance;
+                break;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the radius of a circle centered on the body origin which contains @p shape */
+    private float getBoundingRadius(Shape shape) {
+        if (shape instanceof CircleShape) {
+            CircleShape circle = (CircleShape) shape;
+            return circle.getPosition().len() + circle.getRadius();
+        }
+        if (shape instanceof PolygonShape) {
+            PolygonShape polygon = (PolygonShape) shape;
+            float radius2 = 0;
+            for (int idx = polygon.getVertexCount() - 1; idx >= 0; --idx) {
+                polygon.getVertex(idx, mVertex);
+                radius2 = Math.max(radius2, mVertex.len2());
+            }
+            return (float) Math.sqrt(radius2);
+        }
+        return shape.getRadius();
+    }
+
     public Vector2 getLeftVertex(Vector2 origin, float angle) {
         mTmp.set(mDepth, 0).rotate(angle + mArc / 2).add(origin);
         return mTmp;
@@ -70,9 +70,16 @@ public class BodyRegionDrawer {
 
     public void draw(Body body, TextureRegion region) {
         Vector2 center = body.getPosition();
-        float angle = body.getAngle();
-        float x = center.x + mOffsetX * MathUtils.cos(angle) - mOffsetY * MathUtils.sin(angle);
-        float y = center.y + mOffsetX * MathUtils.sin(angle) + mOffsetY * MathUtils.cos(angle);
+        draw(center.x, center.y, body.getAngle(), region);
+    }
+
+    /**
+     * Draws region as if it was attached to a body whose center is at (centerX, centerY) and which
+     * is rotated by angle radians
+     */
+    public void draw(float centerX, float centerY, float angle, TextureRegion region) {
+        float x = centerX + mOffsetX * MathUtils.cos(angle) - mOffsetY * MathUtils.sin(angle);
+        float y = centerY + mOffsetX * MathUtils.sin(angle) + mOffsetY * MathUtils.cos(angle);
         float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
         float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
         mBatch.draw(
@@ -90,24 +97,33 @@ public class BodyRegionDrawer {
 
     public void drawShadow(Body body, TextureRegion region) {
         Vector2 center = body.getPosition();
-        float angle = body.getAngle() * MathUtils.radiansToDegrees;
+        drawShadow(center.x, center.y, body.getAngle(), region);
+    }
+
+    /** Shadow counterpart of draw(float, float, float, TextureRegion) */
+    public void drawShadow(float centerX, float centerY, float angle, TextureRegion region) {
         float offset =
                 (SHADOW_OFFSET_PX
                                 + mZ * Z_MAX_SHADOW_OFFSET_PX
                                 + (mScale - 1) * SCALE_MAX_SHADOW_OFFSET_PX)
                         * Constants.UNIT_FOR_PIXEL;
-        float x = center.x + offset;
-        float y = center.y - offset;
+        float x = centerX + offset;
+        float y = centerY - offset;
         float w = Constants.UNIT_FOR_PIXEL * region.getRegionWidth();
         float h = Constants.UNIT_FOR_PIXEL * region.getRegionHeight();
         float old = mBatch.getPackedColor();
         mBatch.setColor(0, 0, 0, SHADOW_ALPHA);
         mBatch.draw(
-                region, x - w / 2, y - h / 2, // pos
-                w / 2, h / 2, // origin
-                w, h, // size
-                1, 1, // scale
-                angle);
+                region,
+                x - w / 2,
+                y - h / 2, // pos
+                w / 2,
+                h / 2, // origin
+                w,
+                h, // size
+                1,
+                1, // scale
+                angle * MathUtils.radiansToDegrees);
         mBatch.setPackedColor(old);
     }
 }
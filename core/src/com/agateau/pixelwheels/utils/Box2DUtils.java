@@ -46,7 +46,6 @@ public class Box2DUtils {
     public static final float MS_TO_KMH = 3.6f;
     private static final Vector2 FORWARD_VECTOR = new Vector2(1, 0);
     private static final Vector2 LATERAL_VECTOR = new Vector2(0, 1);
-    private static final Vector2 sTmp = new Vector2();
 
     @SuppressWarnings("unused")
     public static Vector2 getForwardVelocity(Body body) {
@@ -94,13 +93,13 @@ public class Box2DUtils {
         }
     }
 
-    public static Body createStaticBodyForMapObject(World world, MapObject object) {
+    /**
+     * Creates a shape for a map object, in world coordinates: the position and rotation of the
+     * object are applied to the shape vertices
+     */
+    public static Shape createShapeForMapObject(MapObject object) {
         final float u = Constants.UNIT_FOR_PIXEL;
-        float rotation = MapUtils.getObjectRotation(object);
-
-        BodyDef bodyDef = new BodyDef();
-        bodyDef.type = BodyDef.BodyType.StaticBody;
-        bodyDef.angle = rotation * MathUtils.degreesToRadians;
+        float angle = MapUtils.getObjectRotation(object) * MathUtils.degreesToRadians;
 
         if (object instanceof RectangleMapObject) {
             Rectangle rect = ((RectangleMapObject) object).getRectangle();
@@ -126,49 +125,51 @@ public class Box2DUtils {
             vertices[6] = rect.getWidth();
             vertices[7] = 0;
             scaleVertices(vertices, u);
-
-            bodyDef.position.set(u * rect.getX(), u * (rect.getY() + rect.getHeight()));
-            Body body = world.createBody(bodyDef);
+            transformVertices(
+                    vertices, u * rect.getX(), u * (rect.getY() + rect.getHeight()), angle);
 
             PolygonShape shape = new PolygonShape();
             shape.set(vertices);
-
-            body.createFixture(shape, 1);
-            return body;
+            return shape;
         } else if (object instanceof PolygonMapObject) {
             Polygon polygon = ((PolygonMapObject) object).getPolygon();
             float[] vertices = polygon.getVertices().clone();
             scaleVertices(vertices, u);
-
-            bodyDef.position.set(polygon.getX() * u, polygon.getY() * u);
-            Body body = world.createBody(bodyDef);
+            transformVertices(vertices, polygon.getX() * u, polygon.getY() * u, angle);
 
             PolygonShape shape = new PolygonShape();
             shape.set(vertices);
-
-            body.createFixture(shape, 1);
-            return body;
+            return shape;
         } else if (object instanceof EllipseMapObject) {
             Ellipse ellipse = ((EllipseMapObject) object).getEllipse();
             float radius = ellipse.width * u / 2;
-            float x = ellipse.x * u + radius;
-            float y = ellipse.y * u + radius;
-
-            bodyDef.position.set(x, y);
-            Body body = world.createBody(bodyDef);
 
             CircleShape shape = new CircleShape();
+            shape.setPosition(new Vector2(ellipse.x * u + radius, ellipse.y * u + radius));
             shape.setRadius(radius);
-
-            body.createFixture(shape, 1);
-            return body;
+            return shape;
         }
         throw new RuntimeException("Unsupported MapObject type: " + object);
     }
 
-    public static void setBodyRestitution(Body body, float restitution) {
-        for (Fixture fixture : body.getFixtureList()) {
-            fixture.setRestitution(restitution);
+    /** Rotates shape by angle radians around the origin, then moves it by (x, y) */
+    public static void transformShape(Shape shape, float x, float y, float angle) {
+        if (shape instanceof PolygonShape) {
+            PolygonShape polygonShape = (PolygonShape) shape;
+            float[] vertices = new float[polygonShape.getVertexCount() * 2];
+            Vector2 vertex = new Vector2();
+            for (int idx = 0; idx < polygonShape.getVertexCount(); ++idx) {
+                polygonShape.getVertex(idx, vertex);
+                setVertice(vertices, idx * 2, vertex.x, vertex.y);
+            }
+            transformVertices(vertices, x, y, angle);
+            polygonShape.set(vertices);
+        } else if (shape instanceof CircleShape) {
+            CircleShape circleShape = (CircleShape) shape;
+            Vector2 position = circleShape.getPosition();
+            circleShape.setPosition(position.rotateRad(angle).add(x, y));
+        } else {
+            throw new RuntimeException("Unsupported Shape type " + shape);
         }
     }
 
@@ -197,9 +198,14 @@ public class Box2DUtils {
 
     public static Shape createBox2DShape(Shape2D shape2D, float zoomFactor) {
         if (shape2D instanceof Polygon) {
-            float[] polygonVertices = ((Polygon) shape2D).getTransformedVertices();
+            float[] vertices;
+            // Shapes from definitions are shared between worlds, which may run on different
+            // threads, and getTransformedVertices() lazily updates the polygon
+            synchronized (shape2D) {
+                float[] polygonVertices = ((Polygon) shape2D).getTransformedVertices();
+                vertices = Arrays.copyOf(polygonVertices, polygonVertices.length);
+            }
             PolygonShape shape = new PolygonShape();
-            float[] vertices = Arrays.copyOf(polygonVertices, polygonVertices.length);
             scaleVertices(vertices, zoomFactor);
             shape.set(vertices);
             return shape;
@@ -207,8 +213,8 @@ public class Box2DUtils {
             Circle circleShape2D = (Circle) shape2D;
 
             CircleShape shape = new CircleShape();
-            sTmp.set(circleShape2D.x, circleShape2D.y).scl(zoomFactor);
-            shape.setPosition(sTmp);
+            shape.setPosition(
+                    new Vector2(circleShape2D.x * zoomFactor, circleShape2D.y * zoomFactor));
 
             shape.setRadius(circleShape2D.radius * zoomFactor);
 
@@ -241,6 +247,17 @@ public class Box2DUtils {
         }
     }
 
+    private static void transformVertices(float[] vertices, float x, float y, float angle) {
+        float cos = MathUtils.cos(angle);
+        float sin = MathUtils.sin(angle);
+        for (int idx = 0; idx < vertices.length; idx += 2) {
+            float vx = vertices[idx];
+            float vy = vertices[idx + 1];
+            vertices[idx] = x + vx * cos - vy * sin;
+            vertices[idx + 1] = y + vx * sin + vy * cos;
+        }
+    }
+
     private static void setVertice(float[] vertices, int idx, float x, float y) {
         vertices[idx] = x;
         vertices[idx + 1] = y;
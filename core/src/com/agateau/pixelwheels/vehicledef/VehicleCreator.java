@@ -30,12 +30,17 @@ import com.badlogic.gdx.math.Vector2;
 public class VehicleCreator {
     private final GameWorld mGameWorld;
     private final Assets mAssets;
+    private Vehicle.PhysicsModel mPhysicsModel = Vehicle.PhysicsModel.JOINTED_WHEELS;
 
     public VehicleCreator(Assets assets, GameWorld gameWorld) {
         mGameWorld = gameWorld;
         mAssets = assets;
     }
 
+    public void setPhysicsModel(Vehicle.PhysicsModel physicsModel) {
+        mPhysicsModel = physicsModel;
+    }
+
     private final Vector2 sWheelPos = new Vector2();
 
     public Vehicle create(VehicleDef vehicleDef, Vector2 position, float angle) {
@@ -47,7 +52,13 @@ public class VehicleCreator {
 
         Vehicle vehicle =
                 new Vehicle(
-                        mainRegion, mGameWorld, position.x, position.y, vehicleDef.shapes, angle);
+                        mainRegion,
+                        mGameWorld,
+                        position.x,
+                        position.y,
+                        vehicleDef.shapes,
+                        angle,
+                        mPhysicsModel);
         vehicle.setName(vehicleDef.name);
         vehicle.setId(vehicleDef.id);
 
@@ -21,6 +21,7 @@ package com.agateau.utils;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import java.util.Random;
 
 public class AgcMathUtils {
     private static final Vector2 sTmpVector = new Vector2();
@@ -77,6 +78,11 @@ public class AgcMathUtils {
         return MathUtils.lerp(array[idx], array[idx + 1], k2 - idx);
     }
 
+    /** Same as MathUtils.random(start, end), but uses @p random instead of the global generator */
+    public static float random(Random random, float start, float end) {
+        return start + random.nextFloat() * (end - start);
+    }
+
     /**
      * Compute the vector corresponding to the width side of a rectangle whose length side is made
      * of @p pos1 to @p pos2, with a width of @p width
@@ -108,14 +114,19 @@ public class AgcMathUtils {
      * @return the projected point. Vector is reused.
      */
     public static Vector2 project(Vector2 a, Vector2 pos1, Vector2 pos2) {
-        sTmpVector.set(pos2).sub(pos1).nor();
-        float vx = sTmpVector.x;
-        float vy = sTmpVector.y;
+        return project(a, pos1, pos2, sTmpVector);
+    }
+
+    /** Same as project(a, pos1, pos2), but stores the result in @p out and returns it */
+    public static Vector2 project(Vector2 a, Vector2 pos1, Vector2 pos2, Vector2 out) {
+        out.set(pos2).sub(pos1).nor();
+        float vx = out.x;
+        float vy = out.y;
 
         float pos1ToH = (a.x - pos1.x) * vx + (a.y - pos1.y) * vy;
-        sTmpVector.x = pos1.x + pos1ToH * vx;
-        sTmpVector.y = pos1.y + pos1ToH * vy;
-        return sTmpVector;
+        out.x = pos1.x + pos1ToH * vx;
+        out.y = pos1.y + pos1ToH * vy;
+        return out;
     }
 
     /**
@@ -19,6 +19,7 @@
 package com.agateau.utils;
 
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -39,4 +40,24 @@ public class CollectionUtils {
         }
         return map.containsKey(key) ? null : defaultValue;
     }
+
+    /**
+     * Stable in-place sort of items[fromIndex] to items[toIndex - 1].
+     *
+     * <p>Runs in O(n) when the items are already sorted and O(n * k) when each item is at most k
+     * positions away from its sorted position, which makes it a better fit than a general purpose
+     * sort for lists which are re-sorted after small changes.
+     */
+    public static <T> void insertionSort(
+            T[] items, Comparator<? super T> comparator, int fromIndex, int toIndex) {
+        for (int idx = fromIndex + 1; idx < toIndex; ++idx) {
+            T item = items[idx];
+            int dst = idx;
+            while (dst > fromIndex && comparator.compare(items[dst - 1], item) > 0) {
+                items[dst] = items[dst - 1];
+                --dst;
+            }
+            items[dst] = item;
+        }
+    }
 }
@@ -54,6 +54,27 @@ public class FileUtils {
         return Gdx.files.internal(path);
     }
 
+    /**
+     * Writes @p content to @p handle, so that @p handle contains either its old content or the new
+     * one, even if the application is interrupted while writing.
+     *
+     * <p>The content is written to a temporary file which is then renamed to @p handle.
+     */
+    public static void writeStringAtomically(FileHandle handle, String content) {
+        FileHandle tmpHandle = handle.sibling(handle.name() + ".tmp");
+        tmpHandle.writeString(content, false /* append */, "UTF-8");
+        replace(tmpHandle, handle);
+    }
+
+    /** Renames @p source to @p destination, replacing @p destination atomically if possible */
+    public static void replace(FileHandle source, FileHandle destination) {
+        if (!source.file().renameTo(destination.file())) {
+            // renameTo() fails on some platforms if the destination exists. moveTo() falls back to
+            // copying, which is not atomic but still better than failing
+            source.moveTo(destination);
+        }
+    }
+
     public static XmlReader.Element parseXml(FileHandle handle) {
         XmlReader reader = new XmlReader();
         XmlReader.Element root = reader.parse(handle);
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils;
+
+/**
+ * An ordered map of long keys to float values, backed by two arrays.
+ *
+ * <p>Like libGDX ArrayMap, lookups are linear, so it is meant for small maps. Unlike ArrayMap, it
+ * does not box keys and values, so it does not allocate once its capacity is large enough.
+ */
+public class LongFloatArrayMap {
+    private long[] mKeys;
+    private float[] mValues;
+    public int size = 0;
+
+    public LongFloatArrayMap(int capacity) {
+        mKeys = new long[capacity];
+        mValues = new float[capacity];
+    }
+
+    public int indexOfKey(long key) {
+        for (int idx = 0; idx < size; ++idx) {
+            if (mKeys[idx] == key) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    public boolean containsKey(long key) {
+        return indexOfKey(key) != -1;
+    }
+
+    /** Adds or replaces the value for @p key, returns the index of the key */
+    public int put(long key, float value) {
+        int index = indexOfKey(key);
+        if (index == -1) {
+            if (size == mKeys.length) {
+                resize(Math.max(8, size * 2));
+            }
+            index = size++;
+            mKeys[index] = key;
+        }
+        mValues[index] = value;
+        return index;
+    }
+
+    public long getKeyAt(int index) {
+        checkIndex(index);
+        return mKeys[index];
+    }
+
+    public float getValueAt(int index) {
+        checkIndex(index);
+        return mValues[index];
+    }
+
+    public void setValue(int index, float value) {
+        checkIndex(index);
+        mValues[index] = value;
+    }
+
+    /** Removes the entry at @p index, keeping the order of the other entries */
+    public void removeIndex(int index) {
+        checkIndex(index);
+        --size;
+        System.arraycopy(mKeys, index + 1, mKeys, index, size - index);
+        System.arraycopy(mValues, index + 1, mValues, index, size - index);
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        long[] keys = new long[capacity];
+        float[] values = new float[capacity];
+        System.arraycopy(mKeys, 0, keys, 0, size);
+        System.arraycopy(mValues, 0, values, 0, size);
+        mKeys = keys;
+        mValues = values;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index can't be >= size: " + index + " >= " + size);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils;
+
+import com.badlogic.gdx.utils.ReflectionPool;
+
+/**
+ * Keeps one ReflectionPool per thread.
+ *
+ * <p>Makes it possible to use static pools from game worlds running on different threads, as long
+ * as objects are freed by the thread which obtained them.
+ */
+public class PerThreadReflectionPool<T> {
+    private final ThreadLocal<ReflectionPool<T>> mPools;
+
+    public PerThreadReflectionPool(final Class<T> type) {
+        mPools =
+                new ThreadLocal<ReflectionPool<T>>() {
+                    @Override
+                    protected ReflectionPool<T> initialValue() {
+                        return new ReflectionPool<>(type);
+                    }
+                };
+    }
+
+    public T obtain() {
+        return mPools.get().obtain();
+    }
+
+    public void free(T object) {
+        mPools.get().free(object);
+    }
+}
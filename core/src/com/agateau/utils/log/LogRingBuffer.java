@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded queue of log messages, which any number of threads can add to without locking, and a
+ * single thread consumes.
+ *
+ * <p>Entries are preallocated: adding a message does not allocate. Messages are stored unformatted,
+ * formatting is left to the consumer.
+ *
+ * <p>Each slot has a sequence number telling whether it is ready to be written (sequence ==
+ * position) or to be read (sequence == position + 1).
+ */
+public class LogRingBuffer {
+    public static class Entry {
+        public int level;
+        public String tag;
+        public Object format;
+        public Object[] args;
+
+        void clear() {
+            tag = null;
+            format = null;
+            args = null;
+        }
+    }
+
+    private final Entry[] mEntries;
+    private final AtomicLongArray mSequences;
+    private final int mMask;
+    private final AtomicLong mWritePosition = new AtomicLong();
+    private long mReadPosition = 0;
+
+    /** @param capacity must be a power of two */
+    public LogRingBuffer(int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mMask = capacity - 1;
+        mEntries = new Entry[capacity];
+        mSequences = new AtomicLongArray(capacity);
+        for (int idx = 0; idx < capacity; ++idx) {
+            mEntries[idx] = new Entry();
+            mSequences.set(idx, idx);
+        }
+    }
+
+    public int getCapacity() {
+        return mEntries.length;
+    }
+
+    /**
+     * Adds a message. Can be called from any thread.
+     *
+     * @return false if the buffer is full
+     */
+    public boolean offer(int level, String tag, Object format, Object[] args) {
+        long position = mWritePosition.get();
+        while (true) {
+            int idx = (int) position & mMask;
+            long diff = mSequences.get(idx) - position;
+            if (diff == 0) {
+                if (mWritePosition.compareAndSet(position, position + 1)) {
+                    Entry entry = mEntries[idx];
+                    entry.level = level;
+                    entry.tag = tag;
+                    entry.format = format;
+                    entry.args = args;
+                    // Publish the entry
+                    mSequences.set(idx, position + 1);
+                    return true;
+                }
+                position = mWritePosition.get();
+            } else if (diff < 0) {
+                // The slot has not been consumed yet: the buffer is full
+                return false;
+            } else {
+                // Another thread took this position
+                position = mWritePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Moves the oldest message to @p out. Must always be called from the same thread, or with a
+     * lock held.
+     *
+     * @return false if the buffer is empty
+     */
+    public boolean poll(Entry out) {
+        int idx = (int) mReadPosition & mMask;
+        if (mSequences.get(idx) != mReadPosition + 1) {
+            return false;
+        }
+        Entry entry = mEntries[idx];
+        out.level = entry.level;
+        out.tag = entry.tag;
+        out.format = entry.format;
+        out.args = entry.args;
+        entry.clear();
+        // Make the slot available for writing again
+        mSequences.set(idx, mReadPosition + mEntries.length);
+        ++mReadPosition;
+        return true;
+    }
+}
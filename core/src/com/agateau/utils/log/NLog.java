@@ -20,10 +20,40 @@ package com.agateau.utils.log;
 
 import com.badlogic.gdx.Application;
 import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Logging functions.
+ *
+ * <p>By default messages are formatted and printed immediately, by the calling thread, and tagged
+ * with the name of the calling method.
+ *
+ * <p>In async mode (see startAsync()), messages are instead queued in a LogRingBuffer and formatted
+ * and printed by a background thread. Capturing the calling method is expensive, so it is only done
+ * in async mode if requested. Since formatting is deferred, arguments must not be modified after
+ * being logged.
+ *
+ * <p>Messages whose level is above the level set with setLevel() are dropped before any work is
+ * done.
+ */
 public class NLog {
     private static final Vector<Printer> sPrinters = new Vector<>();
     private static int sStackDepth = -1;
+    private static volatile int sLevel = Application.LOG_DEBUG;
+
+    private static final String NO_TAG = "-";
+    private static final long DRAIN_INTERVAL_NS = 10_000_000;
+
+    // Async mode
+    private static volatile LogRingBuffer sRingBuffer;
+    private static volatile boolean sCaptureCallerTag;
+    private static final AtomicInteger sDroppedCount = new AtomicInteger();
+    private static final LogRingBuffer.Entry sDrainEntry = new LogRingBuffer.Entry();
+    private static final Object sAsyncLock = new Object();
+    private static final Object sDrainLock = new Object();
+    private static Thread sDrainThread;
+    private static Thread sShutdownHook;
 
     public interface Printer {
         void print(int level, String tag, String message);
@@ -75,11 +105,127 @@ public class NLog {
         sPrinters.add(printer);
     }
 
-    private static synchronized void print(int level, Object obj, Object... args) {
-        if (sStackDepth < 0) {
-            initStackDepth();
+    public static void removePrinter(Printer printer) {
+        sPrinters.remove(printer);
+    }
+
+    /**
+     * Only print messages whose level is less than or equal to @p level. Uses the Application.LOG_*
+     * constants. Defaults to Application.LOG_DEBUG, meaning all messages are printed.
+     */
+    public static void setLevel(int level) {
+        sLevel = level;
+    }
+
+    /**
+     * Switches to async mode. Messages are stored in a ring buffer of @p capacity entries (must be
+     * a power of two), and printed by a background thread. If the buffer is full, messages are
+     * dropped, and the number of dropped messages is logged.
+     *
+     * @param captureCallerTag whether to tag messages with the calling method
+     */
+    public static void startAsync(int capacity, boolean captureCallerTag) {
+        synchronized (sAsyncLock) {
+            stopAsync();
+            sCaptureCallerTag = captureCallerTag;
+            sRingBuffer = new LogRingBuffer(capacity);
+            sDrainThread = new Thread(NLog::drainLoop, "NLog");
+            sDrainThread.setDaemon(true);
+            sDrainThread.start();
+            // Do not lose the last messages when the application exits
+            sShutdownHook = new Thread(NLog::flush, "NLog shutdown");
+            Runtime.getRuntime().addShutdownHook(sShutdownHook);
+        }
+    }
+
+    /** Prints all pending messages and goes back to printing messages immediately */
+    public static void stopAsync() {
+        synchronized (sAsyncLock) {
+            if (sRingBuffer == null) {
+                return;
+            }
+            sDrainThread.interrupt();
+            try {
+                sDrainThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            sDrainThread = null;
+            synchronized (sDrainLock) {
+                drain();
+                sRingBuffer = null;
+            }
+            try {
+                Runtime.getRuntime().removeShutdownHook(sShutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down
+            }
+            sShutdownHook = null;
+        }
+    }
+
+    /** In async mode, blocks until all queued messages have been printed */
+    public static void flush() {
+        drain();
+    }
+
+    private static void print(int level, Object obj, Object... args) {
+        if (level > sLevel) {
+            return;
+        }
+        LogRingBuffer ringBuffer = sRingBuffer;
+        if (ringBuffer == null) {
+            // getCallerMethod() must be called from this method, see its implementation
+            printNow(level, getCallerMethod(), obj, args);
+            return;
+        }
+        final String tag = sCaptureCallerTag ? getCallerMethod() : NO_TAG;
+        if (!ringBuffer.offer(level, tag, obj, args)) {
+            sDroppedCount.incrementAndGet();
         }
-        final String tag = getCallerMethod();
+    }
+
+    private static void drainLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!drain()) {
+                LockSupport.parkNanos(DRAIN_INTERVAL_NS);
+            }
+        }
+    }
+
+    /**
+     * Prints all queued messages. Holds sDrainLock because LogRingBuffer.poll() must not be called
+     * concurrently.
+     *
+     * @return true if there were messages to print
+     */
+    private static boolean drain() {
+        synchronized (sDrainLock) {
+            LogRingBuffer ringBuffer = sRingBuffer;
+            if (ringBuffer == null) {
+                return false;
+            }
+            boolean printed = false;
+            LogRingBuffer.Entry entry = sDrainEntry;
+            while (ringBuffer.poll(entry)) {
+                printNow(entry.level, entry.tag, entry.format, entry.args);
+                entry.clear();
+                printed = true;
+            }
+            int droppedCount = sDroppedCount.getAndSet(0);
+            if (droppedCount > 0) {
+                printNow(
+                        Application.LOG_ERROR,
+                        "NLog",
+                        "%d messages dropped, log buffer is full",
+                        new Object[] {droppedCount});
+                printed = true;
+            }
+            return printed;
+        }
+    }
+
+    private static synchronized void printNow(int level, String tag, Object obj, Object[] args) {
         String message;
         if (obj == null) {
             message = "(null)";
@@ -105,7 +251,14 @@ public class NLog {
         }
     }
 
+    /**
+     * Returns the name of the method which called d(), i() or e(). Must be called from print(), to
+     * skip the right number of stack frames.
+     */
     private static String getCallerMethod() {
+        if (sStackDepth < 0) {
+            initStackDepth();
+        }
         final StackTraceElement stackTraceElement =
                 Thread.currentThread().getStackTrace()[sStackDepth + 3];
         final String fullClassName = stackTraceElement.getClassName();
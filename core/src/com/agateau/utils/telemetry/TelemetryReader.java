@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.telemetry;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads files written by TelemetryRecorder, one block at a time.
+ *
+ * <p>A truncated last block, for example if the game crashed while recording, is ignored.
+ */
+public class TelemetryReader {
+    private final DataInputStream mInput;
+    private final String[] mNames;
+    private final byte[] mTypes;
+    private int[][] mColumns;
+    private int mRowCount = 0;
+
+    public TelemetryReader(InputStream stream) throws IOException {
+        mInput = new DataInputStream(new BufferedInputStream(stream));
+        byte[] magic = new byte[TelemetryRecorder.MAGIC.length];
+        mInput.readFully(magic);
+        if (!Arrays.equals(magic, TelemetryRecorder.MAGIC)) {
+            throw new IOException("Not a telemetry file");
+        }
+        int version = mInput.readInt();
+        if (version != TelemetryRecorder.VERSION) {
+            throw new IOException("Unsupported telemetry file version " + version);
+        }
+        int channelCount = mInput.readInt();
+        mNames = new String[channelCount];
+        mTypes = new byte[channelCount];
+        for (int idx = 0; idx < channelCount; ++idx) {
+            mTypes[idx] = mInput.readByte();
+            byte[] name = new byte[mInput.readShort()];
+            mInput.readFully(name);
+            mNames[idx] = new String(name, StandardCharsets.UTF_8);
+        }
+        mColumns = new int[channelCount][0];
+    }
+
+    public int getChannelCount() {
+        return mNames.length;
+    }
+
+    public String getChannelName(int channel) {
+        return mNames[channel];
+    }
+
+    /** Returns TelemetryRecorder.TYPE_FLOAT or TelemetryRecorder.TYPE_INT */
+    public byte getChannelType(int channel) {
+        return mTypes[channel];
+    }
+
+    /**
+     * Reads the next block
+     *
+     * @return false if there are no more blocks
+     */
+    public boolean readBlock() throws IOException {
+        try {
+            mRowCount = mInput.readInt();
+            if (mColumns.length > 0 && mColumns[0].length < mRowCount) {
+                mColumns = new int[mNames.length][mRowCount];
+            }
+            for (int[] column : mColumns) {
+                for (int row = 0; row < mRowCount; ++row) {
+                    column[row] = mInput.readInt();
+                }
+            }
+        } catch (EOFException e) {
+            mRowCount = 0;
+            return false;
+        }
+        return true;
+    }
+
+    /** Returns the number of rows of the current block */
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    public int getInt(int channel, int row) {
+        return mColumns[channel][row];
+    }
+
+    public float getFloat(int channel, int row) {
+        return Float.intBitsToFloat(mColumns[channel][row]);
+    }
+
+    /** Returns the value as a string, using the channel type */
+    public String getString(int channel, int row) {
+        if (mTypes[channel] == TelemetryRecorder.TYPE_FLOAT) {
+            return String.valueOf(getFloat(channel, row));
+        } else {
+            return String.valueOf(getInt(channel, row));
+        }
+    }
+
+    public void close() throws IOException {
+        mInput.close();
+    }
+}
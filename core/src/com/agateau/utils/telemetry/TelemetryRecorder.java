@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License.
+ *
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.agateau.utils.telemetry;
+
+import com.agateau.utils.Assert;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Records numeric values to a binary file, with a low overhead.
+ *
+ * <p>Channels are registered before recording starts. Each row contains one value per channel.
+ * Values are kept in primitive column buffers and written in blocks of blockSize rows, so recording
+ * a value never allocates nor does any I/O.
+ *
+ * <p>File format (big-endian):
+ *
+ * <pre>
+ * header:
+ *   magic: "PWTL"
+ *   version: int
+ *   channelCount: int
+ *   channelCount times:
+ *     type: byte (TYPE_FLOAT or TYPE_INT)
+ *     nameLength: short
+ *     name: nameLength UTF-8 bytes
+ * blocks, until the end of the file:
+ *   rowCount: int
+ *   channelCount times:
+ *     rowCount values, 4 bytes each
+ * </pre>
+ *
+ * <p>Use TelemetryReader to read the file back.
+ */
+public class TelemetryRecorder implements Disposable {
+    static final byte[] MAGIC = {'P', 'W', 'T', 'L'};
+    static final int VERSION = 1;
+    public static final byte TYPE_FLOAT = 0;
+    public static final byte TYPE_INT = 1;
+
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static class Channel {
+        final String name;
+        final byte type;
+
+        Channel(String name, byte type) {
+            this.name = name;
+            this.type = type;
+        }
+    }
+
+    private final WritableByteChannel mOutput;
+    private final int mBlockSize;
+    private final Array<Channel> mChannels = new Array<>();
+
+    // Values are stored as ints, floats are stored using Float.floatToRawIntBits()
+    private int[][] mColumns;
+    private ByteBuffer mBuffer;
+    private int mRowCount = 0;
+    private boolean mClosed = false;
+
+    public TelemetryRecorder(FileHandle handle) {
+        this(createChannel(handle.write(false /* append */)), DEFAULT_BLOCK_SIZE);
+    }
+
+    public TelemetryRecorder(WritableByteChannel output, int blockSize) {
+        Assert.check(blockSize > 0, "blockSize must be positive");
+        mOutput = output;
+        mBlockSize = blockSize;
+    }
+
+    /** Returns the channel index, to pass to setFloat() */
+    public int addFloatChannel(String name) {
+        return addChannel(name, TYPE_FLOAT);
+    }
+
+    /** Returns the channel index, to pass to setInt() */
+    public int addIntChannel(String name) {
+        return addChannel(name, TYPE_INT);
+    }
+
+    /** Writes the file header. Channels cannot be added after this */
+    public void start() {
+        Assert.check(mColumns == null, "Recording already started");
+        mColumns = new int[mChannels.size][mBlockSize];
+        mBuffer = ByteBuffer.allocateDirect(4 + mChannels.size * mBlockSize * 4);
+
+        int headerSize = MAGIC.length + 8;
+        byte[][] names = new byte[mChannels.size][];
+        for (int idx = 0; idx < mChannels.size; ++idx) {
+            names[idx] = mChannels.get(idx).name.getBytes(StandardCharsets.UTF_8);
+            headerSize += 3 + names[idx].length;
+        }
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.put(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(mChannels.size);
+        for (int idx = 0; idx < mChannels.size; ++idx) {
+            header.put(mChannels.get(idx).type);
+            header.putShort((short) names[idx].length);
+            header.put(names[idx]);
+        }
+        header.flip();
+        write(header);
+    }
+
+    public void setFloat(int channel, float value) {
+        mColumns[channel][mRowCount] = Float.floatToRawIntBits(value);
+    }
+
+    public void setInt(int channel, int value) {
+        mColumns[channel][mRowCount] = value;
+    }
+
+    /** Must be called once all the values of the current row have been set */
+    public void endRow() {
+        ++mRowCount;
+        if (mRowCount == mBlockSize) {
+            flush();
+        }
+    }
+
+    /** Writes pending rows */
+    public void flush() {
+        if (mRowCount == 0) {
+            return;
+        }
+        mBuffer.clear();
+        mBuffer.putInt(mRowCount);
+        for (int[] column : mColumns) {
+            for (int row = 0; row < mRowCount; ++row) {
+                mBuffer.putInt(column[row]);
+            }
+        }
+        mBuffer.flip();
+        write(mBuffer);
+        mRowCount = 0;
+    }
+
+    @Override
+    public void dispose() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        if (mColumns != null) {
+            flush();
+        }
+        try {
+            mOutput.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close telemetry file", e);
+        }
+    }
+
+    private int addChannel(String name, byte type) {
+        Assert.check(mColumns == null, "Channels must be added before calling start()");
+        mChannels.add(new Channel(name, type));
+        return mChannels.size - 1;
+    }
+
+    private void write(ByteBuffer buffer) {
+        try {
+            while (buffer.hasRemaining()) {
+                mOutput.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write telemetry file", e);
+        }
+    }
+
+    private static WritableByteChannel createChannel(OutputStream stream) {
+        if (stream instanceof FileOutputStream) {
+            return ((FileOutputStream) stream).getChannel();
+        }
+        return Channels.newChannel(stream);
+    }
+}
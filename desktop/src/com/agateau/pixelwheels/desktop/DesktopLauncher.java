@@ -19,6 +19,7 @@
 package com.agateau.pixelwheels.desktop;
 
 import com.agateau.pixelwheels.PwGame;
+import com.agateau.pixelwheels.debug.Debug;
 import com.agateau.pixelwheels.screens.PwStageScreen;
 import com.agateau.utils.FileUtils;
 import com.badlogic.gdx.Files;
@@ -34,6 +35,13 @@ public class DesktopLauncher {
         config.setPreferencesConfig(".config/agateau.com", Files.FileType.External);
         config.useVsync(true);
         FileUtils.appName = "pixelwheels";
+        for (String argument : arg) {
+            if (argument.equals("--profile-allocations")) {
+                Debug.instance.profileAllocations = true;
+            } else if (argument.equals("--async-logging")) {
+                Debug.instance.asyncLogging = true;
+            }
+        }
         new Lwjgl3Application(new PwGame(), config);
     }
 }
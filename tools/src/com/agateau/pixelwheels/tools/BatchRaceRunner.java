@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.debug.AllocationCounter;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.racer.Vehicle;
+import com.agateau.pixelwheels.simulation.RaceFarm;
+import com.agateau.pixelwheels.simulation.RaceResult;
+import com.agateau.pixelwheels.stats.GameStats;
+import com.agateau.utils.CsvWriter;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Runs AI-only races without a display and writes the results to a CSV file.
+ *
+ * <p>Races are spread over all cores. The results only depend on the seed, not on the number of
+ * threads.
+ *
+ * <p>Must be run from the android/assets directory.
+ */
+public class BatchRaceRunner {
+    private static final String USAGE =
+            "Usage: BatchRaceRunner [-a] [-j <threads>] [-s <seed>] [-p <physics-model>]"
+                    + " <result.csv> <race-count> [track-id...]\n"
+                    + "\n"
+                    + "  -a  Log per-step allocations at the end of each race\n"
+                    + "  -p  Vehicle physics model: JOINTED_WHEELS (default) or SINGLE_BODY. Run"
+                    + " the same races with both models, using the same seed, to compare their"
+                    + " handling";
+
+    public static void main(String[] args) {
+        new HeadlessCommandLineApplication(args) {
+            @Override
+            int run(String[] arguments) {
+                int threadCount = Runtime.getRuntime().availableProcessors();
+                long seed = System.currentTimeMillis();
+                boolean profileAllocations = false;
+                Vehicle.PhysicsModel physicsModel = Vehicle.PhysicsModel.JOINTED_WHEELS;
+                int argIdx = 0;
+                for (; argIdx < arguments.length - 1; ++argIdx) {
+                    String option = arguments[argIdx];
+                    if (option.equals("-a")) {
+                        profileAllocations = true;
+                    } else if (option.equals("-j")) {
+                        ++argIdx;
+                        threadCount = Integer.parseInt(arguments[argIdx]);
+                    } else if (option.equals("-s")) {
+                        ++argIdx;
+                        seed = Long.parseLong(arguments[argIdx]);
+                    } else if (option.equals("-p")) {
+                        ++argIdx;
+                        try {
+                            physicsModel = Vehicle.PhysicsModel.valueOf(arguments[argIdx]);
+                        } catch (IllegalArgumentException e) {
+                            NLog.e("Unknown physics model '%s'", arguments[argIdx]);
+                            return 1;
+                        }
+                    } else {
+                        break;
+                    }
+                }
+                if (arguments.length - argIdx < 2) {
+                    NLog.e(USAGE);
+                    return 1;
+                }
+                String csvFileName = arguments[argIdx];
+                int raceCount = Integer.parseInt(arguments[argIdx + 1]);
+                Assets assets = new Assets();
+                Array<Track> tracks = new Array<>();
+                if (arguments.length - argIdx == 2) {
+                    tracks.addAll(assets.tracks);
+                } else {
+                    for (int idx = argIdx + 2; idx < arguments.length; ++idx) {
+                        Track track = assets.findTrackById(arguments[idx]);
+                        if (track == null) {
+                            NLog.e("No track with id '%s'", arguments[idx]);
+                            return 1;
+                        }
+                        tracks.add(track);
+                    }
+                }
+                runRaces(
+                        assets,
+                        tracks,
+                        raceCount,
+                        threadCount,
+                        seed,
+                        profileAllocations,
+                        physicsModel,
+                        csvFileName);
+                return 0;
+            }
+        };
+    }
+
+    private static void runRaces(
+            Assets assets,
+            Array<Track> tracks,
+            int raceCount,
+            int threadCount,
+            long seed,
+            boolean profileAllocations,
+            Vehicle.PhysicsModel physicsModel,
+            String csvFileName) {
+        NLog.i(
+                "Running %d races on %d threads, seed=%d, physics model=%s",
+                raceCount, threadCount, seed, physicsModel);
+        RaceFarm farm = new RaceFarm(assets, threadCount);
+        farm.setPhysicsModel(physicsModel);
+        if (profileAllocations) {
+            if (!AllocationCounter.isSupported()) {
+                NLog.e("Allocation profiling is not supported by this JVM");
+                return;
+            }
+            farm.getSimulator().setProfileAllocations(true);
+        }
+        farm.setListener(
+                (raceIdx, result) ->
+                        NLog.i(
+                                "Race %d/%d on %s: %.1fs%s",
+                                raceIdx + 1,
+                                raceCount,
+                                result.trackId,
+                                result.duration,
+                                result.timedOut ? " (timed out)" : ""));
+        long startTime = System.nanoTime();
+        Array<RaceResult> results = farm.run(tracks, raceCount, seed);
+        NLog.i("Done in %.1fs", (System.nanoTime() - startTime) / 1e9f);
+
+        CsvWriter writer = new CsvWriter(Gdx.files.absolute(csvFileName));
+        writeHeader(writer);
+        for (int raceIdx = 0; raceIdx < results.size; ++raceIdx) {
+            writeResult(writer, raceIdx, results.get(raceIdx));
+        }
+    }
+
+    private static void writeHeader(CsvWriter writer) {
+        writer.addRow(
+                "race",
+                "seed",
+                "track",
+                "rank",
+                "vehicle",
+                "status",
+                "total_time",
+                "best_lap_time",
+                "lap_times",
+                "picked_bonus",
+                "missile_hit",
+                "leaving_road");
+    }
+
+    private static void writeResult(CsvWriter writer, int raceIdx, RaceResult result) {
+        for (RaceResult.RacerResult racer : result.racers) {
+            StringBuilder lapTimes = new StringBuilder();
+            for (float lapTime : racer.lapTimes) {
+                if (lapTimes.length() > 0) {
+                    lapTimes.append(' ');
+                }
+                lapTimes.append(lapTime);
+            }
+            writer.addRow(
+                    raceIdx,
+                    result.seed,
+                    result.trackId,
+                    racer.rank,
+                    racer.vehicleId,
+                    racer.status,
+                    racer.totalTime,
+                    racer.bestLapTime,
+                    lapTimes,
+                    racer.getEventCount(GameStats.Event.PICKED_BONUS),
+                    racer.getEventCount(GameStats.Event.MISSILE_HIT),
+                    racer.getEventCount(GameStats.Event.LEAVING_ROAD));
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.graphics.GL20;
+import java.lang.reflect.Proxy;
+
+/**
+ * Like CommandLineApplication, but does not need a display.
+ *
+ * <p>Gdx.gl is replaced with an implementation which does nothing, so that textures can be "loaded"
+ * and code depending on Assets can run, as long as nothing is drawn.
+ */
+public abstract class HeadlessCommandLineApplication extends HeadlessApplication {
+    private static class AppAdapter extends ApplicationAdapter {
+        HeadlessCommandLineApplication mApp;
+        String[] mArguments;
+
+        @Override
+        public void create() {
+            GL20 gl = createNoOpGL20();
+            Gdx.gl = gl;
+            Gdx.gl20 = gl;
+            System.exit(mApp.run(mArguments));
+        }
+    }
+
+    public HeadlessCommandLineApplication(String[] arguments) {
+        super(new AppAdapter());
+        AppAdapter appAdapter = (AppAdapter) getApplicationListener();
+        appAdapter.mApp = this;
+        appAdapter.mArguments = arguments;
+    }
+
+    /** Returns a GL20 implementation which does nothing */
+    public static GL20 createNoOpGL20() {
+        return (GL20)
+                Proxy.newProxyInstance(
+                        GL20.class.getClassLoader(),
+                        new Class[] {GL20.class},
+                        (proxy, method, args) -> {
+                            Class<?> type = method.getReturnType();
+                            if (type == boolean.class) {
+                                return false;
+                            } else if (type == int.class) {
+                                return 0;
+                            } else if (type == float.class) {
+                                return 0f;
+                            } else if (type == String.class) {
+                                return "";
+                            }
+                            return null;
+                        });
+    }
+
+    abstract int run(String[] arguments);
+}
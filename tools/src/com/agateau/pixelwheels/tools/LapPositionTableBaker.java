@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.map.BakedLapPositionTable;
+import com.agateau.pixelwheels.map.LapPositionTable;
+import com.agateau.pixelwheels.map.LapPositionTableIO;
+import com.agateau.pixelwheels.map.LapPositionTableValidator;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.maps.tiled.TiledMap;
+import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
+import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Bakes the lap position table of .tmx files, and stores it in a .lpt file next to them.
+ *
+ * <p>Each baked table is checked against the table computed from the map sections before being
+ * written: at the center of each sample, the two tables must only differ by the quantization error.
+ * The worst error over all the pixels of the map is reported too. If no file is given, bakes all
+ * the maps in the maps/ directory.
+ *
+ * <p>Must be run from the android/assets directory.
+ */
+public class LapPositionTableBaker {
+    // One quantization step: twice the maximum quantization error, to absorb rounding errors
+    private static final float LAP_DISTANCE_TOLERANCE =
+            2 * BakedLapPositionTable.getSectionDistanceError();
+    private static final float CENTER_DISTANCE_TOLERANCE =
+            2 * BakedLapPositionTable.getCenterDistanceError();
+
+    public static void main(String[] args) {
+        new HeadlessCommandLineApplication(args) {
+            @Override
+            int run(String[] arguments) {
+                Array<FileHandle> tmxFiles = new Array<>();
+                if (arguments.length == 0) {
+                    tmxFiles.addAll(Gdx.files.local("maps").list(".tmx"));
+                } else {
+                    for (String argument : arguments) {
+                        tmxFiles.add(Gdx.files.absolute(argument));
+                    }
+                }
+                boolean ok = true;
+                for (FileHandle tmxFile : tmxFiles) {
+                    ok = bake(tmxFile) && ok;
+                }
+                return ok ? 0 : 1;
+            }
+        };
+    }
+
+    private static boolean bake(FileHandle tmxFile) {
+        NLog.i("Baking %s", tmxFile.path());
+        TiledMap map = new TmxMapLoader().load(tmxFile.path());
+        LapPositionTable table = LapPositionTableIO.load(map);
+        int checksum = LapPositionTableIO.computeSectionChecksum(map);
+
+        TiledMapTileLayer layer = (TiledMapTileLayer) map.getLayers().get(0);
+        int width = layer.getWidth() * ((int) layer.getTileWidth());
+        int height = layer.getHeight() * ((int) layer.getTileHeight());
+        map.dispose();
+
+        BakedLapPositionTable bakedTable =
+                BakedLapPositionTable.bake(table, width, height, checksum);
+
+        // Samples are taken at the center of their cell, so there the tables must agree
+        LapPositionTableValidator validator =
+                new LapPositionTableValidator(LAP_DISTANCE_TOLERANCE, CENTER_DISTANCE_TOLERANCE);
+        validator.setStride(BakedLapPositionTable.SAMPLE_SIZE);
+        validator.setOffset(BakedLapPositionTable.SAMPLE_SIZE / 2);
+        LapPositionTableValidator.Result result =
+                validator.validate(table, bakedTable, width, height);
+        NLog.i("Sample centers: %s", result);
+
+        // Elsewhere the error also depends on the size of the sections, only report it
+        LapPositionTableValidator.Result fullResult =
+                new LapPositionTableValidator(Float.MAX_VALUE)
+                        .validate(table, bakedTable, width, height);
+        NLog.i("All pixels: %s", fullResult);
+
+        if (!result.isValid(0)) {
+            NLog.e("Baked table for %s does not match its sections, not saving it", tmxFile.path());
+            return false;
+        }
+
+        FileHandle tableFile =
+                tmxFile.sibling(
+                        tmxFile.nameWithoutExtension() + BakedLapPositionTable.FILE_EXTENSION);
+        bakedTable.write(tableFile);
+        return true;
+    }
+}
@@ -20,37 +20,63 @@ package com.agateau.pixelwheels.tools;
 
 import com.agateau.pixelwheels.map.LapPositionTable;
 import com.agateau.pixelwheels.map.LapPositionTableIO;
+import com.agateau.utils.log.NLog;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.PixmapIO;
 import com.badlogic.gdx.maps.tiled.TiledMap;
 import com.badlogic.gdx.maps.tiled.TiledMapTileLayer;
 import com.badlogic.gdx.maps.tiled.TmxMapLoader;
+import java.util.concurrent.ForkJoinPool;
 
-/** Load a .tmx file and save its corresponding lap position table as a PNG file */
+/**
+ * Load .tmx files and save their corresponding lap position table as PNG files.
+ *
+ * <p>Can be called with a .tmx file and a PNG file, or with a directory containing .tmx files and
+ * an output directory. In the latter case, the PNG files are named after the .tmx files.
+ */
 public class LapPositionTableGenerator {
+    private static final String USAGE =
+            "Usage: LapPositionTableGenerator <file.tmx> <table.png>\n"
+                    + "       LapPositionTableGenerator <tmx-dir> <output-dir>";
+
     public static void main(String[] args) {
         new CommandLineApplication("LapPositionTableGenerator", args) {
             @Override
             int run(String[] arguments) {
-                FileHandle tmxFile = Gdx.files.absolute(arguments[0]);
-                FileHandle tableFile = Gdx.files.absolute(arguments[1]);
-                LapPositionTableGenerator.generateTable(tmxFile, tableFile);
+                if (arguments.length != 2) {
+                    NLog.e(USAGE);
+                    return 1;
+                }
+                FileHandle input = Gdx.files.absolute(arguments[0]);
+                FileHandle output = Gdx.files.absolute(arguments[1]);
+                LapPositionTableImageWriter writer =
+                        new LapPositionTableImageWriter(ForkJoinPool.commonPool());
+                if (input.isDirectory()) {
+                    output.mkdirs();
+                    for (FileHandle tmxFile : input.list(".tmx")) {
+                        FileHandle tableFile =
+                                output.child(tmxFile.nameWithoutExtension() + ".png");
+                        generateTable(writer, tmxFile, tableFile);
+                    }
+                } else {
+                    generateTable(writer, input, output);
+                }
                 return 0;
             }
         };
     }
 
-    public static void generateTable(FileHandle tmxFile, FileHandle tableFile) {
+    public static void generateTable(
+            LapPositionTableImageWriter writer, FileHandle tmxFile, FileHandle tableFile) {
+        NLog.i("Generating %s from %s", tableFile.path(), tmxFile.path());
         TiledMap map = new TmxMapLoader().load(tmxFile.path());
         LapPositionTable table = LapPositionTableIO.load(map);
 
         TiledMapTileLayer layer = (TiledMapTileLayer) map.getLayers().get(0);
         int width = layer.getWidth() * ((int) layer.getTileWidth());
         int height = layer.getHeight() * ((int) layer.getTileHeight());
+        map.dispose();
 
-        Pixmap pixmap = LapPositionTableIO.createPixmap(table, width, height);
-        PixmapIO.writePNG(tableFile, pixmap);
+        writer.write(table, width, height, tableFile);
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.map.LapPosition;
+import com.agateau.pixelwheels.map.LapPositionTable;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.files.FileHandle;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes a LapPositionTable as a PNG image.
+ *
+ * <p>The image is produced in bands of rows: the rows of a band are computed in parallel on a
+ * fork-join pool, then streamed to the PNG file, so only one band is in memory at a time.
+ *
+ * <p>Colors: red is 1 - |center distance|, green is section id, blue is section distance.
+ */
+public class LapPositionTableImageWriter {
+    private static final int BAND_HEIGHT = 128;
+    private static final int ROWS_PER_TASK = 4;
+
+    private final ForkJoinPool mPool;
+    private final ThreadLocal<LapPosition> mLapPositions =
+            ThreadLocal.withInitial(LapPosition::new);
+
+    private LapPositionTable mTable;
+    private int mWidth;
+    private int mHeight;
+    private byte[][] mRows;
+    private int mBandStart;
+
+    private class RowsTask extends RecursiveAction {
+        private final int mStart;
+        private final int mEnd;
+
+        /** Computes rows mStart to mEnd - 1 of the current band */
+        RowsTask(int start, int end) {
+            mStart = start;
+            mEnd = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (mEnd - mStart <= ROWS_PER_TASK) {
+                for (int idx = mStart; idx < mEnd; ++idx) {
+                    computeRow(mBandStart + idx, mRows[idx]);
+                }
+                return;
+            }
+            int middle = (mStart + mEnd) / 2;
+            invokeAll(new RowsTask(mStart, middle), new RowsTask(middle, mEnd));
+        }
+    }
+
+    public LapPositionTableImageWriter(ForkJoinPool pool) {
+        mPool = pool;
+    }
+
+    public void write(LapPositionTable table, int width, int height, FileHandle file) {
+        mTable = table;
+        mWidth = width;
+        mHeight = height;
+        mRows = new byte[Math.min(BAND_HEIGHT, height)][width * 4];
+        // Make sure lazily-initialized data is ready before calling get() from several threads
+        table.get(0, 0);
+
+        try (PngRowWriter writer =
+                new PngRowWriter(file.write(false /* append */), width, height)) {
+            for (mBandStart = 0; mBandStart < height; mBandStart += BAND_HEIGHT) {
+                int bandHeight = Math.min(BAND_HEIGHT, height - mBandStart);
+                mPool.invoke(new RowsTask(0, bandHeight));
+                for (int idx = 0; idx < bandHeight; ++idx) {
+                    writer.writeRow(mRows[idx]);
+                }
+                NLog.i("%s: %d/%d", file.name(), mBandStart + bandHeight, height);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + file.path(), e);
+        } finally {
+            mTable = null;
+            mRows = null;
+        }
+    }
+
+    /** Image rows go from top to bottom, while table coordinates go from bottom to top */
+    private void computeRow(int imageRow, byte[] row) {
+        LapPosition lapPosition = mLapPositions.get();
+        int y = mHeight - 1 - imageRow;
+        int sectionCount = mTable.getSectionCount();
+        for (int x = 0, offset = 0; x < mWidth; ++x, offset += 4) {
+            LapPosition pos = mTable.get(x, y, lapPosition);
+            if (pos == null) {
+                row[offset] = 0;
+                row[offset + 1] = 0;
+                row[offset + 2] = 0;
+                row[offset + 3] = 0;
+            } else {
+                row[offset] = (byte) ((1 - Math.abs(pos.getCenterDistance())) * 255);
+                row[offset + 1] = (byte) (pos.getSectionId() * 255 / sectionCount);
+                row[offset + 2] = (byte) (pos.getSectionDistance() * 255);
+                row[offset + 3] = (byte) 0xff;
+            }
+        }
+    }
+}
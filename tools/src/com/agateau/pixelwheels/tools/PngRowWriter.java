@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.utils.Assert;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an RGBA PNG image row by row, so that the whole image never has to be in memory.
+ *
+ * <p>Rows are written from top to bottom, each row is width * 4 bytes.
+ */
+public class PngRowWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int IHDR = 0x49484452;
+    private static final int IDAT = 0x49444154;
+    private static final int IEND = 0x49454e44;
+    private static final byte COLOR_TYPE_RGBA = 6;
+    private static final byte FILTER_NONE = 0;
+    private static final int MAX_CHUNK_SIZE = 64 * 1024;
+
+    private final DataOutputStream mOut;
+    private final int mWidth;
+    private final int mHeight;
+    private final Deflater mDeflater = new Deflater();
+    private final DeflaterOutputStream mDeflaterStream;
+    private int mRowCount = 0;
+
+    /** Writes IDAT chunks of at most MAX_CHUNK_SIZE bytes */
+    private class IdatOutputStream extends OutputStream {
+        private final ByteArrayOutputStream mBuffer = new ByteArrayOutputStream(MAX_CHUNK_SIZE);
+
+        @Override
+        public void write(int b) throws IOException {
+            mBuffer.write(b);
+            if (mBuffer.size() >= MAX_CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                int count = Math.min(length, MAX_CHUNK_SIZE - mBuffer.size());
+                mBuffer.write(bytes, offset, count);
+                offset += count;
+                length -= count;
+                if (mBuffer.size() >= MAX_CHUNK_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (mBuffer.size() > 0) {
+                writeChunk(IDAT, mBuffer.toByteArray());
+                mBuffer.reset();
+            }
+        }
+    }
+
+    public PngRowWriter(OutputStream out, int width, int height) throws IOException {
+        mOut = new DataOutputStream(out);
+        mWidth = width;
+        mHeight = height;
+        mDeflaterStream = new DeflaterOutputStream(new IdatOutputStream(), mDeflater);
+
+        mOut.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(width);
+        headerOut.writeInt(height);
+        headerOut.writeByte(8); // bit depth
+        headerOut.writeByte(COLOR_TYPE_RGBA);
+        headerOut.writeByte(0); // compression method
+        headerOut.writeByte(0); // filter method
+        headerOut.writeByte(0); // interlace method
+        writeChunk(IHDR, header.toByteArray());
+    }
+
+    public void writeRow(byte[] row) throws IOException {
+        Assert.check(mRowCount < mHeight, "Too many rows");
+        Assert.check(row.length >= mWidth * 4, "Row is too short");
+        mDeflaterStream.write(FILTER_NONE);
+        mDeflaterStream.write(row, 0, mWidth * 4);
+        ++mRowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            Assert.check(mRowCount == mHeight, "Missing rows: " + (mHeight - mRowCount));
+            mDeflaterStream.finish();
+            mDeflaterStream.flush();
+            writeChunk(IEND, new byte[0]);
+        } finally {
+            mDeflater.end();
+            mOut.close();
+        }
+    }
+
+    private void writeChunk(int type, byte[] data) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(type >>> 24);
+        crc.update(type >>> 16);
+        crc.update(type >>> 8);
+        crc.update(type);
+        crc.update(data);
+        mOut.writeInt(data.length);
+        mOut.writeInt(type);
+        mOut.write(data);
+        mOut.writeInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.pixelwheels.Assets;
+import com.agateau.pixelwheels.map.Track;
+import com.agateau.pixelwheels.replay.Replay;
+import com.agateau.pixelwheels.replay.ReplayPlayer;
+import com.agateau.pixelwheels.simulation.RaceSimulator;
+import com.agateau.utils.log.NLog;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.PerformanceCounters;
+import java.io.IOException;
+
+/**
+ * Plays replays recorded with the "Record replays" debug option as fast as possible, and checks
+ * they still match the recorded races. Useful to find out if a change affects the physics.
+ *
+ * <p>Must be run from the android/assets directory. Returns 1 if a replay diverged.
+ */
+public class ReplayRunner {
+    private static final String USAGE = "Usage: ReplayRunner <replay-file>...";
+
+    public static void main(String[] args) {
+        new HeadlessCommandLineApplication(args) {
+            @Override
+            int run(String[] arguments) {
+                if (arguments.length == 0) {
+                    NLog.e(USAGE);
+                    return 1;
+                }
+                Assets assets = new Assets();
+                RaceSimulator simulator = new RaceSimulator(assets);
+                boolean ok = true;
+                for (String path : arguments) {
+                    ok = play(assets, simulator, path) && ok;
+                }
+                return ok ? 0 : 1;
+            }
+        };
+    }
+
+    private static boolean play(Assets assets, RaceSimulator simulator, String path) {
+        Replay replay;
+        try {
+            replay = Replay.read(Gdx.files.absolute(path));
+        } catch (IOException e) {
+            NLog.e("Failed to read %s: %s", path, e);
+            return false;
+        }
+        Track track = assets.findTrackById(replay.getTrackId());
+        if (track == null) {
+            NLog.e("%s: no track with id '%s'", path, replay.getTrackId());
+            return false;
+        }
+        PerformanceCounters performanceCounters = new PerformanceCounters();
+        ReplayPlayer player =
+                new ReplayPlayer(
+                        replay,
+                        track,
+                        gameInfo -> simulator.createWorld(gameInfo, 0, performanceCounters));
+        long startTime = System.nanoTime();
+        float raceTime = 0;
+        while (player.step()) {
+            raceTime += player.getStepDelta();
+        }
+        float duration = (System.nanoTime() - startTime) / 1e9f;
+        int divergentStep = player.getDivergentStep();
+        player.dispose();
+
+        NLog.i(
+                "%s: %s, %d steps, %d keyframes, %.1fs of race played in %.1fs (x%.0f)",
+                path,
+                replay.getTrackId(),
+                replay.getStepCount(),
+                replay.getKeyframeCount(),
+                raceTime,
+                duration,
+                raceTime / duration);
+        if (divergentStep >= 0) {
+            NLog.e("%s: diverged at step %d", path, divergentStep);
+            return false;
+        }
+        return true;
+    }
+}
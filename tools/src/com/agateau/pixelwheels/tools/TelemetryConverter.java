@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Aurélien Gâteau <mail@agateau.com>
+ *
+ * This file is part of Pixel Wheels.
+ *
+ * Pixel Wheels is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along with
+ * this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.agateau.pixelwheels.tools;
+
+import com.agateau.utils.telemetry.TelemetryReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/** Converts files created by TelemetryRecorder to CSV or TSV */
+public class TelemetryConverter {
+    private static final String USAGE =
+            "Usage: TelemetryConverter [-t] <telemetry.dat> [output]\n"
+                    + "\n"
+                    + "Writes CSV, or TSV if -t is set, to output, or to stdout if output is not"
+                    + " set.";
+
+    public static void main(String[] args) {
+        char separator = ',';
+        int argIdx = 0;
+        if (args.length > 0 && args[0].equals("-t")) {
+            separator = '\t';
+            ++argIdx;
+        }
+        int remaining = args.length - argIdx;
+        if (remaining < 1 || remaining > 2) {
+            System.err.println(USAGE);
+            System.exit(1);
+        }
+        String inputPath = args[argIdx];
+        try (FileInputStream input = new FileInputStream(inputPath);
+                OutputStream output =
+                        remaining == 2 ? new FileOutputStream(args[argIdx + 1]) : System.out) {
+            Writer writer =
+                    new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            convert(new TelemetryReader(input), writer, separator);
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Failed to convert " + inputPath + ": " + e);
+            System.exit(1);
+        }
+    }
+
+    private static void convert(TelemetryReader reader, Writer writer, char separator)
+            throws IOException {
+        int channelCount = reader.getChannelCount();
+        for (int channel = 0; channel < channelCount; ++channel) {
+            if (channel > 0) {
+                writer.write(separator);
+            }
+            writer.write(reader.getChannelName(channel));
+        }
+        writer.write('\n');
+        while (reader.readBlock()) {
+            for (int row = 0; row < reader.getRowCount(); ++row) {
+                for (int channel = 0; channel < channelCount; ++channel) {
+                    if (channel > 0) {
+                        writer.write(separator);
+                    }
+                    writer.write(reader.getString(channel, row));
+                }
+                writer.write('\n');
+            }
+        }
+        reader.close();
+    }
+}